@@ -63,6 +63,9 @@ public interface CachingManager {
     /** Name of the rendering cache. */
     String CACHE_DOCUMENTS = "jspwiki.renderingCache";
 
+    /** Name of the page access rules cache. */
+    String CACHE_ACLS = "jspwiki.aclCache";
+
     /**
      * Shuts down the underlying cache manager
      */
@@ -71,6 +71,7 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
             final URL location = this.getClass().getResource( confLocation );
             LOG.info( "Reading ehcache configuration file from classpath on /{}", location );
             cacheManager = CacheManager.create( location );
+            registerCache( CACHE_ACLS );
             registerCache( CACHE_ATTACHMENTS );
             registerCache( CACHE_ATTACHMENTS_COLLECTION );
             registerCache( CACHE_ATTACHMENTS_DYNAMIC );
@@ -0,0 +1,143 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Events waiting to be delivered to an {@link AsyncWikiEventListener}.
+ * <p>
+ * Queues don't own a thread: when an event is queued on an idle queue, a task delivering the queued events is handed to a
+ * pool shared by all the queues, and it keeps going until the queue is empty. There's at most one such task per queue,
+ * so events are delivered in order, and a listener doesn't get called concurrently.
+ * <p>
+ * A queue doesn't hold on to its listener: the listener only travels along with the events, so that a listener which
+ * is no longer referenced elsewhere can still be garbage collected, as it happens with synchronous listeners.
+ *
+ * @since 2.12.3
+ */
+final class AsyncEventQueue {
+
+    private static final Logger LOG = LogManager.getLogger( AsyncEventQueue.class );
+
+    /** Events delivered on a single run before giving the pool thread to other queues. */
+    private static final int BATCH = 64;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ExecutorService DISPATCHERS = Executors.newCachedThreadPool( r -> {
+        final Thread t = new Thread( r, "JSPWiki Event Dispatcher-" + THREADS.incrementAndGet() );
+        t.setDaemon( true );
+        return t;
+    } );
+
+    /** Queue whose events are being delivered by the current thread, if any. */
+    private static final ThreadLocal< AsyncEventQueue > DELIVERING = new ThreadLocal<>();
+
+    private final BlockingQueue< Delivery > m_queue;
+    private final AtomicBoolean m_scheduled = new AtomicBoolean();
+
+    AsyncEventQueue( final int size ) {
+        m_queue = new ArrayBlockingQueue<>( Math.max( 1, size ) );
+    }
+
+    /**
+     * Queues an event for a listener, waiting for room on the queue if it's full.
+     *
+     * @param listener the listener to notify.
+     * @param event the event to deliver.
+     */
+    void enqueue( final WikiEventListener listener, final WikiEvent event ) {
+        final Delivery delivery = new Delivery( listener, event );
+        if( !m_queue.offer( delivery ) ) {
+            if( DELIVERING.get() == this ) {
+                // the listener is firing events to itself; waiting for room would mean waiting for ourselves
+                LOG.warn( "Event queue of {} is full, delivering {} out of order", listener, event );
+                delivery.run();
+                return;
+            }
+            try {
+                m_queue.put( delivery );
+            } catch( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                LOG.warn( "Interrupted while queueing {} for {}, event dropped", event, listener );
+                return;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Returns the number of events waiting to be delivered.
+     *
+     * @return number of events queued.
+     */
+    int size() {
+        return m_queue.size();
+    }
+
+    private void schedule() {
+        if( !m_queue.isEmpty() && m_scheduled.compareAndSet( false, true ) ) {
+            DISPATCHERS.execute( this::deliver );
+        }
+    }
+
+    private void deliver() {
+        DELIVERING.set( this );
+        try {
+            Delivery delivery;
+            for( int i = 0; i < BATCH && ( delivery = m_queue.poll() ) != null; i++ ) {
+                delivery.run();
+            }
+        } finally {
+            DELIVERING.remove();
+            m_scheduled.set( false );
+            schedule(); // catch up with events queued after the last poll, or left by the batch limit
+        }
+    }
+
+    private static final class Delivery {
+
+        private final WikiEventListener m_listener;
+        private final WikiEvent m_event;
+
+        Delivery( final WikiEventListener listener, final WikiEvent event ) {
+            m_listener = listener;
+            m_event = event;
+        }
+
+        void run() {
+            try {
+                WikiEventManager.getStatistics().deliver( m_listener, m_event );
+            } catch( final RuntimeException e ) {
+                LOG.error( "Listener {} failed to process {}: {}", m_listener, m_event, e.getMessage(), e );
+            }
+        }
+
+    }
+
+}
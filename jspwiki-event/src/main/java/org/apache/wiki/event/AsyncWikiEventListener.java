@@ -0,0 +1,48 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.event;
+
+
+/**
+ * A WikiEventListener which doesn't need to be notified on the thread firing the event.
+ * <p>
+ * The {@link WikiEventManager} hands the events meant for these listeners to a queue of their own, and returns to the
+ * event source straight away; the events are then delivered one at a time, in the same order they were fired. A listener
+ * is given a single queue, no matter how many event sources it listens to, so it is never called concurrently by the
+ * WikiEventManager.
+ * <p>
+ * The queue is bounded: if a listener falls that much behind, the event sources firing events to it wait for it to catch up.
+ *
+ * @since 2.12.3
+ */
+public interface AsyncWikiEventListener extends WikiEventListener {
+
+    /** Default maximum number of events waiting to be delivered to a listener. */
+    int DEFAULT_QUEUE_SIZE = 1_000;
+
+    /**
+     * Returns the maximum number of events waiting to be delivered to this listener.
+     *
+     * @return size of the listener's event queue.
+     */
+    default int getEventQueueSize() {
+        return DEFAULT_QUEUE_SIZE;
+    }
+
+}
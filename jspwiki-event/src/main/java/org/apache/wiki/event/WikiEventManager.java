@@ -26,13 +26,13 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.ConcurrentModificationException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  *  A singleton class that manages the addition and removal of WikiEvent listeners to a event source, as well as the firing of events
@@ -120,6 +120,18 @@ import java.util.Vector;
  *  garbage is collected, your object might still be getting events, so if you wish to avoid that, please remove it explicitly as
  *  described above.
  *  </p>
+ *  <h3>Asynchronous listeners</h3>
+ *  <p>
+ *  Listeners are notified on the thread firing the event, one after the other, so a slow listener slows down whatever fired
+ *  the event. Listeners which don't need to run before the event source carries on can implement {@link AsyncWikiEventListener}
+ *  instead: their events are queued, and delivered in the same order they were fired, on a separate thread. Firing an event
+ *  doesn't take any lock, so event sources don't wait for each other either.
+ *  </p>
+ *  <h3>Statistics</h3>
+ *  <p>
+ *  The time each listener takes to process each type of event is recorded, and listeners taking too long are logged; see
+ *  {@link #getStatistics()}.
+ *  </p>
  * @since 2.4.20
  */
 public final class WikiEventManager {
@@ -135,6 +147,12 @@ public final class WikiEventManager {
     /* The Map of client object to WikiEventDelegate. */
     private final Map< Object, WikiEventDelegate > m_delegates = new HashMap<>();
 
+    /* The event queues of the asynchronous listeners, one per listener, regardless of the sources it listens to. */
+    private final Map< WikiEventListener, AsyncEventQueue > m_queues = Collections.synchronizedMap( new WeakHashMap<>() );
+
+    /* Event delivery figures. */
+    private final WikiEventStatistics m_statistics = new WikiEventStatistics();
+
     /* The Vector containing any preloaded WikiEventDelegates. */
     private final Vector< WikiEventDelegate > m_preloadCache = new Vector<>();
 
@@ -281,6 +299,35 @@ public final class WikiEventManager {
         return getInstance().getDelegateFor( client ).isListening();
     }
 
+    /**
+     *  Returns the figures on event delivery gathered so far: how many events each listener received, and how long it took to
+     *  process them.
+     *
+     *  @return event delivery statistics.
+     *  @since 2.12.3
+     */
+    public static WikiEventStatistics getStatistics() {
+        return getInstance().m_statistics;
+    }
+
+    /**
+     *  Returns the number of listeners which have been garbage collected, but are still in the listener list of some client. They
+     *  are dropped the next time the client fires an event.
+     *
+     *  @return number of collected listeners still registered.
+     *  @since 2.12.3
+     */
+    public static int getStaleListenerCount() {
+        final WikiEventManager mgr = getInstance();
+        synchronized( mgr.m_delegates ) {
+            int stale = 0;
+            for( final WikiEventDelegate delegate : mgr.m_delegates.values() ) {
+                stale += delegate.getStaleListenerCount();
+            }
+            return stale;
+        }
+    }
+
     /**
      *  Notify all listeners of the WikiEventDelegate having a registered interest in change events of the supplied WikiEvent.
      *
@@ -346,6 +393,16 @@ public final class WikiEventManager {
     }
 
 
+    /**
+     *  Returns the event queue of an asynchronous listener, or null if the listener is a synchronous one.
+     */
+    private AsyncEventQueue getQueueFor( final WikiEventListener listener ) {
+        if( listener instanceof AsyncWikiEventListener ) {
+            return m_queues.computeIfAbsent( listener, l -> new AsyncEventQueue( ( ( AsyncWikiEventListener )l ).getEventQueueSize() ) );
+        }
+        return null;
+    }
+
     // .........................................................................
 
     /**
@@ -357,8 +414,8 @@ public final class WikiEventManager {
      */
     private static final class WikiEventDelegate {
 
-        /* A list of event listeners for this instance. */
-        private final ArrayList< WeakReference< WikiEventListener > > m_listenerList = new ArrayList<>();
+        /* A list of event listeners for this instance; copied on each change, so events can be fired without locking it. */
+        private final CopyOnWriteArrayList< Registration > m_listenerList = new CopyOnWriteArrayList<>();
         private Class< ? >  m_class;
 
         /**
@@ -386,17 +443,15 @@ public final class WikiEventManager {
          * @throws java.lang.UnsupportedOperationException  if any attempt is made to modify the Set
          */
         public Set< WikiEventListener > getWikiEventListeners() {
-            synchronized( m_listenerList ) {
-                final TreeSet< WikiEventListener > set = new TreeSet<>( new WikiEventListenerComparator() );
-                for( final WeakReference< WikiEventListener > wikiEventListenerWeakReference : m_listenerList ) {
-                    final WikiEventListener l = wikiEventListenerWeakReference.get();
-                    if( l != null ) {
-                        set.add( l );
-                    }
+            final TreeSet< WikiEventListener > set = new TreeSet<>( new WikiEventListenerComparator() );
+            for( final Registration registration : m_listenerList ) {
+                final WikiEventListener l = registration.get();
+                if( l != null ) {
+                    set.add( l );
                 }
-
-                return Collections.unmodifiableSet( set );
             }
+
+            return Collections.unmodifiableSet( set );
         }
 
         /**
@@ -411,7 +466,7 @@ public final class WikiEventManager {
                                                                        .map( WeakReference::get )
                                                                        .anyMatch( ref -> ref == listener );
                 if( !listenerAlreadyContained ) {
-                    return m_listenerList.add( new WeakReference<>( listener ) );
+                    return m_listenerList.add( new Registration( listener, getInstance().getQueueFor( listener ) ) );
                 }
             }
             return false;
@@ -425,11 +480,9 @@ public final class WikiEventManager {
          */
         public boolean removeWikiEventListener( final WikiEventListener listener ) {
             synchronized( m_listenerList ) {
-                for( final Iterator< WeakReference< WikiEventListener > > i = m_listenerList.iterator(); i.hasNext(); ) {
-                    final WikiEventListener l = i.next().get();
-                    if( l == listener ) {
-                        i.remove();
-                        return true;
+                for( final Registration registration : m_listenerList ) {
+                    if( registration.get() == listener ) {
+                        return m_listenerList.remove( registration );
                     }
                 }
             }
@@ -441,43 +494,55 @@ public final class WikiEventManager {
          *  Returns true if there are one or more listeners registered with this instance.
          */
         public boolean isListening() {
-            synchronized( m_listenerList ) {
-                return !m_listenerList.isEmpty();
-            }
+            return !m_listenerList.isEmpty();
         }
 
         /**
-         *  Notify all listeners having a registered interest in change events of the supplied WikiEvent.
+         *  Returns the number of listeners which have been garbage collected, but not yet removed from the listener list.
+         */
+        int getStaleListenerCount() {
+            return ( int )m_listenerList.stream().filter( registration -> registration.get() == null ).count();
+        }
+
+        /**
+         *  Notify all listeners having a registered interest in change events of the supplied WikiEvent. Synchronous listeners are
+         *  notified right away, asynchronous ones get the event queued.
          */
         public void fireEvent( final WikiEvent event ) {
+            final WikiEventStatistics statistics = getStatistics();
             boolean needsCleanup = false;
-            try {
-                synchronized( m_listenerList ) {
-                    for( final WeakReference< WikiEventListener > wikiEventListenerWeakReference : m_listenerList ) {
-                        final WikiEventListener listener = wikiEventListenerWeakReference.get();
-                        if( listener != null ) {
-                            listener.actionPerformed( event );
-                        } else {
-                            needsCleanup = true;
-                        }
-                    }
-
-                    //  Remove all such listeners which have expired
-                    if( needsCleanup ) {
-                        for( int i = 0; i < m_listenerList.size(); i++ ) {
-                            final WeakReference< WikiEventListener > w = m_listenerList.get( i );
-                            if( w.get() == null ) {
-                                m_listenerList.remove(i--);
-                            }
-                        }
-                    }
-
+            for( final Registration registration : m_listenerList ) {
+                final WikiEventListener listener = registration.get();
+                if( listener == null ) {
+                    needsCleanup = true;
+                } else if( registration.m_queue != null ) {
+                    registration.m_queue.enqueue( listener, event );
+                } else {
+                    statistics.deliver( listener, event );
                 }
-            } catch( final ConcurrentModificationException e ) {
-                //  We don't die, we just don't do notifications in that case.
-                LOG.info( "Concurrent modification of event list; please report this.", e );
             }
+
+            //  Remove all such listeners which have expired
+            if( needsCleanup ) {
+                final int before = m_listenerList.size();
+                m_listenerList.removeIf( registration -> registration.get() == null );
+                statistics.recordPruned( before - m_listenerList.size() );
+            }
+        }
+    }
+
+    /**
+     *  A listener attached to a delegate, along with its event queue if it's an asynchronous listener.
+     */
+    private static final class Registration extends WeakReference< WikiEventListener > {
+
+        private final AsyncEventQueue m_queue;
+
+        Registration( final WikiEventListener listener, final AsyncEventQueue queue ) {
+            super( listener );
+            m_queue = queue;
         }
+
     }
 
     private static class WikiEventListenerComparator implements Comparator< WikiEventListener > {
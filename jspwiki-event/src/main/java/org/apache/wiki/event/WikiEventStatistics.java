@@ -0,0 +1,283 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *  Keeps track of what delivering events costs: how many events of each type each kind of listener gets, how long it takes to
+ *  process them, and which listeners are too slow at it. Listeners are told apart by their class, so figures don't go away with
+ *  the listeners themselves.
+ *  <p>
+ *  A listener taking longer than the slow listener threshold to process an event is logged, the first time it happens for a
+ *  given listener and event type at warning level, and at debug level afterwards.
+ *
+ *  @since 2.12.3
+ */
+public final class WikiEventStatistics {
+
+    private static final Logger LOG = LogManager.getLogger( WikiEventStatistics.class );
+
+    /** Default slow listener threshold, in milliseconds. */
+    public static final long DEFAULT_SLOW_THRESHOLD = 250L;
+
+    /** Upper bounds, in milliseconds, of the latency histogram buckets; the last bucket holds everything slower. */
+    private static final long[] BUCKETS = { 1L, 4L, 16L, 64L, 256L, 1024L };
+
+    private final Map< Key, Stat > m_stats = new ConcurrentHashMap<>();
+    private final LongAdder m_pruned = new LongAdder();
+    private final AtomicLong m_slowThreshold = new AtomicLong( TimeUnit.MILLISECONDS.toNanos( DEFAULT_SLOW_THRESHOLD ) );
+
+    WikiEventStatistics() {
+    }
+
+    /**
+     *  Sets how long a listener may take to process an event before being reported as slow.
+     *
+     *  @param millis threshold in milliseconds.
+     */
+    public void setSlowThreshold( final long millis ) {
+        m_slowThreshold.set( TimeUnit.MILLISECONDS.toNanos( Math.max( 0L, millis ) ) );
+    }
+
+    /**
+     *  Returns how long a listener may take to process an event before being reported as slow.
+     *
+     *  @return threshold in milliseconds.
+     */
+    public long getSlowThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis( m_slowThreshold.get() );
+    }
+
+    /**
+     *  Returns the number of listeners dropped from the listener lists after being garbage collected.
+     *
+     *  @return number of collected listeners found since startup.
+     */
+    public long getPrunedListeners() {
+        return m_pruned.sum();
+    }
+
+    /**
+     *  Returns the figures gathered so far, busiest listeners first.
+     *
+     *  @return one entry per listener class and event type.
+     */
+    public List< Entry > getEntries() {
+        final List< Entry > entries = new ArrayList<>();
+        m_stats.forEach( ( key, stat ) -> entries.add( new Entry( key, stat ) ) );
+        entries.sort( Comparator.comparingLong( Entry::getTotalMillis ).reversed().thenComparing( Entry::getListener ) );
+        return entries;
+    }
+
+    /** Forgets the figures gathered so far. */
+    public void reset() {
+        m_stats.clear();
+        m_pruned.reset();
+    }
+
+    void recordPruned( final int listeners ) {
+        m_pruned.add( listeners );
+    }
+
+    /**
+     *  Delivers an event to a listener, accounting for the time it takes.
+     */
+    void deliver( final WikiEventListener listener, final WikiEvent event ) {
+        final long start = System.nanoTime();
+        try {
+            listener.actionPerformed( event );
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            final Key key = new Key( listener.getClass(), event.getClass(), event.getType() );
+            final Stat stat = m_stats.computeIfAbsent( key, k -> new Stat( event.eventName() ) );
+            stat.add( elapsed );
+            if( elapsed > m_slowThreshold.get() ) {
+                final boolean first = stat.m_slow.sum() == 0L;
+                stat.m_slow.increment();
+                if( first ) {
+                    LOG.warn( "Slow event listener: {} took {} ms to process {}",
+                              listener.getClass().getName(), TimeUnit.NANOSECONDS.toMillis( elapsed ), event.eventName() );
+                } else {
+                    LOG.debug( "Slow event listener: {} took {} ms to process {}",
+                               listener.getClass().getName(), TimeUnit.NANOSECONDS.toMillis( elapsed ), event.eventName() );
+                }
+            }
+        }
+    }
+
+    /**
+     *  The figures of a listener class for one event type.
+     */
+    public static final class Entry {
+
+        private final String m_listener;
+        private final String m_event;
+        private final long m_count;
+        private final long m_totalNanos;
+        private final long m_maxNanos;
+        private final long m_slow;
+        private final long[] m_histogram;
+
+        Entry( final Key key, final Stat stat ) {
+            m_listener = key.m_listener.getName();
+            m_event = key.m_event.getSimpleName() + "." + stat.m_eventName;
+            m_count = stat.m_count.sum();
+            m_totalNanos = stat.m_totalNanos.sum();
+            m_maxNanos = stat.m_maxNanos.get();
+            m_slow = stat.m_slow.sum();
+            m_histogram = new long[ stat.m_histogram.length ];
+            for( int i = 0; i < m_histogram.length; i++ ) {
+                m_histogram[ i ] = stat.m_histogram[ i ].sum();
+            }
+        }
+
+        /** @return class name of the listener. */
+        public String getListener() {
+            return m_listener;
+        }
+
+        /** @return event class and type, i.e. {@code WikiPageEvent.PAGE_REQUESTED}. */
+        public String getEvent() {
+            return m_event;
+        }
+
+        /** @return number of events processed. */
+        public long getCount() {
+            return m_count;
+        }
+
+        /** @return time spent processing events, in milliseconds. */
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis( m_totalNanos );
+        }
+
+        /** @return average time spent processing an event, in milliseconds. */
+        public double getMeanMillis() {
+            return m_count > 0 ? m_totalNanos / 1_000_000.0 / m_count : 0.0;
+        }
+
+        /** @return longest time spent processing an event, in milliseconds. */
+        public double getMaxMillis() {
+            return m_maxNanos / 1_000_000.0;
+        }
+
+        /** @return number of events which took longer than the slow listener threshold. */
+        public long getSlowCount() {
+            return m_slow;
+        }
+
+        /**
+         *  Returns the latency histogram: how many events took less than 1, 4, 16, 64, 256 and 1024 ms, and how many took longer.
+         *
+         *  @return event counts per latency bucket.
+         */
+        public long[] getHistogram() {
+            return m_histogram.clone();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append( m_listener ).append( ' ' ).append( m_event )
+              .append( ": count=" ).append( m_count )
+              .append( String.format( ", mean=%.3fms, max=%.3fms", getMeanMillis(), getMaxMillis() ) )
+              .append( ", slow=" ).append( m_slow )
+              .append( ", histogram=" );
+            for( int i = 0; i < m_histogram.length; i++ ) {
+                sb.append( i == 0 ? "" : " " ).append( i < BUCKETS.length ? "<" + BUCKETS[ i ] : ">=" + BUCKETS[ BUCKETS.length - 1 ] )
+                  .append( "ms:" ).append( m_histogram[ i ] );
+            }
+            return sb.toString();
+        }
+
+    }
+
+    private static final class Key {
+
+        private final Class< ? > m_listener;
+        private final Class< ? > m_event;
+        private final int m_type;
+
+        Key( final Class< ? > listener, final Class< ? > event, final int type ) {
+            m_listener = listener;
+            m_event = event;
+            m_type = type;
+        }
+
+        @Override
+        public boolean equals( final Object o ) {
+            if( !( o instanceof Key ) ) {
+                return false;
+            }
+            final Key key = ( Key )o;
+            return m_listener == key.m_listener && m_event == key.m_event && m_type == key.m_type;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ( 31 * m_listener.hashCode() + m_event.hashCode() ) + m_type;
+        }
+
+    }
+
+    private static final class Stat {
+
+        private final String m_eventName;
+        private final LongAdder m_count = new LongAdder();
+        private final LongAdder m_totalNanos = new LongAdder();
+        private final LongAccumulator m_maxNanos = new LongAccumulator( Math::max, 0L );
+        private final LongAdder m_slow = new LongAdder();
+        private final LongAdder[] m_histogram = new LongAdder[ BUCKETS.length + 1 ];
+
+        Stat( final String eventName ) {
+            m_eventName = eventName;
+            for( int i = 0; i < m_histogram.length; i++ ) {
+                m_histogram[ i ] = new LongAdder();
+            }
+        }
+
+        void add( final long nanos ) {
+            m_count.increment();
+            m_totalNanos.add( nanos );
+            m_maxNanos.accumulate( nanos );
+            final long millis = TimeUnit.NANOSECONDS.toMillis( nanos );
+            int bucket = 0;
+            while( bucket < BUCKETS.length && millis >= BUCKETS[ bucket ] ) {
+                bucket++;
+            }
+            m_histogram[ bucket ].increment();
+        }
+
+    }
+
+}
@@ -21,6 +21,12 @@ package org.apache.wiki.event;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 
 public class WikiEventManagerTest {
 
@@ -68,4 +74,92 @@ public class WikiEventManagerTest {
         WikiEventManager.removeWikiEventListener( listener ); // dispose listener; if not done, listener would still be attached to test4 on other tests
     }
 
+    @Test
+    public void shouldDeliverEventsToAsyncListenersInOrder() throws Exception {
+        final String client = "test5";
+        final int events = 500;
+        final List< Integer > received = Collections.synchronizedList( new ArrayList<>() );
+        final CountDownLatch done = new CountDownLatch( events );
+        final AsyncWikiEventListener listener = new AsyncWikiEventListener() {
+            @Override
+            public void actionPerformed( final WikiEvent event ) {
+                received.add( ( ( WikiPageEvent )event ).getType() );
+                done.countDown();
+            }
+
+            @Override
+            public int getEventQueueSize() {
+                return 10; // publisher has to wait for the listener every now and then
+            }
+        };
+        WikiEventManager.addWikiEventListener( client, listener );
+        for( int i = 0; i < events; i++ ) {
+            WikiEventManager.fireEvent( client, new WikiPageEvent( client, i, "page" ) );
+        }
+
+        Assertions.assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        for( int i = 0; i < events; i++ ) {
+            Assertions.assertEquals( i, received.get( i ) );
+        }
+        WikiEventManager.removeWikiEventListener( listener );
+    }
+
+    @Test
+    public void shouldNotWaitForAsyncListeners() throws Exception {
+        final String client = "test6";
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final CountDownLatch done = new CountDownLatch( 2 );
+        final AsyncWikiEventListener slow = event -> {
+            try {
+                release.await( 10, TimeUnit.SECONDS );
+            } catch( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        final TestWikiEventListener sync = new TestWikiEventListener();
+        WikiEventManager.addWikiEventListener( client, slow );
+        WikiEventManager.addWikiEventListener( client, sync );
+
+        WikiEventManager.fireEvent( client, new WikiPageEvent( client, WikiPageEvent.PAGE_REQUESTED, "page" ) );
+        WikiEventManager.fireEvent( client, new WikiPageEvent( client, WikiPageEvent.PAGE_DELIVERED, "page" ) );
+        Assertions.assertEquals( 2, sync.getInvoked() ); // fired and returned while the slow listener is still busy
+
+        release.countDown();
+        Assertions.assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        WikiEventManager.removeWikiEventListener( slow );
+        WikiEventManager.removeWikiEventListener( sync );
+    }
+
+    @Test
+    public void shouldRecordListenerStatistics() {
+        final String client = "test7";
+        final TestWikiEventListener listener = new TestWikiEventListener();
+        final WikiEventStatistics statistics = WikiEventManager.getStatistics();
+        final long slowThreshold = statistics.getSlowThreshold();
+        statistics.reset();
+        statistics.setSlowThreshold( 0L ); // everything's slow
+        try {
+            WikiEventManager.addWikiEventListener( client, listener );
+            WikiEventManager.fireEvent( client, new WikiPageEvent( client, WikiPageEvent.PAGE_REQUESTED, "page" ) );
+            WikiEventManager.fireEvent( client, new WikiPageEvent( client, WikiPageEvent.PAGE_REQUESTED, "page" ) );
+            WikiEventManager.fireEvent( client, new WikiPageEvent( client, WikiPageEvent.PAGE_DELIVERED, "page" ) );
+
+            final List< WikiEventStatistics.Entry > entries = statistics.getEntries();
+            Assertions.assertEquals( 2, entries.size() );
+            final WikiEventStatistics.Entry requested = entries.stream()
+                                                               .filter( e -> e.getEvent().equals( "WikiPageEvent.PAGE_REQUESTED" ) )
+                                                               .findFirst()
+                                                               .orElseThrow( AssertionError::new );
+            Assertions.assertEquals( TestWikiEventListener.class.getName(), requested.getListener() );
+            Assertions.assertEquals( 2, requested.getCount() );
+            Assertions.assertEquals( 2, requested.getSlowCount() );
+            Assertions.assertEquals( 2, requested.getHistogram()[ 0 ] );
+        } finally {
+            WikiEventManager.removeWikiEventListener( listener );
+            statistics.setSlowThreshold( slowThreshold );
+            statistics.reset();
+        }
+    }
+
 }
@@ -0,0 +1,220 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki;
+
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.auth.AuthenticationManager;
+import org.apache.wiki.auth.SessionMonitor;
+import org.apache.wiki.auth.UserManager;
+import org.apache.wiki.auth.authorize.Group;
+import org.apache.wiki.auth.authorize.GroupManager;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
+import org.apache.wiki.event.WikiSecurityEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+
+/**
+ * Hands the security events fired by the GroupManager, AuthenticationManager and UserManager of a wiki to the WikiSessions they
+ * concern, instead of having every WikiSession listen to every event.
+ * <p>
+ * Login, principal and profile events name their session, so they go straight to it. Group events go to the sessions which
+ * may be members of the group: authenticated sessions are indexed by the names of their principals, which is what group
+ * membership is decided on, and the index is refreshed each time an event is handed to a session. Clearing all groups is the
+ * only event which still goes to every session. Sessions which may have changed user after an event are reported to the
+ * wiki's {@link SessionMonitor}.
+ * <p>
+ * Sessions are held weakly, as they were when they listened to the managers themselves.
+ *
+ * @since 2.12.3
+ */
+final class SessionEventRouter implements WikiEventListener {
+
+    /** Map with Engines as keys, and SessionEventRouters as values; as with SessionMonitors, there's one per Engine. */
+    private static final Map< Engine, SessionEventRouter > c_routers = new HashMap<>();
+
+    /** Registrations between sweeps of the principal names left behind by garbage collected sessions. */
+    private static final int SWEEP_INTERVAL = 1_024;
+
+    private final Engine m_engine;
+    private final Set< WikiSession > m_sessions = Collections.newSetFromMap( new WeakHashMap<>() );
+    private final Map< WikiSession, Set< String > > m_indexed = new WeakHashMap<>();
+    private final Map< String, Set< WikiSession > > m_byPrincipal = new HashMap<>();
+    private int m_registrations;
+
+    /**
+     * Returns the router of a wiki, creating it and setting it to listen to the wiki managers on first use.
+     *
+     * @param engine the wiki engine.
+     * @return the wiki's router.
+     */
+    static SessionEventRouter getInstance( final Engine engine ) {
+        synchronized( c_routers ) {
+            SessionEventRouter router = c_routers.get( engine );
+            if( router == null ) {
+                router = new SessionEventRouter( engine );
+                engine.getManager( GroupManager.class ).addWikiEventListener( router );
+                engine.getManager( AuthenticationManager.class ).addWikiEventListener( router );
+                engine.getManager( UserManager.class ).addWikiEventListener( router );
+                c_routers.put( engine, router );
+            }
+            return router;
+        }
+    }
+
+    private SessionEventRouter( final Engine engine ) {
+        m_engine = engine;
+    }
+
+    /**
+     * Starts routing events to a session.
+     *
+     * @param session the session.
+     */
+    synchronized void register( final WikiSession session ) {
+        m_sessions.add( session );
+        index( session );
+        if( ++m_registrations % SWEEP_INTERVAL == 0 ) {
+            m_byPrincipal.values().removeIf( Set::isEmpty );
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( !( event instanceof WikiSecurityEvent ) || ( ( WikiSecurityEvent )event ).getTarget() == null ) {
+            return;
+        }
+        final WikiSecurityEvent e = ( WikiSecurityEvent )event;
+        switch( e.getType() ) {
+        case WikiSecurityEvent.LOGIN_ANONYMOUS:
+        case WikiSecurityEvent.LOGIN_ASSERTED:
+        case WikiSecurityEvent.LOGIN_AUTHENTICATED:
+            deliver( e.getTarget(), e );
+            userChanged( e.getTarget() );
+            break;
+        case WikiSecurityEvent.PRINCIPAL_ADD:
+            deliver( e.getTarget(), e );
+            break;
+        case WikiSecurityEvent.PROFILE_SAVE:
+        case WikiSecurityEvent.PROFILE_NAME_CHANGED:
+            deliver( e.getSrc(), e );
+            userChanged( e.getSrc() );
+            break;
+        case WikiSecurityEvent.GROUP_ADD:
+            final Group added = ( Group )e.getTarget();
+            final List< String > members = new ArrayList<>();
+            for( final Principal member : added.members() ) {
+                members.add( member.getName() );
+            }
+            deliverAll( candidates( members ), e );
+            break;
+        case WikiSecurityEvent.GROUP_REMOVE:
+            final Group removed = ( Group )e.getTarget();
+            deliverAll( candidates( Collections.singletonList( removed.getPrincipal().getName() ) ), e );
+            break;
+        case WikiSecurityEvent.GROUP_CLEAR_GROUPS:
+            final List< WikiSession > all;
+            synchronized( this ) {
+                all = new ArrayList<>( m_sessions );
+            }
+            deliverAll( all, e );
+            break;
+        default:
+            break; // no other event changes a session
+        }
+    }
+
+    private void deliver( final Object target, final WikiSecurityEvent event ) {
+        if( target instanceof WikiSession ) {
+            final WikiSession session = ( WikiSession )target;
+            session.actionPerformed( event );
+            synchronized( this ) {
+                if( m_sessions.contains( session ) ) {
+                    index( session );
+                }
+            }
+        }
+    }
+
+    /** Lets the SessionMonitor know that a session may have a new user principal. */
+    private void userChanged( final Object target ) {
+        if( target instanceof WikiSession ) {
+            SessionMonitor.getInstance( m_engine ).principalsChanged( ( WikiSession )target );
+        }
+    }
+
+    private void deliverAll( final List< WikiSession > sessions, final WikiSecurityEvent event ) {
+        for( final WikiSession session : sessions ) {
+            deliver( session, event );
+        }
+    }
+
+    /** Returns the sessions holding a principal named as any of the given names. */
+    private synchronized List< WikiSession > candidates( final List< String > names ) {
+        final Set< WikiSession > sessions = new HashSet<>();
+        for( final String name : names ) {
+            final Set< WikiSession > holders = m_byPrincipal.get( name );
+            if( holders != null ) {
+                sessions.addAll( holders );
+                if( holders.isEmpty() ) {
+                    m_byPrincipal.remove( name );
+                }
+            }
+        }
+        return new ArrayList<>( sessions );
+    }
+
+    /** Called with the router locked; refreshes the principal names a session is indexed by. */
+    private void index( final WikiSession session ) {
+        final Set< String > names = new HashSet<>();
+        if( session.isAuthenticated() ) {
+            for( final Principal principal : session.getSubject().getPrincipals() ) {
+                names.add( principal.getName() );
+            }
+        }
+        final Set< String > previous = m_indexed.put( session, names );
+        if( previous != null ) {
+            for( final String name : previous ) {
+                if( !names.contains( name ) ) {
+                    final Set< WikiSession > holders = m_byPrincipal.get( name );
+                    if( holders != null ) {
+                        holders.remove( session );
+                        if( holders.isEmpty() ) {
+                            m_byPrincipal.remove( name );
+                        }
+                    }
+                }
+            }
+        }
+        for( final String name : names ) {
+            m_byPrincipal.computeIfAbsent( name, n -> Collections.newSetFromMap( new WeakHashMap<>() ) ).add( session );
+        }
+    }
+
+}
@@ -500,7 +500,7 @@ public class WikiSession implements Session {
     /**
      * Static factory method that creates a new "guest" session containing a single user Principal
      * {@link org.apache.wiki.auth.WikiPrincipal#GUEST}, plus the role principals {@link Role#ALL} and {@link Role#ANONYMOUS}. This
-     * method also adds the session as a listener for GroupManager, AuthenticationManager and UserManager events.
+     * method also has the GroupManager, AuthenticationManager and UserManager events concerning the session routed to it.
      *
      * @param engine the wiki engine
      * @return the guest wiki session
@@ -511,13 +511,8 @@ public class WikiSession implements Session {
         session.invalidate();
         session.antiCsrfToken = UUID.randomUUID().toString();
 
-        // Add the session as listener for GroupManager, AuthManager, UserManager events
-        final GroupManager groupMgr = engine.getManager( GroupManager.class );
-        final AuthenticationManager authMgr = engine.getManager( AuthenticationManager.class );
-        final UserManager userMgr = engine.getManager( UserManager.class );
-        groupMgr.addWikiEventListener( session );
-        authMgr.addWikiEventListener( session );
-        userMgr.addWikiEventListener( session );
+        // Have the GroupManager, AuthManager and UserManager events concerning the session handed to it
+        SessionEventRouter.getInstance( engine ).register( session );
 
         return session;
     }
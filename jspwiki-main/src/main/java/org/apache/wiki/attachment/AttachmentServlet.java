@@ -63,6 +63,7 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 /**
@@ -209,7 +210,9 @@ public class AttachmentServlet extends HttpServlet {
                 //
                 //  Check if the client already has a version of this attachment.
                 //
-                if( HttpUtil.checkFor304( req, att.getName(), att.getLastModified() ) ) {
+                final String etag = createETag( att );
+                final String ifNoneMatch = req.getHeader( "If-None-Match" );
+                if( ifNoneMatch != null ? matchesETag( ifNoneMatch, etag ) : HttpUtil.checkFor304( req, att.getName(), att.getLastModified() ) ) {
                     LOG.debug( "Client has latest version already, sending 304..." );
                     res.sendError( HttpServletResponse.SC_NOT_MODIFIED );
                     return;
@@ -221,25 +224,41 @@ public class AttachmentServlet extends HttpServlet {
                 final String contentDisposition = getContentDisposition( att );
                 res.addHeader( "Content-Disposition", contentDisposition );
                 res.addDateHeader("Last-Modified",att.getLastModified().getTime());
+                res.setHeader( "ETag", etag );
 
                 if( !att.isCacheable() ) {
                     res.addHeader( "Pragma", "no-cache" );
                     res.addHeader( "Cache-control", "no-cache" );
                 }
 
-                // If a size is provided by the provider, report it.
-                if( att.getSize() >= 0 ) {
-                    // LOG.info("size:"+att.getSize());
-                    res.setContentLength( (int)att.getSize() );
+                //  Byte ranges can only be served if the provider reports the size, and it doesn't change on each request.
+                final long size = att.getSize();
+                List< ByteRange > ranges = null;
+                if( size >= 0 && !( att instanceof DynamicAttachment ) ) {
+                    res.setHeader( "Accept-Ranges", "bytes" );
+                    if( isRangeApplicable( req, etag, att ) ) {
+                        ranges = ByteRange.parse( req.getHeader( "Range" ), size );
+                    }
                 }
 
-                try( final InputStream  in = mgr.getAttachmentStream( context, att ) ) {
-                    int read;
-                    final byte[] buffer = new byte[ BUFFER_SIZE ];
-
-                    while( ( read = in.read( buffer ) ) > -1 ) {
-                        out.write( buffer, 0, read );
+                if( ranges == null ) {
+                    // If a size is provided by the provider, report it.
+                    if( size >= 0 ) {
+                        res.setContentLengthLong( size );
                     }
+                    sendAttachmentData( context, att, out, 0, -1 );
+                } else if( ranges.isEmpty() ) {
+                    res.setHeader( "Content-Range", "bytes */" + size );
+                    res.sendError( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+                    return;
+                } else if( ranges.size() == 1 ) {
+                    final ByteRange range = ranges.get( 0 );
+                    res.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+                    res.setHeader( "Content-Range", range.contentRange( size ) );
+                    res.setContentLengthLong( range.length() );
+                    sendAttachmentData( context, att, out, range.start, range.length() );
+                } else {
+                    sendMultipleRanges( context, att, res, out, mimetype, ranges );
                 }
                 LOG.debug( "Attachment {} sent to {} on {}", att.getFileName(), req.getRemoteUser(), HttpUtil.getRemoteAddress(req) );
                 if( nextPage != null ) {
@@ -283,6 +302,123 @@ public class AttachmentServlet extends HttpServlet {
         }
     }
 
+    /**
+     *  Creates a strong entity tag for an attachment, out of its name, version, size and modification date.
+     *
+     *  @param att the attachment.
+     *  @return the quoted entity tag.
+     */
+    static String createETag( final Attachment att ) {
+        final long lastModified = att.getLastModified() != null ? att.getLastModified().getTime() : 0L;
+        return "\"" + Integer.toHexString( att.getName().hashCode() ) + "-" + att.getVersion() + "-" + att.getSize() + "-"
+               + Long.toHexString( lastModified ) + "\"";
+    }
+
+    /**
+     *  Checks an If-None-Match header against the entity tag of an attachment.
+     *
+     *  @param header the If-None-Match header, a list of entity tags.
+     *  @param etag the entity tag of the attachment.
+     *  @return {@code true} if any of the listed tags matches.
+     */
+    static boolean matchesETag( final String header, final String etag ) {
+        for( final String candidate : header.split( "," ) ) {
+            final String tag = candidate.trim();
+            if( "*".equals( tag ) || etag.equals( tag ) || etag.equals( tag.startsWith( "W/" ) ? tag.substring( 2 ) : null ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *  Checks the If-Range header: ranges are only served if the client still holds the same representation.
+     */
+    private static boolean isRangeApplicable( final HttpServletRequest req, final String etag, final Attachment att ) {
+        final String ifRange = req.getHeader( "If-Range" );
+        if( ifRange == null ) {
+            return true;
+        }
+        if( ifRange.startsWith( "\"" ) || ifRange.startsWith( "W/" ) ) {
+            return etag.equals( ifRange ); // strong comparison, as required by RFC 7233
+        }
+        try {
+            final long date = req.getDateHeader( "If-Range" );
+            return att.getLastModified() != null && att.getLastModified().getTime() / 1_000L == date / 1_000L;
+        } catch( final IllegalArgumentException e ) {
+            return false;
+        }
+    }
+
+    /**
+     *  Sends several ranges of an attachment as a multipart/byteranges response.
+     */
+    private void sendMultipleRanges( final Context context,
+                                     final Attachment att,
+                                     final HttpServletResponse res,
+                                     final OutputStream out,
+                                     final String mimetype,
+                                     final List< ByteRange > ranges ) throws ProviderException, IOException {
+        final String boundary = "JSPWIKI_BYTERANGES_" + Long.toHexString( ThreadLocalRandom.current().nextLong() );
+        final List< byte[] > partHeaders = new ArrayList<>( ranges.size() );
+        final byte[] trailer = ( "\r\n--" + boundary + "--\r\n" ).getBytes( StandardCharsets.US_ASCII );
+        long length = trailer.length;
+        for( final ByteRange range : ranges ) {
+            final byte[] partHeader = ( "\r\n--" + boundary + "\r\n"
+                                        + "Content-Type: " + mimetype + "\r\n"
+                                        + "Content-Range: " + range.contentRange( att.getSize() ) + "\r\n\r\n" ).getBytes( StandardCharsets.US_ASCII );
+            partHeaders.add( partHeader );
+            length += partHeader.length + range.length();
+        }
+
+        res.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+        res.setContentType( "multipart/byteranges; boundary=" + boundary );
+        res.setContentLengthLong( length );
+        for( int i = 0; i < ranges.size(); i++ ) {
+            out.write( partHeaders.get( i ) );
+            sendAttachmentData( context, att, out, ranges.get( i ).start, ranges.get( i ).length() );
+        }
+        out.write( trailer );
+    }
+
+    /**
+     *  Copies attachment data to the response, skipping the stream to the start of the requested bytes.
+     *
+     *  @param start first byte to send.
+     *  @param length number of bytes to send, or -1 to send everything from {@code start} on.
+     */
+    private void sendAttachmentData( final Context context,
+                                     final Attachment att,
+                                     final OutputStream out,
+                                     final long start,
+                                     final long length ) throws ProviderException, IOException {
+        try( final InputStream in = m_engine.getManager( AttachmentManager.class ).getAttachmentStream( context, att ) ) {
+            if( in == null ) {
+                return;
+            }
+
+            long toSkip = start;
+            while( toSkip > 0 ) {
+                final long skipped = in.skip( toSkip );
+                if( skipped > 0 ) {
+                    toSkip -= skipped;
+                } else if( in.read() == -1 ) {
+                    return;
+                } else {
+                    toSkip--;
+                }
+            }
+
+            long remaining = length < 0 ? Long.MAX_VALUE : length;
+            final byte[] buffer = new byte[ BUFFER_SIZE ];
+            int read;
+            while( remaining > 0 && ( read = in.read( buffer, 0, ( int )Math.min( buffer.length, remaining ) ) ) > -1 ) {
+                out.write( buffer, 0, read );
+                remaining -= read;
+            }
+        }
+    }
+
     String getContentDisposition( final Attachment att ) {
         // We use 'inline' instead of 'attachment' so that user agents can try to automatically open the file,
         // except those cases in which we want to enforce the file download.
@@ -0,0 +1,135 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.attachment;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * A byte range of an HTTP {@code Range} request (RFC 7233), with both ends inclusive.
+ *
+ * @since 2.12.3
+ */
+final class ByteRange {
+
+    /** Range requests with more ranges than this are answered with the whole attachment. */
+    static final int MAX_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    final long start;
+    final long end;
+
+    ByteRange( final long start, final long end ) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Returns the number of bytes of this range.
+     *
+     * @return range length.
+     */
+    long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * Returns the value of the {@code Content-Range} header for this range.
+     *
+     * @param size full size of the attachment.
+     * @return the header value.
+     */
+    String contentRange( final long size ) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    /**
+     * Parses a {@code Range} header. Satisfiable ranges are sorted, and those overlapping or adjacent are merged.
+     *
+     * @param header value of the {@code Range} header, may be {@code null}.
+     * @param size full size of the attachment.
+     * @return the requested ranges; an empty list if none of them can be satisfied, or {@code null} if the header is missing,
+     * malformed or asks for too many ranges, in which case the whole attachment should be sent.
+     */
+    static List< ByteRange > parse( final String header, final long size ) {
+        if( header == null || !header.regionMatches( true, 0, BYTES_UNIT, 0, BYTES_UNIT.length() ) ) {
+            return null;
+        }
+        final String[] specs = header.substring( BYTES_UNIT.length() ).split( "," );
+        if( specs.length > MAX_RANGES ) {
+            return null;
+        }
+
+        final List< ByteRange > ranges = new ArrayList<>();
+        for( final String s : specs ) {
+            final String spec = s.trim();
+            final int dash = spec.indexOf( '-' );
+            if( dash < 0 ) {
+                return null;
+            }
+            try {
+                if( dash == 0 ) {
+                    final long suffix = Long.parseLong( spec.substring( 1 ) );
+                    if( suffix < 0 ) {
+                        return null;
+                    }
+                    if( suffix > 0 && size > 0 ) {
+                        ranges.add( new ByteRange( Math.max( 0, size - suffix ), size - 1 ) );
+                    }
+                } else {
+                    final long first = Long.parseLong( spec.substring( 0, dash ) );
+                    final long last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong( spec.substring( dash + 1 ) );
+                    if( first < 0 || last < first ) {
+                        return null;
+                    }
+                    if( first < size ) {
+                        ranges.add( new ByteRange( first, Math.min( last, size - 1 ) ) );
+                    }
+                }
+            } catch( final NumberFormatException e ) {
+                return null;
+            }
+        }
+        return merge( ranges );
+    }
+
+    private static List< ByteRange > merge( final List< ByteRange > ranges ) {
+        if( ranges.size() < 2 ) {
+            return ranges;
+        }
+        ranges.sort( Comparator.comparingLong( r -> r.start ) );
+        final List< ByteRange > merged = new ArrayList<>( ranges.size() );
+        ByteRange current = ranges.get( 0 );
+        for( int i = 1; i < ranges.size(); i++ ) {
+            final ByteRange next = ranges.get( i );
+            if( next.start <= current.end + 1 ) {
+                current = new ByteRange( current.start, Math.max( current.end, next.end ) );
+            } else {
+                merged.add( current );
+                current = next;
+            }
+        }
+        merged.add( current );
+        return merged;
+    }
+
+}
@@ -30,6 +30,8 @@ import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.providers.AttachmentProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.references.ReferenceManager;
@@ -51,6 +53,9 @@ import java.util.Properties;
  *  Default implementation for {@link AttachmentManager}.
  *
  * {@inheritDoc}
+ * <p>
+ *  Storing an attachment fires a {@link WikiPageEvent#POST_SAVE_END} event, and deleting it fires a {@link WikiPageEvent#PAGE_DELETED}
+ *  event, both carrying the name of the attachment.
  *
  *  @since 1.9.28
  */
@@ -264,6 +269,7 @@ public class DefaultAttachmentManager implements AttachmentManager {
         final Page parent = Wiki.contents().page( m_engine, att.getParentName() );
         m_engine.getManager( ReferenceManager.class ).updateReferences( parent );
         m_engine.getManager( SearchManager.class ).reindexPage( att );
+        fireEvent( WikiPageEvent.POST_SAVE_END, att.getName() );
     }
 
     /** {@inheritDoc} */
@@ -318,6 +324,19 @@ public class DefaultAttachmentManager implements AttachmentManager {
         m_provider.deleteAttachment( att );
         m_engine.getManager( SearchManager.class ).pageRemoved( att );
         m_engine.getManager( ReferenceManager.class ).clearPageEntries( att.getName() );
+        fireEvent( WikiPageEvent.PAGE_DELETED, att.getName() );
+    }
+
+    /**
+     *  Fires a WikiPageEvent of the provided type and attachment name to all registered listeners.
+     *
+     * @param type       the event type to be fired
+     * @param attachment the wiki attachment name as a String
+     */
+    protected final void fireEvent( final int type, final String attachment ) {
+        if( WikiEventManager.isListening( this ) ) {
+            WikiEventManager.fireEvent( this, new WikiPageEvent( m_engine, type, attachment ) );
+        }
     }
 
 }
@@ -71,6 +71,12 @@ public interface AuthorizationManager extends Initializable {
     /** The property name in jspwiki.properties for specifying the external {@link Authorizer}. */
     String PROP_AUTHORIZER = "jspwiki.authorizer";
 
+    /** Maximum number of permission decisions remembered for each session, 0 to disable the cache. Value is {@value}. */
+    String PROP_DECISION_CACHE_SIZE = "jspwiki.authorizer.decisionCacheSize";
+
+    /** Default number of permission decisions remembered for each session. */
+    int DEFAULT_DECISION_CACHE_SIZE = 256;
+
     /**
      * Returns <code>true</code> or <code>false</code>, depending on whether a Permission is allowed for the Subject associated with
      * a supplied Session. The access control algorithm works this way:
@@ -238,6 +244,24 @@ public interface AuthorizationManager extends Initializable {
     Principal resolvePrincipal( final String name );
 
 
+    /**
+     * Returns how many calls to {@link #checkPermission(Session, Permission)} were answered from the decision cache.
+     *
+     * @return number of cache hits, or -1 if this manager doesn't cache its decisions.
+     */
+    default long getDecisionCacheHits() {
+        return -1L;
+    }
+
+    /**
+     * Returns how many calls to {@link #checkPermission(Session, Permission)} had to be fully evaluated.
+     *
+     * @return number of cache misses, or -1 if this manager doesn't cache its decisions.
+     */
+    default long getDecisionCacheMisses() {
+        return -1L;
+    }
+
     // events processing .......................................................
 
     /**
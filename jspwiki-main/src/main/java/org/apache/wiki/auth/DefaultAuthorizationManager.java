@@ -37,13 +37,20 @@ import org.apache.wiki.auth.permissions.AllPermission;
 import org.apache.wiki.auth.permissions.PagePermission;
 import org.apache.wiki.auth.user.UserDatabase;
 import org.apache.wiki.auth.user.UserProfile;
+import org.apache.wiki.content.PageRenamer;
+import org.apache.wiki.event.WikiEngineEvent;
+import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventListener;
 import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.event.WikiPageRenameEvent;
 import org.apache.wiki.event.WikiSecurityEvent;
+import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.i18n.InternationalizationManager;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.preferences.Preferences;
 import org.apache.wiki.util.ClassUtil;
+import org.apache.wiki.util.TextUtil;
 import org.freshcookies.security.policy.LocalPolicy;
 
 import javax.servlet.http.HttpServletResponse;
@@ -75,7 +82,7 @@ import java.util.WeakHashMap;
  * @since 2.3
  * @see AuthenticationManager
  */
-public class DefaultAuthorizationManager implements AuthorizationManager {
+public class DefaultAuthorizationManager implements AuthorizationManager, WikiEventListener {
 
     private static final Logger LOG = LogManager.getLogger( DefaultAuthorizationManager.class );
 
@@ -88,6 +95,9 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
 
     private LocalPolicy m_localPolicy;
 
+    /** Cache of permission decisions, {@code null} if disabled. */
+    private PermissionDecisionCache m_decisions;
+
     /**
      * Constructs a new DefaultAuthorizationManager instance.
      */
@@ -104,34 +114,48 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
         }
 
         final Principal user = session.getLoginPrincipal();
+        final boolean allowed;
+        if( m_decisions != null ) {
+            final PermissionDecisionCache.Decisions decisions = m_decisions.decisions( session );
+            final Boolean cached = decisions.get( permission );
+            if( cached != null ) {
+                allowed = cached;
+            } else {
+                final long generation = m_decisions.generation();
+                allowed = decide( session, permission );
+                decisions.put( permission, generation, allowed );
+            }
+        } else {
+            allowed = decide( session, permission );
+        }
+
+        fireEvent( allowed ? WikiSecurityEvent.ACCESS_ALLOWED : WikiSecurityEvent.ACCESS_DENIED, user, permission );
+        return allowed;
+    }
 
+    private boolean decide( final Session session, final Permission permission ) {
         // Always allow the action if user has AllPermission
         final Permission allPermission = new AllPermission( m_engine.getApplicationName() );
         final boolean hasAllPermission = checkStaticPermission( session, allPermission );
         if( hasAllPermission ) {
-            fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
             return true;
         }
 
         // If the user doesn't have *at least* the permission granted by policy, return false.
         final boolean hasPolicyPermission = checkStaticPermission( session, permission );
         if( !hasPolicyPermission ) {
-            fireEvent( WikiSecurityEvent.ACCESS_DENIED, user, permission );
             return false;
         }
 
         // If this isn't a PagePermission, it's allowed
         if( !( permission instanceof PagePermission ) ) {
-            fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
             return true;
         }
 
         // If the page or ACL is null, it's allowed.
-        final String pageName = ((PagePermission)permission).getPage();
-        final Page page = m_engine.getManager( PageManager.class ).getPage( pageName );
+        final Page page = m_engine.getManager( PageManager.class ).getPage( ( ( PagePermission )permission ).getPage() );
         final Acl acl = ( page == null) ? null : m_engine.getManager( AclManager.class ).getPermissions( page );
         if( page == null ||  acl == null || acl.isEmpty() ) {
-            fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
             return true;
         }
 
@@ -155,14 +179,68 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
             }
 
             if ( hasRoleOrPrincipal( session, aclPrincipal ) ) {
-                fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
                 return true;
             }
         }
-        fireEvent( WikiSecurityEvent.ACCESS_DENIED, user, permission );
         return false;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public long getDecisionCacheHits() {
+        return m_decisions != null ? m_decisions.getHits() : -1L;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getDecisionCacheMisses() {
+        return m_decisions != null ? m_decisions.getMisses() : -1L;
+    }
+
+    /**
+     * Drops cached permission decisions whenever something they may depend upon changes: groups, user profiles or page contents
+     * (and therefore, page Acls). Logins only drop the decisions of the session logging in.
+     *
+     * @param event the event.
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiEngineEvent ) {
+            if( event.getType() == WikiEngineEvent.INITIALIZED ) {
+                // these managers are set up after this one
+                WikiEventManager.addWikiEventListener( m_engine.getManager( AuthenticationManager.class ), this );
+                WikiEventManager.addWikiEventListener( m_engine.getManager( UserManager.class ), this );
+                WikiEventManager.addWikiEventListener( m_engine.getManager( GroupManager.class ), this );
+                WikiEventManager.addWikiEventListener( m_engine.getManager( FilterManager.class ), this );
+                WikiEventManager.addWikiEventListener( m_engine.getManager( PageRenamer.class ), this );
+            }
+        } else if( event instanceof WikiSecurityEvent ) {
+            switch( event.getType() ) {
+            case WikiSecurityEvent.GROUP_ADD:
+            case WikiSecurityEvent.GROUP_REMOVE:
+            case WikiSecurityEvent.GROUP_CLEAR_GROUPS:
+            case WikiSecurityEvent.PROFILE_SAVE:
+            case WikiSecurityEvent.PROFILE_NAME_CHANGED:
+                m_decisions.invalidate();
+                break;
+            case WikiSecurityEvent.LOGIN_ANONYMOUS:
+            case WikiSecurityEvent.LOGIN_ASSERTED:
+            case WikiSecurityEvent.LOGIN_AUTHENTICATED:
+            case WikiSecurityEvent.PRINCIPAL_ADD:
+                if( ( ( WikiSecurityEvent )event ).getTarget() instanceof Session ) {
+                    m_decisions.forget( ( Session )( ( WikiSecurityEvent )event ).getTarget() );
+                }
+                break;
+            default:
+                break;
+            }
+        } else if( event instanceof WikiPageRenameEvent
+                   || ( event instanceof WikiPageEvent
+                        && ( event.getType() == WikiPageEvent.POST_SAVE_BEGIN || event.getType() == WikiPageEvent.PAGE_DELETED ) ) ) {
+            m_decisions.invalidate();
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public Authorizer getAuthorizer() throws WikiSecurityException {
@@ -234,6 +312,13 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
         m_authorizer = getAuthorizerImplementation( properties );
         m_authorizer.initialize( engine, properties );
 
+        final int decisionCacheSize = TextUtil.getIntegerProperty( properties, PROP_DECISION_CACHE_SIZE, DEFAULT_DECISION_CACHE_SIZE );
+        if( decisionCacheSize > 0 ) {
+            m_decisions = new PermissionDecisionCache( decisionCacheSize );
+            WikiEventManager.addWikiEventListener( engine, this );
+            WikiEventManager.addWikiEventListener( engine.getManager( PageManager.class ), this );
+        }
+
         // Initialize local security policy
         try {
             final String policyFileName = properties.getProperty( POLICY, DEFAULT_POLICY );
@@ -94,7 +94,7 @@ public class DefaultUserManager implements UserManager {
     private final Map< Session, UserProfile > m_profiles = new WeakHashMap<>();
 
     /** The user database loads, manages and persists user identities */
-    private UserDatabase m_database;
+    private volatile UserDatabase m_database;
 
     /** {@inheritDoc} */
     @Override
@@ -116,14 +116,25 @@ public class DefaultUserManager implements UserManager {
             return m_database;
         }
 
+        synchronized( this ) {
+            if( m_database == null ) {
+                m_database = loadUserDatabase();
+            }
+            return m_database;
+        }
+    }
+
+    /** Builds and initializes the user database, so it's only published once it can be used. */
+    private UserDatabase loadUserDatabase() {
         String dbClassName = UNKNOWN_CLASS;
+        UserDatabase database = null;
 
         try {
             dbClassName = TextUtil.getRequiredProperty( m_engine.getWikiProperties(), PROP_DATABASE );
 
             LOG.info( "Attempting to load user database class {}", dbClassName );
-            m_database = ClassUtil.buildInstance( USERDATABASE_PACKAGE, dbClassName );
-            m_database.initialize( m_engine, m_engine.getWikiProperties() );
+            database = ClassUtil.buildInstance( USERDATABASE_PACKAGE, dbClassName );
+            database.initialize( m_engine, m_engine.getWikiProperties() );
             LOG.info( "UserDatabase initialized." );
         } catch( final NoSuchElementException | NoRequiredPropertyException e ) {
             LOG.error( "You have not set the '{}'. You need to do this if you want to enable user management by JSPWiki.", PROP_DATABASE, e );
@@ -132,13 +143,13 @@ public class DefaultUserManager implements UserManager {
         } catch( final WikiSecurityException e ) {
             LOG.error( "Exception initializing user database: {}", e.getMessage(), e );
         } finally {
-            if( m_database == null ) {
+            if( database == null ) {
                 LOG.info( "I could not create a database object you specified (or didn't specify), so I am falling back to a default." );
-                m_database = new DummyUserDatabase();
+                database = new DummyUserDatabase();
             }
         }
 
-        return m_database;
+        return database;
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,243 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth;
+
+import org.apache.wiki.api.core.Session;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.Permission;
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Remembers the outcome of {@link AuthorizationManager#checkPermission(Session, Permission)} calls. Each session gets its own bounded,
+ * least recently used set of decisions, keyed on the permission alone, and released along with the session. Sessions are looked up
+ * without any lock shared between them.
+ * <p>
+ * The decisions of a session are only valid for the login they were taken under: they are dropped through {@link #forget(Session)} on
+ * login events, and whenever the login status, the login principal or the number of principals held by the session no longer match
+ * the ones seen when they were first stored. Anything else a decision depends on (groups, user profiles, page Acls) is covered by a
+ * generation number which is bumped through {@link #invalidate()}; decisions taken under an older generation are neither returned nor
+ * stored.
+ *
+ * @since 2.12.3
+ */
+final class PermissionDecisionCache {
+
+    private final int m_size;
+    private final ConcurrentMap< SessionReference, Decisions > m_sessions = new ConcurrentHashMap<>();
+    private final ReferenceQueue< Session > m_collected = new ReferenceQueue<>();
+    private final AtomicLong m_generation = new AtomicLong();
+    private final AtomicLong m_hits = new AtomicLong();
+    private final AtomicLong m_misses = new AtomicLong();
+
+    /**
+     * Creates a decision cache.
+     *
+     * @param size maximum number of decisions kept for each session.
+     */
+    PermissionDecisionCache( final int size ) {
+        m_size = size;
+    }
+
+    /**
+     * Returns the current generation, to be handed back to {@link Decisions#put(Permission, long, boolean)} once the decision is taken.
+     *
+     * @return current generation.
+     */
+    long generation() {
+        return m_generation.get();
+    }
+
+    /**
+     * Returns the decisions of a session, starting a new set if there are none yet or if the ones held were taken under another login.
+     *
+     * @param session session asking for permissions.
+     * @return decisions of the session.
+     */
+    Decisions decisions( final Session session ) {
+        final SessionReference reference = new SessionReference( session, null );
+        final Decisions decisions = m_sessions.get( reference );
+        if( decisions != null && decisions.matches( session ) ) {
+            return decisions;
+        }
+        expungeCollected();
+        final Decisions fresh = new Decisions( session );
+        if( decisions != null ) {
+            decisions.retire();
+            m_sessions.replace( reference, decisions, fresh );
+        } else {
+            m_sessions.putIfAbsent( new SessionReference( session, m_collected ), fresh );
+        }
+        return fresh;
+    }
+
+    /**
+     * Drops the decisions of a session, because its principals are about to change.
+     *
+     * @param session session whose decisions are no longer valid.
+     */
+    void forget( final Session session ) {
+        final Decisions decisions = m_sessions.remove( new SessionReference( session, null ) );
+        if( decisions != null ) {
+            decisions.retire();
+        }
+    }
+
+    /** Forgets all decisions taken so far, on every session. */
+    void invalidate() {
+        m_generation.incrementAndGet();
+    }
+
+    /**
+     * Returns how many decisions were served from the cache.
+     *
+     * @return number of hits.
+     */
+    long getHits() {
+        return m_hits.get();
+    }
+
+    /**
+     * Returns how many decisions had to be computed.
+     *
+     * @return number of misses.
+     */
+    long getMisses() {
+        return m_misses.get();
+    }
+
+    private void expungeCollected() {
+        for( Object collected = m_collected.poll(); collected != null; collected = m_collected.poll() ) {
+            m_sessions.remove( collected );
+        }
+    }
+
+    /** Decisions of a single session, taken under a single login. */
+    final class Decisions {
+
+        private final String m_status;
+        private final Principal m_loginPrincipal;
+        private final int m_principals;
+        private final LinkedHashMap< Permission, Boolean > m_decisions;
+        private long m_generation;
+        private boolean m_retired;
+
+        private Decisions( final Session session ) {
+            m_status = session.getStatus();
+            m_loginPrincipal = session.getLoginPrincipal();
+            m_principals = session.getSubject().getPrincipals().size();
+            m_generation = PermissionDecisionCache.this.m_generation.get();
+            m_decisions = new LinkedHashMap< Permission, Boolean >( 16, 0.75f, true ) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( final Map.Entry< Permission, Boolean > eldest ) {
+                    return size() > m_size;
+                }
+            };
+        }
+
+        private boolean matches( final Session session ) {
+            return m_loginPrincipal == session.getLoginPrincipal()
+                   && m_status.equals( session.getStatus() )
+                   && m_principals == session.getSubject().getPrincipals().size();
+        }
+
+        private synchronized void retire() {
+            m_retired = true;
+            m_decisions.clear();
+        }
+
+        /**
+         * Looks up a decision.
+         *
+         * @param permission requested permission.
+         * @return the cached decision, or {@code null} if there is none.
+         */
+        Boolean get( final Permission permission ) {
+            final Boolean decision;
+            synchronized( this ) {
+                decision = m_generation == PermissionDecisionCache.this.m_generation.get() ? m_decisions.get( permission ) : null;
+            }
+            if( decision != null ) {
+                m_hits.incrementAndGet();
+            } else {
+                m_misses.incrementAndGet();
+            }
+            return decision;
+        }
+
+        /**
+         * Stores a decision, unless the cache was invalidated since the given generation or these decisions were dropped meanwhile.
+         *
+         * @param permission requested permission.
+         * @param generation value of {@link #generation()} taken before the decision was made.
+         * @param decision the decision.
+         */
+        synchronized void put( final Permission permission, final long generation, final boolean decision ) {
+            if( m_retired || generation != PermissionDecisionCache.this.m_generation.get() ) {
+                return; // taken before the last invalidation, might be stale already
+            }
+            if( generation != m_generation ) {
+                m_decisions.clear();
+                m_generation = generation;
+            }
+            m_decisions.put( permission, decision );
+        }
+
+    }
+
+    /** Weak, identity based reference to a session, so decisions don't keep sessions alive. */
+    private static final class SessionReference extends WeakReference< Session > {
+
+        private final int m_hash;
+
+        SessionReference( final Session session, final ReferenceQueue< Session > queue ) {
+            super( session, queue );
+            m_hash = System.identityHashCode( session );
+        }
+
+        @Override
+        public boolean equals( final Object o ) {
+            if( this == o ) {
+                return true;
+            }
+            if( !( o instanceof SessionReference ) ) {
+                return false;
+            }
+            final Session session = get();
+            return session != null && session == ( ( SessionReference )o ).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return m_hash;
+        }
+
+    }
+
+}
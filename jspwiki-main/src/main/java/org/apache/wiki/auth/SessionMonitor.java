@@ -34,16 +34,19 @@ import javax.servlet.http.HttpSessionEvent;
 import javax.servlet.http.HttpSessionListener;
 import java.security.Principal;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *  <p>Manages Sessions for different Engines.</p>
  *  <p>The Sessions are stored both in the remote user HttpSession and in the SessionMonitor for the Engine.
  *  This class must be configured as a session listener in the web.xml for the wiki web application.</p>
+ *  <p>Sessions are kept on a concurrent map keyed by HTTP session id, and stay there until the web container destroys their HTTP
+ *  session or the user logs out. The user principals of the sessions are worked out when first asked for, and reused until a
+ *  session is added, removed, or has its principals changed.</p>
  */
 public class SessionMonitor implements HttpSessionListener {
 
@@ -52,8 +55,14 @@ public class SessionMonitor implements HttpSessionListener {
     /** Map with Engines as keys, and SessionMonitors as values. */
     private static final ConcurrentHashMap< Engine, SessionMonitor > c_monitors = new ConcurrentHashMap<>();
 
-    /** Weak hashmap with HttpSessions as keys, and WikiSessions as values. */
-    private final Map< String, Session > m_sessions = new WeakHashMap<>();
+    /** HttpSession ids as keys, and WikiSessions as values. */
+    private final Map< String, Session > m_sessions = new ConcurrentHashMap<>();
+
+    /** Number of times sessions have been added, removed or had their principals changed. */
+    private final AtomicLong m_changes = new AtomicLong();
+
+    /** User principals of the sessions, as they were after a given number of changes. */
+    private volatile Principals m_principals;
 
     private Engine m_engine;
 
@@ -69,13 +78,7 @@ public class SessionMonitor implements HttpSessionListener {
         if( engine == null ) {
             throw new IllegalArgumentException( "Engine cannot be null." );
         }
-        SessionMonitor monitor = c_monitors.get( engine );
-        if( monitor == null ) {
-            monitor = new SessionMonitor( engine );
-            c_monitors.put( engine, monitor );
-        }
-
-        return monitor;
+        return c_monitors.computeIfAbsent( engine, SessionMonitor::new );
     }
 
     /** Construct the SessionListener */
@@ -108,25 +111,21 @@ public class SessionMonitor implements HttpSessionListener {
      *  @return the WikiSession, if found
      */
     private Session findSession( final String sessionId ) {
-        Session wikiSession = null;
         final String sid = ( sessionId == null ) ? "(null)" : sessionId;
         final Session storedSession = m_sessions.get( sid );
-
-        // If the weak reference returns a wiki session, return it
         if( storedSession != null ) {
             LOG.debug( "Looking up WikiSession for session ID={}... found it", sid );
-            wikiSession = storedSession;
         }
 
-        return wikiSession;
+        return storedSession;
     }
 
     /**
      * <p>Looks up the wiki session associated with a user's Http session and adds it to the session cache. This method will return the
      * "guest session" as constructed by {@link org.apache.wiki.api.spi.SessionSPI#guest(Engine)} if the HttpSession is not currently
      * associated with a WikiSession. This method is guaranteed to return a non-<code>null</code> WikiSession.</p>
-     * <p>Internally, the session is stored in a HashMap; keys are the HttpSession objects, while the values are
-     * {@link java.lang.ref.WeakReference}-wrapped WikiSessions.</p>
+     * <p>Internally, the session is stored in a concurrent map; keys are the HttpSession ids, while the values are the
+     * WikiSessions.</p>
      *
      * @param session the HTTP session
      * @return the wiki session
@@ -145,8 +144,8 @@ public class SessionMonitor implements HttpSessionListener {
      * <p>Looks up the wiki session associated with a user's Http session and adds it to the session cache. This method will return the
      * "guest session" as constructed by {@link org.apache.wiki.api.spi.SessionSPI#guest(Engine)} if the HttpSession is not currently
      * associated with a WikiSession. This method is guaranteed to return a non-<code>null</code> WikiSession.</p>
-     * <p>Internally, the session is stored in a HashMap; keys are the HttpSession objects, while the values are
-     * {@link java.lang.ref.WeakReference}-wrapped WikiSessions.</p>
+     * <p>Internally, the session is stored in a concurrent map; keys are the HttpSession ids, while the values are the
+     * WikiSessions.</p>
      *
      * @param sessionId the HTTP session
      * @return the wiki session
@@ -161,17 +160,21 @@ public class SessionMonitor implements HttpSessionListener {
     }
 
     /**
-     * Creates a new session and stashes it
+     * Creates a new session and stashes it. If another request for the same HTTP session got there first, its guest session
+     * is returned instead.
      *
      * @param sessionId id looked for before creating the guest session
      * @return a new guest session
      */
     private Session createGuestSessionFor( final String sessionId ) {
         LOG.debug( "Session for session ID={}... not found. Creating guestSession()", sessionId );
+        final String sid = ( sessionId == null ) ? "(null)" : sessionId;
         final Session wikiSession = Wiki.session().guest( m_engine );
-        synchronized( m_sessions ) {
-            m_sessions.put( sessionId, wikiSession );
+        final Session storedSession = m_sessions.putIfAbsent( sid, wikiSession );
+        if( storedSession != null ) {
+            return storedSession;
         }
+        m_changes.incrementAndGet();
         return wikiSession;
     }
 
@@ -196,37 +199,67 @@ public class SessionMonitor implements HttpSessionListener {
         if( session == null ) {
             throw new IllegalArgumentException( "Session cannot be null." );
         }
-        synchronized( m_sessions ) {
-            m_sessions.remove( session.getId() );
+        remove( session.getId() );
+    }
+
+    private Session remove( final String sessionId ) {
+        final Session removed = m_sessions.remove( sessionId );
+        if( removed != null ) {
+            m_changes.incrementAndGet();
         }
+        return removed;
+    }
+
+    /**
+     * Lets the monitor know that the principals of one of its sessions may have changed, i.e. because its user has logged in.
+     *
+     * @param session the wiki session.
+     * @since 2.12.3
+     */
+    public final void principalsChanged( final Session session ) {
+        m_changes.incrementAndGet();
     }
 
     /**
      * Returns the current number of active wiki sessions.
      * @return the number of sessions
      */
-    public final int sessions()
-    {
-        return userPrincipals().length;
+    public final int sessions() {
+        return m_sessions.size();
     }
 
     /**
      * <p>Returns the current wiki users as a sorted array of Principal objects. The principals are those returned by
      * each WikiSession's {@link Session#getUserPrincipal()}'s method.</p>
-     * <p>To obtain the list of current WikiSessions, we iterate through our session Map and obtain the list of values,
-     * which are WikiSessions wrapped in {@link java.lang.ref.WeakReference} objects. Those <code>WeakReference</code>s
-     * whose <code>get()</code> method returns non-<code>null</code> values are valid sessions.</p>
+     * <p>The principals are gathered from the sessions the first time they're asked for, and handed out again until sessions
+     * are added, removed, or have their principals changed.</p>
      *
      * @return the array of user principals
      */
     public final Principal[] userPrincipals() {
-        final Collection<Principal> principals;
-        synchronized ( m_sessions ) {
-            principals = m_sessions.values().stream().map(Session::getUserPrincipal).collect(Collectors.toList());
+        return principals().m_users.clone();
+    }
+
+    /**
+     * Returns the names of the current wiki users, along with the number of sessions each one of them has open. As with
+     * {@link #userPrincipals()}, the names are those of each WikiSession's {@link Session#getUserPrincipal()}.
+     *
+     * @return user names, sorted, mapped to the number of sessions of the user.
+     * @since 2.12.3
+     */
+    public final Map< String, Integer > distinctUserPrincipals() {
+        return principals().m_distinct;
+    }
+
+    private Principals principals() {
+        final long changes = m_changes.get();
+        Principals principals = m_principals;
+        if( principals == null || principals.m_changes != changes ) {
+            // changes made while gathering the principals leave the counter ahead, so the next call gathers them again
+            principals = new Principals( changes, m_sessions.values().stream().map( Session::getUserPrincipal ).toArray( Principal[]::new ) );
+            m_principals = principals;
         }
-        final Principal[] p = principals.toArray( new Principal[0] );
-        Arrays.sort( p, m_comparator );
-        return p;
+        return principals;
     }
 
     /**
@@ -283,8 +316,7 @@ public class SessionMonitor implements HttpSessionListener {
     public void sessionDestroyed( final HttpSessionEvent se ) {
         final HttpSession session = se.getSession();
         for( final SessionMonitor monitor : c_monitors.values() ) {
-            final Session storedSession = monitor.findSession( session );
-            monitor.remove( session );
+            final Session storedSession = monitor.remove( session.getId() );
             LOG.debug( "Removed session " + session.getId() + "." );
             if( storedSession != null ) {
                 fireEvent( WikiSecurityEvent.SESSION_EXPIRED, storedSession.getLoginPrincipal(), storedSession );
@@ -292,4 +324,24 @@ public class SessionMonitor implements HttpSessionListener {
         }
     }
 
+    /** User principals of the sessions of a wiki, at some point in time. */
+    private final class Principals {
+
+        private final long m_changes;
+        private final Principal[] m_users;
+        private final Map< String, Integer > m_distinct;
+
+        Principals( final long changes, final Principal[] users ) {
+            Arrays.sort( users, m_comparator );
+            final Map< String, Integer > distinct = new TreeMap<>();
+            for( final Principal user : users ) {
+                distinct.merge( user.getName(), 1, Integer::sum );
+            }
+            m_changes = changes;
+            m_users = users;
+            m_distinct = Collections.unmodifiableMap( distinct );
+        }
+
+    }
+
 }
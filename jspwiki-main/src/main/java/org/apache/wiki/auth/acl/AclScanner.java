@@ -0,0 +1,163 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth.acl;
+
+import java.util.ArrayList;
+
+
+/**
+ * Extracts access rules ({@code [{ALLOW ...}]} and {@code [{DENY ...}]}) from JSPWiki markup in a single pass over the page text,
+ * without building the rendered document. The scanner only follows the parts of the markup that decide whether a bracket starts a
+ * link: {@code ~} escapes, {@code [[} literal brackets, <code>{{{ }}}</code> preformatted blocks and nested plugin links, all of
+ * them in the same way as {@link org.apache.wiki.parser.JSPWikiMarkupParser} does.
+ *
+ * @since 2.12.3
+ */
+final class AclScanner {
+
+    private static final String ESCAPABLE = "|~\\*#-!'_[{]}%";
+
+    private AclScanner() {
+    }
+
+    /**
+     * Quick check for pages which cannot contain any access rule at all.
+     *
+     * @param text page text.
+     * @return {@code true} if the text may hold an access rule.
+     */
+    static boolean mayContainRules( final String text ) {
+        return text != null && ( text.contains( "{ALLOW" ) || text.contains( "{DENY" ) );
+    }
+
+    /**
+     * Returns the access rules found on the given page text, in order of appearance and with their enclosing braces removed, so they
+     * can be handed as they are to {@link AclManager#parseAcl(org.apache.wiki.api.core.Page, String)}.
+     *
+     * @param text page text, in JSPWiki markup.
+     * @return the rule lines, i.e. {@code ALLOW edit Charlie, Herman}; empty if there are none.
+     */
+    static ArrayList< String > scan( final String text ) {
+        final ArrayList< String > rules = new ArrayList<>();
+        if( !mayContainRules( text ) ) {
+            return rules;
+        }
+
+        final int length = text.length();
+        boolean escaping = false;
+        int i = 0;
+        while( i < length ) {
+            final char ch = text.charAt( i );
+            if( escaping ) {
+                if( ch == '~' && text.startsWith( "}}}", i + 1 ) ) {
+                    i += 4;
+                } else if( ch == '}' && text.startsWith( "}}}", i ) ) {
+                    escaping = false;
+                    i += 3;
+                } else {
+                    i++;
+                }
+                continue;
+            }
+
+            switch( ch ) {
+            case '~':
+                i = skipEscape( text, i + 1 );
+                break;
+            case '{':
+                if( text.startsWith( "{{{", i ) ) {
+                    escaping = true;
+                    i += 3;
+                } else if( text.startsWith( "{{", i ) ) {
+                    i += 2;
+                } else {
+                    i++;
+                }
+                break;
+            case '[':
+                i = scanBracket( text, i + 1, rules );
+                break;
+            default:
+                i++;
+            }
+        }
+        return rules;
+    }
+
+    /** Mirrors the parser's tilde handling: an escaped character swallows the whole run of it. */
+    private static int skipEscape( final String text, int i ) {
+        if( i >= text.length() ) {
+            return i;
+        }
+        final char escaped = text.charAt( i );
+        if( escaped == ' ' ) {
+            return i + 1;
+        }
+        if( ESCAPABLE.indexOf( escaped ) == -1 ) {
+            return i; // no escape, next character is processed as usual
+        }
+        while( i < text.length() && text.charAt( i ) == escaped ) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Reads a link the same way the parser does, and collects it if it is an access rule. */
+    private static int scanBracket( final String text, int i, final ArrayList< String > rules ) {
+        final int length = text.length();
+        if( i < length && text.charAt( i ) == '[' ) {
+            while( i < length && text.charAt( i ) == '[' ) {
+                i++;
+            }
+            return i; // literal brackets, whatever follows is processed as usual
+        }
+
+        final int start = i;
+        final boolean isPlugin = i < length && text.charAt( i ) == '{';
+        int nesting = 1;
+        while( i < length ) {
+            final char ch = text.charAt( i );
+            final char next = i + 1 < length ? text.charAt( i + 1 ) : 0;
+            if( isPlugin ) {
+                if( ch == '[' && next == '{' ) {
+                    nesting++;
+                } else if( nesting == 0 && ch == ']' && text.charAt( i - 1 ) == '}' ) {
+                    break;
+                } else if( ch == '}' && next == ']' ) {
+                    nesting--;
+                }
+            } else if( ch == ']' ) {
+                break;
+            }
+            i++;
+        }
+
+        if( i >= length ) {
+            return length; // unterminated link, the rest of the page is plain text
+        }
+
+        final String link = text.substring( start, i );
+        if( link.startsWith( "{ALLOW" ) || link.startsWith( "{DENY" ) ) {
+            final int end = link.endsWith( "}" ) ? link.length() - 1 : link.length();
+            rules.add( link.substring( 1, end ) );
+        }
+        return i + 1;
+    }
+
+}
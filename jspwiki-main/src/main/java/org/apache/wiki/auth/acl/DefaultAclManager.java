@@ -26,16 +26,29 @@ import org.apache.wiki.api.core.Attachment;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.FilterException;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.auth.AuthorizationManager;
 import org.apache.wiki.auth.WikiSecurityException;
 import org.apache.wiki.auth.permissions.PagePermission;
 import org.apache.wiki.auth.permissions.PermissionFactory;
+import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.content.PageRenamer;
+import org.apache.wiki.event.WikiEngineEvent;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.event.WikiPageRenameEvent;
+import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.pages.PageLock;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.parser.JSPWikiMarkupParser;
 import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.util.TextUtil;
 import org.apache.wiki.util.comparators.PrincipalComparator;
+import org.apache.wiki.variables.VariableManager;
 
 import java.security.Permission;
 import java.security.Principal;
@@ -47,20 +60,33 @@ import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Default implementation that parses Acls from wiki page markup.
+ * <p>
+ * When pages are written in JSPWiki markup, the access rules are read straight from the page text by a lightweight scanner instead of
+ * rendering the whole page. The rules found are kept on the {@link CachingManager#CACHE_ACLS} cache, keyed by page name, version and
+ * generation. Saving, renaming or deleting a page bumps its generation, so the rules cached so far, as well as rules scanned from the
+ * old text by a request running at the same time, go under keys which are never looked up again and are left for the cache to evict.
+ * Principals are resolved again each time an Acl is built from them, so changes on users or groups are picked up right away.
  *
  * @since 2.3
  */
-public class DefaultAclManager implements AclManager {
+public class DefaultAclManager implements AclManager, WikiEventListener {
 
     private static final Logger LOG = LogManager.getLogger(DefaultAclManager.class);
 
     private AuthorizationManager m_auth;
     private Engine m_engine;
+    private CachingManager m_cachingManager;
+    private boolean m_scanMarkup;
+
+    /** Generation of the cached access rules of each page, bumped each time they are dropped. */
+    private final Map< String, Long > m_generations = new ConcurrentHashMap<>();
+
     private static final String PERM_REGEX = "("
                                               + PagePermission.COMMENT_ACTION + "|"
                                               + PagePermission.DELETE_ACTION  + "|"
@@ -84,6 +110,14 @@ public class DefaultAclManager implements AclManager {
     public void initialize( final Engine engine, final Properties props ) {
         m_auth = engine.getManager( AuthorizationManager.class );
         m_engine = engine;
+        m_cachingManager = engine.getManager( CachingManager.class );
+        m_scanMarkup = JSPWikiMarkupParser.class.getName().equals( TextUtil.getStringProperty( props,
+                                                                                               RenderingManager.PROP_PARSER,
+                                                                                               JSPWikiMarkupParser.class.getName() ) );
+
+        // the filter manager and page renamer are set up later on, so we register on them once the engine is ready
+        WikiEventManager.addWikiEventListener( engine, this );
+        WikiEventManager.addWikiEventListener( engine.getManager( PageManager.class ), this );
     }
 
     /** {@inheritDoc} */
@@ -146,7 +180,18 @@ public class DefaultAclManager implements AclManager {
                 //  Or, try parsing the page
                 final Context ctx = Wiki.context().create( m_engine, page );
                 ctx.setVariable( Context.VAR_EXECUTE_PLUGINS, Boolean.FALSE );
-                m_engine.getManager( RenderingManager.class ).getHTML(ctx, page);
+                final List< String > rules = getAccessRules( ctx, page );
+                if( rules != null ) {
+                    for( final String rule : rules ) {
+                        try {
+                            parseAcl( page, rule );
+                        } catch( final WikiSecurityException wse ) {
+                            LOG.warn( "Invalid access rule on page {}: {}", page.getName(), wse.getMessage() );
+                        }
+                    }
+                } else {
+                    m_engine.getManager( RenderingManager.class ).getHTML( ctx, page );
+                }
 
                 if (page.getAcl() == null) {
                     page.setAcl( Wiki.acls().acl() );
@@ -158,6 +203,71 @@ public class DefaultAclManager implements AclManager {
         return acl;
     }
 
+    /**
+     * Returns the access rules of a page, without rendering it.
+     *
+     * @param ctx context used to run the page filters.
+     * @param page page to look up.
+     * @return the access rules of the page, or {@code null} if the page has to be rendered to find them out.
+     */
+    List< String > getAccessRules( final Context ctx, final Page page ) {
+        // the key is taken before the text is read, so that rules read from a page saved meanwhile go under an outdated generation
+        final String key = cacheKey( page.getName(), page.getVersion() );
+        final List< String > rules = m_cachingManager.get( CachingManager.CACHE_ACLS, key, () -> scanAccessRules( ctx, page ) );
+        if( rules != null || m_cachingManager.enabled( CachingManager.CACHE_ACLS ) ) {
+            return rules;
+        }
+        return scanAccessRules( ctx, page );
+    }
+
+    private ArrayList< String > scanAccessRules( final Context ctx, final Page page ) {
+        String text = m_engine.getManager( PageManager.class ).getPureText( page.getName(), page.getVersion() );
+        final String runFilters = m_engine.getManager( VariableManager.class ).getValue( ctx, VariableManager.VAR_RUNFILTERS, "true" );
+        if( "true".equals( runFilters ) && m_engine.getManager( FilterManager.class ) != null ) {
+            try {
+                text = m_engine.getManager( FilterManager.class ).doPreTranslateFiltering( ctx, text );
+            } catch( final FilterException e ) {
+                LOG.warn( "Page filters failed while looking for access rules on page {}, rendering it instead", page.getName(), e );
+                return null;
+            }
+        }
+        if( !AclScanner.mayContainRules( text ) ) {
+            return new ArrayList<>();
+        }
+        return m_scanMarkup ? AclScanner.scan( text ) : null;
+    }
+
+    private String cacheKey( final String pageName, final int version ) {
+        return pageName + "@" + version + "#" + m_generations.getOrDefault( pageName, 0L );
+    }
+
+    /**
+     * Makes the cached access rules of all the versions of a page unreachable.
+     *
+     * @param pageName name of the page.
+     */
+    void invalidate( final String pageName ) {
+        if( pageName == null || !m_cachingManager.enabled( CachingManager.CACHE_ACLS ) ) {
+            return;
+        }
+        m_generations.merge( pageName, 1L, Long::sum );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiEngineEvent && event.getType() == WikiEngineEvent.INITIALIZED ) {
+            WikiEventManager.addWikiEventListener( m_engine.getManager( FilterManager.class ), this );
+            WikiEventManager.addWikiEventListener( m_engine.getManager( PageRenamer.class ), this );
+        } else if( event instanceof WikiPageRenameEvent ) {
+            invalidate( ( ( WikiPageRenameEvent )event ).getOldPageName() );
+            invalidate( ( ( WikiPageRenameEvent )event ).getNewPageName() );
+        } else if( event instanceof WikiPageEvent
+                   && ( event.getType() == WikiPageEvent.POST_SAVE_BEGIN || event.getType() == WikiPageEvent.PAGE_DELETED ) ) {
+            invalidate( ( ( WikiPageEvent )event ).getPageName() );
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setPermissions( final Page page, final Acl acl ) throws WikiSecurityException {
@@ -176,6 +286,7 @@ public class DefaultAclManager implements AclManager {
         final String newText = DefaultAclManager.printAcl( page.getAcl() ) + cleansedText;
         try {
             pageManager.putPageText( page, newText );
+            invalidate( page.getName() );
         } catch( final ProviderException e ) {
             throw new WikiSecurityException( "Could not set Acl. Reason: ProviderExcpetion " + e.getMessage(), e );
         }
@@ -0,0 +1,422 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.Perl5Compiler;
+import org.apache.oro.text.regex.Perl5Matcher;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+
+/**
+ * Matches a text against a whole list of regular expressions in a single pass.
+ * <p>
+ * Most spam patterns contain some literal text which any match must include, i.e. {@code viagra} in {@code buy-?viagra}. These
+ * literals are compiled into a single Aho-Corasick automaton, so one scan of the text finds which patterns may match; only those,
+ * plus the ones with no usable literal, are then run as regular expressions. Literals are matched ignoring case, so case
+ * insensitive patterns are never missed.
+ * <p>
+ * Instances are immutable and may be shared between threads; {@link #matches(String)} uses a fresh {@link Perl5Matcher} on each
+ * call, so it needs no locking.
+ *
+ * @since 2.12.3
+ */
+final class MultiPatternMatcher {
+
+    private static final MultiPatternMatcher EMPTY = new MultiPatternMatcher( Collections.emptyList() );
+
+    private final List< Pattern > m_patterns;
+
+    /** Indexes of the patterns without a literal to look for, always run. */
+    private final int[] m_unfiltered;
+
+    // Aho-Corasick automaton, state 0 being the root. Transitions of each state are kept sorted by character.
+    private final char[][] m_labels;
+    private final int[][] m_targets;
+    private final int[] m_failure;
+    /** Patterns whose literal ends at each state. */
+    private final int[][] m_output;
+    /** Closest state down the failure chain with some output, or -1. */
+    private final int[] m_dictionary;
+
+    private MultiPatternMatcher( final List< Pattern > patterns ) {
+        m_patterns = Collections.unmodifiableList( new ArrayList<>( patterns ) );
+
+        final List< Map< Character, Integer > > trie = new ArrayList<>();
+        final List< List< Integer > > output = new ArrayList<>();
+        trie.add( new TreeMap<>() );
+        output.add( new ArrayList<>() );
+        final List< Integer > unfiltered = new ArrayList<>();
+        for( int i = 0; i < m_patterns.size(); i++ ) {
+            final String literal = requiredLiteral( m_patterns.get( i ) );
+            if( literal == null ) {
+                unfiltered.add( i );
+                continue;
+            }
+            int state = 0;
+            for( int c = 0; c < literal.length(); c++ ) {
+                final int from = state;
+                state = trie.get( from ).computeIfAbsent( literal.charAt( c ), k -> {
+                    trie.add( new TreeMap<>() );
+                    output.add( new ArrayList<>() );
+                    return trie.size() - 1;
+                } );
+            }
+            output.get( state ).add( i );
+        }
+        m_unfiltered = unfiltered.stream().mapToInt( Integer::intValue ).toArray();
+
+        final int states = trie.size();
+        m_labels = new char[ states ][];
+        m_targets = new int[ states ][];
+        m_output = new int[ states ][];
+        for( int s = 0; s < states; s++ ) {
+            final Map< Character, Integer > transitions = trie.get( s );
+            m_labels[ s ] = new char[ transitions.size() ];
+            m_targets[ s ] = new int[ transitions.size() ];
+            int t = 0;
+            for( final Map.Entry< Character, Integer > transition : transitions.entrySet() ) {
+                m_labels[ s ][ t ] = transition.getKey();
+                m_targets[ s ][ t++ ] = transition.getValue();
+            }
+            m_output[ s ] = output.get( s ).stream().mapToInt( Integer::intValue ).toArray();
+        }
+
+        // breadth first, so failure links always point to states already done
+        m_failure = new int[ states ];
+        m_dictionary = new int[ states ];
+        m_dictionary[ 0 ] = -1;
+        final Queue< Integer > queue = new ArrayDeque<>();
+        for( final int child : m_targets[ 0 ] ) {
+            m_dictionary[ child ] = -1;
+            queue.add( child );
+        }
+        while( !queue.isEmpty() ) {
+            final int s = queue.remove();
+            for( int t = 0; t < m_labels[ s ].length; t++ ) {
+                final char c = m_labels[ s ][ t ];
+                final int child = m_targets[ s ][ t ];
+                int f = m_failure[ s ];
+                int next;
+                while( ( next = transition( f, c ) ) < 0 && f != 0 ) {
+                    f = m_failure[ f ];
+                }
+                m_failure[ child ] = Math.max( next, 0 );
+                m_dictionary[ child ] = m_output[ m_failure[ child ] ].length > 0 ? m_failure[ child ] : m_dictionary[ m_failure[ child ] ];
+                queue.add( child );
+            }
+        }
+    }
+
+    /**
+     * Builds a matcher for the given patterns.
+     *
+     * @param patterns patterns compiled by a {@link Perl5Compiler}.
+     * @return the matcher.
+     */
+    static MultiPatternMatcher compile( final Collection< Pattern > patterns ) {
+        return patterns.isEmpty() ? EMPTY : new MultiPatternMatcher( new ArrayList<>( patterns ) );
+    }
+
+    /**
+     * Returns the patterns this matcher was built with, in their original order.
+     *
+     * @return the patterns.
+     */
+    List< Pattern > getPatterns() {
+        return m_patterns;
+    }
+
+    /**
+     * Returns the number of patterns.
+     *
+     * @return number of patterns.
+     */
+    int size() {
+        return m_patterns.size();
+    }
+
+    /**
+     * Returns whether there are no patterns at all.
+     *
+     * @return {@code true} if there are no patterns.
+     */
+    boolean isEmpty() {
+        return m_patterns.isEmpty();
+    }
+
+    /**
+     * Returns the patterns found in the given text, in their original order.
+     *
+     * @param text text to look into.
+     * @return the matching patterns, possibly empty.
+     */
+    List< Pattern > matches( final String text ) {
+        final int[] candidates = candidates( text );
+        if( candidates.length == 0 ) {
+            return Collections.emptyList();
+        }
+        final Perl5Matcher matcher = new Perl5Matcher();
+        final List< Pattern > matches = new ArrayList<>();
+        for( final int candidate : candidates ) {
+            final Pattern pattern = m_patterns.get( candidate );
+            if( matcher.contains( text, pattern ) ) {
+                matches.add( pattern );
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Runs the automaton over the text.
+     *
+     * @param text text to look into.
+     * @return sorted indexes of the patterns which may match the text.
+     */
+    int[] candidates( final String text ) {
+        if( m_labels.length == 1 ) {
+            return m_unfiltered;
+        }
+        final boolean[] reported = new boolean[ m_labels.length ];
+        int[] found = Arrays.copyOf( m_unfiltered, m_unfiltered.length + 16 );
+        int count = m_unfiltered.length;
+        int state = 0;
+        for( int i = 0; i < text.length(); i++ ) {
+            final char c = Character.toLowerCase( text.charAt( i ) );
+            int next;
+            while( ( next = transition( state, c ) ) < 0 && state != 0 ) {
+                state = m_failure[ state ];
+            }
+            state = Math.max( next, 0 );
+
+            // everything down the dictionary chain of an already reported state has been reported too
+            for( int s = m_output[ state ].length > 0 ? state : m_dictionary[ state ]; s > 0 && !reported[ s ]; s = m_dictionary[ s ] ) {
+                reported[ s ] = true;
+                for( final int p : m_output[ s ] ) {
+                    if( count == found.length ) {
+                        found = Arrays.copyOf( found, count * 2 );
+                    }
+                    found[ count++ ] = p;
+                }
+            }
+        }
+        final int[] candidates = Arrays.copyOf( found, count );
+        Arrays.sort( candidates );
+        return candidates;
+    }
+
+    private int transition( final int state, final char c ) {
+        final int t = Arrays.binarySearch( m_labels[ state ], c );
+        return t >= 0 ? m_targets[ state ][ t ] : -1;
+    }
+
+    /**
+     * Finds the longest run of literal characters every match of the pattern must contain.
+     *
+     * @param pattern compiled pattern.
+     * @return the literal, lower cased, or {@code null} if no such literal could be found.
+     */
+    static String requiredLiteral( final Pattern pattern ) {
+        if( ( pattern.getOptions() & Perl5Compiler.EXTENDED_MASK ) != 0 ) {
+            return null;
+        }
+        return requiredLiteral( pattern.getPattern() );
+    }
+
+    /**
+     * Finds the longest run of literal characters every match of a Perl5 regular expression must contain. Groups, character
+     * classes and escapes other than quoted punctuation are never looked into, they just end the current run.
+     *
+     * @param regexp Perl5 regular expression.
+     * @return the literal, lower cased, or {@code null} if no such literal could be found.
+     */
+    static String requiredLiteral( final String regexp ) {
+        if( regexp.contains( "(?" ) ) {
+            return null; // inline modifiers might turn on extended syntax
+        }
+        final StringBuilder run = new StringBuilder();
+        String best = "";
+        int i = 0;
+        while( i < regexp.length() ) {
+            final char c = regexp.charAt( i );
+            switch( c ) {
+            case '|':
+                return null; // top-level alternation, no single literal is required
+            case '\\':
+                if( i + 1 >= regexp.length() ) {
+                    return null;
+                }
+                final char escaped = regexp.charAt( i + 1 );
+                if( Character.isLetterOrDigit( escaped ) ) {
+                    best = longest( best, run );
+                    i = skipEscape( regexp, i + 1 );
+                } else {
+                    run.append( Character.toLowerCase( escaped ) );
+                    i += 2;
+                }
+                break;
+            case '[':
+                best = longest( best, run );
+                i = skipClass( regexp, i );
+                break;
+            case '(':
+                best = longest( best, run );
+                i = skipGroup( regexp, i );
+                if( i < 0 ) {
+                    return null;
+                }
+                break;
+            case ')':
+                return null;
+            case '.': case '^': case '$':
+                best = longest( best, run );
+                i++;
+                break;
+            case '*': case '?':
+                dropLast( run );
+                best = longest( best, run );
+                i++;
+                break;
+            case '+':
+                best = longest( best, run );
+                i++;
+                break;
+            case '{':
+                final int end = quantifierEnd( regexp, i );
+                if( end < 0 ) {
+                    run.append( c );
+                    i++;
+                } else {
+                    if( regexp.charAt( i + 1 ) == '0' ) {
+                        dropLast( run );
+                    }
+                    best = longest( best, run );
+                    i = end;
+                }
+                break;
+            default:
+                run.append( Character.toLowerCase( c ) );
+                i++;
+            }
+        }
+        best = longest( best, run );
+        return best.isEmpty() ? null : best;
+    }
+
+    private static String longest( final String best, final StringBuilder run ) {
+        final String candidate = run.length() > best.length() ? run.toString() : best;
+        run.setLength( 0 );
+        return candidate;
+    }
+
+    /** A quantified character is optional, or repeated, so it can't be part of the run. */
+    private static void dropLast( final StringBuilder run ) {
+        if( run.length() > 0 ) {
+            run.setLength( run.length() - 1 );
+        }
+    }
+
+    /** Returns the index after an alphanumeric escape starting at {@code i}, taking in its arguments. */
+    private static int skipEscape( final String regexp, int i ) {
+        final char c = regexp.charAt( i++ );
+        if( c == 'x' ) {
+            if( i < regexp.length() && regexp.charAt( i ) == '{' ) {
+                final int close = regexp.indexOf( '}', i );
+                return close < 0 ? regexp.length() : close + 1;
+            }
+            for( int n = 0; n < 2 && i < regexp.length() && Character.digit( regexp.charAt( i ), 16 ) >= 0; n++ ) {
+                i++;
+            }
+        } else if( c == 'c' ) {
+            i = Math.min( i + 1, regexp.length() );
+        } else if( Character.isDigit( c ) ) {
+            while( i < regexp.length() && Character.isDigit( regexp.charAt( i ) ) ) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /** Returns the index after the character class starting at {@code i}. */
+    private static int skipClass( final String regexp, int i ) {
+        i++;
+        if( i < regexp.length() && regexp.charAt( i ) == '^' ) {
+            i++;
+        }
+        if( i < regexp.length() && regexp.charAt( i ) == ']' ) {
+            i++;
+        }
+        while( i < regexp.length() && regexp.charAt( i ) != ']' ) {
+            i += regexp.charAt( i ) == '\\' ? 2 : 1;
+        }
+        return i + 1;
+    }
+
+    /** Returns the index after the group starting at {@code i}, or -1 if it isn't closed. */
+    private static int skipGroup( final String regexp, int i ) {
+        int depth = 0;
+        while( i < regexp.length() ) {
+            final char c = regexp.charAt( i );
+            if( c == '\\' ) {
+                i += 2;
+                continue;
+            }
+            if( c == '[' ) {
+                i = skipClass( regexp, i );
+                continue;
+            }
+            if( c == '(' ) {
+                depth++;
+            } else if( c == ')' && --depth == 0 ) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /** Returns the index after a {@code {n}}, {@code {n,}} or {@code {n,m}} quantifier starting at {@code i}, or -1 if there is none. */
+    private static int quantifierEnd( final String regexp, final int i ) {
+        int j = i + 1;
+        final int digits = j;
+        while( j < regexp.length() && Character.isDigit( regexp.charAt( j ) ) ) {
+            j++;
+        }
+        if( j == digits ) {
+            return -1;
+        }
+        if( j < regexp.length() && regexp.charAt( j ) == ',' ) {
+            j++;
+            while( j < regexp.length() && Character.isDigit( regexp.charAt( j ) ) ) {
+                j++;
+            }
+        }
+        return j < regexp.length() && regexp.charAt( j ) == '}' ? j + 1 : -1;
+    }
+
+}
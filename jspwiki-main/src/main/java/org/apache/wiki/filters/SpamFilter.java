@@ -70,13 +70,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Random;
 import java.util.StringTokenizer;
-import java.util.Vector;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -188,22 +187,35 @@ public class SpamFilter extends BasePageFilter {
     private String          m_errorPage          = "RejectedMessage";
     private String          m_blacklist          = "SpamFilterWordList/blacklist.txt";
 
-    private final PatternMatcher  m_matcher = new Perl5Matcher();
-    private final PatternCompiler m_compiler = new Perl5Compiler();
+    /* Pattern lists are replaced as a whole on rebuild, and matched without locking. */
+    private volatile MultiPatternMatcher m_spamPatterns;
+    private volatile MultiPatternMatcher m_IPPatterns;
 
-    private Collection<Pattern> m_spamPatterns;
-    private Collection<Pattern> m_IPPatterns;
-
-    private Date m_lastRebuild = new Date( 0L );
+    private volatile Date m_lastRebuild = new Date( 0L );
 
     private static final Logger C_SPAMLOG = LogManager.getLogger( "SpamLog" );
     private static final Logger LOG = LogManager.getLogger( SpamFilter.class );
 
-    private final Vector<Host>    m_temporaryBanList = new Vector<>();
+    /** Tracking window of modifications, changes and outcomes. */
+    private static final long WINDOW = 60 * 1000L; // 1 minute
+    private static final int WINDOW_BUCKETS = 60;
+
+    private TemporaryBans   m_temporaryBans = new TemporaryBans( 60 * 60 * 1000L );
 
     private int             m_banTime = 60; // minutes
 
-    private final Vector<Host>    m_lastModifications = new Vector<>();
+    /** Modifications made during the last minute, by IP address. */
+    private final WindowedCounter m_hostModifications = new WindowedCounter( WINDOW, WINDOW_BUCKETS );
+
+    /** Changes made during the last minute, by content of the change. */
+    private final WindowedCounter m_similarChanges = new WindowedCounter( WINDOW, WINDOW_BUCKETS );
+
+    private static final String ACCEPTED = "accepted";
+    private static final String REJECTED = "rejected";
+
+    /** Accepted and rejected modifications during the last minute. */
+    private final WindowedCounter m_outcomes = new WindowedCounter( WINDOW, WINDOW_BUCKETS );
+    private final AtomicLong      m_rejectedTotal = new AtomicLong();
 
     /** How many times a single IP address can change a page per minute? */
     private int             m_limitSinglePageChanges = 5;
@@ -258,6 +270,7 @@ public class SpamFilter extends BasePageFilter {
 
         m_maxUrls = TextUtil.getIntegerProperty( properties, PROP_MAXURLS, m_maxUrls );
         m_banTime = TextUtil.getIntegerProperty( properties, PROP_BANTIME, m_banTime );
+        m_temporaryBans = new TemporaryBans( m_banTime * 60 * 1000L );
         m_blacklist = properties.getProperty( PROP_BLACKLIST, m_blacklist );
 
         m_ignoreAuthenticated = TextUtil.getBooleanProperty( properties, PROP_IGNORE_AUTHENTICATED, m_ignoreAuthenticated );
@@ -266,7 +279,7 @@ public class SpamFilter extends BasePageFilter {
         m_useCaptcha = properties.getProperty( PROP_CAPTCHA, "" ).equals("asirra");
 
         try {
-            m_urlPattern = m_compiler.compile( URL_REGEXP );
+            m_urlPattern = new Perl5Compiler().compile( URL_REGEXP );
         } catch( final MalformedPatternException e ) {
             LOG.fatal( "Internal error: Someone put in a faulty pattern.", e );
             throw new InternalWikiException( "Faulty pattern." , e);
@@ -312,26 +325,73 @@ public class SpamFilter extends BasePageFilter {
         refreshBlacklists( context );
         final Change change = getChange( context, content );
 
-        if( !ignoreThisUser( context ) ) {
-            checkBanList( context, change );
-            checkSinglePageChange( context, change );
-            checkIPList( context );
-            checkPatternList( context, change );
-            checkPageName( context);
-        }
+        try {
+            if( !ignoreThisUser( context ) ) {
+                checkBanList( context, change );
+                checkSinglePageChange( context, change );
+                checkIPList( context );
+                checkPatternList( context, change );
+                checkPageName( context);
+            }
 
-        if( !m_stopAtFirstMatch ) {
-            final Integer score = context.getVariable( ATTR_SPAMFILTER_SCORE );
+            if( !m_stopAtFirstMatch ) {
+                final Integer score = context.getVariable( ATTR_SPAMFILTER_SCORE );
 
-            if( score != null && score >= m_scoreLimit ) {
-                throw new RedirectException( "Herb says you got too many points", getRedirectPage( context ) );
+                if( score != null && score >= m_scoreLimit ) {
+                    throw new RedirectException( "Herb says you got too many points", getRedirectPage( context ) );
+                }
             }
+        } catch( final RedirectException e ) {
+            m_outcomes.increment( REJECTED );
+            m_rejectedTotal.incrementAndGet();
+            throw e;
         }
 
+        m_outcomes.increment( ACCEPTED );
         log( context, ACCEPT, "-", change.toString() );
         return content;
     }
 
+    /**
+     *  Returns the number of IP addresses currently on the temporary ban list.
+     *
+     *  @return number of temporarily banned addresses.
+     *  @since 2.12.3
+     */
+    public int getTemporaryBanCount() {
+        return m_temporaryBans.size();
+    }
+
+    /**
+     *  Returns the number of modifications rejected during the last minute.
+     *
+     *  @return rejected modifications per minute.
+     *  @since 2.12.3
+     */
+    public int getRejectedPerMinute() {
+        return m_outcomes.count( REJECTED );
+    }
+
+    /**
+     *  Returns the number of modifications accepted during the last minute.
+     *
+     *  @return accepted modifications per minute.
+     *  @since 2.12.3
+     */
+    public int getAcceptedPerMinute() {
+        return m_outcomes.count( ACCEPTED );
+    }
+
+    /**
+     *  Returns the number of modifications rejected since the filter was started.
+     *
+     *  @return rejected modifications.
+     *  @since 2.12.3
+     */
+    public long getRejectedTotal() {
+        return m_rejectedTotal.get();
+    }
+
     private void checkPageName(final Context context ) throws RedirectException {
         final Page page = context.getPage();
         final String pageName = page.getName();
@@ -375,13 +435,14 @@ public class SpamFilter extends BasePageFilter {
         final ArrayList< Pattern > compiledpatterns = new ArrayList<>();
 
         if( list != null ) {
+            final PatternCompiler compiler = new Perl5Compiler();
             final StringTokenizer tok = new StringTokenizer( list, " \t\n" );
 
             while( tok.hasMoreTokens() ) {
                 final String pattern = tok.nextToken();
 
                 try {
-                    compiledpatterns.add( m_compiler.compile( pattern ) );
+                    compiledpatterns.add( compiler.compile( pattern ) );
                 } catch( final MalformedPatternException e ) {
                     LOG.debug( "Malformed spam filter pattern " + pattern );
                     source.setAttribute("error", "Malformed spam filter pattern " + pattern);
@@ -402,6 +463,7 @@ public class SpamFilter extends BasePageFilter {
         final ArrayList< Pattern > compiledpatterns = new ArrayList<>();
 
         if( list != null ) {
+            final PatternCompiler compiler = new Perl5Compiler();
             try {
                 final BufferedReader in = new BufferedReader( new StringReader(list) );
                 String line;
@@ -415,7 +477,7 @@ public class SpamFilter extends BasePageFilter {
                     if( ws != -1 ) line = line.substring( 0, ws );
 
                     try {
-                        compiledpatterns.add( m_compiler.compile( line ) );
+                        compiledpatterns.add( compiler.compile( line ) );
                     } catch( final MalformedPatternException e ) {
                         LOG.debug( "Malformed spam filter pattern " + line );
                     }
@@ -435,44 +497,20 @@ public class SpamFilter extends BasePageFilter {
      * @param change page change
      * @throws RedirectException spam filter rejects the page change.
      */
-    private synchronized void checkSinglePageChange(final Context context, final Change change )
+    private void checkSinglePageChange(final Context context, final Change change )
     		throws RedirectException {
         final HttpServletRequest req = context.getHttpRequest();
 
         if( req != null ) {
             final String addr = HttpUtil.getRemoteAddress( req );
-            int hostCounter = 0;
-            int changeCounter = 0;
-
             LOG.debug( "Change is " + change.m_change );
 
-            final long time = System.currentTimeMillis() - 60*1000L; // 1 minute
-
-            for( final Iterator< Host > i = m_lastModifications.iterator(); i.hasNext(); ) {
-                final Host host = i.next();
-
-                //  Check if this item is invalid
-                if( host.getAddedTime() < time ) {
-                    LOG.debug( "Removed host " + host.getAddress() + " from modification queue (expired)" );
-                    i.remove();
-                    continue;
-                }
-
-                // Check if this IP address has been seen before
-                if( host.getAddress().equals( addr ) ) {
-                    hostCounter++;
-                }
-
-                //  Check, if this change has been seen before
-                if( host.getChange() != null && host.getChange().equals( change ) ) {
-                    changeCounter++;
-                }
-            }
+            final int hostCounter = m_hostModifications.count( addr );
+            final int changeCounter = change.m_change != null ? m_similarChanges.count( change.m_change ) : 0;
 
             //  Now, let's check against the limits.
             if( hostCounter >= m_limitSinglePageChanges ) {
-                final Host host = new Host( addr, null );
-                m_temporaryBanList.add( host );
+                m_temporaryBans.ban( addr );
 
                 final String uid = log( context, REJECT, REASON_TOO_MANY_MODIFICATIONS, change.m_change );
                 LOG.info( "SPAM:TooManyModifications (" + uid + "). Added host " + addr + " to temporary ban list for doing too many modifications/minute" );
@@ -480,8 +518,7 @@ public class SpamFilter extends BasePageFilter {
             }
 
             if( changeCounter >= m_limitSimilarChanges ) {
-                final Host host = new Host( addr, null );
-                m_temporaryBanList.add( host );
+                m_temporaryBans.ban( addr );
 
                 final String uid = log( context, REJECT, REASON_SIMILAR_MODIFICATIONS, change.m_change );
                 LOG.info( "SPAM:SimilarModifications (" + uid + "). Added host " + addr + " to temporary ban list for doing too many similar modifications" );
@@ -489,17 +526,17 @@ public class SpamFilter extends BasePageFilter {
             }
 
             //  Calculate the number of links in the addition.
+            final PatternMatcher matcher = new Perl5Matcher();
             String tstChange  = change.toString();
             int urlCounter = 0;
-            while( m_matcher.contains( tstChange,m_urlPattern ) ) {
-                final MatchResult m = m_matcher.getMatch();
+            while( matcher.contains( tstChange,m_urlPattern ) ) {
+                final MatchResult m = matcher.getMatch();
                 tstChange = tstChange.substring( m.endOffset(0) );
                 urlCounter++;
             }
 
             if( urlCounter > m_maxUrls ) {
-                final Host host = new Host( addr, null );
-                m_temporaryBanList.add( host );
+                m_temporaryBans.ban( addr );
 
                 final String uid = log( context, REJECT, REASON_TOO_MANY_URLS, change.toString() );
                 LOG.info( "SPAM:TooManyUrls (" + uid + "). Added host " + addr + " to temporary ban list for adding too many URLs" );
@@ -515,7 +552,10 @@ public class SpamFilter extends BasePageFilter {
             //  Do Akismet check.  This is good to be the last, because this is the most expensive operation.
             checkAkismet( context, change );
 
-            m_lastModifications.add( new Host( addr, change ) );
+            m_hostModifications.increment( addr );
+            if( change.m_change != null ) {
+                m_similarChanges.increment( change.m_change );
+            }
         }
     }
 
@@ -629,17 +669,9 @@ public class SpamFilter extends BasePageFilter {
         }
     }
 
-    /** Goes through the ban list and cleans away any host which has expired from it. */
-    private synchronized void cleanBanList() {
-        final long now = System.currentTimeMillis();
-        for( final Iterator< Host > i = m_temporaryBanList.iterator(); i.hasNext(); ) {
-            final Host host = i.next();
-
-            if( host.getReleaseTime() < now ) {
-                LOG.debug( "Removed host " + host.getAddress() + " from temporary ban list (expired)" );
-                i.remove();
-            }
-        }
+    /** Cleans away from the ban list any host whose ban has expired. */
+    private void cleanBanList() {
+        m_temporaryBans.expire();
     }
 
     /**
@@ -653,16 +685,13 @@ public class SpamFilter extends BasePageFilter {
 
         if( req != null ) {
             final String remote = HttpUtil.getRemoteAddress(req);
-            final long now = System.currentTimeMillis();
-
-            for( final Host host : m_temporaryBanList ) {
-                if( host.getAddress().equals( remote ) ) {
-                    final long timeleft = ( host.getReleaseTime() - now ) / 1000L;
+            final long remaining = m_temporaryBans.remaining( remote );
 
-                    log( context, REJECT, REASON_IP_BANNED_TEMPORARILY, change.m_change );
-                    checkStrategy( context,
-                            "You have been temporarily banned from modifying this wiki. (" + timeleft + " seconds of ban left)" );
-                }
+            if( remaining > 0 ) {
+                final long timeleft = ( remaining + 999L ) / 1000L;
+                log( context, REJECT, REASON_IP_BANNED_TEMPORARILY, change.m_change );
+                checkStrategy( context,
+                        "You have been temporarily banned from modifying this wiki. (" + timeleft + " seconds of ban left)" );
             }
         }
     }
@@ -701,11 +730,11 @@ public class SpamFilter extends BasePageFilter {
             //  Do the actual rebuilding.  For simplicity's sake, we always rebuild the complete filter list regardless of what changed.
             if( rebuild ) {
                 m_lastRebuild = new Date();
-                m_spamPatterns = parseWordList( sourceSpam, ( sourceSpam != null ) ? sourceSpam.getAttribute( LISTVAR ) : null );
+                final Collection< Pattern > spamPatterns = parseWordList( sourceSpam, ( sourceSpam != null ) ? sourceSpam.getAttribute( LISTVAR ) : null );
 
-                LOG.info( "Spam filter reloaded - recognizing " + m_spamPatterns.size() + " patterns from page " + m_forbiddenWordsPage );
+                LOG.info( "Spam filter reloaded - recognizing " + spamPatterns.size() + " patterns from page " + m_forbiddenWordsPage );
 
-                m_IPPatterns = parseWordList( sourceIPs,  ( sourceIPs != null ) ? sourceIPs.getAttribute( LISTIPVAR ) : null );
+                m_IPPatterns = MultiPatternMatcher.compile( parseWordList( sourceIPs,  ( sourceIPs != null ) ? sourceIPs.getAttribute( LISTIPVAR ) : null ) );
                 LOG.info( "IP filter reloaded - recognizing " + m_IPPatterns.size() + " patterns from page " + m_forbiddenIPsPage );
 
                 if( att != null ) {
@@ -714,8 +743,9 @@ public class SpamFilter extends BasePageFilter {
                     FileUtil.copyContents( new InputStreamReader( in, StandardCharsets.UTF_8 ), out );
                     final Collection< Pattern > blackList = parseBlacklist( out.toString() );
                     LOG.info( "...recognizing additional " + blackList.size() + " patterns from blacklist " + m_blacklist );
-                    m_spamPatterns.addAll( blackList );
+                    spamPatterns.addAll( blackList );
                 }
+                m_spamPatterns = MultiPatternMatcher.compile( spamPatterns );
             }
         } catch( final IOException ex ) {
             LOG.info( "Unable to read attachment data, continuing...", ex );
@@ -733,7 +763,8 @@ public class SpamFilter extends BasePageFilter {
      */
     private void checkPatternList( final Context context, final Change change ) throws RedirectException {
         // If we have no spam patterns defined, or we're trying to save the page containing the patterns, just return.
-        if( m_spamPatterns == null || context.getPage().getName().equals( m_forbiddenWordsPage ) ) {
+        final MultiPatternMatcher spamPatterns = m_spamPatterns;
+        if( spamPatterns == null || context.getPage().getName().equals( m_forbiddenWordsPage ) ) {
             return;
         }
 
@@ -742,16 +773,13 @@ public class SpamFilter extends BasePageFilter {
             ch += HttpUtil.getRemoteAddress( context.getHttpRequest() );
         }
 
-        for( final Pattern p : m_spamPatterns ) {
-            // LOG.debug("Attempting to match page contents with "+p.getPattern());
-
-            if( m_matcher.contains( ch, p ) ) {
-                //  Spam filter has a match.
-                final String uid = log( context, REJECT, REASON_REGEXP + "(" + p.getPattern() + ")", ch );
+        // Only the patterns whose literal text shows up in the change are actually run
+        for( final Pattern p : spamPatterns.matches( ch ) ) {
+            //  Spam filter has a match.
+            final String uid = log( context, REJECT, REASON_REGEXP + "(" + p.getPattern() + ")", ch );
 
-                LOG.info( "SPAM:Regexp (" + uid + "). Content matches the spam filter '" + p.getPattern() + "'" );
-                checkStrategy( context, "Herb says '" + p.getPattern() + "' is a bad spam word and I trust Herb! (Incident code " + uid + ")" );
-            }
+            LOG.info( "SPAM:Regexp (" + uid + "). Content matches the spam filter '" + p.getPattern() + "'" );
+            checkStrategy( context, "Herb says '" + p.getPattern() + "' is a bad spam word and I trust Herb! (Incident code " + uid + ")" );
         }
     }
 
@@ -764,25 +792,21 @@ public class SpamFilter extends BasePageFilter {
      */
     private void checkIPList( final Context context ) throws RedirectException {
         //  If we have no IP patterns defined, or we're trying to save the page containing the IP patterns, just return.
-        if( m_IPPatterns == null || context.getPage().getName().equals( m_forbiddenIPsPage ) ) {
+        final MultiPatternMatcher ipPatterns = m_IPPatterns;
+        if( ipPatterns == null || context.getPage().getName().equals( m_forbiddenIPsPage ) ) {
             return;
         }
 
         final String remoteIP = HttpUtil.getRemoteAddress( context.getHttpRequest() );
-        LOG.info("Attempting to match remoteIP " + remoteIP + " against " + m_IPPatterns.size() + " patterns");
+        LOG.info("Attempting to match remoteIP " + remoteIP + " against " + ipPatterns.size() + " patterns");
 
-        for( final Pattern p : m_IPPatterns ) {
-             LOG.debug("Attempting to match remoteIP with " + p.getPattern());
-
-            if( m_matcher.contains( remoteIP, p ) ) {
-
-                //  IP filter has a match.
-                //
-                final String uid = log( context, REJECT, REASON_IP_BANNED_PERMANENTLY + "(" + p.getPattern() + ")", remoteIP );
+        for( final Pattern p : ipPatterns.matches( remoteIP ) ) {
+            //  IP filter has a match.
+            //
+            final String uid = log( context, REJECT, REASON_IP_BANNED_PERMANENTLY + "(" + p.getPattern() + ")", remoteIP );
 
-                LOG.info( "SPAM:IPBanList (" + uid + "). remoteIP matches the IP filter '" + p.getPattern() + "'" );
-                checkStrategy( context, "Herb says '" + p.getPattern() + "' is a banned IP and I trust Herb! (Incident code " + uid + ")" );
-            }
+            LOG.info( "SPAM:IPBanList (" + uid + "). remoteIP matches the IP filter '" + p.getPattern() + "'" );
+            checkStrategy( context, "Herb says '" + p.getPattern() + "' is a banned IP and I trust Herb! (Incident code " + uid + ")" );
         }
     }
 
@@ -1022,40 +1046,6 @@ public class SpamFilter extends BasePageFilter {
         return sb.toString();
     }
     
-    /**
-     *  A local class for storing host information.
-     */
-    private class Host {
-
-        private final long m_addedTime = System.currentTimeMillis();
-        private final long m_releaseTime;
-        private final String m_address;
-        private final Change m_change;
-
-        public String getAddress() {
-            return m_address;
-        }
-
-        public long getReleaseTime() {
-            return m_releaseTime;
-        }
-
-        public long getAddedTime() {
-            return m_addedTime;
-        }
-
-        public Change getChange() {
-            return m_change;
-        }
-
-        public Host( final String ipaddress, final Change change ) {
-            m_address = ipaddress;
-            m_change = change;
-            m_releaseTime = System.currentTimeMillis() + m_banTime * 60 * 1000L;
-        }
-        
-    }
-    
     private static class Change {
     	
         public String m_change;
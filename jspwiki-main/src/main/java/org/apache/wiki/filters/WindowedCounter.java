@@ -0,0 +1,173 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Counts events per key over a sliding time window, i.e. changes per IP address over the last minute.
+ * <p>
+ * The window is split into a ring of buckets; each key has its own ring, so counting an event only touches one bucket, and
+ * old buckets are simply overwritten when the ring comes round again. Keys which saw no event for a whole window are dropped
+ * through a time wheel holding the keys touched during each bucket, so expiring them costs no more than having counted them.
+ * Counting only locks the key being counted, and reading a count takes no lock at all.
+ *
+ * @since 2.12.3
+ */
+final class WindowedCounter {
+
+    private final long m_start;
+    private final long m_bucketMillis;
+    private final int m_buckets;
+    private final LongSupplier m_clock;
+    private final ConcurrentHashMap< String, Window > m_windows = new ConcurrentHashMap<>();
+    /** Keys which got their first event of a bucket, by bucket; one more slot than buckets, so the slot being expired isn't in use. */
+    private final Queue< String >[] m_touched;
+    private final AtomicLong m_expired = new AtomicLong();
+
+    /**
+     * Creates a counter.
+     *
+     * @param windowMillis length of the window, in milliseconds.
+     * @param buckets number of buckets the window is split into, which is the granularity of the window.
+     */
+    WindowedCounter( final long windowMillis, final int buckets ) {
+        this( windowMillis, buckets, System::currentTimeMillis );
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    WindowedCounter( final long windowMillis, final int buckets, final LongSupplier clock ) {
+        m_clock = clock;
+        m_start = clock.getAsLong();
+        m_buckets = buckets;
+        m_bucketMillis = Math.max( 1L, windowMillis / buckets );
+        m_touched = new Queue[ buckets + 1 ];
+        for( int i = 0; i < m_touched.length; i++ ) {
+            m_touched[ i ] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Counts an event.
+     *
+     * @param key what the event is counted for.
+     */
+    void increment( final String key ) {
+        final long epoch = epoch();
+        expire( epoch );
+        m_windows.compute( key, ( k, window ) -> {
+            final Window w = window != null ? window : new Window( m_buckets );
+            if( w.add( epoch ) ) {
+                m_touched[ ( int )( epoch % m_touched.length ) ].add( k );
+            }
+            return w;
+        } );
+    }
+
+    /**
+     * Returns the number of events counted for a key within the window.
+     *
+     * @param key what the events were counted for.
+     * @return number of events.
+     */
+    int count( final String key ) {
+        final Window window = m_windows.get( key );
+        return window != null ? window.count( epoch(), m_buckets ) : 0;
+    }
+
+    /**
+     * Returns the number of keys which got some event lately.
+     *
+     * @return number of keys being tracked.
+     */
+    int size() {
+        expire( epoch() );
+        return m_windows.size();
+    }
+
+    private long epoch() {
+        return ( m_clock.getAsLong() - m_start ) / m_bucketMillis;
+    }
+
+    /** Drops the keys whose last event fell out of the window, visiting each time wheel slot once per turn. */
+    private void expire( final long epoch ) {
+        final long expired = m_expired.get();
+        if( expired >= epoch || !m_expired.compareAndSet( expired, epoch ) ) {
+            return; // up to date, or some other thread is on it
+        }
+        final long limit = epoch - m_buckets;
+        for( long e = Math.max( expired + 1, limit ); e <= epoch; e++ ) {
+            final long slot = e - m_buckets;
+            if( slot < 0 ) {
+                continue;
+            }
+            final Queue< String > keys = m_touched[ ( int )( slot % m_touched.length ) ];
+            String key;
+            while( ( key = keys.poll() ) != null ) {
+                m_windows.computeIfPresent( key, ( k, window ) -> window.last() <= limit ? null : window );
+            }
+        }
+    }
+
+    /** Events of a single key: each bucket packs its epoch in the high half, and the events counted in it in the low half. */
+    private static final class Window {
+
+        private final AtomicLongArray m_slots;
+        private volatile long m_last = -1L;
+
+        Window( final int buckets ) {
+            m_slots = new AtomicLongArray( buckets );
+        }
+
+        /** Called with the key locked; returns whether this is the first event of the window during this epoch. */
+        boolean add( final long epoch ) {
+            final int i = ( int )( epoch % m_slots.length() );
+            final long slot = m_slots.get( i );
+            m_slots.set( i, ( slot >>> 32 ) == epoch ? slot + 1 : ( epoch << 32 ) | 1L );
+            if( m_last == epoch ) {
+                return false;
+            }
+            m_last = epoch;
+            return true;
+        }
+
+        long last() {
+            return m_last;
+        }
+
+        int count( final long epoch, final int buckets ) {
+            long count = 0;
+            for( int i = 0; i < m_slots.length(); i++ ) {
+                final long slot = m_slots.get( i );
+                if( epoch - ( slot >>> 32 ) < buckets ) {
+                    count += slot & 0xFFFFFFFFL;
+                }
+            }
+            return ( int )count;
+        }
+
+    }
+
+}
@@ -41,6 +41,7 @@ import org.apache.wiki.auth.acl.AclManager;
 import org.apache.wiki.auth.user.UserProfile;
 import org.apache.wiki.cache.CachingManager;
 import org.apache.wiki.diff.DifferenceManager;
+import org.apache.wiki.event.WikiEngineEvent;
 import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiPageEvent;
@@ -60,6 +61,9 @@ import org.apache.wiki.workflow.WorkflowBuilder;
 import org.apache.wiki.workflow.WorkflowManager;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.Permission;
 import java.security.Principal;
 import java.util.ArrayList;
@@ -88,12 +92,15 @@ import java.util.concurrent.ConcurrentHashMap;
 public class DefaultPageManager implements PageManager {
 
     private static final Logger LOG = LogManager.getLogger( DefaultPageManager.class );
+    private static final String RECENT_CHANGES_FILE = "recentchanges.bin";
     private final PageProvider m_provider;
     private final Engine m_engine;
     private final int m_expiryTime;
     protected final ConcurrentHashMap< String, PageLock > m_pageLocks = new ConcurrentHashMap<>();
     private final PageSorter pageSorter = new PageSorter();
     private LockReaper m_reaper;
+    private final int m_recentChangesSize;
+    private volatile RecentChangesLog m_recentChanges;
 
     /**
      * Creates a new PageManager.
@@ -108,6 +115,7 @@ public class DefaultPageManager implements PageManager {
         final String classname;
         final boolean useCache = m_engine.getManager( CachingManager.class ).enabled( CachingManager.CACHE_PAGES );
         m_expiryTime = TextUtil.parseIntParameter( props.getProperty( PROP_LOCKEXPIRY ), 60 );
+        m_recentChangesSize = TextUtil.parseIntParameter( props.getProperty( PROP_RECENTCHANGES_SIZE ), 2000 );
 
         //  If user wants to use a cache, then we'll use the CachingProvider.
         if( useCache ) {
@@ -134,6 +142,7 @@ public class DefaultPageManager implements PageManager {
             throw new WikiException("Unable to start page provider: " + e.getMessage(), e);
         }
 
+        WikiEventManager.addWikiEventListener( m_engine, this );
     }
 
     /**
@@ -280,6 +289,14 @@ public class DefaultPageManager implements PageManager {
         }
 
         m_provider.putPageText(page, content);
+
+        final RecentChangesLog recentChanges = m_recentChanges;
+        if( recentChanges != null ) {
+            final Page saved = m_provider.getPageInfo( page.getName(), PageProvider.LATEST_VERSION );
+            if( saved != null && saved.getLastModified() != null ) {
+                recentChanges.record( saved.getName(), saved.getLastModified().getTime() );
+            }
+        }
     }
 
     /**
@@ -478,6 +495,141 @@ public class DefaultPageManager implements PageManager {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Page changes are taken from the recent changes log, and attachment changes from the attachment provider, so only the
+     * changes within the window are looked at. Windows reaching further back than the log are answered from it as long as it
+     * holds at least {@code max} pages changed within the window, as no older change can make it into the result; otherwise
+     * they fall back to sorting all the pages.
+     *
+     * @see org.apache.wiki.pages.PageManager#getRecentChanges(Date, Date, int)
+     */
+    @Override
+    public List< Page > getRecentChanges( final Date since, final Date before, final int max ) {
+        final long from = since != null ? since.getTime() : Long.MIN_VALUE;
+        final long to = before != null ? before.getTime() : Long.MAX_VALUE;
+        final RecentChangesLog recentChanges = getRecentChangesLog();
+        if( recentChanges == null ) {
+            return PageManager.super.getRecentChanges( since, before, max );
+        }
+        final boolean covered = recentChanges.covers( from );
+        if( !covered && max <= 0 ) {
+            return PageManager.super.getRecentChanges( since, before, max );
+        }
+
+        final List< Page > changes = new ArrayList<>();
+        for( final String name : recentChanges.changes( from, to ) ) {
+            final Page page = getPage( name );
+            if( page == null ) {
+                recentChanges.remove( name ); // renamed or removed behind our back
+                continue;
+            }
+            changes.add( page );
+            if( changes.size() == max ) {
+                break;
+            }
+        }
+        if( !covered && changes.size() < max ) {
+            return PageManager.super.getRecentChanges( since, before, max );
+        }
+
+        // once max pages are found, attachments changed before the oldest of them can't make it into the result either
+        long attachmentsFrom = from;
+        if( max > 0 && changes.size() == max ) {
+            attachmentsFrom = Long.MAX_VALUE;
+            for( final Page page : changes ) {
+                attachmentsFrom = Math.min( attachmentsFrom, page.getLastModified().getTime() );
+            }
+            attachmentsFrom = Math.max( from, attachmentsFrom );
+        }
+        try {
+            final AttachmentManager attachmentManager = m_engine.getManager( AttachmentManager.class );
+            if( attachmentManager.attachmentsEnabled() ) {
+                // listAllChanged only returns attachments changed strictly after the given date
+                final Date changedAfter = new Date( Math.max( 0L, attachmentsFrom - 1 ) );
+                for( final Attachment att : attachmentManager.getCurrentProvider().listAllChanged( changedAfter ) ) {
+                    final long lastModified = att.getLastModified().getTime();
+                    if( lastModified >= attachmentsFrom && lastModified < to ) {
+                        changes.add( att );
+                    }
+                }
+            }
+        } catch( final ProviderException e ) {
+            LOG.error( "Unable to fetch changed attachments: ", e );
+        }
+
+        changes.sort( new PageTimeComparator() );
+        return max > 0 && changes.size() > max ? new ArrayList<>( changes.subList( 0, max ) ) : changes;
+    }
+
+    /**
+     * Returns the recent changes log, filling it on first use, either from the copy kept in the work directory on the last
+     * shutdown, or from the list of all pages.
+     *
+     * @return the recent changes log, or {@code null} if it can't be filled.
+     */
+    private RecentChangesLog getRecentChangesLog() {
+        RecentChangesLog recentChanges = m_recentChanges;
+        if( recentChanges == null ) {
+            synchronized( this ) {
+                recentChanges = m_recentChanges;
+                if( recentChanges == null ) {
+                    try {
+                        recentChanges = new RecentChangesLog( m_recentChangesSize );
+                        final Collection< Page > pages = getAllPages();
+                        if( !loadRecentChanges( recentChanges, pages.size() ) ) {
+                            recentChanges.seed( pages );
+                        }
+                        m_recentChanges = recentChanges;
+                    } catch( final ProviderException e ) {
+                        LOG.error( "Unable to fetch all pages: ", e );
+                        return null;
+                    }
+                }
+            }
+        }
+        return recentChanges;
+    }
+
+    /**
+     * Reads back the recent changes log kept on the last shutdown. The copy is removed once read, so that a log which went
+     * stale because the wiki wasn't shut down cleanly isn't read again.
+     */
+    private boolean loadRecentChanges( final RecentChangesLog recentChanges, final int pageCount ) {
+        final Path file = Paths.get( m_engine.getWorkDir(), RECENT_CHANGES_FILE );
+        if( !Files.exists( file ) ) {
+            return false;
+        }
+        try {
+            final boolean current = recentChanges.load( file ) == pageCount;
+            LOG.debug( "Read recent changes log ({} pages){}", recentChanges.size(), current ? "" : ", but the wiki changed since" );
+            return current;
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to read recent changes log {}: {}", file, e.getMessage() );
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists( file );
+            } catch( final IOException e ) {
+                LOG.warn( "Unable to remove recent changes log {}: {}", file, e.getMessage() );
+            }
+        }
+    }
+
+    /** Keeps the recent changes log in the work directory, so it doesn't have to be rebuilt on the next start. */
+    private void saveRecentChanges() {
+        final RecentChangesLog recentChanges = m_recentChanges;
+        if( recentChanges != null ) {
+            final Path file = Paths.get( m_engine.getWorkDir(), RECENT_CHANGES_FILE );
+            try {
+                recentChanges.save( file, getTotalPageCount() );
+            } catch( final IOException e ) {
+                LOG.warn( "Unable to write recent changes log {}: {}", file, e.getMessage() );
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      * @see org.apache.wiki.pages.PageManager#pageExists(java.lang.String)
@@ -612,6 +764,10 @@ public class DefaultPageManager implements PageManager {
     public void deletePage( final Page page ) throws ProviderException {
         fireEvent( WikiPageEvent.PAGE_DELETE_REQUEST, page.getName() );
         m_provider.deletePage( page.getName() );
+        final RecentChangesLog recentChanges = m_recentChanges;
+        if( recentChanges != null ) {
+            recentChanges.remove( page.getName() );
+        }
         fireEvent( WikiPageEvent.PAGE_DELETED, page.getName() );
     }
 
@@ -671,11 +827,17 @@ public class DefaultPageManager implements PageManager {
      * a name that has changed, it is replaced with the new one. No events are emitted
      * as a consequence of this method, because the page contents are still the same; it is
      * only the representations of the names within the ACL that are changing.
+     * <p>
+     * Also listens for {@link WikiEngineEvent#SHUTDOWN} events, to keep the recent changes log in the work directory.
      *
      * @param event The event
      */
     @Override
     public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiEngineEvent && event.getType() == WikiEngineEvent.SHUTDOWN ) {
+            saveRecentChanges();
+            return;
+        }
         if( !( event instanceof WikiSecurityEvent ) ) {
             return;
         }
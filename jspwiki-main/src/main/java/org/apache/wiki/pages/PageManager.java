@@ -25,7 +25,9 @@ import org.apache.wiki.api.exceptions.WikiException;
 import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.event.WikiEventListener;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -36,6 +38,8 @@ public interface PageManager extends WikiEventListener {
     String PROP_PAGEPROVIDER = "jspwiki.pageProvider";
     /** The property value for setting the amount of time before the page locks expire. Value is {@value}. */
     String PROP_LOCKEXPIRY = "jspwiki.lockExpiryTime";
+    /** The property value for setting how many pages the recent changes log keeps track of. Value is {@value}. */
+    String PROP_RECENTCHANGES_SIZE = "jspwiki.recentChanges.size";
 
     /**
      * Returns the page provider currently in use.
@@ -269,6 +273,31 @@ public interface PageManager extends WikiEventListener {
      */
     Set< Page > getRecentChanges();
 
+    /**
+     *  Returns the pages and attachments changed within a time window, sorted in time order of last change (i.e. first object
+     *  is the most recently changed). To page through the changes, call again passing the last modification date of the last
+     *  page returned as {@code before}.
+     *
+     *  @param since only changes made at or after this date are returned; {@code null} means no lower bound.
+     *  @param before only changes made before this date are returned; {@code null} means no upper bound.
+     *  @param max maximum number of changes to return; zero or less means no limit.
+     *  @return List of WikiPage objects.
+     *  @since 2.12.3
+     */
+    default List< Page > getRecentChanges( final Date since, final Date before, final int max ) {
+        final List< Page > changes = new ArrayList<>();
+        for( final Page page : getRecentChanges() ) {
+            final Date lastModified = page.getLastModified();
+            if( ( since == null || !lastModified.before( since ) ) && ( before == null || lastModified.before( before ) ) ) {
+                changes.add( page );
+                if( changes.size() == max ) {
+                    break;
+                }
+            }
+        }
+        return changes;
+    }
+
     /**
      * Returns true, if the page exists (any version) on the underlying WikiPageProvider.
      *
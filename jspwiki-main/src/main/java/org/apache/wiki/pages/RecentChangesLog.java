@@ -0,0 +1,220 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.pages;
+
+import org.apache.wiki.api.core.Page;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/**
+ * The last changes made to the wiki pages, newest first.
+ * <p>
+ * Holds the time of the last change of, at most, a given number of pages. Once full, the oldest change is forgotten on each
+ * new one, and the time of the last change forgotten becomes the log's horizon: the log knows every change made after it,
+ * and nothing about the ones made before. Attachments are not kept here, as the attachment providers already know which
+ * attachments changed since a given date.
+ *
+ * @since 2.12.3
+ */
+final class RecentChangesLog {
+
+    private static final int MAGIC = 0x4A535752;
+    private static final int FORMAT = 1;
+
+    private static final Comparator< Change > NEWEST_FIRST = Comparator.comparingLong( ( Change c ) -> c.m_time ).reversed()
+                                                                       .thenComparing( c -> c.m_name );
+
+    private final int m_capacity;
+    private final Map< String, Change > m_changes = new HashMap<>();
+    private final TreeSet< Change > m_order = new TreeSet<>( NEWEST_FIRST );
+    private long m_horizon = Long.MIN_VALUE;
+
+    /**
+     * Creates an empty log.
+     *
+     * @param capacity maximum number of pages kept.
+     */
+    RecentChangesLog( final int capacity ) {
+        m_capacity = Math.max( 1, capacity );
+    }
+
+    /**
+     * Fills the log from a list of pages, forgetting whatever it held before.
+     *
+     * @param pages all the pages of the wiki.
+     */
+    synchronized void seed( final Collection< Page > pages ) {
+        m_changes.clear();
+        m_order.clear();
+        m_horizon = Long.MIN_VALUE;
+        for( final Page page : pages ) {
+            if( page.getLastModified() != null ) {
+                record( page.getName(), page.getLastModified().getTime() );
+            }
+        }
+    }
+
+    /**
+     * Records a change made to a page.
+     *
+     * @param name name of the page.
+     * @param time time of the change.
+     */
+    synchronized void record( final String name, final long time ) {
+        if( time <= m_horizon ) {
+            return;
+        }
+        final Change previous = m_changes.put( name, new Change( name, time ) );
+        if( previous != null ) {
+            m_order.remove( previous );
+        }
+        m_order.add( m_changes.get( name ) );
+        while( m_order.size() > m_capacity ) {
+            final Change oldest = m_order.pollLast();
+            m_changes.remove( oldest.m_name );
+            m_horizon = Math.max( m_horizon, oldest.m_time );
+        }
+    }
+
+    /**
+     * Forgets a page, i.e. because it has been deleted.
+     *
+     * @param name name of the page.
+     */
+    synchronized void remove( final String name ) {
+        final Change change = m_changes.remove( name );
+        if( change != null ) {
+            m_order.remove( change );
+        }
+    }
+
+    /**
+     * Tells whether the log knows every change made from a given time on.
+     *
+     * @param since time to check.
+     * @return {@code true} if no change made at or after {@code since} has been forgotten.
+     */
+    synchronized boolean covers( final long since ) {
+        return m_horizon == Long.MIN_VALUE || since > m_horizon;
+    }
+
+    /**
+     * Returns the names of the pages changed within a time window, newest first.
+     *
+     * @param since changes made at or after this time are returned.
+     * @param before changes made at or after this time are not returned.
+     * @return names of the pages changed within the window.
+     */
+    synchronized List< String > changes( final long since, final long before ) {
+        final List< String > names = new ArrayList<>();
+        for( final Change change : m_order.tailSet( new Change( "", before - 1 ) ) ) {
+            if( change.m_time < since ) {
+                break;
+            }
+            names.add( change.m_name );
+        }
+        return names;
+    }
+
+    /**
+     * Returns the number of pages in the log.
+     *
+     * @return number of pages.
+     */
+    synchronized int size() {
+        return m_order.size();
+    }
+
+    /**
+     * Writes the log to a file.
+     *
+     * @param file where to write the log.
+     * @param pageCount number of pages in the wiki, checked when reading the log back.
+     * @throws IOException if the file can't be written.
+     */
+    synchronized void save( final Path file, final int pageCount ) throws IOException {
+        final Path tmp = file.resolveSibling( file.getFileName() + ".tmp" );
+        try( final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( tmp ) ) ) ) {
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT );
+            out.writeInt( pageCount );
+            out.writeLong( m_horizon );
+            out.writeInt( m_order.size() );
+            for( final Change change : m_order ) {
+                out.writeUTF( change.m_name );
+                out.writeLong( change.m_time );
+            }
+        }
+        Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Reads back a log written with {@link #save(Path, int)}, replacing the contents of this one.
+     *
+     * @param file where the log was written.
+     * @return number of pages the wiki had when the log was written.
+     * @throws IOException if the file can't be read, or isn't a log.
+     */
+    synchronized int load( final Path file ) throws IOException {
+        try( final DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( file ) ) ) ) {
+            if( in.readInt() != MAGIC || in.readInt() != FORMAT ) {
+                throw new IOException( "Not a recent changes log: " + file );
+            }
+            final int pageCount = in.readInt();
+            final long horizon = in.readLong();
+            final int size = in.readInt();
+            m_changes.clear();
+            m_order.clear();
+            m_horizon = Long.MIN_VALUE;
+            for( int i = 0; i < size; i++ ) {
+                record( in.readUTF(), in.readLong() );
+            }
+            m_horizon = Math.max( m_horizon, horizon );
+            return pageCount;
+        }
+    }
+
+    private static final class Change {
+
+        private final String m_name;
+        private final long m_time;
+
+        Change( final String name, final long time ) {
+            m_name = name;
+            m_time = time;
+        }
+
+    }
+
+}
@@ -28,6 +28,7 @@ import org.apache.wiki.api.exceptions.ProviderException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -38,6 +39,16 @@ import java.util.List;
 public class LinkParsingOperations {
 
     private static final Logger LOG = LogManager.getLogger( LinkParsingOperations.class );
+
+    /**
+     *  Context variable holding a {@code Map< String, String >} on which {@link #linkExists(String)} and {@link #linkIfExists(String)}
+     *  record the page names they look up, along with the page they found (an empty string if none). Lookups are only recorded if
+     *  the variable is set. Value is {@value}.
+     *
+     *  @since 2.12.3
+     */
+    public static final String VAR_PAGE_LOOKUPS = "jspwiki.linkParsingOperations.pageLookups";
+
     private final Context wikiContext;
 
     /**
@@ -167,15 +178,7 @@ public class LinkParsingOperations {
      * @return {@code true}, if the link name exists; otherwise it returns {@code false}.
      */
     public boolean linkExists( final String page ) {
-        if( page == null || page.isEmpty() ) {
-            return false;
-        }
-        try {
-            return wikiContext.getEngine().getFinalPageName( page ) != null;
-        } catch( final ProviderException e ) {
-            LOG.warn( "TranslatorReader got a faulty page name [" + page + "]!", e );
-            return false;
-        }
+        return linkIfExists( page ) != null;
     }
 
     /**
@@ -189,7 +192,12 @@ public class LinkParsingOperations {
             return null;
         }
         try {
-            return wikiContext.getEngine().getFinalPageName( page );
+            final String finalName = wikiContext.getEngine().getFinalPageName( page );
+            final Map< String, String > lookups = wikiContext.getVariable( VAR_PAGE_LOOKUPS );
+            if( lookups != null ) {
+                lookups.put( page, finalName == null ? "" : finalName );
+            }
+            return finalName;
         } catch( final ProviderException e ) {
             LOG.warn( "TranslatorReader got a faulty page name [" + page + "]!", e );
             return null;
@@ -104,8 +104,7 @@ public class RecentChangesPlugin extends AbstractReferralPlugin implements Plugi
 
         LOG.debug("Calculating recent changes from "+sincedate.getTime());
 
-        // FIXME: Should really have a since date on the getRecentChanges method.
-        Collection< Page > changes = engine.getManager( PageManager.class ).getRecentChanges();
+        Collection< Page > changes = engine.getManager( PageManager.class ).getRecentChanges( sincedate.getTime(), null, 0 );
         super.initialize( context, params );
         changes = filterWikiPageCollection( changes );
         
@@ -26,7 +26,6 @@ import org.apache.wiki.auth.SessionMonitor;
 import org.apache.wiki.util.TextUtil;
 
 import java.security.Principal;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -68,23 +67,7 @@ public class SessionsPlugin implements Plugin {
 
         // show each user session only once (with a counter that indicates the number of sessions for each user)
         if( "distinctUsers".equals( prop ) ) {
-            final Principal[] principals = SessionMonitor.getInstance( engine ).userPrincipals();
-            // we do not assume that the principals are sorted, so first count them :
-            final HashMap< String, Integer > distinctPrincipals = new HashMap<>();
-            for( final Principal principal : principals ) {
-                final String principalName = principal.getName();
-
-                if( distinctPrincipals.containsKey( principalName ) ) {
-                    // we already have an entry, increase the counter:
-                    int numSessions = distinctPrincipals.get( principalName );
-                    // store the new value:
-                    distinctPrincipals.put( principalName, ++numSessions );
-                } else {
-                    // first time we see this entry, add entry to HashMap with value 1
-                    distinctPrincipals.put( principalName, 1 );
-                }
-            }
-
+            final Map< String, Integer > distinctPrincipals = SessionMonitor.getInstance( engine ).distinctUserPrincipals();
             final StringBuilder s = new StringBuilder();
             for( final Map.Entry< String, Integer > entry : distinctPrincipals.entrySet() ) {
                 s.append( entry.getKey() ).append( "(" ).append( entry.getValue().toString() ).append( "), " );
@@ -0,0 +1,543 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Metadata of the latest version of every attachment stored by the {@link BasicAttachmentProvider}, so that neither listing the
+ * recent changes nor looking up an attachment has to walk the attachment directories and read their property files.
+ * <p>
+ * Entries are kept by name and, as a secondary index, by last modification time, so "changed since" queries only touch the
+ * entries they return. The index is persisted as an append-only log in the attachment storage directory, compacted once it
+ * grows well past the number of live entries. It is rebuilt from the attachment directories whenever the log is missing or
+ * unreadable, or when page attachment directories appear or disappear behind the provider's back. Lookups check the index file
+ * and the storage directory for such changes at most once every {@link #CHECK_INTERVAL} milliseconds, and run concurrently with
+ * each other; the provider is still expected to check an entry against its version file before trusting it.
+ *
+ * @since 2.12.3
+ */
+final class AttachmentIndex {
+
+    /** Name of the index file, inside the attachment storage directory. */
+    static final String INDEX_FILE = "attachment-index.bin";
+
+    /** Milliseconds between two checks of the index file and the storage directory made by lookups. */
+    static final long CHECK_INTERVAL = 1_000L;
+
+    private static final Logger LOG = LogManager.getLogger( AttachmentIndex.class );
+
+    private static final int MAGIC = 0x4A535741;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte PAGE = 1;
+    private static final byte PUT = 2;
+    private static final byte REMOVE = 3;
+    private static final byte MOVE = 4;
+
+    /** Most recently changed first, then by name, same as the order of {@link BasicAttachmentProvider#listAllChanged}. */
+    private static final Comparator< Entry > BY_TIME = Comparator.comparingLong( ( Entry e ) -> e.lastModified ).reversed()
+                                                                 .thenComparing( Entry::name );
+
+    private final File m_dir;
+    private final File m_file;
+    private final Scanner m_scanner;
+    private final Set< String > m_pages = new HashSet<>();
+    private final Map< String, Entry > m_entries = new HashMap<>();
+    private final NavigableSet< Entry > m_byTime = new TreeSet<>( BY_TIME );
+    private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+
+    private volatile boolean m_loaded;
+    private volatile long m_lastCheck;
+    private int m_records;
+    private long m_fileStamp = -1L;
+    private long m_fileLength = -1L;
+    private long m_dirStamp = -1L;
+
+    /** Reads the metadata of every attachment straight from the attachment directories. */
+    @FunctionalInterface
+    interface Scanner {
+
+        /**
+         * Scans the attachment storage.
+         *
+         * @return the latest version of every attachment, by name of the page holding it. Pages having an attachment directory but
+         * no attachments must be present, with an empty list.
+         * @throws ProviderException if the storage cannot be read.
+         */
+        Map< String, List< Entry > > scan() throws ProviderException;
+
+    }
+
+    /**
+     * Creates an attachment index. Nothing is read until the index is first used.
+     *
+     * @param storageDir attachment storage directory.
+     * @param scanner used to (re)build the index from the attachment directories.
+     */
+    AttachmentIndex( final File storageDir, final Scanner scanner ) {
+        m_dir = storageDir;
+        m_file = new File( storageDir, INDEX_FILE );
+        m_scanner = scanner;
+    }
+
+    /**
+     * Looks up the latest version of an attachment.
+     *
+     * @param parent name of the page holding the attachment.
+     * @param fileName file name of the attachment.
+     * @return the indexed entry, or {@code null} if the attachment isn't known.
+     * @throws ProviderException if the index has to be rebuilt and the storage cannot be read.
+     */
+    Entry get( final String parent, final String fileName ) throws ProviderException {
+        refresh();
+        m_lock.readLock().lock();
+        try {
+            return m_entries.get( name( parent, fileName ) );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the attachments changed after the given time, most recently changed first.
+     *
+     * @param timestamp time in milliseconds.
+     * @return the matching entries.
+     * @throws ProviderException if the index has to be rebuilt and the storage cannot be read.
+     */
+    List< Entry > changedSince( final long timestamp ) throws ProviderException {
+        refresh();
+        m_lock.readLock().lock();
+        try {
+            final List< Entry > result = new ArrayList<>();
+            for( final Entry entry : m_byTime ) {
+                if( entry.lastModified <= timestamp ) {
+                    break;
+                }
+                result.add( entry );
+            }
+            return result;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records the latest version of an attachment, replacing whatever was known about it.
+     *
+     * @param entry attachment metadata.
+     * @throws ProviderException if the index has to be rebuilt and the storage cannot be read.
+     */
+    void put( final Entry entry ) throws ProviderException {
+        m_lock.writeLock().lock();
+        try {
+            ensureCurrent( false );
+            if( entry.equals( m_entries.get( entry.name() ) ) ) {
+                return;
+            }
+            add( entry );
+            append( out -> {
+                out.writeByte( PUT );
+                write( out, entry );
+            } );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets an attachment.
+     *
+     * @param parent name of the page holding the attachment.
+     * @param fileName file name of the attachment.
+     * @throws ProviderException if the index has to be rebuilt and the storage cannot be read.
+     */
+    void remove( final String parent, final String fileName ) throws ProviderException {
+        m_lock.writeLock().lock();
+        try {
+            ensureCurrent( false );
+            if( !unindex( m_entries.remove( name( parent, fileName ) ) ) ) {
+                return;
+            }
+            append( out -> {
+                out.writeByte( REMOVE );
+                writeString( out, parent );
+                writeString( out, fileName );
+            } );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves all the attachments of a page to another one.
+     *
+     * @param oldParent name of the page currently holding the attachments.
+     * @param newParent name of the page the attachments are moved to.
+     * @throws ProviderException if the index has to be rebuilt and the storage cannot be read.
+     */
+    void move( final String oldParent, final String newParent ) throws ProviderException {
+        m_lock.writeLock().lock();
+        try {
+            ensureCurrent( false );
+            if( !rename( oldParent, newParent ) ) {
+                return;
+            }
+            append( out -> {
+                out.writeByte( MOVE );
+                writeString( out, oldParent );
+                writeString( out, newParent );
+            } );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /** Checks, at most once every {@link #CHECK_INTERVAL}, that the index is loaded and still in line with the storage. */
+    private void refresh() throws ProviderException {
+        if( m_loaded && System.currentTimeMillis() - m_lastCheck < CHECK_INTERVAL ) {
+            return;
+        }
+        m_lock.writeLock().lock();
+        try {
+            final long now = System.currentTimeMillis();
+            if( !m_loaded || now - m_lastCheck >= CHECK_INTERVAL ) {
+                ensureCurrent( true );
+                m_lastCheck = now;
+            }
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the index if needed, and checks it is still in line with the storage. Must be called holding the write lock.
+     *
+     * @param checkPages whether to compare the page attachment directories on disk with the indexed ones, if the storage directory
+     * changed since the last check. Skipped while recording changes, as those are expected to add or rename directories.
+     */
+    private void ensureCurrent( final boolean checkPages ) throws ProviderException {
+        if( !m_loaded || m_file.lastModified() != m_fileStamp || m_file.length() != m_fileLength ) {
+            if( !load() ) {
+                rebuild();
+            }
+        }
+        if( checkPages ) {
+            final long dirStamp = m_dir.lastModified();
+            if( dirStamp != m_dirStamp ) {
+                if( !m_pages.equals( listPages() ) ) {
+                    LOG.info( "Attachment directories changed outside of the wiki, rebuilding the attachment index" );
+                    rebuild();
+                }
+                m_dirStamp = dirStamp;
+            }
+        }
+    }
+
+    private Set< String > listPages() {
+        final Set< String > pages = new HashSet<>();
+        final String[] dirs = m_dir.list( new BasicAttachmentProvider.AttachmentFilter() );
+        if( dirs != null ) {
+            for( final String dir : dirs ) {
+                final String page = TextUtil.urlDecodeUTF8( dir );
+                pages.add( page.substring( 0, page.length() - BasicAttachmentProvider.DIR_EXTENSION.length() ) );
+            }
+        }
+        return pages;
+    }
+
+    private void clear() {
+        m_pages.clear();
+        m_entries.clear();
+        m_byTime.clear();
+        m_records = 0;
+    }
+
+    private void add( final Entry entry ) {
+        final Entry old = m_entries.put( entry.name(), entry );
+        if( old != null ) {
+            m_byTime.remove( old );
+        }
+        m_byTime.add( entry );
+        m_pages.add( entry.parent );
+    }
+
+    private boolean unindex( final Entry entry ) {
+        return entry != null && m_byTime.remove( entry );
+    }
+
+    private boolean rename( final String oldParent, final String newParent ) {
+        if( !m_pages.remove( oldParent ) ) {
+            return false;
+        }
+        m_pages.add( newParent );
+        final List< Entry > moved = new ArrayList<>();
+        for( final Entry entry : m_entries.values() ) {
+            if( entry.parent.equals( oldParent ) ) {
+                moved.add( entry );
+            }
+        }
+        for( final Entry entry : moved ) {
+            m_entries.remove( entry.name() );
+            m_byTime.remove( entry );
+            add( new Entry( newParent, entry.fileName, entry.version, entry.size, entry.lastModified, entry.author, entry.changeNote ) );
+        }
+        return true;
+    }
+
+    private void rebuild() throws ProviderException {
+        final long start = System.currentTimeMillis();
+        final Map< String, List< Entry > > scanned = m_scanner.scan();
+        clear();
+        for( final Map.Entry< String, List< Entry > > page : scanned.entrySet() ) {
+            m_pages.add( page.getKey() );
+            page.getValue().forEach( this::add );
+        }
+        m_loaded = true;
+        m_dirStamp = m_dir.lastModified();
+        LOG.info( "Rebuilt attachment index of " + m_entries.size() + " attachments in " + ( System.currentTimeMillis() - start ) + " ms" );
+        compact();
+    }
+
+    /**
+     * Replays the index file.
+     *
+     * @return {@code false} if the file is missing or cannot be read, in which case the index needs to be rebuilt.
+     */
+    private boolean load() {
+        clear();
+        m_loaded = false;
+        if( !m_file.exists() ) {
+            return false;
+        }
+        final long stamp = m_file.lastModified();
+        final long length = m_file.length();
+        try( final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( m_file ) ) ) ) {
+            if( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+                LOG.warn( "Unknown attachment index format in " + m_file.getAbsolutePath() );
+                return false;
+            }
+            int type;
+            while( ( type = in.read() ) != -1 ) {
+                switch( type ) {
+                case PAGE: m_pages.add( readString( in ) ); break;
+                case PUT: add( read( in ) ); break;
+                case REMOVE: unindex( m_entries.remove( name( readString( in ), readString( in ) ) ) ); break;
+                case MOVE: rename( readString( in ), readString( in ) ); break;
+                default:
+                    LOG.warn( "Corrupted attachment index " + m_file.getAbsolutePath() );
+                    return false;
+                }
+                m_records++;
+            }
+        } catch( final IOException e ) {
+            LOG.warn( "Could not read attachment index " + m_file.getAbsolutePath() + ": " + e.getMessage() );
+            return false;
+        }
+        m_loaded = true;
+        m_fileStamp = stamp;
+        m_fileLength = length;
+        return true;
+    }
+
+    private void append( final Record record ) {
+        if( !m_file.exists() ) {
+            compact(); // the change is already in memory
+            return;
+        }
+        try( final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( m_file, true ) ) ) ) {
+            record.write( out );
+        } catch( final IOException e ) {
+            discard( e );
+            return;
+        }
+        m_records++;
+        stamp();
+        if( m_records > 2 * ( m_entries.size() + m_pages.size() ) + 64 ) {
+            compact();
+        }
+    }
+
+    /** Rewrites the index file with just the live entries. */
+    private void compact() {
+        final File tmp = new File( m_dir, INDEX_FILE + ".tmp" );
+        try {
+            try( final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) ) ) {
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                for( final String page : m_pages ) {
+                    out.writeByte( PAGE );
+                    writeString( out, page );
+                }
+                for( final Entry entry : m_entries.values() ) {
+                    out.writeByte( PUT );
+                    write( out, entry );
+                }
+            }
+            try {
+                Files.move( tmp.toPath(), m_file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            } catch( final AtomicMoveNotSupportedException e ) {
+                Files.move( tmp.toPath(), m_file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            }
+        } catch( final IOException e ) {
+            tmp.delete();
+            discard( e );
+            return;
+        }
+        m_records = m_pages.size() + m_entries.size();
+        stamp();
+        m_dirStamp = m_dir.lastModified();
+    }
+
+    private void stamp() {
+        m_fileStamp = m_file.lastModified();
+        m_fileLength = m_file.length();
+    }
+
+    /** The in-memory index is still right, but the file no longer is: drop it, so it gets rebuilt the next time it's loaded. */
+    private void discard( final IOException e ) {
+        LOG.warn( "Could not write attachment index " + m_file.getAbsolutePath() + ": " + e.getMessage() );
+        m_file.delete();
+        stamp();
+    }
+
+    private static String name( final String parent, final String fileName ) {
+        return parent + "/" + fileName;
+    }
+
+    private static void write( final DataOutputStream out, final Entry entry ) throws IOException {
+        writeString( out, entry.parent );
+        writeString( out, entry.fileName );
+        out.writeInt( entry.version );
+        out.writeLong( entry.size );
+        out.writeLong( entry.lastModified );
+        writeString( out, entry.author );
+        writeString( out, entry.changeNote );
+    }
+
+    private static Entry read( final DataInputStream in ) throws IOException {
+        return new Entry( readString( in ), readString( in ), in.readInt(), in.readLong(), in.readLong(), readString( in ), readString( in ) );
+    }
+
+    private static void writeString( final DataOutputStream out, final String s ) throws IOException {
+        if( s == null ) {
+            out.writeInt( -1 );
+        } else {
+            final byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+            out.writeInt( bytes.length );
+            out.write( bytes );
+        }
+    }
+
+    private static String readString( final DataInputStream in ) throws IOException {
+        final int length = in.readInt();
+        if( length < 0 ) {
+            return null;
+        }
+        final byte[] bytes = new byte[ length ];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    @FunctionalInterface
+    private interface Record {
+        void write( DataOutputStream out ) throws IOException;
+    }
+
+    /** Metadata of the latest version of an attachment. */
+    static final class Entry {
+
+        final String parent;
+        final String fileName;
+        final int version;
+        final long size;
+        final long lastModified;
+        final String author;
+        final String changeNote;
+
+        Entry( final String parent, final String fileName, final int version, final long size, final long lastModified,
+               final String author, final String changeNote ) {
+            this.parent = parent;
+            this.fileName = fileName;
+            this.version = version;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.author = author;
+            this.changeNote = changeNote;
+        }
+
+        String name() {
+            return AttachmentIndex.name( parent, fileName );
+        }
+
+        @Override
+        public boolean equals( final Object o ) {
+            if( this == o ) {
+                return true;
+            }
+            if( !( o instanceof Entry ) ) {
+                return false;
+            }
+            final Entry entry = ( Entry )o;
+            return version == entry.version
+                   && size == entry.size
+                   && lastModified == entry.lastModified
+                   && parent.equals( entry.parent )
+                   && fileName.equals( entry.fileName )
+                   && Objects.equals( author, entry.author )
+                   && Objects.equals( changeNote, entry.changeNote );
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash( parent, fileName, version, size, lastModified );
+        }
+
+    }
+
+}
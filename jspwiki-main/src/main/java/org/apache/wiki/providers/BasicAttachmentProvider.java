@@ -43,7 +43,9 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -88,6 +90,9 @@ public class BasicAttachmentProvider implements AttachmentProvider {
      * since 2.5.96
      */
     private Pattern m_disableCache;
+
+    /** Metadata of the latest version of every attachment, see {@link AttachmentIndex}. */
+    private AttachmentIndex m_index;
     
     /** The property name for specifying which attachments are not cached.  Value is <tt>{@value}</tt>. */
     public static final String PROP_DISABLECACHE = "jspwiki.basicAttachmentProvider.disableCache";
@@ -135,6 +140,8 @@ public class BasicAttachmentProvider implements AttachmentProvider {
         if( !f.isDirectory() ) {
             throw new IOException( "Your attachment storage points to a file, not a directory: '" + m_storageDir + "'" );
         }
+
+        m_index = new AttachmentIndex( f, this::scanAttachments );
     }
 
     /**
@@ -277,20 +284,18 @@ public class BasicAttachmentProvider implements AttachmentProvider {
         final int versionNumber = latestVersion + 1;
 
         final File newfile = new File( attDir, versionNumber + "." + getFileExtension( att.getFileName() ) );
+        String author = att.getAuthor();
+        if( author == null ) {
+            author = "unknown"; // FIXME: Should be localized, but cannot due to missing WikiContext
+        }
+        final String changeNote = att.getAttribute( Page.CHANGENOTE );
         try( final OutputStream out = Files.newOutputStream( newfile.toPath() ) ) {
             LOG.info( "Uploading attachment " + att.getFileName() + " to page " + att.getParentName() );
             LOG.info( "Saving attachment contents to " + newfile.getAbsolutePath() );
             FileUtil.copyContents( data, out );
 
             final Properties props = getPageProperties( att );
-
-            String author = att.getAuthor();
-            if( author == null ) {
-                author = "unknown"; // FIXME: Should be localized, but cannot due to missing WikiContext
-            }
             props.setProperty( versionNumber + ".author", author );
-
-            final String changeNote = att.getAttribute( Page.CHANGENOTE );
             if( changeNote != null ) {
                 props.setProperty( versionNumber + ".changenote", changeNote );
             }
@@ -300,6 +305,9 @@ public class BasicAttachmentProvider implements AttachmentProvider {
             LOG.error( "Could not save attachment data: ", e );
             throw (IOException) e.fillInStackTrace();
         }
+
+        m_index.put( new AttachmentIndex.Entry( att.getParentName(), att.getFileName(), versionNumber, newfile.length(),
+                                                newfile.lastModified(), author, changeNote ) );
     }
 
     /**
@@ -354,6 +362,15 @@ public class BasicAttachmentProvider implements AttachmentProvider {
      */
     @Override
     public List< Attachment > listAttachments( final Page page ) throws ProviderException {
+        return listAttachments( page, true );
+    }
+
+    /**
+     *  Lists the attachments of a page, by looking at its attachment directory.
+     *
+     *  @param useIndex whether the metadata of the attachments may come from the {@link AttachmentIndex}, or must be read from disk.
+     */
+    private List< Attachment > listAttachments( final Page page, final boolean useIndex ) throws ProviderException {
         final List< Attachment > result = new ArrayList<>();
         final File dir = findPageDir( page.getName() );
         final String[] attachments = dir.list();
@@ -376,7 +393,8 @@ public class BasicAttachmentProvider implements AttachmentProvider {
                         }
                     }
 
-                    final Attachment att = getAttachmentInfo( page, attachmentName, WikiProvider.LATEST_VERSION );
+                    final Attachment att = useIndex ? getAttachmentInfo( page, attachmentName, WikiProvider.LATEST_VERSION )
+                                                    : readAttachmentInfo( page, attachmentName, WikiProvider.LATEST_VERSION );
                     //  Sanity check - shouldn't really be happening, unless you mess with the repository directly.
                     if( att == null ) {
                         LOG.error( "Attachment disappeared while reading information:"
@@ -403,10 +421,30 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 
     /**
      *  {@inheritDoc}
+     *  <p>
+     *  Served from the {@link AttachmentIndex}, so only the attachments changed since the given time are looked at.
      */
-    // FIXME: Very unoptimized.
     @Override
     public List< Attachment > listAllChanged( final Date timestamp ) throws ProviderException {
+        final List< Attachment > list = new ArrayList<>();
+        for( final AttachmentIndex.Entry entry : m_index.changedSince( timestamp.getTime() ) ) {
+            final Attachment att = isCurrent( entry )
+                                   ? newAttachment( entry )
+                                   : getAttachmentInfo( Wiki.contents().page( m_engine, entry.parent ), entry.fileName, WikiProvider.LATEST_VERSION );
+            if( att != null && att.getLastModified().after( timestamp ) ) {
+                list.add( att );
+            }
+        }
+
+        list.sort( new PageTimeComparator() );
+
+        return list;
+    }
+
+    /**
+     *  Reads the latest version of every attachment from disk, in order to (re)build the {@link AttachmentIndex}.
+     */
+    private Map< String, List< AttachmentIndex.Entry > > scanAttachments() throws ProviderException {
         final File attDir = new File( m_storageDir );
         if( !attDir.exists() ) {
             if (!attDir.mkdirs()) {
@@ -414,7 +452,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
             }
         }
 
-        final ArrayList< Attachment > list = new ArrayList<>();
+        final Map< String, List< AttachmentIndex.Entry > > pages = new HashMap<>();
         final String[] pagesWithAttachments = attDir.list( new AttachmentFilter() );
 
         if( pagesWithAttachments != null ) {
@@ -422,26 +460,90 @@ public class BasicAttachmentProvider implements AttachmentProvider {
                 String pageId = unmangleName( pagesWithAttachment );
                 pageId = pageId.substring( 0, pageId.length() - DIR_EXTENSION.length() );
 
-                final Collection< Attachment > c = listAttachments( Wiki.contents().page( m_engine, pageId ) );
-                for( final Attachment att : c ) {
-                    if( att.getLastModified().after( timestamp ) ) {
-                        list.add( att );
-                    }
+                final List< AttachmentIndex.Entry > entries = new ArrayList<>();
+                for( final Attachment att : listAttachments( Wiki.contents().page( m_engine, pageId ), false ) ) {
+                    entries.add( newEntry( att ) );
                 }
+                pages.put( pageId, entries );
             }
         }
 
-        list.sort( new PageTimeComparator() );
+        return pages;
+    }
 
-        return list;
+    /**
+     *  Checks an index entry against the attachment version file it describes, and that there is no newer version.
+     */
+    private boolean isCurrent( final AttachmentIndex.Entry entry ) {
+        final File dir = new File( new File( m_storageDir, mangleName( entry.parent ) + DIR_EXTENSION ),
+                                   mangleName( entry.fileName + ATTDIR_EXTENSION ) );
+        final String ext = getFileExtension( entry.fileName );
+        final File f = new File( dir, entry.version + "." + ext );
+        return f.lastModified() == entry.lastModified
+               && f.length() == entry.size
+               && !new File( dir, ( entry.version + 1 ) + "." + ext ).exists();
+    }
+
+    private static AttachmentIndex.Entry newEntry( final Attachment att ) {
+        return new AttachmentIndex.Entry( att.getParentName(), att.getFileName(), att.getVersion(), att.getSize(),
+                                          att.getLastModified().getTime(), att.getAuthor(), att.getAttribute( Page.CHANGENOTE ) );
+    }
+
+    private Attachment newAttachment( final AttachmentIndex.Entry entry ) {
+        final Attachment att = newAttachment( entry.parent, entry.fileName );
+        att.setVersion( entry.version );
+        att.setAuthor( entry.author );
+        if( entry.changeNote != null ) {
+            att.setAttribute( Page.CHANGENOTE, entry.changeNote );
+        }
+        att.setSize( entry.size );
+        att.setLastModified( new Date( entry.lastModified ) );
+        return att;
+    }
+
+    private Attachment newAttachment( final String parent, final String name ) {
+        final Attachment att = new org.apache.wiki.attachment.Attachment( m_engine, parent, name );
+
+        // Should attachment be cachable by the client (browser)?
+        if( m_disableCache != null ) {
+            final Matcher matcher = m_disableCache.matcher( name );
+            if( matcher.matches() ) {
+                att.setCacheable( false );
+            }
+        }
+        return att;
     }
 
     /**
      *  {@inheritDoc}
+     *  <p>
+     *  The latest version is taken from the {@link AttachmentIndex} as long as it still matches the files on disk; other versions,
+     *  and attachments the index is out of date for, are read from disk, updating the index on the way.
      */
     @Override
-    public Attachment getAttachmentInfo( final Page page, final String name, int version ) throws ProviderException {
-        final Attachment att = new org.apache.wiki.attachment.Attachment( m_engine, page.getName(), name );
+    public Attachment getAttachmentInfo( final Page page, final String name, final int version ) throws ProviderException {
+        if( version != WikiProvider.LATEST_VERSION ) {
+            return readAttachmentInfo( page, name, version );
+        }
+
+        final AttachmentIndex.Entry entry = m_index.get( page.getName(), name );
+        if( entry != null && isCurrent( entry ) ) {
+            return newAttachment( entry );
+        }
+        final Attachment att = readAttachmentInfo( page, name, version );
+        if( att != null ) {
+            m_index.put( newEntry( att ) );
+        } else if( entry != null ) {
+            m_index.remove( page.getName(), name );
+        }
+        return att;
+    }
+
+    /**
+     *  Reads the information about an attachment from its directory.
+     */
+    private Attachment readAttachmentInfo( final Page page, final String name, int version ) throws ProviderException {
+        final Attachment att = newAttachment( page.getName(), name );
         final File dir = findAttachmentDir( att );
         if( !dir.exists() ) {
             // LOG.debug("Attachment dir not found - thus no attachment can exist.");
@@ -453,14 +555,6 @@ public class BasicAttachmentProvider implements AttachmentProvider {
         }
 
         att.setVersion( version );
-        
-        // Should attachment be cachable by the client (browser)?
-        if( m_disableCache != null ) {
-            final Matcher matcher = m_disableCache.matcher( name );
-            if( matcher.matches() ) {
-                att.setCacheable( false );
-            }
-        }
 
         // System.out.println("Fetching info on version "+version);
         try {
@@ -528,6 +622,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
             file.delete();
         }
         dir.delete();
+        m_index.remove( att.getParentName(), att.getFileName() );
     }
 
     /**
@@ -573,7 +668,9 @@ public class BasicAttachmentProvider implements AttachmentProvider {
             LOG.error( "Page rename failed because target directory " + destDir + " exists" );
         } else {
             // destDir.getParentFile().mkdir();
-            srcDir.renameTo( destDir );
+            if( srcDir.renameTo( destDir ) ) {
+                m_index.move( oldParent, newParent );
+            }
         }
     }
 
@@ -0,0 +1,1016 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.LinkCollector;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.api.filters.BasePageFilter;
+import org.apache.wiki.api.providers.WikiProvider;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ *  A {@link ReferenceManager} tuned for large wikis. Every page name is stored once and given a dense integer id; the refers-to
+ *  and referred-by lists of each page are kept as sorted {@code int} arrays indexed by that id, so the link graph costs a few
+ *  bytes per link instead of a tree node and a string reference per link, as in {@link DefaultReferenceManager}.
+ *  <p>
+ *  {@link #findReferrers(String)}, {@link #findUnreferenced()} and {@link #findUncreated()} work directly on the arrays and only
+ *  turn ids back into names for the result. Sets returned by the finder methods are unmodifiable, name-sorted copies, so they
+ *  can be safely iterated while the graph changes.
+ *  <p>
+ *  The graph is guarded by a read/write lock: lookups run concurrently, updates are exclusive. Ids are never reused while the
+ *  wiki runs; names no longer referenced anywhere are dropped when the graph is written back to disk and reloaded.
+ *  <p>
+ *  The on-disk snapshot, journal and page attribute caches are the same as {@link DefaultReferenceManager}'s, so both
+ *  implementations can be switched without rebuilding the references. To use it, set
+ *  {@code jspwiki.refManager = org.apache.wiki.references.CompactReferenceManager}.
+ *
+ *  @since 2.12.3
+ */
+public class CompactReferenceManager extends BasePageFilter implements ReferenceManager {
+
+    private static final Logger LOG = LogManager.getLogger( CompactReferenceManager.class );
+    private static final String SERIALIZATION_FILE = "refmgr.bin";
+    private static final String JOURNAL_FILE = "refmgr.journal";
+
+    /** Java serialized references written by previous versions, replaced by {@link #SERIALIZATION_FILE}. */
+    private static final String LEGACY_SERIALIZATION_FILE = "refmgr.ser";
+
+    /** Number of journaled changes after which a new full snapshot of the references is written. */
+    private static final int MAX_JOURNAL_ENTRIES = 1_000;
+
+    private static final int INITIAL_CAPACITY = 1_024;
+    private static final int[] NO_IDS = new int[ 0 ];
+
+    private final boolean m_matchEnglishPlurals;
+    private final PageAttributeCache m_attributeCache;
+    private final ReferenceScanner m_scanner;
+    private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+
+    /** Name of each page id. Only ever appended to, so a reference to the array stays valid for the ids it held. */
+    private String[] m_names;
+
+    /** Number of ids handed out. */
+    private int m_size;
+
+    /** Open addressing hash table from page name to page id + 1; 0 marks a free slot. */
+    private int[] m_index;
+
+    /** Sorted ids of the pages each page refers to, {@code null} if the page has no refers-to entry. */
+    private int[][] m_refersTo;
+
+    /** Sorted ids of the pages referring to each page, {@code null} if the page has no referred-by entry. */
+    private int[][] m_referredBy;
+
+    /** Number of valid ids in each {@link #m_referredBy} array. */
+    private int[] m_referredByCount;
+
+    private int m_journalEntries;
+
+    /**
+     *  Builds a new CompactReferenceManager.
+     *
+     *  @param engine The Engine to which this is managing references to.
+     */
+    public CompactReferenceManager( final Engine engine ) {
+        m_engine = engine;
+        m_matchEnglishPlurals = TextUtil.getBooleanProperty( engine.getWikiProperties(), Engine.PROP_MATCHPLURALS, false );
+        m_attributeCache = new PageAttributeCache( engine.getWorkDir() );
+        m_scanner = new ReferenceScanner( engine, this );
+        clear( INITIAL_CAPACITY );
+    }
+
+    /** Empties the graph. Must be called with the write lock held, or before the manager is published. */
+    private void clear( final int capacity ) {
+        m_names = new String[ capacity ];
+        m_size = 0;
+        m_index = new int[ Integer.highestOneBit( capacity ) * 4 ];
+        m_refersTo = new int[ capacity ][];
+        m_referredBy = new int[ capacity ][];
+        m_referredByCount = new int[ capacity ];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void initialize( final Collection< Page > pages ) throws ProviderException {
+        LOG.debug( "Initializing new CompactReferenceManager with {} initial pages.", pages.size() );
+        final StopWatch sw = new StopWatch();
+        sw.start();
+        LOG.info( "Starting cross reference scan of WikiPages" );
+
+        //  First, try to read old data from disk.  If that fails, we'll go and update the entire reference lists (which'll take time)
+        try {
+            final long saved = unserializeFromDisk();
+
+            for( final Page page : pages ) {
+                m_attributeCache.load( page );
+            }
+
+            //  Now we must check if any of the pages have been changed while we were away, and update the references for them.
+            final List< Page > stale = new ArrayList<>();
+            for( final Page page : pages ) {
+                if( !( page instanceof Attachment ) ) {
+                    // Refresh with the latest copy
+                    final Page wp = m_engine.getManager( PageManager.class ).getPage( page.getName() );
+
+                    if( wp.getLastModified() == null ) {
+                        LOG.fatal( "Provider returns null lastModified.  Please submit a bug report." );
+                    } else if( wp.getLastModified().getTime() > saved ) {
+                        stale.add( wp );
+                    }
+                }
+            }
+            m_scanner.scan( stale, ( page, refs ) -> internalUpdateReferences( page.getName(), refs ) );
+
+            //  Fold the journal and any updated references into a fresh snapshot.
+            if( m_journalEntries > 0 || !stale.isEmpty() ) {
+                serializeToDisk();
+            }
+
+        } catch( final Exception e ) {
+            LOG.info( "Unable to unserialize old refmgr information, rebuilding database: {}", e.getMessage() );
+            buildKeyLists( pages );
+
+            // Scan the existing pages from disk and update references in the manager. We cannot build a reference list from
+            // the contents of attachments, so we skip them.
+            final List< Page > wikiPages = new ArrayList<>();
+            for( final Page page : pages ) {
+                if( !( page instanceof Attachment ) ) {
+                    wikiPages.add( page );
+                }
+            }
+            m_scanner.scan( wikiPages, ( page, refs ) -> {
+                internalUpdateReferences( page.getName(), refs );
+                m_attributeCache.save( page );
+            } );
+
+            if( serializeToDisk() ) {
+                deleteLegacySerialization();
+            }
+        }
+
+        sw.stop();
+        LOG.info( "Cross reference scan done in {} ({} page names)", sw, m_size );
+
+        WikiEventManager.addWikiEventListener( m_engine.getManager( PageManager.class ), this );
+    }
+
+    /**
+     *  Reads the snapshot from the disk back to memory, replaying any changes journaled after it was written.
+     *  Returns the date when the data was last written on disk.
+     */
+    private synchronized long unserializeFromDisk() throws IOException {
+        final StopWatch sw = new StopWatch();
+        sw.start();
+
+        final ReferenceGraphFile.Snapshot snapshot = ReferenceGraphFile.readSnapshot( new File( m_engine.getWorkDir(), SERIALIZATION_FILE ) );
+        m_lock.writeLock().lock();
+        try {
+            clear( Math.max( INITIAL_CAPACITY, snapshot.names.length + snapshot.names.length / 4 ) );
+            for( final String name : snapshot.names ) {
+                if( idOf( name ) != m_size - 1 ) {
+                    throw new IOException( "Duplicate page name in reference snapshot: " + name );
+                }
+            }
+            for( int i = 0; i < snapshot.refersToKeys.length; i++ ) {
+                m_refersTo[ snapshot.refersToKeys[ i ] ] = sortedIds( snapshot.refersTo[ i ], snapshot.refersTo[ i ].length );
+            }
+            for( int i = 0; i < snapshot.referredByKeys.length; i++ ) {
+                final int id = snapshot.referredByKeys[ i ];
+                m_referredBy[ id ] = sortedIds( snapshot.referredBy[ i ], snapshot.referredBy[ i ].length );
+                m_referredByCount[ id ] = m_referredBy[ id ].length;
+            }
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+
+        m_journalEntries = 0;
+        final long saved = ReferenceGraphFile.replayJournal( new File( m_engine.getWorkDir(), JOURNAL_FILE ), snapshot, new ReferenceGraphFile.JournalVisitor() {
+
+            @Override
+            public void updated( final String page, final Collection< String > references ) {
+                internalUpdateReferences( page, references );
+                m_journalEntries++;
+            }
+
+            @Override
+            public void removed( final String page ) {
+                internalPageRemoved( page );
+                m_journalEntries++;
+            }
+        } );
+
+        sw.stop();
+        LOG.debug( "Read serialized data successfully in {}, replayed {} journaled changes", sw, m_journalEntries );
+        return saved;
+    }
+
+    /**
+     *  Removes the references serialized by previous versions, once they have been rebuilt into the current format.
+     */
+    private void deleteLegacySerialization() {
+        final File legacy = new File( m_engine.getWorkDir(), LEGACY_SERIALIZATION_FILE );
+        if( legacy.exists() && !legacy.delete() ) {
+            LOG.warn( "Unable to delete obsolete reference data {}", legacy.getAbsolutePath() );
+        }
+    }
+
+    /**
+     *  Writes a full snapshot of the graph to disk, and starts a new journal. Ids are renumbered so that names which are no
+     *  longer part of the graph are left out. If the snapshot can't be written, the current one and its journal are left as
+     *  they were, and the next snapshot is attempted once the journal has grown by another {@link #MAX_JOURNAL_ENTRIES} changes.
+     *
+     *  @return {@code true} if the snapshot was written.
+     */
+    private synchronized boolean serializeToDisk() {
+        final StopWatch sw = new StopWatch();
+        sw.start();
+
+        final ReferenceGraphFile.Snapshot snapshot;
+        m_lock.readLock().lock();
+        try {
+            final int[] remap = new int[ m_size ];
+            Arrays.fill( remap, -1 );
+            final List< String > names = new ArrayList<>();
+            final int[] refersToKeys = new int[ countNonNull( m_refersTo ) ];
+            final int[][] refersTo = new int[ refersToKeys.length ][];
+            final int[] referredByKeys = new int[ countNonNull( m_referredBy ) ];
+            final int[][] referredBy = new int[ referredByKeys.length ][];
+            int r = 0;
+            int b = 0;
+            for( int id = 0; id < m_size; id++ ) {
+                if( m_refersTo[ id ] != null ) {
+                    refersToKeys[ r ] = remap( id, remap, names );
+                    refersTo[ r++ ] = remap( m_refersTo[ id ], m_refersTo[ id ].length, remap, names );
+                }
+                if( m_referredBy[ id ] != null ) {
+                    referredByKeys[ b ] = remap( id, remap, names );
+                    referredBy[ b++ ] = remap( m_referredBy[ id ], m_referredByCount[ id ], remap, names );
+                }
+            }
+            snapshot = new ReferenceGraphFile.Snapshot( System.currentTimeMillis(), names.toArray( new String[ 0 ] ),
+                                                        refersToKeys, refersTo, referredByKeys, referredBy );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+
+        try {
+            ReferenceGraphFile.writeSnapshot( new File( m_engine.getWorkDir(), SERIALIZATION_FILE ),
+                                              new File( m_engine.getWorkDir(), JOURNAL_FILE ),
+                                              snapshot );
+            m_journalEntries = 0;
+            sw.stop();
+            LOG.debug( "serialization done - took {}", sw );
+            return true;
+        } catch( final IOException ioe ) {
+            LOG.error( "Unable to serialize!", ioe );
+            m_journalEntries = 0;
+            return false;
+        }
+    }
+
+    private int countNonNull( final int[][] lists ) {
+        int count = 0;
+        for( int id = 0; id < m_size; id++ ) {
+            if( lists[ id ] != null ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int remap( final int id, final int[] remap, final List< String > names ) {
+        if( remap[ id ] < 0 ) {
+            remap[ id ] = names.size();
+            names.add( m_names[ id ] );
+        }
+        return remap[ id ];
+    }
+
+    private int[] remap( final int[] ids, final int count, final int[] remap, final List< String > names ) {
+        final int[] result = new int[ count ];
+        for( int i = 0; i < count; i++ ) {
+            result[ i ] = remap( ids[ i ], remap, names );
+        }
+        return result;
+    }
+
+    /**
+     *  Appends the current references of a page to the journal, or writes a full snapshot if the journal has grown too large.
+     */
+    private synchronized void journalUpdate( final String page ) {
+        final Collection< String > refs = refersTo( page );
+        if( refs == null ) {
+            journalRemove( page );
+            return;
+        }
+        if( m_journalEntries >= MAX_JOURNAL_ENTRIES && serializeToDisk() ) {
+            return;
+        }
+        try {
+            ReferenceGraphFile.appendUpdate( new File( m_engine.getWorkDir(), JOURNAL_FILE ), page, refs );
+            m_journalEntries++;
+        } catch( final IOException e ) {
+            LOG.debug( "Unable to journal reference changes ({}), writing a full snapshot", e.getMessage() );
+            serializeToDisk();
+        }
+    }
+
+    /**
+     *  Appends the removal of a page to the journal, or writes a full snapshot if the journal has grown too large.
+     */
+    private synchronized void journalRemove( final String page ) {
+        if( m_journalEntries >= MAX_JOURNAL_ENTRIES && serializeToDisk() ) {
+            return;
+        }
+        try {
+            ReferenceGraphFile.appendRemove( new File( m_engine.getWorkDir(), JOURNAL_FILE ), page );
+            m_journalEntries++;
+        } catch( final IOException e ) {
+            LOG.debug( "Unable to journal reference changes ({}), writing a full snapshot", e.getMessage() );
+            serializeToDisk();
+        }
+    }
+
+    /**
+     *  After the page has been saved, updates the reference lists.
+     *
+     *  @param context {@inheritDoc}
+     *  @param content {@inheritDoc}
+     */
+    @Override
+    public void postSave( final Context context, final String content ) {
+        final Page page = context.getPage();
+        updateReferences( page.getName(), scanWikiLinks( page, content ) );
+        m_attributeCache.save( page );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Collection< String > scanWikiLinks( final Page page, final String pagedata ) {
+        final LinkCollector localCollector = new LinkCollector();
+        m_engine.getManager( RenderingManager.class ).textToHTML( Wiki.context().create( m_engine, page ),
+                                                                  pagedata,
+                                                                  localCollector,
+                                                                  null,
+                                                                  localCollector,
+                                                                  false,
+                                                                  true );
+
+        return localCollector.getLinks();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void pageRemoved( final Page page ) {
+        pageRemoved( page.getName() );
+    }
+
+    private void pageRemoved( final String pageName ) {
+        internalPageRemoved( pageName );
+
+        //  Remove any traces from the disk, too
+        journalRemove( pageName );
+        m_attributeCache.remove( pageName );
+    }
+
+    /**
+     *  Removes a page from the graph, without touching the disk.
+     */
+    private void internalPageRemoved( final String pageName ) {
+        final int[] emptied;
+        m_lock.writeLock().lock();
+        try {
+            final int id = lookup( pageName );
+            if( id < 0 ) {
+                return;
+            }
+            final int[] refTo = m_refersTo[ id ];
+            emptied = refTo != null ? removeReferrer( refTo, refTo.length, id ) : NO_IDS;
+            m_refersTo[ id ] = null;
+            if( m_referredByCount[ id ] == 0 ) {
+                m_referredBy[ id ] = null;
+            }
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+
+        // We won't keep an entry which became empty and does not exist.  It will be added later on anyway, if it becomes
+        // referenced again.
+        dropUncreated( emptied );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updateReferences( final Page page ) {
+        final String pageData = m_engine.getManager( PageManager.class ).getPureText( page.getName(), WikiProvider.LATEST_VERSION );
+        updateReferences( page.getName(), scanWikiLinks( page, pageData ) );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updateReferences( final String page, final Collection< String > references ) {
+        journalUpdate( internalUpdateReferences( page, references ) );
+    }
+
+    /**
+     *  Replaces the refers-to list of a page and brings the referred-by lists in line with it. Only the referred-by lists of
+     *  the pages added to or removed from the refers-to list are touched. This method does not synchronize the graph to disk.
+     *
+     *  @param page Name of the page to update.
+     *  @param references A Collection of Strings, each one pointing to a page this page references.
+     *  @return the final name of the updated page.
+     */
+    private String internalUpdateReferences( final String page, final Collection< String > references ) {
+        //  Resolve the names before taking the lock, this may have to ask the page provider.
+        final String pageName = getFinalPageName( page );
+        final String[] refNames = new String[ references.size() ];
+        int n = 0;
+        for( final String reference : references ) {
+            if( n == refNames.length ) {
+                break;
+            }
+            refNames[ n++ ] = getFinalPageName( reference );
+        }
+
+        final int[] emptied;
+        m_lock.writeLock().lock();
+        try {
+            final int id = idOf( pageName );
+            final int[] refs = new int[ n ];
+            for( int i = 0; i < n; i++ ) {
+                refs[ i ] = idOf( refNames[ i ] );
+            }
+            final int[] newRefs = sortedIds( refs, n );
+            final int[] oldRefs = m_refersTo[ id ] != null ? m_refersTo[ id ] : NO_IDS;
+            m_refersTo[ id ] = newRefs;
+
+            //  We know the page exists, since it's making references somewhere. If it had no referred-by entry, add one now.
+            if( m_referredBy[ id ] == null ) {
+                m_referredBy[ id ] = NO_IDS;
+            }
+
+            //  Walk both sorted lists: pages only in the old list lose this referrer, pages only in the new one gain it.
+            final int[] removed = new int[ oldRefs.length ];
+            int r = 0;
+            int i = 0;
+            int j = 0;
+            while( i < oldRefs.length || j < newRefs.length ) {
+                if( j == newRefs.length || ( i < oldRefs.length && oldRefs[ i ] < newRefs[ j ] ) ) {
+                    removed[ r++ ] = oldRefs[ i++ ];
+                } else if( i == oldRefs.length || newRefs[ j ] < oldRefs[ i ] ) {
+                    addReferrer( newRefs[ j++ ], id );
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            emptied = removeReferrer( removed, r, id );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+
+        //  If a page is referred to by no one AND it doesn't even exist, we might just as well forget about this entry.
+        //  It will be added again elsewhere if new references appear.
+        dropUncreated( emptied );
+        return pageName;
+    }
+
+    /**
+     *  When initially building the graph from scratch, call this method BEFORE calling updateReferences() with a full list
+     *  of existing page names. It creates the refers-to and referred-by entries of all pages.
+     *
+     *  @param pages a Collection containing WikiPage objects.
+     */
+    private void buildKeyLists( final Collection< Page > pages ) {
+        m_lock.writeLock().lock();
+        try {
+            clear( Math.max( INITIAL_CAPACITY, pages != null ? pages.size() * 2 : 0 ) );
+            if( pages == null ) {
+                return;
+            }
+            for( final Page page : pages ) {
+                final int id = idOf( page.getName() );
+                m_referredBy[ id ] = NO_IDS;
+                m_refersTo[ id ] = NO_IDS;
+            }
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Marks the page as referred to by the referrer. Must be called with the write lock held.
+     */
+    private void addReferrer( final int page, final int referrer ) {
+        // We're not interested if plural forms refer to each other.
+        if( m_matchEnglishPlurals && isPluralVariant( m_names[ page ], m_names[ referrer ] ) ) {
+            return;
+        }
+
+        // Even if the page has not been created yet, it can still be referenced.
+        int[] referrers = m_referredBy[ page ];
+        final int count = m_referredByCount[ page ];
+        if( referrers == null ) {
+            referrers = NO_IDS;
+        }
+        int pos = Arrays.binarySearch( referrers, 0, count, referrer );
+        if( pos >= 0 ) {
+            return;
+        }
+        pos = -pos - 1;
+        if( count == referrers.length ) {
+            referrers = Arrays.copyOf( referrers, Math.max( 4, count + ( count >> 1 ) ) );
+        }
+        System.arraycopy( referrers, pos, referrers, pos + 1, count - pos );
+        referrers[ pos ] = referrer;
+        m_referredBy[ page ] = referrers;
+        m_referredByCount[ page ] = count + 1;
+    }
+
+    /**
+     *  Removes the referrer from the referred-by lists of the given pages. Must be called with the write lock held.
+     *
+     *  @return the pages whose referred-by list became empty.
+     */
+    private int[] removeReferrer( final int[] pages, final int count, final int referrer ) {
+        int[] emptied = NO_IDS;
+        int e = 0;
+        for( int i = 0; i < count; i++ ) {
+            final int page = pages[ i ];
+            final int[] referrers = m_referredBy[ page ];
+            final int refCount = m_referredByCount[ page ];
+            if( referrers == null ) {
+                continue;
+            }
+            final int pos = Arrays.binarySearch( referrers, 0, refCount, referrer );
+            if( pos >= 0 ) {
+                System.arraycopy( referrers, pos + 1, referrers, pos, refCount - pos - 1 );
+                m_referredByCount[ page ] = refCount - 1;
+            }
+            if( m_referredByCount[ page ] == 0 ) {
+                if( e == emptied.length ) {
+                    emptied = Arrays.copyOf( emptied, count );
+                }
+                emptied[ e++ ] = page;
+            }
+        }
+        return e == emptied.length ? emptied : Arrays.copyOf( emptied, e );
+    }
+
+    /**
+     *  Drops the referred-by entries of the given pages if they are still empty and the pages do not exist. The existence
+     *  checks are done outside the lock, as they may have to ask the page provider.
+     */
+    private void dropUncreated( final int[] pages ) {
+        if( pages.length == 0 ) {
+            return;
+        }
+        final String[] names;
+        m_lock.readLock().lock();
+        try {
+            names = m_names;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+
+        final PageManager pageManager = m_engine.getManager( PageManager.class );
+        final BitSet uncreated = new BitSet( pages.length );
+        for( int i = 0; i < pages.length; i++ ) {
+            if( !pageManager.wikiPageExists( names[ pages[ i ] ] ) ) {
+                uncreated.set( i );
+            }
+        }
+        if( uncreated.isEmpty() ) {
+            return;
+        }
+
+        m_lock.writeLock().lock();
+        try {
+            for( int i = uncreated.nextSetBit( 0 ); i >= 0; i = uncreated.nextSetBit( i + 1 ) ) {
+                if( m_referredByCount[ pages[ i ] ] == 0 ) {
+                    m_referredBy[ pages[ i ] ] = null;
+                }
+            }
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clearPageEntries( final String pagename ) {
+        final String pageName = getFinalPageName( pagename );
+        m_lock.writeLock().lock();
+        try {
+            final int id = lookup( pageName );
+            if( id < 0 ) {
+                return;
+            }
+
+            //  Remove this item from the referredBy list of any page which this item refers to.
+            if( m_refersTo[ id ] != null ) {
+                removeReferrer( m_refersTo[ id ], m_refersTo[ id ].length, id );
+            }
+
+            //  Finally, remove direct references.
+            m_referredBy[ id ] = null;
+            m_referredByCount[ id ] = 0;
+            m_refersTo[ id ] = null;
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Finds all unreferenced pages, that is, pages with an empty referred-by list. If English plurals are matched, a page is
+     *  also referenced when its singular or plural form is.
+     *
+     *  @return The Collection of Strings
+     */
+    @Override
+    public Collection< String > findUnreferenced() {
+        final ArrayList< String > unref = new ArrayList<>();
+        m_lock.readLock().lock();
+        try {
+            for( int id = 0; id < m_size; id++ ) {
+                if( m_referredBy[ id ] != null && m_referredByCount[ id ] == 0 ) {
+                    final int other = m_matchEnglishPlurals ? lookupPluralVariant( m_names[ id ] ) : -1;
+                    if( other < 0 || m_referredByCount[ other ] == 0 ) {
+                        unref.add( m_names[ id ] );
+                    }
+                }
+            }
+        } finally {
+            m_lock.readLock().unlock();
+        }
+
+        return unref;
+    }
+
+    /**
+     *  Finds all references to non-existant pages. Every page referred to is checked once, no matter how many pages refer
+     *  to it.
+     *
+     *  @return A Collection of Strings
+     */
+    @Override
+    public Collection< String > findUncreated() {
+        final String[] names;
+        final BitSet referenced = new BitSet();
+        m_lock.readLock().lock();
+        try {
+            names = m_names;
+            for( int id = 0; id < m_size; id++ ) {
+                final int[] refs = m_refersTo[ id ];
+                if( refs != null ) {
+                    for( final int ref : refs ) {
+                        referenced.set( ref );
+                    }
+                }
+            }
+        } finally {
+            m_lock.readLock().unlock();
+        }
+
+        final PageManager pageManager = m_engine.getManager( PageManager.class );
+        final int[] uncreated = new int[ referenced.cardinality() ];
+        int n = 0;
+        for( int id = referenced.nextSetBit( 0 ); id >= 0; id = referenced.nextSetBit( id + 1 ) ) {
+            if( !pageManager.wikiPageExists( names[ id ] ) ) {
+                uncreated[ n++ ] = id;
+            }
+        }
+        return new NameSet( names, uncreated, n );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set< String > findReferrers( final String pagename ) {
+        m_lock.readLock().lock();
+        try {
+            final int id = lookup( pagename );
+            final int other = m_matchEnglishPlurals ? lookupPluralVariant( pagename ) : -1;
+            final int count = id >= 0 ? m_referredByCount[ id ] : 0;
+            final int otherCount = other >= 0 ? m_referredByCount[ other ] : 0;
+            if( count + otherCount == 0 ) {
+                return null;
+            }
+
+            //  We'll add also matches from the "other" page.
+            final int[] referrers = new int[ count + otherCount ];
+            if( count > 0 ) {
+                System.arraycopy( m_referredBy[ id ], 0, referrers, 0, count );
+            }
+            if( otherCount > 0 ) {
+                System.arraycopy( m_referredBy[ other ], 0, referrers, count, otherCount );
+            }
+            return new NameSet( m_names, referrers, referrers.length );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set< String > findReferredBy( final String pageName ) {
+        final String name = getFinalPageName( pageName );
+        m_lock.readLock().lock();
+        try {
+            final int id = lookup( name );
+            if( id < 0 || m_referredBy[ id ] == null ) {
+                return null;
+            }
+            return new NameSet( m_names, m_referredBy[ id ], m_referredByCount[ id ] );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Collection< String > findRefersTo( final String pageName ) {
+        return refersTo( getFinalPageName( pageName ) );
+    }
+
+    private Collection< String > refersTo( final String name ) {
+        m_lock.readLock().lock();
+        try {
+            final int id = lookup( name );
+            if( id < 0 || m_refersTo[ id ] == null ) {
+                return null;
+            }
+            return new NameSet( m_names, m_refersTo[ id ], m_refersTo[ id ].length );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set< String > findCreated() {
+        final Set< String > created = new HashSet<>();
+        m_lock.readLock().lock();
+        try {
+            for( int id = 0; id < m_size; id++ ) {
+                if( m_refersTo[ id ] != null ) {
+                    created.add( m_names[ id ] );
+                }
+            }
+        } finally {
+            m_lock.readLock().unlock();
+        }
+        return created;
+    }
+
+    /**
+     *  Returns the id of a page name, or -1 if it has none. Must be called with the lock held.
+     */
+    private int lookup( final String name ) {
+        final int mask = m_index.length - 1;
+        for( int slot = hash( name ) & mask; ; slot = ( slot + 1 ) & mask ) {
+            final int id = m_index[ slot ] - 1;
+            if( id < 0 ) {
+                return -1;
+            }
+            if( m_names[ id ].equals( name ) ) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     *  Returns the id of the singular or plural form of a page name, as in {@link #isPluralVariant(String, String)}, or -1 if
+     *  it has none. Must be called with the lock held.
+     */
+    private int lookupPluralVariant( final String name ) {
+        return lookup( name.endsWith( "s" ) ? name.substring( 0, name.length() - 1 ) : name + "s" );
+    }
+
+    /**
+     *  Returns the id of a page name, giving it a new one if needed. Must be called with the write lock held.
+     */
+    private int idOf( final String name ) {
+        final int existing = lookup( name );
+        if( existing >= 0 ) {
+            return existing;
+        }
+        if( m_size == m_names.length ) {
+            final int capacity = m_size + ( m_size >> 1 );
+            m_names = Arrays.copyOf( m_names, capacity );
+            m_refersTo = Arrays.copyOf( m_refersTo, capacity );
+            m_referredBy = Arrays.copyOf( m_referredBy, capacity );
+            m_referredByCount = Arrays.copyOf( m_referredByCount, capacity );
+        }
+        final int id = m_size++;
+        m_names[ id ] = name;
+        if( m_size * 2 > m_index.length ) {
+            m_index = new int[ m_index.length * 2 ];
+            for( int i = 0; i < m_size; i++ ) {
+                index( i );
+            }
+        } else {
+            index( id );
+        }
+        return id;
+    }
+
+    private void index( final int id ) {
+        final int mask = m_index.length - 1;
+        int slot = hash( m_names[ id ] ) & mask;
+        while( m_index[ slot ] != 0 ) {
+            slot = ( slot + 1 ) & mask;
+        }
+        m_index[ slot ] = id + 1;
+    }
+
+    private static int hash( final String name ) {
+        final int h = name.hashCode();
+        return h ^ ( h >>> 16 );
+    }
+
+    /**
+     *  Returns a sorted copy of the first {@code count} ids, without duplicates.
+     */
+    private static int[] sortedIds( final int[] ids, final int count ) {
+        if( count == 0 ) {
+            return NO_IDS;
+        }
+        final int[] sorted = Arrays.copyOf( ids, count );
+        Arrays.sort( sorted );
+        int n = 1;
+        for( int i = 1; i < count; i++ ) {
+            if( sorted[ i ] != sorted[ n - 1 ] ) {
+                sorted[ n++ ] = sorted[ i ];
+            }
+        }
+        return n == count ? sorted : Arrays.copyOf( sorted, n );
+    }
+
+    /**
+     *  Tells whether the referrer is the singular or plural form of the page, i.e. the page name with an "s" appended or removed.
+     */
+    private static boolean isPluralVariant( final String page, final String referrer ) {
+        if( page.endsWith( "s" ) ) {
+            return referrer.length() == page.length() - 1 && page.startsWith( referrer );
+        }
+        return referrer.length() == page.length() + 1 && referrer.endsWith( "s" ) && referrer.startsWith( page );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLastScanTime() {
+        return m_scanner.getLastScanTime();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getLastScanPages() {
+        return m_scanner.getLastScanPages();
+    }
+
+    private String getFinalPageName( final String orig ) {
+        try {
+            final String s = m_engine.getFinalPageName( orig );
+            return s != null ? s : orig;
+        } catch( final ProviderException e ) {
+            LOG.error( "Error while trying to fetch a page name; trying to cope with the situation.", e );
+            return orig;
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiPageEvent && event.getType() == WikiPageEvent.PAGE_DELETED ) {
+            final String pageName = ( ( WikiPageEvent ) event ).getPageName();
+            if( pageName != null ) {
+                pageRemoved( pageName );
+            }
+        }
+    }
+
+    /**
+     *  Unmodifiable set of page names backed by an array of ids, sorted by name. Names are only resolved when the set is read.
+     */
+    private static final class NameSet extends AbstractSet< String > {
+
+        private final String[] m_names;
+        private final int[] m_ids;
+
+        NameSet( final String[] names, final int[] ids, final int count ) {
+            m_names = names;
+            m_ids = sortByName( names, ids, count );
+        }
+
+        private static int[] sortByName( final String[] names, final int[] ids, final int count ) {
+            final Integer[] boxed = new Integer[ count ];
+            for( int i = 0; i < count; i++ ) {
+                boxed[ i ] = ids[ i ];
+            }
+            Arrays.sort( boxed, ( a, b ) -> names[ a ].compareTo( names[ b ] ) );
+            final int[] sorted = new int[ count ];
+            int n = 0;
+            for( final Integer id : boxed ) {
+                if( n == 0 || !names[ sorted[ n - 1 ] ].equals( names[ id ] ) ) {
+                    sorted[ n++ ] = id;
+                }
+            }
+            return n == count ? sorted : Arrays.copyOf( sorted, n );
+        }
+
+        @Override
+        public boolean contains( final Object o ) {
+            if( !( o instanceof String ) ) {
+                return false;
+            }
+            int low = 0;
+            int high = m_ids.length - 1;
+            while( low <= high ) {
+                final int mid = ( low + high ) >>> 1;
+                final int cmp = m_names[ m_ids[ mid ] ].compareTo( ( String )o );
+                if( cmp < 0 ) {
+                    low = mid + 1;
+                } else if( cmp > 0 ) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator< String > iterator() {
+            return new Iterator< String >() {
+
+                private int m_next;
+
+                @Override
+                public boolean hasNext() {
+                    return m_next < m_ids.length;
+                }
+
+                @Override
+                public String next() {
+                    if( m_next >= m_ids.length ) {
+                        throw new NoSuchElementException();
+                    }
+                    return m_names[ m_ids[ m_next++ ] ];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return m_ids.length;
+        }
+    }
+
+}
@@ -29,10 +29,8 @@ import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.filters.BasePageFilter;
-import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.spi.Wiki;
-import org.apache.wiki.attachment.AttachmentManager;
 import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiPageEvent;
@@ -40,11 +38,9 @@ import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.util.TextUtil;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -126,10 +122,20 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
     private final boolean m_matchEnglishPlurals;
 
     private static final Logger LOG = LogManager.getLogger( DefaultReferenceManager.class);
-    private static final String SERIALIZATION_FILE = "refmgr.ser";
-    private static final String SERIALIZATION_DIR  = "refmgr-attr";
+    private static final String SERIALIZATION_FILE = "refmgr.bin";
+    private static final String JOURNAL_FILE = "refmgr.journal";
+
+    /** Java serialized references written by previous versions, replaced by {@link #SERIALIZATION_FILE}. */
+    private static final String LEGACY_SERIALIZATION_FILE = "refmgr.ser";
+
+    /** Number of journaled changes after which a new full snapshot of the references is written. */
+    private static final int MAX_JOURNAL_ENTRIES = 1_000;
+
+    private int m_journalEntries;
+
+    private final PageAttributeCache m_attributeCache;
+    private final ReferenceScanner m_scanner;
 
-    /** We use this also a generic serialization id */
     private static final long serialVersionUID = 4L;
 
     /**
@@ -142,6 +148,8 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         m_referredBy = new ConcurrentHashMap<>();
         m_engine = engine;
         m_matchEnglishPlurals = TextUtil.getBooleanProperty( engine.getWikiProperties(), Engine.PROP_MATCHPLURALS, false );
+        m_attributeCache = new PageAttributeCache( engine.getWorkDir() );
+        m_scanner = new ReferenceScanner( engine, this );
 
         //
         //  Create two maps that contain unmutable versions of the two basic maps.
@@ -150,21 +158,6 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         m_unmutableRefersTo   = Collections.unmodifiableMap( m_refersTo );
     }
 
-    /**
-     *  Does a full reference update.  Does not sync; assumes that you do it afterwards.
-     */
-    private void updatePageReferences( final Page page ) throws ProviderException {
-        final String content = m_engine.getManager( PageManager.class ).getPageText( page.getName(), PageProvider.LATEST_VERSION );
-        final Collection< String > links = scanWikiLinks( page, content );
-        final TreeSet< String > res = new TreeSet<>( links );
-        final List< Attachment > attachments = m_engine.getManager( AttachmentManager.class ).listAttachments( page );
-        for( final Attachment att : attachments ) {
-            res.add( att.getName() );
-        }
-
-        internalUpdateReferences( page.getName(), res );
-    }
-
     /**
      *  Initializes the entire reference manager with the initial set of pages from the collection.
      *
@@ -189,11 +182,12 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
             final long saved = unserializeFromDisk();
 
             for( final Page page : pages ) {
-                unserializeAttrsFromDisk( page );
+                m_attributeCache.load( page );
             }
 
             //  Now we must check if any of the pages have been changed  while we were in the electronic la-la-land,
             //  and update the references for them.
+            final List< Page > stale = new ArrayList<>();
             for( final Page page : pages ) {
                 if( !( page instanceof Attachment ) ) {
                     // Refresh with the latest copy
@@ -202,25 +196,37 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
                     if( wp.getLastModified() == null ) {
                         LOG.fatal( "Provider returns null lastModified.  Please submit a bug report." );
                     } else if( wp.getLastModified().getTime() > saved ) {
-                        updatePageReferences( wp );
+                        stale.add( wp );
                     }
                 }
             }
+            m_scanner.scan( stale, ( page, refs ) -> internalUpdateReferences( page.getName(), refs ) );
+
+            //  Fold the journal and any updated references into a fresh snapshot.
+            if( m_journalEntries > 0 || !stale.isEmpty() ) {
+                serializeToDisk();
+            }
 
         } catch( final Exception e ) {
             LOG.info( "Unable to unserialize old refmgr information, rebuilding database: {}", e.getMessage() );
             buildKeyLists( pages );
 
-            // Scan the existing pages from disk and update references in the manager.
+            // Scan the existing pages from disk and update references in the manager. We cannot build a reference list from
+            // the contents of attachments, so we skip them.
+            final List< Page > wikiPages = new ArrayList<>();
             for( final Page page : pages ) {
-                // We cannot build a reference list from the contents of attachments, so we skip them.
                 if( !( page instanceof Attachment ) ) {
-                    updatePageReferences( page );
-                    serializeAttrsToDisk( page );
+                    wikiPages.add( page );
                 }
             }
+            m_scanner.scan( wikiPages, ( page, refs ) -> {
+                internalUpdateReferences( page.getName(), refs );
+                m_attributeCache.save( page );
+            } );
 
-            serializeToDisk();
+            if( serializeToDisk() ) {
+                deleteLegacySerialization();
+            }
         }
 
         sw.stop();
@@ -230,172 +236,129 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
     }
 
     /**
-     *  Reads the serialized data from the disk back to memory. Returns the date when the data was last written on disk
+     *  Reads the serialized data from the disk back to memory, replaying any changes journaled after it was written.
+     *  Returns the date when the data was last written on disk
      */
-    @SuppressWarnings("unchecked")
-    private synchronized long unserializeFromDisk() throws IOException, ClassNotFoundException {
-        final long saved;
+    private synchronized long unserializeFromDisk() throws IOException {
+        final StopWatch sw = new StopWatch();
+        sw.start();
+
+        final ReferenceGraphFile.Snapshot snapshot = ReferenceGraphFile.readSnapshot( new File( m_engine.getWorkDir(), SERIALIZATION_FILE ) );
+        final Map< String, Collection< String > > refersTo = new ConcurrentHashMap<>( snapshot.refersToKeys.length );
+        for( int i = 0; i < snapshot.refersToKeys.length; i++ ) {
+            refersTo.put( snapshot.names[ snapshot.refersToKeys[ i ] ], toNames( snapshot.names, snapshot.refersTo[ i ] ) );
+        }
+        final Map< String, Set< String > > referredBy = new ConcurrentHashMap<>( snapshot.referredByKeys.length );
+        for( int i = 0; i < snapshot.referredByKeys.length; i++ ) {
+            referredBy.put( snapshot.names[ snapshot.referredByKeys[ i ] ], toNames( snapshot.names, snapshot.referredBy[ i ] ) );
+        }
 
-        final File f = new File( m_engine.getWorkDir(), SERIALIZATION_FILE );
-        try( final ObjectInputStream in = new ObjectInputStream( new BufferedInputStream( Files.newInputStream( f.toPath() ) ) ) ) {
-            final StopWatch sw = new StopWatch();
-            sw.start();
+        m_refersTo   = refersTo;
+        m_referredBy = referredBy;
+        m_unmutableReferredBy = Collections.unmodifiableMap( m_referredBy );
+        m_unmutableRefersTo   = Collections.unmodifiableMap( m_refersTo );
 
-            final long ver = in.readLong();
+        m_journalEntries = 0;
+        final long saved = ReferenceGraphFile.replayJournal( new File( m_engine.getWorkDir(), JOURNAL_FILE ), snapshot, new ReferenceGraphFile.JournalVisitor() {
 
-            if( ver != serialVersionUID ) {
-                throw new IOException("File format has changed; I need to recalculate references.");
+            @Override
+            public void updated( final String page, final Collection< String > references ) {
+                internalUpdateReferences( page, references );
+                m_journalEntries++;
             }
 
-            saved        = in.readLong();
-            m_refersTo   = ( Map< String, Collection< String > > ) in.readObject();
-            m_referredBy = ( Map< String, Set< String > > ) in.readObject();
+            @Override
+            public void removed( final String page ) {
+                internalPageRemoved( page );
+                m_journalEntries++;
+            }
+        } );
 
-            m_unmutableReferredBy = Collections.unmodifiableMap( m_referredBy );
-            m_unmutableRefersTo   = Collections.unmodifiableMap( m_refersTo );
+        sw.stop();
+        LOG.debug( "Read serialized data successfully in {}, replayed {} journaled changes", sw, m_journalEntries );
+        return saved;
+    }
 
-            sw.stop();
-            LOG.debug( "Read serialized data successfully in {}", sw );
+    private static TreeSet< String > toNames( final String[] names, final int[] ids ) {
+        final TreeSet< String > set = new TreeSet<>();
+        for( final int id : ids ) {
+            set.add( names[ id ] );
         }
-
-        return saved;
+        return set;
     }
 
     /**
-     *  Serializes hashmaps to disk.  The format is private, don't touch it.
+     *  Removes the references serialized by previous versions, once they have been rebuilt into the current format.
      */
-    private synchronized void serializeToDisk() {
-        final File f = new File( m_engine.getWorkDir(), SERIALIZATION_FILE );
-        try( final ObjectOutputStream out = new ObjectOutputStream( new BufferedOutputStream( Files.newOutputStream( f.toPath() ) ) ) ) {
-            final StopWatch sw = new StopWatch();
-            sw.start();
-
-            out.writeLong( serialVersionUID );
-            out.writeLong( System.currentTimeMillis() ); // Timestamp
-            out.writeObject( m_refersTo );
-            out.writeObject( m_referredBy );
+    private void deleteLegacySerialization() {
+        final File legacy = new File( m_engine.getWorkDir(), LEGACY_SERIALIZATION_FILE );
+        if( legacy.exists() && !legacy.delete() ) {
+            LOG.warn( "Unable to delete obsolete reference data {}", legacy.getAbsolutePath() );
+        }
+    }
 
+    /**
+     *  Writes a full snapshot of the hashmaps to disk, and starts a new journal.  The format is private, don't touch it.
+     *  If the snapshot can't be written, the current one and its journal are left as they were, and the next snapshot is
+     *  attempted once the journal has grown by another {@link #MAX_JOURNAL_ENTRIES} changes.
+     *
+     *  @return {@code true} if the snapshot was written.
+     */
+    private synchronized boolean serializeToDisk() {
+        final StopWatch sw = new StopWatch();
+        sw.start();
+        try {
+            ReferenceGraphFile.writeSnapshot( new File( m_engine.getWorkDir(), SERIALIZATION_FILE ),
+                                              new File( m_engine.getWorkDir(), JOURNAL_FILE ),
+                                              System.currentTimeMillis(),
+                                              m_refersTo,
+                                              m_referredBy );
+            m_journalEntries = 0;
             sw.stop();
-
             LOG.debug( "serialization done - took {}", sw );
+            return true;
         } catch( final IOException ioe ) {
             LOG.error( "Unable to serialize!", ioe );
+            m_journalEntries = 0;
+            return false;
         }
     }
 
-    private String getHashFileName( final String pageName ) {
-        if( pageName == null ) {
-            return null;
-        }
-		try {
-            final MessageDigest digest = MessageDigest.getInstance( "MD5" );
-            final byte[] dig = digest.digest( pageName.getBytes( StandardCharsets.UTF_8 ) );
-
-	        return TextUtil.toHexString( dig ) + ".cache";
-		} catch( final NoSuchAlgorithmException e ) {
-			LOG.fatal( "What do you mean - no such algorithm?", e );
-			return null;
-		}
-    }
-
     /**
-     *  Reads the serialized data from the disk back to memory. Returns the date when the data was last written on disk
+     *  Appends the current references of a page to the journal, or writes a full snapshot if the journal has grown too large.
      */
-    private synchronized long unserializeAttrsFromDisk( final Page p ) throws IOException, ClassNotFoundException {
-        long saved = 0L;
-
-        //  Find attribute cache, and check if it exists
-        final String hashName = getHashFileName( p.getName() );
-        if( hashName != null ) {
-        	File f = new File( m_engine.getWorkDir(), SERIALIZATION_DIR );
-            f = new File( f, hashName );
-            if( !f.exists() ) {
-                return 0L;
-            }
-
-            try( final ObjectInputStream in = new ObjectInputStream( new BufferedInputStream( Files.newInputStream( f.toPath() ) ) ) ) {
-                final StopWatch sw = new StopWatch();
-                sw.start();
-                LOG.debug( "Deserializing attributes for {}", p.getName() );
-
-                final long ver = in.readLong();
-                if( ver != serialVersionUID ) {
-                    LOG.debug( "File format has changed; cannot deserialize." );
-                    return 0L;
-                }
-
-                saved = in.readLong();
-                final String name  = in.readUTF();
-                if( !name.equals( p.getName() ) ) {
-                    LOG.debug( "File name does not match ({}), skipping...", name );
-                    return 0L; // Not here
-                }
-
-                final long entries = in.readLong();
-                for( int i = 0; i < entries; i++ ) {
-                    final String key   = in.readUTF();
-                    final Object value = in.readObject();
-                    p.setAttribute( key, value );
-                    LOG.debug( "   attr: {}={}", key, value );
-                }
-
-                sw.stop();
-                LOG.debug( "Read serialized data for {} successfully in {}", name, sw );
-                p.setHasMetadata();
-            }
+    private synchronized void journalUpdate( final String page ) {
+        final Collection< String > refs = m_refersTo.get( page );
+        if( refs == null ) {
+            journalRemove( page );
+            return;
+        }
+        if( m_journalEntries >= MAX_JOURNAL_ENTRIES && serializeToDisk() ) {
+            return;
+        }
+        try {
+            ReferenceGraphFile.appendUpdate( new File( m_engine.getWorkDir(), JOURNAL_FILE ), page, refs );
+            m_journalEntries++;
+        } catch( final IOException e ) {
+            LOG.debug( "Unable to journal reference changes ({}), writing a full snapshot", e.getMessage() );
+            serializeToDisk();
         }
-
-        return saved;
     }
 
     /**
-     *  Serializes hashmaps to disk.  The format is private, don't touch it.
+     *  Appends the removal of a page to the journal, or writes a full snapshot if the journal has grown too large.
      */
-    private synchronized void serializeAttrsToDisk( final Page p ) {
-        final StopWatch sw = new StopWatch();
-        sw.start();
-
-        final String hashName = getHashFileName( p.getName() );
-        if( hashName != null ) {
-        	File f = new File( m_engine.getWorkDir(), SERIALIZATION_DIR );
-            if( !f.exists() ) {
-                f.mkdirs();
-            }
-
-            //  Create a digest for the name
-            f = new File( f, hashName );
-
-            try( final ObjectOutputStream out =  new ObjectOutputStream( new BufferedOutputStream( Files.newOutputStream( f.toPath() ) ) ) ) {
-                // new Set to avoid concurrency issues
-                final Set< Map.Entry < String, Object > > entries = new HashSet<>( p.getAttributes().entrySet() );
-
-                if(entries.isEmpty()) {
-                    //  Nothing to serialize, therefore we will just simply remove the serialization file so that the
-                    //  next time we boot, we don't deserialize old data.
-                    f.delete();
-                    return;
-                }
-
-                out.writeLong( serialVersionUID );
-                out.writeLong( System.currentTimeMillis() ); // Timestamp
-                out.writeUTF( p.getName() );
-                out.writeLong( entries.size() );
-
-                for( final Map.Entry< String, Object > e : entries ) {
-                    if( e.getValue() instanceof Serializable ) {
-                        out.writeUTF( e.getKey() );
-                        out.writeObject( e.getValue() );
-                    }
-                }
-
-            } catch( final IOException e ) {
-                LOG.error( "Unable to serialize!", e );
-            } finally {
-                sw.stop();
-                LOG.debug( "serialization for {} done - took {}", p.getName(), sw );
-            }
+    private synchronized void journalRemove( final String page ) {
+        if( m_journalEntries >= MAX_JOURNAL_ENTRIES && serializeToDisk() ) {
+            return;
+        }
+        try {
+            ReferenceGraphFile.appendRemove( new File( m_engine.getWorkDir(), JOURNAL_FILE ), page );
+            m_journalEntries++;
+        } catch( final IOException e ) {
+            LOG.debug( "Unable to journal reference changes ({}), writing a full snapshot", e.getMessage() );
+            serializeToDisk();
         }
-
     }
 
     /**
@@ -408,7 +371,7 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
 	public void postSave( final Context context, final String content ) {
         final Page page = context.getPage();
         updateReferences( page.getName(), scanWikiLinks( page, content ) );
-        serializeAttrsToDisk( page );
+        m_attributeCache.save( page );
     }
 
     /**
@@ -447,6 +410,17 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
     }
 
     private void pageRemoved( final String pageName ) {
+        internalPageRemoved( pageName );
+
+        //  Remove any traces from the disk, too
+        journalRemove( pageName );
+        m_attributeCache.remove( pageName );
+    }
+
+    /**
+     *  Removes a page from the maps, without touching the disk.
+     */
+    private void internalPageRemoved( final String pageName ) {
         final Collection< String > refTo = m_refersTo.get( pageName );
         if( refTo != null ) {
             for( final String referredPageName : refTo ) {
@@ -474,18 +448,6 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         if( refBy == null || refBy.isEmpty() ) {
             m_referredBy.remove( pageName );
         }
-
-        //  Remove any traces from the disk, too
-        serializeToDisk();
-
-        final String hashName = getHashFileName( pageName );
-        if( hashName != null ) {
-        	File f = new File( m_engine.getWorkDir(), SERIALIZATION_DIR );
-            f = new File( f, getHashFileName( pageName ) );
-            if( f.exists() ) {
-                f.delete();
-            }
-        }
     }
 
     /**
@@ -511,8 +473,7 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
      */
     @Override
     public void updateReferences( final String page, final Collection< String > references ) {
-        internalUpdateReferences( page, references );
-        serializeToDisk();
+        journalUpdate( internalUpdateReferences( page, references ) );
     }
 
     /**
@@ -523,8 +484,9 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
      *
      *  @param page Name of the page to update.
      *  @param references A Collection of Strings, each one pointing to a page this page references.
+     *  @return the final name of the updated page.
      */
-    private void internalUpdateReferences( String page, final Collection< String > references) {
+    private String internalUpdateReferences( String page, final Collection< String > references) {
         page = getFinalPageName( page );
 
         // Create a new entry in m_refersTo.
@@ -549,6 +511,7 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         for( final String referredPageName : cleanedRefs ) {
             updateReferredBy( getFinalPageName( referredPageName ), page );
         }
+        return page;
     }
 
     /**
@@ -850,6 +813,18 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         return new HashSet<>( m_refersTo.keySet() );
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public long getLastScanTime() {
+        return m_scanner.getLastScanTime();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getLastScanPages() {
+        return m_scanner.getLastScanPages();
+    }
+
     private String getFinalPageName( final String orig ) {
         try {
             final String s = m_engine.getFinalPageName( orig );
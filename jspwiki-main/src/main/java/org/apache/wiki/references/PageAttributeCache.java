@@ -0,0 +1,202 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.util.TextUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Per-page cache of page attributes kept by the reference managers, one serialized file per page under
+ * {@code <workDir>/refmgr-attr}. The format is private, don't touch it.
+ *
+ * @since 2.12.3
+ */
+final class PageAttributeCache {
+
+    private static final Logger LOG = LogManager.getLogger( PageAttributeCache.class );
+    private static final String SERIALIZATION_DIR = "refmgr-attr";
+
+    /** Format version of the cache files. */
+    private static final long FORMAT_VERSION = 4L;
+
+    private final File m_dir;
+
+    /**
+     * Creates a cache storing its files below the given work directory.
+     *
+     * @param workDir engine's work directory.
+     */
+    PageAttributeCache( final String workDir ) {
+        m_dir = new File( workDir, SERIALIZATION_DIR );
+    }
+
+    private String getHashFileName( final String pageName ) {
+        if( pageName == null ) {
+            return null;
+        }
+        try {
+            final MessageDigest digest = MessageDigest.getInstance( "MD5" );
+            final byte[] dig = digest.digest( pageName.getBytes( StandardCharsets.UTF_8 ) );
+
+            return TextUtil.toHexString( dig ) + ".cache";
+        } catch( final NoSuchAlgorithmException e ) {
+            LOG.fatal( "What do you mean - no such algorithm?", e );
+            return null;
+        }
+    }
+
+    /**
+     * Reads the cached attributes of a page into it.
+     *
+     * @param p page whose attributes are read.
+     * @return the date when the attributes were last written on disk, or 0 if there were none.
+     * @throws IOException if the cache file cannot be read.
+     * @throws ClassNotFoundException if an attribute value cannot be deserialized.
+     */
+    synchronized long load( final Page p ) throws IOException, ClassNotFoundException {
+        long saved = 0L;
+
+        //  Find attribute cache, and check if it exists
+        final String hashName = getHashFileName( p.getName() );
+        if( hashName != null ) {
+            final File f = new File( m_dir, hashName );
+            if( !f.exists() ) {
+                return 0L;
+            }
+
+            try( final ObjectInputStream in = new ObjectInputStream( new BufferedInputStream( Files.newInputStream( f.toPath() ) ) ) ) {
+                final StopWatch sw = new StopWatch();
+                sw.start();
+                LOG.debug( "Deserializing attributes for {}", p.getName() );
+
+                final long ver = in.readLong();
+                if( ver != FORMAT_VERSION ) {
+                    LOG.debug( "File format has changed; cannot deserialize." );
+                    return 0L;
+                }
+
+                saved = in.readLong();
+                final String name  = in.readUTF();
+                if( !name.equals( p.getName() ) ) {
+                    LOG.debug( "File name does not match ({}), skipping...", name );
+                    return 0L; // Not here
+                }
+
+                final long entries = in.readLong();
+                for( int i = 0; i < entries; i++ ) {
+                    final String key   = in.readUTF();
+                    final Object value = in.readObject();
+                    p.setAttribute( key, value );
+                    LOG.debug( "   attr: {}={}", key, value );
+                }
+
+                sw.stop();
+                LOG.debug( "Read serialized data for {} successfully in {}", name, sw );
+                p.setHasMetadata();
+            }
+        }
+
+        return saved;
+    }
+
+    /**
+     * Writes the attributes of a page to disk, or removes its cache file if it has none.
+     *
+     * @param p page whose attributes are written.
+     */
+    synchronized void save( final Page p ) {
+        final StopWatch sw = new StopWatch();
+        sw.start();
+
+        final String hashName = getHashFileName( p.getName() );
+        if( hashName != null ) {
+            if( !m_dir.exists() ) {
+                m_dir.mkdirs();
+            }
+
+            //  Create a digest for the name
+            final File f = new File( m_dir, hashName );
+
+            try( final ObjectOutputStream out =  new ObjectOutputStream( new BufferedOutputStream( Files.newOutputStream( f.toPath() ) ) ) ) {
+                // new Set to avoid concurrency issues
+                final Set< Map.Entry < String, Object > > entries = new HashSet<>( p.getAttributes().entrySet() );
+
+                if(entries.isEmpty()) {
+                    //  Nothing to serialize, therefore we will just simply remove the serialization file so that the
+                    //  next time we boot, we don't deserialize old data.
+                    f.delete();
+                    return;
+                }
+
+                out.writeLong( FORMAT_VERSION );
+                out.writeLong( System.currentTimeMillis() ); // Timestamp
+                out.writeUTF( p.getName() );
+                out.writeLong( entries.size() );
+
+                for( final Map.Entry< String, Object > e : entries ) {
+                    if( e.getValue() instanceof Serializable ) {
+                        out.writeUTF( e.getKey() );
+                        out.writeObject( e.getValue() );
+                    }
+                }
+
+            } catch( final IOException e ) {
+                LOG.error( "Unable to serialize!", e );
+            } finally {
+                sw.stop();
+                LOG.debug( "serialization for {} done - took {}", p.getName(), sw );
+            }
+        }
+    }
+
+    /**
+     * Removes the cached attributes of a page.
+     *
+     * @param pageName name of the page.
+     */
+    synchronized void remove( final String pageName ) {
+        final String hashName = getHashFileName( pageName );
+        if( hashName != null ) {
+            final File f = new File( m_dir, hashName );
+            if( f.exists() ) {
+                f.delete();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,370 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * On-disk storage of the reference graph. The graph is kept as a snapshot file plus an append-only journal of the changes
+ * made since the snapshot was written.
+ * <p>
+ * The snapshot is a versioned binary file: a dictionary holding each page name once, followed by the refers-to and
+ * referred-by adjacency lists expressed as indexes into that dictionary. It is read in one go into a heap buffer; it is
+ * not memory mapped, as a mapped file can't be replaced on some platforms until the mapping is garbage collected.
+ * <pre>
+ *   int     magic, int format version, long timestamp
+ *   int     number of names, then for each: int length, UTF-8 bytes
+ *   int     number of refers-to entries, then for each: int page, int count, count * int referred page
+ *   int     number of referred-by entries, then for each: int page, int count, count * int referring page
+ * </pre>
+ * The journal starts with its own header, carrying the timestamp of the snapshot it applies to, followed by one record per
+ * change: the record type, a timestamp, the page name, and for updates the names of the pages it now refers to. A journal
+ * whose snapshot timestamp does not match the snapshot is ignored, and a truncated last record (e.g. after a crash) ends
+ * the replay.
+ * <p>
+ * This format is private to the reference managers, don't touch it.
+ *
+ * @since 2.12.3
+ */
+final class ReferenceGraphFile {
+
+    private static final int SNAPSHOT_MAGIC = 0x4A575246; // "JWRF"
+    private static final int JOURNAL_MAGIC  = 0x4A57524A; // "JWRJ"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte RECORD_UPDATE = 1;
+    private static final byte RECORD_REMOVE = 2;
+
+    private ReferenceGraphFile() {
+    }
+
+    /** The contents of a snapshot: page names plus integer adjacency lists indexing them. */
+    static final class Snapshot {
+
+        /** Time the snapshot was written. */
+        final long timestamp;
+
+        /** Page name dictionary. */
+        final String[] names;
+
+        /** Pages with a refers-to entry, as indexes into {@link #names}. */
+        final int[] refersToKeys;
+
+        /** For each entry of {@link #refersToKeys}, the pages it refers to. */
+        final int[][] refersTo;
+
+        /** Pages with a referred-by entry, as indexes into {@link #names}. */
+        final int[] referredByKeys;
+
+        /** For each entry of {@link #referredByKeys}, the pages referring to it. */
+        final int[][] referredBy;
+
+        Snapshot( final long timestamp, final String[] names, final int[] refersToKeys, final int[][] refersTo, final int[] referredByKeys, final int[][] referredBy ) {
+            this.timestamp = timestamp;
+            this.names = names;
+            this.refersToKeys = refersToKeys;
+            this.refersTo = refersTo;
+            this.referredByKeys = referredByKeys;
+            this.referredBy = referredBy;
+        }
+    }
+
+    /** Receives the changes recorded in a journal. */
+    interface JournalVisitor {
+
+        /**
+         * A page's references were updated.
+         *
+         * @param page page name.
+         * @param references pages it now refers to.
+         */
+        void updated( String page, Collection< String > references );
+
+        /**
+         * A page was removed.
+         *
+         * @param page page name.
+         */
+        void removed( String page );
+    }
+
+    /**
+     * Writes a snapshot of the reference graph, replacing any previous one, and starts an empty journal bound to it.
+     *
+     * @param snapshotFile snapshot file.
+     * @param journalFile journal file.
+     * @param timestamp time of the snapshot.
+     * @param refersTo refers-to map.
+     * @param referredBy referred-by map.
+     * @throws IOException if the files cannot be written.
+     */
+    static void writeSnapshot( final File snapshotFile,
+                               final File journalFile,
+                               final long timestamp,
+                               final Map< String, ? extends Collection< String > > refersTo,
+                               final Map< String, ? extends Collection< String > > referredBy ) throws IOException {
+        final Map< String, Integer > ids = new HashMap<>();
+        final List< String > names = new ArrayList<>();
+        final List< Map.Entry< String, ? extends Collection< String > > > refersToEntries = new ArrayList<>( refersTo.entrySet() );
+        final int[] refersToKeys = new int[ refersToEntries.size() ];
+        final int[][] refersToIds = toIds( refersToEntries, refersToKeys, ids, names );
+        final List< Map.Entry< String, ? extends Collection< String > > > referredByEntries = new ArrayList<>( referredBy.entrySet() );
+        final int[] referredByKeys = new int[ referredByEntries.size() ];
+        final int[][] referredByIds = toIds( referredByEntries, referredByKeys, ids, names );
+        writeSnapshot( snapshotFile, journalFile, new Snapshot( timestamp, names.toArray( new String[ 0 ] ), refersToKeys, refersToIds, referredByKeys, referredByIds ) );
+    }
+
+    /**
+     * Writes a snapshot of the reference graph which is already expressed as integer adjacency lists, replacing any previous
+     * one, and starts an empty journal bound to it.
+     *
+     * @param snapshotFile snapshot file.
+     * @param journalFile journal file.
+     * @param snapshot the reference graph.
+     * @throws IOException if the files cannot be written.
+     */
+    static void writeSnapshot( final File snapshotFile, final File journalFile, final Snapshot snapshot ) throws IOException {
+        final File tmp = new File( snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp" );
+        try( final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( tmp.toPath() ) ) ) ) {
+            out.writeInt( SNAPSHOT_MAGIC );
+            out.writeInt( FORMAT_VERSION );
+            out.writeLong( snapshot.timestamp );
+            out.writeInt( snapshot.names.length );
+            for( final String name : snapshot.names ) {
+                writeString( out, name );
+            }
+            writeAdjacency( out, snapshot.refersToKeys, snapshot.refersTo );
+            writeAdjacency( out, snapshot.referredByKeys, snapshot.referredBy );
+        }
+        try {
+            Files.move( tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } catch( final AtomicMoveNotSupportedException e ) {
+            Files.move( tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+
+        try( final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( journalFile.toPath() ) ) ) ) {
+            out.writeInt( JOURNAL_MAGIC );
+            out.writeInt( FORMAT_VERSION );
+            out.writeLong( snapshot.timestamp );
+        }
+    }
+
+    private static int[][] toIds( final List< Map.Entry< String, ? extends Collection< String > > > entries,
+                                  final int[] keys,
+                                  final Map< String, Integer > ids,
+                                  final List< String > names ) {
+        final int[][] result = new int[ keys.length ][];
+        for( int k = 0; k < keys.length; k++ ) {
+            final Map.Entry< String, ? extends Collection< String > > entry = entries.get( k );
+            keys[ k ] = id( entry.getKey(), ids, names );
+            final Collection< String > values = entry.getValue();
+            final int[] valueIds = new int[ values.size() ];
+            int i = 0;
+            for( final String value : values ) {
+                if( i == valueIds.length ) {
+                    break; // the collection grew while we were copying it
+                }
+                valueIds[ i++ ] = id( value, ids, names );
+            }
+            result[ k ] = i == valueIds.length ? valueIds : Arrays.copyOf( valueIds, i );
+        }
+        return result;
+    }
+
+    private static int id( final String name, final Map< String, Integer > ids, final List< String > names ) {
+        return ids.computeIfAbsent( name, k -> {
+            names.add( k );
+            return names.size() - 1;
+        } );
+    }
+
+    private static void writeAdjacency( final DataOutputStream out, final int[] keys, final int[][] adjacency ) throws IOException {
+        out.writeInt( keys.length );
+        for( int i = 0; i < keys.length; i++ ) {
+            out.writeInt( keys[ i ] );
+            out.writeInt( adjacency[ i ].length );
+            for( final int id : adjacency[ i ] ) {
+                out.writeInt( id );
+            }
+        }
+    }
+
+    private static void writeString( final DataOutputStream out, final String s ) throws IOException {
+        final byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param snapshotFile snapshot file.
+     * @return the snapshot contents.
+     * @throws IOException if the file cannot be read, or is not a snapshot in the current format.
+     */
+    static Snapshot readSnapshot( final File snapshotFile ) throws IOException {
+        final ByteBuffer buf = ByteBuffer.wrap( Files.readAllBytes( snapshotFile.toPath() ) );
+        try {
+            if( buf.remaining() < 16 || buf.getInt() != SNAPSHOT_MAGIC || buf.getInt() != FORMAT_VERSION ) {
+                throw new IOException( "File format has changed; I need to recalculate references." );
+            }
+            final long timestamp = buf.getLong();
+            final String[] names = new String[ buf.getInt() ];
+            for( int i = 0; i < names.length; i++ ) {
+                final byte[] bytes = new byte[ buf.getInt() ];
+                buf.get( bytes );
+                names[ i ] = new String( bytes, StandardCharsets.UTF_8 );
+            }
+            final int[] refersToKeys = new int[ buf.getInt() ];
+            final int[][] refersTo = readAdjacency( buf, refersToKeys );
+            final int[] referredByKeys = new int[ buf.getInt() ];
+            final int[][] referredBy = readAdjacency( buf, referredByKeys );
+            return new Snapshot( timestamp, names, refersToKeys, refersTo, referredByKeys, referredBy );
+        } catch( final RuntimeException e ) {
+            // BufferUnderflowException, NegativeArraySizeException... the file is truncated or corrupt
+            throw new IOException( "Corrupt reference snapshot " + snapshotFile.getAbsolutePath(), e );
+        }
+    }
+
+    private static int[][] readAdjacency( final ByteBuffer buf, final int[] keys ) {
+        final int[][] adjacency = new int[ keys.length ][];
+        for( int i = 0; i < keys.length; i++ ) {
+            keys[ i ] = buf.getInt();
+            final int[] values = new int[ buf.getInt() ];
+            buf.asIntBuffer().get( values );
+            buf.position( buf.position() + values.length * Integer.BYTES );
+            adjacency[ i ] = values;
+        }
+        return adjacency;
+    }
+
+    /**
+     * Appends a page update to the journal.
+     *
+     * @param journalFile journal file.
+     * @param page page name.
+     * @param references pages it now refers to.
+     * @throws IOException if the journal cannot be written.
+     */
+    static void appendUpdate( final File journalFile, final String page, final Collection< String > references ) throws IOException {
+        try( final DataOutputStream out = openJournal( journalFile ) ) {
+            out.writeByte( RECORD_UPDATE );
+            out.writeLong( System.currentTimeMillis() );
+            writeString( out, page );
+            final List< String > refs = new ArrayList<>( references );
+            out.writeInt( refs.size() );
+            for( final String ref : refs ) {
+                writeString( out, ref );
+            }
+        }
+    }
+
+    /**
+     * Appends a page removal to the journal.
+     *
+     * @param journalFile journal file.
+     * @param page page name.
+     * @throws IOException if the journal cannot be written.
+     */
+    static void appendRemove( final File journalFile, final String page ) throws IOException {
+        try( final DataOutputStream out = openJournal( journalFile ) ) {
+            out.writeByte( RECORD_REMOVE );
+            out.writeLong( System.currentTimeMillis() );
+            writeString( out, page );
+        }
+    }
+
+    private static DataOutputStream openJournal( final File journalFile ) throws IOException {
+        if( !journalFile.exists() ) {
+            throw new IOException( "No reference journal at " + journalFile.getAbsolutePath() );
+        }
+        return new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( journalFile.toPath(), StandardOpenOption.APPEND ) ) );
+    }
+
+    /**
+     * Replays the journal written after the given snapshot.
+     *
+     * @param journalFile journal file.
+     * @param snapshot snapshot the journal must apply to.
+     * @param visitor receives the journaled changes, in order.
+     * @return the timestamp of the last replayed change, or the snapshot timestamp if there were none.
+     * @throws IOException if the journal cannot be read.
+     */
+    static long replayJournal( final File journalFile, final Snapshot snapshot, final JournalVisitor visitor ) throws IOException {
+        long lastChange = snapshot.timestamp;
+        if( !journalFile.exists() ) {
+            return lastChange;
+        }
+        try( final DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( journalFile.toPath() ) ) ) ) {
+            if( in.readInt() != JOURNAL_MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != snapshot.timestamp ) {
+                return lastChange;
+            }
+            while( true ) {
+                final int type = in.read();
+                if( type == -1 ) {
+                    break;
+                }
+                final long timestamp = in.readLong();
+                final String page = readString( in );
+                if( type == RECORD_UPDATE ) {
+                    final int count = in.readInt();
+                    final List< String > refs = new ArrayList<>( count );
+                    for( int i = 0; i < count; i++ ) {
+                        refs.add( readString( in ) );
+                    }
+                    visitor.updated( page, refs );
+                } else if( type == RECORD_REMOVE ) {
+                    visitor.removed( page );
+                } else {
+                    throw new IOException( "Unknown reference journal record " + type );
+                }
+                lastChange = timestamp;
+            }
+        } catch( final EOFException e ) {
+            // Truncated last record, probably a crash while writing it. Pages changed after lastChange are rescanned anyway.
+        }
+        return lastChange;
+    }
+
+    private static String readString( final DataInputStream in ) throws IOException {
+        final byte[] bytes = new byte[ in.readInt() ];
+        in.readFully( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+}
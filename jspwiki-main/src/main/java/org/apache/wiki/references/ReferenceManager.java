@@ -44,6 +44,9 @@ import java.util.Set;
  */
 public interface ReferenceManager extends PageFilter, InternalModule, WikiEventListener {
 
+    /** Number of threads used to read and scan pages when references are rebuilt at startup. Defaults to the number of processors. */
+    String PROP_SCAN_THREADS = "jspwiki.refManager.scanThreads";
+
     /**
      *  Initializes the entire reference manager with the initial set of pages from the collection.
      *
@@ -168,4 +171,25 @@ public interface ReferenceManager extends PageFilter, InternalModule, WikiEventL
      */
     Set< String > findCreated();
 
+    /**
+     *  Returns how long the last startup rescan of page references took, that is, reading and scanning the pages whose
+     *  references were missing or out of date, and merging the results.
+     *
+     *  @return duration in milliseconds, or -1 if unknown.
+     *  @since 2.12.3
+     */
+    default long getLastScanTime() {
+        return -1L;
+    }
+
+    /**
+     *  Returns how many pages were rescanned by the last startup rescan of page references.
+     *
+     *  @return number of pages, or -1 if unknown.
+     *  @since 2.12.3
+     */
+    default int getLastScanPages() {
+        return -1;
+    }
+
 }
@@ -0,0 +1,166 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.util.TextUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Rescans the references of many pages at once, as done by the reference managers at startup. Reading each page and extracting
+ * its links is spread over a pool of worker threads; the results are then handed back, in the order of the given pages, on the
+ * calling thread so they can be merged into the reference graph in a single pass without further locking.
+ *
+ * @since 2.12.3
+ */
+final class ReferenceScanner {
+
+    private static final Logger LOG = LogManager.getLogger( ReferenceScanner.class );
+
+    private final Engine m_engine;
+    private final ReferenceManager m_manager;
+    private final int m_threads;
+
+    private volatile long m_lastScanTime = -1L;
+    private volatile int m_lastScanPages;
+
+    /**
+     * Creates a scanner for a reference manager.
+     *
+     * @param engine the wiki engine.
+     * @param manager reference manager whose {@link ReferenceManager#scanWikiLinks(Page, String)} extracts the links.
+     */
+    ReferenceScanner( final Engine engine, final ReferenceManager manager ) {
+        m_engine = engine;
+        m_manager = manager;
+        m_threads = Math.max( 1, TextUtil.getIntegerProperty( engine.getWikiProperties(),
+                                                              ReferenceManager.PROP_SCAN_THREADS,
+                                                              Runtime.getRuntime().availableProcessors() ) );
+    }
+
+    /**
+     * Reads and scans the given pages, then hands each page with its references (links plus attachments) to the consumer.
+     *
+     * @param pages pages to scan; attachments should be left out, as their references cannot be scanned.
+     * @param merge receives each page and its references, on the calling thread.
+     * @throws ProviderException if a page cannot be read, or the scan is interrupted.
+     */
+    void scan( final Collection< Page > pages, final BiConsumer< Page, Collection< String > > merge ) throws ProviderException {
+        if( pages.isEmpty() ) {
+            m_lastScanPages = 0;
+            m_lastScanTime = 0L;
+            return;
+        }
+
+        final StopWatch sw = new StopWatch();
+        sw.start();
+        final int threads = Math.min( m_threads, pages.size() );
+        final ExecutorService pool = Executors.newFixedThreadPool( threads, r -> {
+            final Thread t = new Thread( r, "JSPWiki Reference Scanner" );
+            t.setDaemon( true );
+            return t;
+        } );
+        final List< Future< Collection< String > > > results = new ArrayList<>( pages.size() );
+        try {
+            for( final Page page : pages ) {
+                results.add( pool.submit( () -> references( page ) ) );
+            }
+            for( final Future< Collection< String > > result : results ) {
+                result.get();
+            }
+        } catch( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ProviderException( "Interrupted while scanning page references" );
+        } catch( final ExecutionException e ) {
+            if( e.getCause() instanceof ProviderException ) {
+                throw ( ProviderException )e.getCause();
+            }
+            if( e.getCause() instanceof RuntimeException ) {
+                throw ( RuntimeException )e.getCause();
+            }
+            throw new ProviderException( "Unable to scan page references: " + e.getCause() );
+        } finally {
+            pool.shutdownNow();
+        }
+        final long scanned = sw.getTime();
+
+        int i = 0;
+        for( final Page page : pages ) {
+            try {
+                merge.accept( page, results.get( i++ ).get() );
+            } catch( final InterruptedException | ExecutionException e ) {
+                throw new IllegalStateException( "Completed scan result unavailable", e ); // all futures are already done
+            }
+        }
+        sw.stop();
+
+        m_lastScanPages = pages.size();
+        m_lastScanTime = sw.getTime();
+        LOG.info( "Scanned references of {} pages using {} threads in {} ms (reading and parsing {} ms, merging {} ms)",
+                  pages.size(), threads, m_lastScanTime, scanned, m_lastScanTime - scanned );
+    }
+
+    private Collection< String > references( final Page page ) throws ProviderException {
+        final String content = m_engine.getManager( PageManager.class ).getPageText( page.getName(), PageProvider.LATEST_VERSION );
+        final TreeSet< String > res = new TreeSet<>( m_manager.scanWikiLinks( page, content ) );
+        final List< Attachment > attachments = m_engine.getManager( AttachmentManager.class ).listAttachments( page );
+        for( final Attachment att : attachments ) {
+            res.add( att.getName() );
+        }
+        return res;
+    }
+
+    /**
+     * Returns how long the last scan took, including merging its results.
+     *
+     * @return duration in milliseconds, or -1 if no scan ran yet.
+     */
+    long getLastScanTime() {
+        return m_lastScanTime;
+    }
+
+    /**
+     * Returns the number of pages processed by the last scan.
+     *
+     * @return number of pages.
+     */
+    int getLastScanPages() {
+        return m_lastScanPages;
+    }
+
+}
@@ -30,20 +30,22 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.FilterException;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.exceptions.WikiException;
-import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.cache.CacheInfo;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.content.PageRenamer;
 import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventListener;
 import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.event.WikiPageRenameEvent;
 import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.JSPWikiMarkupParser;
+import org.apache.wiki.parser.LinkParsingOperations;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
-import org.apache.wiki.references.ReferenceManager;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.TextUtil;
 import org.apache.wiki.variables.VariableManager;
@@ -51,7 +53,8 @@ import org.apache.wiki.variables.VariableManager;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Constructor;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 
@@ -61,7 +64,8 @@ import java.util.Properties;
  *  instead of the ones in Engine, if you don't want the different side effects to occur - such as WikiFilters.
  *  <p>
  *  This class also delegates to a rendering cache, i.e. documents are stored between calls. You may control the cache by
- *  tweaking the ehcache configuration file.
+ *  tweaking the ehcache configuration file. Saving, deleting or renaming a page only flushes the cached documents whose rendering
+ *  may change because of it, see {@link DocumentDependencies}.
  *  <p>
  *
  *  @since  2.4
@@ -79,6 +83,7 @@ public class DefaultRenderingManager implements RenderingManager {
 
     private Engine m_engine;
     private CachingManager cachingManager;
+    private DocumentDependencies m_dependencies;
 
     /** If true, all titles will be cleaned. */
     private boolean m_beautifyTitle;
@@ -97,6 +102,7 @@ public class DefaultRenderingManager implements RenderingManager {
     public void initialize( final Engine engine, final Properties properties ) throws WikiException {
         m_engine = engine;
         cachingManager = m_engine.getManager( CachingManager.class );
+        m_dependencies = new DocumentDependencies( cachingManager );
         m_markupParserClass = properties.getProperty( PROP_PARSER, DEFAULT_PARSER );
         if( !ClassUtil.assignable( m_markupParserClass, MarkupParser.class.getName() ) ) {
         	LOG.warn( "{} does not subclass {} reverting to default markup parser.", m_markupParserClass, MarkupParser.class.getName() );
@@ -115,6 +121,8 @@ public class DefaultRenderingManager implements RenderingManager {
         LOG.info( "Rendering content with {}.", renderImplName );
 
         WikiEventManager.addWikiEventListener( m_engine.getManager( FilterManager.class ),this );
+        WikiEventManager.addWikiEventListener( m_engine.getManager( PageManager.class ),this );
+        WikiEventManager.addWikiEventListener( m_engine.getManager( PageRenamer.class ),this );
     }
 
     private Constructor< ? > initRenderer( final String renderImplName, final Class< ? >[] rendererParams ) throws WikiException {
@@ -186,7 +194,6 @@ public class DefaultRenderingManager implements RenderingManager {
      *  {@inheritDoc}
      */
     @Override
-    // FIXME: The cache management policy is not very good: deleted/changed pages should be detected better.
     public WikiDocument getRenderedDocument( final Context context, final String pagedata ) {
         final String pageid = context.getRealPage().getName() + VERSION_DELIMITER +
                               context.getRealPage().getVersion() + VERSION_DELIMITER +
@@ -207,21 +214,40 @@ public class DefaultRenderingManager implements RenderingManager {
         }
 
         // Refresh the data content
+        final boolean useCache = useCache( context );
+        final long stamp = m_dependencies.stamp();
+        final Map< String, String > lookups = new HashMap<>();
         try {
+            if( useCache ) {
+                context.setVariable( LinkParsingOperations.VAR_PAGE_LOOKUPS, lookups );
+            }
             final MarkupParser parser = getParser( context, pagedata );
             final WikiDocument doc = parser.parse();
             doc.setPageData( pagedata );
-            if( useCache( context ) ) {
-                cachingManager.put( CachingManager.CACHE_DOCUMENTS, pageid, doc );
+            if( useCache ) {
+                m_dependencies.store( context.getRealPage().getName(), pageid, doc, lookups, stamp );
+                sweepDependencies();
             }
             return doc;
         } catch( final IOException ex ) {
             LOG.error( "Unable to parse", ex );
+        } finally {
+            if( useCache ) {
+                context.setVariable( LinkParsingOperations.VAR_PAGE_LOOKUPS, null );
+            }
         }
 
         return null;
     }
 
+    /** Forgets the dependencies of the documents evicted from the cache, once there are twice as many as the cache can hold. */
+    private void sweepDependencies() {
+        final CacheInfo info = cachingManager.info( CachingManager.CACHE_DOCUMENTS );
+        if( info != null && m_dependencies.size() > 2 * info.getMaxElementsAllowed() ) {
+            m_dependencies.retain( cachingManager.keys( CachingManager.CACHE_DOCUMENTS ) );
+        }
+    }
+
     boolean useCache( final Context context ) {
         return cachingManager.enabled( CachingManager.CACHE_DOCUMENTS )
                && ContextEnum.PAGE_VIEW.getRequestContext().equals( context.getRequestContext() );
@@ -391,36 +417,29 @@ public class DefaultRenderingManager implements RenderingManager {
     /**
      * {@inheritDoc}
      *
-     * <p>Flushes the document cache in response to a POST_SAVE_BEGIN event.
+     * <p>Flushes the cached documents which may be affected by a page being saved (POST_SAVE_BEGIN event), deleted (PAGE_DELETED
+     * event) or renamed.
      *
      * @see WikiEventListener#actionPerformed(WikiEvent)
      */
     @Override
     public void actionPerformed( final WikiEvent event ) {
         LOG.debug( "event received: {}", event.toString() );
-        if( isBeginningAWikiPagePostSaveEventAndDocumentCacheIsEnabled( event ) ) {
-            final String pageName = ( ( WikiPageEvent ) event ).getPageName();
-            cachingManager.remove( CachingManager.CACHE_DOCUMENTS, pageName );
-            final Collection< String > referringPages = m_engine.getManager( ReferenceManager.class ).findReferrers( pageName );
-
-            // Flush also those pages that refer to this page (if a nonexistent page
-            // appears, we need to flush the HTML that refers to the now-existent page)
-            if( referringPages != null ) {
-                for( final String page : referringPages ) {
-                    LOG.debug( "Flushing latest version of {}", page );
-                    // as there is a new version of the page expire both plugin and pluginless versions of the old page
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + Boolean.FALSE );
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + Boolean.TRUE );
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + null );
-                }
-            }
+        if( !( event instanceof WikiPageEvent ) || !cachingManager.enabled( CachingManager.CACHE_DOCUMENTS ) ) {
+            return;
+        }
+        if( event instanceof WikiPageRenameEvent ) {
+            final WikiPageRenameEvent rename = ( WikiPageRenameEvent )event;
+            LOG.debug( "Flushing documents affected by {} being renamed to {}", rename.getOldPageName(), rename.getNewPageName() );
+            m_dependencies.pageDeleted( rename.getOldPageName() );
+            m_dependencies.pageSaved( rename.getNewPageName() );
+        } else if( event.getType() == WikiPageEvent.POST_SAVE_BEGIN ) {
+            LOG.debug( "Flushing documents affected by {} being saved", ( ( WikiPageEvent )event ).getPageName() );
+            m_dependencies.pageSaved( ( ( WikiPageEvent )event ).getPageName() );
+        } else if( event.getType() == WikiPageEvent.PAGE_DELETED ) {
+            LOG.debug( "Flushing documents affected by {} being deleted", ( ( WikiPageEvent )event ).getPageName() );
+            m_dependencies.pageDeleted( ( ( WikiPageEvent )event ).getPageName() );
         }
-    }
-
-    boolean isBeginningAWikiPagePostSaveEventAndDocumentCacheIsEnabled( final WikiEvent event ) {
-        return event instanceof WikiPageEvent
-               && event.getType() == WikiPageEvent.POST_SAVE_BEGIN
-               && cachingManager.enabled( CachingManager.CACHE_DOCUMENTS );
     }
 
 }
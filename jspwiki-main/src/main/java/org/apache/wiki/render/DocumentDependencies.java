@@ -0,0 +1,215 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.render;
+
+import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.parser.MarkupParser;
+import org.apache.wiki.parser.WikiDocument;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ *  Keeps track of what the cached documents depend on, so that saving or deleting a page only flushes the documents whose
+ *  rendering may change because of it.
+ *  <p>
+ *  The rendering of a document depends on its page text, which is checked each time it is taken from the cache, and on whether
+ *  the pages it links to exist, which is decided once, while parsing. Plugins and variables don't count, as they're only run
+ *  when the document is rendered. So, for each cached document, this class records the page names looked up while parsing it,
+ *  and the page each one of them led to. A page name is looked up by trying the name itself, its singular or plural form, and
+ *  the same on its wikified form; the document is indexed by all of these, case insensitively, as creating or deleting any of
+ *  them may change the outcome.
+ *  <p>
+ *  Saving a page flushes its own documents and those with a lookup which may now find it, but not those which already found it.
+ *  Deleting a page flushes its own documents and those with a lookup which found it.
+ *
+ *  @since 2.12.3
+ */
+final class DocumentDependencies {
+
+    private final CachingManager m_cachingManager;
+
+    /** Cache keys of the documents of each page. */
+    private final Map< String, Set< String > > m_documents = new HashMap<>();
+
+    /** What each document depends on, by cache key. */
+    private final Map< String, Dependencies > m_dependencies = new HashMap<>();
+
+    /** Cache keys of the documents which looked up each page name. */
+    private final Map< String, Set< String > > m_dependents = new HashMap<>();
+
+    /** Number of pages saved or deleted so far. */
+    private long m_changes;
+
+    DocumentDependencies( final CachingManager cachingManager ) {
+        m_cachingManager = cachingManager;
+    }
+
+    /**
+     *  Returns a stamp to be given back to {@link #store(String, String, WikiDocument, Map, long)}, so that documents parsed while
+     *  pages were being changed don't get cached.
+     *
+     *  @return current number of changes.
+     */
+    synchronized long stamp() {
+        return m_changes;
+    }
+
+    /**
+     *  Caches a document, unless pages have been changed since it started being parsed.
+     *
+     *  @param page name of the page of the document.
+     *  @param key the document's cache key.
+     *  @param doc the document.
+     *  @param lookups page names looked up while parsing the document, and the page they led to.
+     *  @param stamp value of {@link #stamp()} before parsing the document.
+     */
+    synchronized void store( final String page, final String key, final WikiDocument doc, final Map< String, String > lookups, final long stamp ) {
+        forget( key );
+        if( stamp != m_changes ) {
+            m_cachingManager.remove( CachingManager.CACHE_DOCUMENTS, key );
+            return;
+        }
+        final Dependencies dependencies = new Dependencies( page, lookups );
+        m_dependencies.put( key, dependencies );
+        m_documents.computeIfAbsent( page, p -> new HashSet<>() ).add( key );
+        for( final String probe : dependencies.m_found.keySet() ) {
+            m_dependents.computeIfAbsent( probe, p -> new HashSet<>() ).add( key );
+        }
+        m_cachingManager.put( CachingManager.CACHE_DOCUMENTS, key, doc );
+    }
+
+    /**
+     *  Flushes the documents which may render differently now that a page has been saved.
+     *
+     *  @param page name of the page.
+     */
+    synchronized void pageSaved( final String page ) {
+        flush( page, false );
+    }
+
+    /**
+     *  Flushes the documents which may render differently now that a page has been deleted.
+     *
+     *  @param page name of the page.
+     */
+    synchronized void pageDeleted( final String page ) {
+        flush( page, true );
+    }
+
+    /**
+     *  Forgets the documents which are no longer cached.
+     *
+     *  @param cached cache keys of the documents still cached.
+     */
+    synchronized void retain( final Collection< ? > cached ) {
+        final Set< ? > keys = new HashSet<>( cached );
+        for( final String key : new ArrayList<>( m_dependencies.keySet() ) ) {
+            if( !keys.contains( key ) ) {
+                forget( key );
+            }
+        }
+    }
+
+    /**
+     *  Returns the number of documents tracked.
+     *
+     *  @return number of documents tracked.
+     */
+    synchronized int size() {
+        return m_dependencies.size();
+    }
+
+    private void flush( final String page, final boolean deleted ) {
+        m_changes++;
+        final Set< String > flushed = new HashSet<>( m_documents.getOrDefault( page, Set.of() ) );
+        final String probe = page.toLowerCase( Locale.ROOT );
+        for( final String key : m_dependents.getOrDefault( probe, Set.of() ) ) {
+            if( m_dependencies.get( key ).mayChange( probe, page, deleted ) ) {
+                flushed.add( key );
+            }
+        }
+        for( final String key : flushed ) {
+            forget( key );
+            m_cachingManager.remove( CachingManager.CACHE_DOCUMENTS, key );
+        }
+    }
+
+    private void forget( final String key ) {
+        final Dependencies dependencies = m_dependencies.remove( key );
+        if( dependencies == null ) {
+            return;
+        }
+        for( final String probe : dependencies.m_found.keySet() ) {
+            remove( m_dependents, probe, key );
+        }
+        remove( m_documents, dependencies.m_page, key );
+    }
+
+    private static void remove( final Map< String, Set< String > > index, final String name, final String key ) {
+        final Set< String > keys = index.get( name );
+        if( keys != null && keys.remove( key ) && keys.isEmpty() ) {
+            index.remove( name );
+        }
+    }
+
+    /** The page names tried when looking up a page name, as in {@code CommandResolver.getFinalPageName( String )}. */
+    static Set< String > probes( final String name ) {
+        final Set< String > probes = new HashSet<>();
+        for( final String candidate : new String[] { name, MarkupParser.wikifyLink( name ) } ) {
+            final String lower = candidate.toLowerCase( Locale.ROOT );
+            probes.add( lower );
+            probes.add( lower.endsWith( "s" ) ? lower.substring( 0, lower.length() - 1 ) : lower + "s" );
+        }
+        return probes;
+    }
+
+    /** The page of a document, and the pages found by each page name tried while parsing it. */
+    private static final class Dependencies {
+
+        private final String m_page;
+        private final Map< String, String > m_found = new HashMap<>();
+        private final Set< String > m_ambiguous = new HashSet<>();
+
+        Dependencies( final String page, final Map< String, String > lookups ) {
+            m_page = page;
+            for( final Map.Entry< String, String > lookup : lookups.entrySet() ) {
+                for( final String probe : probes( lookup.getKey() ) ) {
+                    final String previous = m_found.put( probe, lookup.getValue() );
+                    if( previous != null && !previous.equals( lookup.getValue() ) ) {
+                        m_ambiguous.add( probe ); // different lookups trying this name found different pages
+                    }
+                }
+            }
+        }
+
+        /** Tells whether the lookups trying a page name may find something else now that the page has been saved or deleted. */
+        boolean mayChange( final String probe, final String page, final boolean deleted ) {
+            return m_ambiguous.contains( probe ) || m_found.get( probe ).equalsIgnoreCase( page ) == deleted;
+        }
+
+    }
+
+}
@@ -28,9 +28,17 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.core.Session;
 import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.attachment.AttachmentManager;
 import org.apache.wiki.auth.AuthorizationManager;
 import org.apache.wiki.auth.permissions.PagePermission;
+import org.apache.wiki.content.PageRenamer;
 import org.apache.wiki.diff.DifferenceManager;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.event.WikiPageRenameEvent;
+import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.pages.PageTimeComparator;
 import org.apache.wiki.render.RenderingManager;
@@ -38,20 +46,34 @@ import org.apache.wiki.util.TextUtil;
 import org.apache.wiki.variables.VariableManager;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * Default implementation for {@link RSSGenerator}.
  *
  * {@inheritDoc}
+ * <p>
+ * The entries of the full wiki feed are kept between generations. Page and attachment changes are learnt from the events
+ * fired by the FilterManager, PageManager, AttachmentManager and PageRenamer, and only the entries of the pages changed
+ * since the last generation are built again. Deleting or renaming a page which is on the feed makes the feed start afresh
+ * from the recent changes.
  */
 // FIXME: Limit diff and page content size.
-public class DefaultRSSGenerator implements RSSGenerator {
+public class DefaultRSSGenerator implements RSSGenerator, WikiEventListener {
 
     private static final Logger LOG = LogManager.getLogger( DefaultRSSGenerator.class );
     private final Engine m_engine;
@@ -64,6 +86,21 @@ public class DefaultRSSGenerator implements RSSGenerator {
 
     private static final int MAX_CHARACTERS = Integer.MAX_VALUE-1;
 
+    /** Number of entries on the full wiki feed. */
+    private static final int FEED_ITEMS = 15;
+
+    /** Entries of the full wiki feed by page name, oldest first. Guarded by itself. */
+    private final LinkedHashMap< String, Entry > m_recent = new LinkedHashMap<>();
+
+    /** Pages changed since the entries of the full wiki feed were last brought up to date. */
+    private final Set< String > m_pending = ConcurrentHashMap.newKeySet();
+
+    /** Set when the entries of the full wiki feed have to be taken again from the recent changes. */
+    private volatile boolean m_reseed = true;
+
+    /** Set when the full wiki feed has changed since {@link #generate()} was last called. */
+    private volatile boolean m_outdated = true;
+
     /**
      *  Builds the RSS generator for a given Engine.
      *
@@ -91,6 +128,10 @@ public class DefaultRSSGenerator implements RSSGenerator {
             rssFile = new File( engine.getRootPath(), m_rssFile );
         }
         final int rssInterval = TextUtil.getIntegerProperty( properties, DefaultRSSGenerator.PROP_INTERVAL, 3600 );
+        WikiEventManager.addWikiEventListener( engine.getManager( FilterManager.class ), this );
+        WikiEventManager.addWikiEventListener( engine.getManager( PageManager.class ), this );
+        WikiEventManager.addWikiEventListener( engine.getManager( AttachmentManager.class ), this );
+        WikiEventManager.addWikiEventListener( engine.getManager( PageRenamer.class ), this );
         final RSSThread rssThread = new RSSThread( engine, rssFile, rssInterval );
         rssThread.start();
     }
@@ -163,10 +204,49 @@ public class DefaultRSSGenerator implements RSSGenerator {
     /** {@inheritDoc} */
     @Override
     public String generate() {
+        final StringWriter out = new StringWriter();
+        try {
+            generate( out );
+        } catch( final IOException e ) {
+            throw new IllegalStateException( e ); // can't happen on a StringWriter
+        }
+        return out.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void generate( final Writer out ) throws IOException {
+        m_outdated = false;
         final Context context = Wiki.context().create( m_engine, Wiki.contents().page( m_engine, "__DUMMY" ) );
         context.setRequestContext( ContextEnum.PAGE_RSS.getRequestContext() );
         final Feed feed = new RSS10Feed( context );
-        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + generateFullWikiRSS( context, feed );
+        fillFullWikiFeed( feed );
+        out.write( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        feed.write( out );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isOutdated() {
+        return m_outdated;
+    }
+
+    /**
+     * Keeps track of the pages and attachments changed, for the full wiki feed.
+     *
+     * @param event the event fired on a page or attachment change.
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiPageRenameEvent ) {
+            m_reseed = true;
+        } else if( event instanceof WikiPageEvent
+                   && ( event.getType() == WikiPageEvent.POST_SAVE_END || event.getType() == WikiPageEvent.PAGE_DELETED ) ) {
+            m_pending.add( ( ( WikiPageEvent )event ).getPageName() );
+        } else {
+            return;
+        }
+        m_outdated = true;
     }
 
     /** {@inheritDoc} */
@@ -219,42 +299,90 @@ public class DefaultRSSGenerator implements RSSGenerator {
     /** {@inheritDoc} */
     @Override
     public String generateFullWikiRSS( final Context wikiContext, final Feed feed ) {
+        fillFullWikiFeed( feed );
+        return feed.getString();
+    }
+
+    private void fillFullWikiFeed( final Feed feed ) {
         feed.setChannelTitle( m_engine.getApplicationName() );
         feed.setFeedURL( m_engine.getBaseURL() );
         feed.setChannelLanguage( m_channelLanguage );
         feed.setChannelDescription( m_channelDescription );
 
-        final Set< Page > changed = m_engine.getManager( PageManager.class ).getRecentChanges();
-
         final Session session = Wiki.session().guest( m_engine );
-        int items = 0;
-        for( final Iterator< Page > i = changed.iterator(); i.hasNext() && items < 15; items++ ) {
-            final Page page = i.next();
-
+        for( final Entry e : getRecentEntries() ) {
             //  Check if the anonymous user has view access to this page.
-            if( !m_engine.getManager( AuthorizationManager.class ).checkPermission(session, new PagePermission(page,PagePermission.VIEW_ACTION) ) ) {
-                // No permission, skip to the next one.
-                continue;
+            if( m_engine.getManager( AuthorizationManager.class ).checkPermission( session, new PagePermission( e.getPage(), PagePermission.VIEW_ACTION ) ) ) {
+                feed.addEntry( e );
             }
+        }
+    }
 
-            final String url;
-            if( page instanceof Attachment ) {
-                url = m_engine.getURL( ContextEnum.PAGE_ATTACH.getRequestContext(), page.getName(),null );
-            } else {
-                url = m_engine.getURL( ContextEnum.PAGE_VIEW.getRequestContext(), page.getName(), null );
+    /**
+     * Brings the entries of the full wiki feed up to date with the changes made since last call, and returns them.
+     *
+     * @return the entries of the full wiki feed, newest first.
+     */
+    private List< Entry > getRecentEntries() {
+        synchronized( m_recent ) {
+            List< Page > changed = new ArrayList<>();
+            for( final Iterator< String > i = m_pending.iterator(); i.hasNext(); ) {
+                final String name = i.next();
+                i.remove();
+                final Page page = m_engine.getManager( PageManager.class ).getPage( name ); // attachments too
+                if( page != null && page.getLastModified() != null ) {
+                    changed.add( page );
+                } else if( m_recent.remove( name ) != null ) {
+                    m_reseed = true; // the page which should take its place on the feed isn't known
+                }
             }
 
-            final Entry e = new Entry();
-            e.setPage( page );
-            e.setURL( url );
-            e.setTitle( page.getName() );
-            e.setContent( getEntryDescription(page) );
-            e.setAuthor( getAuthor(page) );
+            Map< String, Entry > previous = m_recent;
+            if( m_reseed ) {
+                m_reseed = false;
+                changed = new ArrayList<>( m_engine.getManager( PageManager.class ).getRecentChanges( null, null, FEED_ITEMS ) );
+                previous = new HashMap<>( m_recent );
+                m_recent.clear();
+            }
 
-            feed.addEntry( e );
+            changed.sort( new PageTimeComparator() );
+            for( int i = changed.size() - 1; i >= 0; i-- ) { // oldest first, so the newest end up last
+                final Page page = changed.get( i );
+                final Entry known = previous.remove( page.getName() );
+                m_recent.put( page.getName(), isCurrent( known, page ) ? known : createEntry( page ) );
+            }
+            for( final Iterator< String > i = m_recent.keySet().iterator(); m_recent.size() > FEED_ITEMS && i.hasNext(); ) {
+                i.next();
+                i.remove();
+            }
+
+            final List< Entry > entries = new ArrayList<>( m_recent.values() );
+            Collections.reverse( entries );
+            return entries;
+        }
+    }
+
+    private static boolean isCurrent( final Entry entry, final Page page ) {
+        return entry != null
+               && entry.getPage().getVersion() == page.getVersion()
+               && Objects.equals( entry.getPage().getLastModified(), page.getLastModified() );
+    }
+
+    private Entry createEntry( final Page page ) {
+        final String url;
+        if( page instanceof Attachment ) {
+            url = m_engine.getURL( ContextEnum.PAGE_ATTACH.getRequestContext(), page.getName(),null );
+        } else {
+            url = m_engine.getURL( ContextEnum.PAGE_VIEW.getRequestContext(), page.getName(), null );
         }
 
-        return feed.getString();
+        final Entry e = new Entry();
+        e.setPage( page );
+        e.setURL( url );
+        e.setTitle( page.getName() );
+        e.setContent( getEntryDescription(page) );
+        e.setAuthor( getAuthor(page) );
+        return e;
     }
 
     /** {@inheritDoc} */
@@ -25,6 +25,8 @@ import org.apache.wiki.api.exceptions.NoSuchVariableException;
 import org.apache.wiki.variables.VariableManager;
 
 import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -112,6 +114,18 @@ public abstract class Feed {
      */
     public abstract String getString();
 
+    /**
+     * Writes the XML for the feed contents. By default, writes the result of {@link #getString()}; subclasses may write the
+     * XML as it's produced instead.
+     *
+     * @param out where to write the XML to.
+     * @throws IOException if the XML can't be written.
+     * @since 2.12.3
+     */
+    public void write( final Writer out ) throws IOException {
+        out.write( getString() );
+    }
+
     /**
      * @return Returns the m_channelDescription.
      */
@@ -25,7 +25,11 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.util.XhtmlUtil;
 import org.jdom2.Element;
 import org.jdom2.Namespace;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
@@ -162,6 +166,18 @@ public class RSS10Feed extends Feed {
      */
     @Override
     public String getString() {
+        return XhtmlUtil.serialize( getRootElement(), true );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final Writer out ) throws IOException {
+        new XMLOutputter( Format.getPrettyFormat() ).output( getRootElement(), out );
+    }
+
+    private Element getRootElement() {
         final Element root = new Element( "RDF", NS_RDF );
         root.addContent( getChannelElement() );
         root.addNamespaceDeclaration( NS_XMNLS );
@@ -170,7 +186,7 @@ public class RSS10Feed extends Feed {
         root.addNamespaceDeclaration( NS_WIKI );
         addItemList( root );
 
-        return XhtmlUtil.serialize( root, true );
+        return root;
     }
 
 }
@@ -23,6 +23,8 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.engine.Initializable;
 import org.apache.wiki.util.TextUtil;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -110,6 +112,28 @@ public interface RSSGenerator extends Initializable {
      */
     String generate();
 
+    /**
+     *  Writes the RSS resource returned by {@link #generate()}, so it doesn't need to be held in memory as a whole.
+     *
+     *  @param out where to write the feed to.
+     *  @throws IOException if the feed can't be written.
+     *  @since 2.12.3
+     */
+    default void generate( final Writer out ) throws IOException {
+        out.write( generate() );
+    }
+
+    /**
+     *  Tells whether the wiki changed since the RSS resource was last generated, so that it needs to be generated again.
+     *  Implementations which can't tell always say so.
+     *
+     *  @return {@code true} if {@link #generate()} may return a different feed than last time.
+     *  @since 2.12.3
+     */
+    default boolean isOutdated() {
+        return true;
+    }
+
     /**
      * Generates a feed based on a context and list of changes.
      *
@@ -23,21 +23,25 @@ import org.apache.logging.log4j.Logger;
 import org.apache.wiki.WatchDog;
 import org.apache.wiki.WikiBackgroundThread;
 import org.apache.wiki.api.core.Engine;
-import org.apache.wiki.util.FileUtil;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.StringReader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 
 /**
  *  Runs the RSS generation thread.
+ *  <p>
+ *  The feed is only generated again when the generator tells that the wiki has changed since the last time. It's written
+ *  to a temporary file next to the RSS file, which then takes the place of the RSS file, so readers never see a feed
+ *  being written.
  *  FIXME: MUST be somewhere else, this is not a good place.
  */
 public class RSSThread extends WikiBackgroundThread {
@@ -81,17 +85,25 @@ public class RSSThread extends WikiBackgroundThread {
      */
     @Override
     public void backgroundTask() throws Exception {
-        if( m_generator.isEnabled() ) {
+        if( m_generator.isEnabled() && m_generator.isOutdated() ) {
             m_watchdog.enterState( "Generating RSS feed", 60 );
-            final String feed = m_generator.generate();
             LOG.debug( "Regenerating RSS feed to " + m_rssFile );
 
             // Generate RSS file, output it to default "rss.rdf".
-            try( final Reader in  = new StringReader( feed );
-                final Writer out = new BufferedWriter( new OutputStreamWriter( Files.newOutputStream( m_rssFile.toPath() ), StandardCharsets.UTF_8 ) ) ) {
-                FileUtil.copyContents( in, out );
+            final Path rss = m_rssFile.toPath();
+            final Path tmp = rss.resolveSibling( rss.getFileName() + ".tmp" );
+            try {
+                try( final Writer out = new BufferedWriter( new OutputStreamWriter( Files.newOutputStream( tmp ), StandardCharsets.UTF_8 ) ) ) {
+                    m_generator.generate( out );
+                }
+                try {
+                    Files.move( tmp, rss, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+                } catch( final AtomicMoveNotSupportedException e ) {
+                    Files.move( tmp, rss, StandardCopyOption.REPLACE_EXISTING );
+                }
             } catch( final IOException e ) {
                 LOG.error( "Cannot generate RSS feed to " + m_rssFile.getAbsolutePath(), e );
+                tmp.toFile().delete();
                 m_generator.setEnabled( false );
             } finally {
                 m_watchdog.exitState();
@@ -0,0 +1,167 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.api.providers.WikiProvider;
+import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.ui.progress.ProgressItem;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Builds a Lucene index from scratch. Page text and attachment content are read and turned into {@link Document}s on a
+ * bounded pool of worker threads, while the calling thread hands the resulting documents to a single {@link IndexWriter}
+ * in batches. The number of documents being built at any given time is bounded, so memory usage does not grow with the
+ * size of the wiki.
+ * <p>
+ * Instances are also {@link ProgressItem}s, so a running reindex can be tracked through the
+ * {@link org.apache.wiki.ui.progress.ProgressManager}.
+ *
+ * @since 2.12.3
+ */
+final class LuceneReindexer extends ProgressItem {
+
+    private static final Logger LOG = LogManager.getLogger( LuceneReindexer.class );
+
+    private final LuceneSearchProvider m_provider;
+    private final int m_threads;
+    private final int m_batchSize;
+    private final AtomicInteger m_processed = new AtomicInteger();
+    private volatile int m_total;
+
+    LuceneReindexer( final LuceneSearchProvider provider, final int threads, final int batchSize ) {
+        m_provider = provider;
+        m_threads = threads;
+        m_batchSize = batchSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getProgress() {
+        final int total = m_total;
+        return total == 0 ? 0 : 100 * m_processed.get() / total;
+    }
+
+    /**
+     * Indexes the given pages and attachments.
+     *
+     * @param pages pages to index.
+     * @param attachments attachments to index.
+     * @param writer IndexWriter receiving the documents.
+     * @return the number of documents added to the index.
+     * @throws IOException if the index cannot be written, or if the reindex is interrupted.
+     * @throws ProviderException if page text cannot be read from the repository.
+     */
+    int reindex( final Collection< Page > pages, final Collection< Attachment > attachments, final IndexWriter writer ) throws IOException, ProviderException {
+        final List< Page > items = new ArrayList<>( pages.size() + attachments.size() );
+        items.addAll( pages );
+        items.addAll( attachments );
+        m_total = items.size();
+        LOG.info( "Reindexing {} pages and {} attachments using {} threads", pages.size(), attachments.size(), m_threads );
+
+        final ExecutorService pool = Executors.newFixedThreadPool( m_threads, r -> {
+            final Thread t = new Thread( r, "JSPWiki Lucene Reindexer" );
+            t.setDaemon( true );
+            return t;
+        } );
+        final CompletionService< Document > completion = new ExecutorCompletionService<>( pool );
+        final List< Document > batch = new ArrayList<>( m_batchSize );
+        final int maxInFlight = m_threads * m_batchSize;
+        int inFlight = 0;
+        int indexed = 0;
+        try {
+            for( final Page item : items ) {
+                completion.submit( () -> buildDocument( item ) );
+                inFlight++;
+                if( inFlight >= maxInFlight ) {
+                    indexed += collect( completion.take(), batch, writer );
+                    inFlight--;
+                }
+            }
+            while( inFlight > 0 ) {
+                indexed += collect( completion.take(), batch, writer );
+                inFlight--;
+            }
+            indexed += flush( batch, writer );
+        } catch( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while reindexing" );
+        } finally {
+            pool.shutdownNow();
+        }
+        LOG.info( "Indexed {} documents", indexed );
+        return indexed;
+    }
+
+    private Document buildDocument( final Page page ) throws ProviderException {
+        final String text;
+        if( page instanceof Attachment ) {
+            text = m_provider.getAttachmentContent( page.getName(), WikiProvider.LATEST_VERSION );
+        } else {
+            text = m_provider.getEngine().getManager( PageManager.class ).getPageText( page.getName(), WikiProvider.LATEST_VERSION );
+        }
+        LOG.debug( "Indexing {}...", page.getName() );
+        return m_provider.luceneDocument( page, text );
+    }
+
+    private int collect( final Future< Document > future, final List< Document > batch, final IndexWriter writer ) throws InterruptedException, IOException, ProviderException {
+        m_processed.incrementAndGet();
+        try {
+            final Document doc = future.get();
+            if( doc != null ) {
+                batch.add( doc );
+            }
+        } catch( final ExecutionException e ) {
+            if( e.getCause() instanceof ProviderException ) {
+                throw ( ProviderException )e.getCause();
+            }
+            LOG.warn( "Unable to index document, continuing to next", e.getCause() );
+        }
+        return batch.size() >= m_batchSize ? flush( batch, writer ) : 0;
+    }
+
+    private int flush( final List< Document > batch, final IndexWriter writer ) throws IOException {
+        final int size = batch.size();
+        if( size > 0 ) {
+            writer.addDocuments( batch );
+            batch.clear();
+        }
+        return size;
+    }
+
+}
@@ -40,6 +40,8 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.highlight.Highlighter;
 import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
@@ -58,13 +60,12 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.NoRequiredPropertyException;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.providers.PageProvider;
-import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.search.SearchResult;
-import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
 import org.apache.wiki.auth.AuthorizationManager;
 import org.apache.wiki.auth.permissions.PagePermission;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.ui.progress.ProgressManager;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.FileUtil;
 import org.apache.wiki.util.TextUtil;
@@ -78,7 +79,6 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -106,6 +106,25 @@ public class LuceneSearchProvider implements SearchProvider {
     private static final String PROP_LUCENE_INDEXDELAY   = "jspwiki.lucene.indexdelay";
     private static final String PROP_LUCENE_INITIALDELAY = "jspwiki.lucene.initialdelay";
 
+    /** Keep a single IndexWriter open for the lifetime of the provider, and search through a near-real-time SearcherManager. Default is false. */
+    public static final String PROP_LUCENE_SHARED_WRITER = "jspwiki.lucene.sharedWriter";
+
+    /** Seconds between commits of the shared IndexWriter. Only used if {@link #PROP_LUCENE_SHARED_WRITER} is enabled. Default is 30. */
+    public static final String PROP_LUCENE_COMMIT_INTERVAL = "jspwiki.lucene.commitInterval";
+
+    private static final int DEFAULT_COMMIT_INTERVAL = 30;
+
+    /** Number of worker threads used to read and analyze pages during a full reindex. Default is the number of available processors. */
+    public static final String PROP_LUCENE_REINDEX_THREADS = "jspwiki.lucene.reindexThreads";
+
+    /** Number of documents handed to the IndexWriter at once during a full reindex. Default is 100. */
+    public static final String PROP_LUCENE_REINDEX_BATCH_SIZE = "jspwiki.lucene.reindexBatchSize";
+
+    private static final int DEFAULT_REINDEX_BATCH_SIZE = 100;
+
+    /** Progress identifier under which a running full reindex is registered with the {@link org.apache.wiki.ui.progress.ProgressManager}. */
+    public static final String PROGRESS_ID = "lucenesearchprovider.reindexer";
+
     private String m_analyzerClass = ClassicAnalyzer.class.getName();
 
     private static final String LUCENE_DIR = "lucene";
@@ -123,7 +142,17 @@ public class LuceneSearchProvider implements SearchProvider {
     protected static final String LUCENE_PAGE_KEYWORDS = "keywords";
 
     private String m_luceneDirectory;
-    protected final List< Object[] > m_updates = Collections.synchronizedList( new ArrayList<>() );
+    private final LuceneUpdateQueue m_updates = new LuceneUpdateQueue();
+
+    private boolean m_useSharedWriter;
+    private long m_commitInterval;
+    private long m_lastCommit;
+    private volatile boolean m_indexChanged;
+    private Directory m_sharedDirectory;
+    private IndexWriter m_sharedWriter;
+    private volatile SearcherManager m_searcherManager;
+    private int m_reindexThreads;
+    private int m_reindexBatchSize;
 
     /** Maximum number of fragments from search matches. */
     private static final int MAX_FRAGMENTS = 3;
@@ -145,6 +174,10 @@ public class LuceneSearchProvider implements SearchProvider {
         final int indexDelay   = TextUtil.getIntegerProperty( props, PROP_LUCENE_INDEXDELAY, LuceneUpdater.INDEX_DELAY );
 
         m_analyzerClass = TextUtil.getStringProperty( props, PROP_LUCENE_ANALYZER, m_analyzerClass );
+        m_useSharedWriter = TextUtil.getBooleanProperty( props, PROP_LUCENE_SHARED_WRITER, false );
+        m_commitInterval = TextUtil.getIntegerProperty( props, PROP_LUCENE_COMMIT_INTERVAL, DEFAULT_COMMIT_INTERVAL ) * 1_000L;
+        m_reindexThreads = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_LUCENE_REINDEX_THREADS, Runtime.getRuntime().availableProcessors() ) );
+        m_reindexBatchSize = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_LUCENE_REINDEX_BATCH_SIZE, DEFAULT_REINDEX_BATCH_SIZE ) );
         // FIXME: Just to be simple for now, we will do full reindex only if no files are in lucene directory.
 
         final File dir = new File( m_luceneDirectory );
@@ -195,7 +228,11 @@ public class LuceneSearchProvider implements SearchProvider {
         }
 
         try {
-            if( filelist.length == 0 ) {
+            final boolean reindex = filelist.length == 0;
+            if( m_useSharedWriter ) {
+                openSharedWriter();
+            }
+            if( reindex ) {
                 //
                 //  No files? Reindex!
                 //
@@ -203,33 +240,27 @@ public class LuceneSearchProvider implements SearchProvider {
 
                 LOG.info( "Starting Lucene reindexing, this can take a couple of minutes..." );
 
-                final Directory luceneDir = new NIOFSDirectory( dir.toPath() );
-                try( final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-                    long pagesIndexed = 0L;
+                final Directory luceneDir = m_useSharedWriter ? null : new NIOFSDirectory( dir.toPath() );
+                try( final IndexWriter writer = m_useSharedWriter ? null : getIndexWriter( luceneDir ) ) {
+                    final IndexWriter indexWriter = m_useSharedWriter ? m_sharedWriter : writer;
                     final Collection< Page > allPages = m_engine.getManager( PageManager.class ).getAllPages();
-                    for( final Page page : allPages ) {
-                        try {
-                            final String text = m_engine.getManager( PageManager.class ).getPageText( page.getName(), WikiProvider.LATEST_VERSION );
-                            luceneIndexPage( page, text, writer );
-                            pagesIndexed++;
-                        } catch( final IOException e ) {
-                            LOG.warn( "Unable to index page {}, continuing to next ", page.getName(), e );
-                        }
-                    }
-                    LOG.info( "Indexed {} pages", pagesIndexed );
-
-                    long attachmentsIndexed = 0L;
                     final Collection< Attachment > allAttachments = m_engine.getManager( AttachmentManager.class ).getAllAttachments();
-                    for( final Attachment att : allAttachments ) {
-                        try {
-                            final String text = getAttachmentContent( att.getName(), WikiProvider.LATEST_VERSION );
-                            luceneIndexPage( att, text, writer );
-                            attachmentsIndexed++;
-                        } catch( final IOException e ) {
-                            LOG.warn( "Unable to index attachment {}, continuing to next", att.getName(), e );
+                    final LuceneReindexer reindexer = new LuceneReindexer( this, m_reindexThreads, m_reindexBatchSize );
+                    final ProgressManager progressManager = m_engine.getManager( ProgressManager.class );
+                    if( progressManager != null ) {
+                        progressManager.startProgress( reindexer, PROGRESS_ID );
+                    }
+                    try {
+                        reindexer.reindex( allPages, allAttachments, indexWriter );
+                    } finally {
+                        if( progressManager != null ) {
+                            progressManager.stopProgress( PROGRESS_ID );
                         }
                     }
-                    LOG.info( "Indexed {} attachments", attachmentsIndexed );
+                }
+                if( m_useSharedWriter ) {
+                    m_indexChanged = true;
+                    commitSharedWriter();
                 }
 
                 final Date end = new Date();
@@ -305,9 +336,19 @@ public class LuceneSearchProvider implements SearchProvider {
      */
     protected synchronized void updateLuceneIndex( final Page page, final String text ) {
         LOG.debug( "Updating Lucene index for page '{}'...", page.getName() );
-        pageRemoved( page );
+        deleteFromIndex( page.getName() );
 
         // Now add back the new version.
+        if( m_useSharedWriter && m_sharedWriter != null ) {
+            try {
+                luceneIndexPage( page, text, m_sharedWriter );
+                m_indexChanged = true;
+            } catch( final IOException e ) {
+                LOG.error( "Unable to update page '{}' from Lucene index", page.getName(), e );
+            }
+            LOG.debug( "Done updating Lucene index for page '{}'.", page.getName() );
+            return;
+        }
         try( final Directory luceneDir = new NIOFSDirectory( new File( m_luceneDirectory ).toPath() );
              final IndexWriter writer = getIndexWriter( luceneDir ) ) {
             luceneIndexPage( page, text, writer );
@@ -344,12 +385,30 @@ public class LuceneSearchProvider implements SearchProvider {
     protected Document luceneIndexPage( final Page page, final String text, final IndexWriter writer ) throws IOException {
         LOG.debug( "Indexing {}...", page.getName() );
 
-        // make a new, empty document
-        final Document doc = new Document();
+        final Document doc = luceneDocument( page, text );
+        if( doc == null ) {
+            return new Document();
+        }
+        writer.addDocument( doc );
+
+        return doc;
+    }
+
+    /**
+     * Builds the index Document for a page, without adding it to any index.
+     *
+     * @param page WikiPage
+     * @param text Page text to index
+     * @return the index Document, or {@code null} if there is no text to index.
+     */
+    protected Document luceneDocument( final Page page, final String text ) {
         if( text == null ) {
-            return doc;
+            return null;
         }
 
+        // make a new, empty document
+        final Document doc = new Document();
+
         final String indexedText = text.replace( "__", " " ); // be nice to Language Analyzers - cfr. JSPWIKI-893
 
         // Raw name is the keyword we'll use to refer to this document for updates.
@@ -389,9 +448,6 @@ public class LuceneSearchProvider implements SearchProvider {
             field = new Field( LUCENE_PAGE_KEYWORDS, page.getAttribute( "keywords" ).toString(), TextField.TYPE_STORED );
             doc.add( field );
         }
-        synchronized( writer ) {
-            writer.addDocument( doc );
-        }
 
         return doc;
     }
@@ -401,12 +457,32 @@ public class LuceneSearchProvider implements SearchProvider {
      */
     @Override
     public synchronized void pageRemoved( final Page page ) {
+        m_updates.cancel( page.getName() );
+        deleteFromIndex( page.getName() );
+    }
+
+    /**
+     * Removes a page from the lucene index, leaving any pending update for it in the update queue, as the page may have been
+     * saved again while it was being reindexed.
+     *
+     * @param pageName name of the page to remove.
+     */
+    private synchronized void deleteFromIndex( final String pageName ) {
+        if( m_useSharedWriter && m_sharedWriter != null ) {
+            try {
+                m_sharedWriter.deleteDocuments( new TermQuery( new Term( LUCENE_ID, pageName ) ) );
+                m_indexChanged = true;
+            } catch( final IOException e ) {
+                LOG.error( "Unable to remove page '{}' from Lucene index", pageName, e );
+            }
+            return;
+        }
         try( final Directory luceneDir = new NIOFSDirectory( new File( m_luceneDirectory ).toPath() );
              final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-            final Query query = new TermQuery( new Term( LUCENE_ID, page.getName() ) );
+            final Query query = new TermQuery( new Term( LUCENE_ID, pageName ) );
             writer.deleteDocuments( query );
         } catch( final Exception e ) {
-            LOG.error( "Unable to remove page '{}' from Lucene index", page.getName(), e );
+            LOG.error( "Unable to remove page '{}' from Lucene index", pageName, e );
         }
     }
 
@@ -417,33 +493,154 @@ public class LuceneSearchProvider implements SearchProvider {
     }
 
     /**
-     * Adds a page-text pair to the lucene update queue.  Safe to call always
+     * Opens the long-lived IndexWriter and the near-real-time SearcherManager used when
+     * {@link #PROP_LUCENE_SHARED_WRITER} is enabled. Does nothing if they are already open.
+     *
+     * @throws IOException if the index cannot be opened.
+     * @throws ProviderException if the analyzer cannot be instantiated.
+     */
+    synchronized void openSharedWriter() throws IOException, ProviderException {
+        if( m_sharedWriter != null ) {
+            return;
+        }
+        m_sharedDirectory = new NIOFSDirectory( new File( m_luceneDirectory ).toPath() );
+        m_sharedWriter = getIndexWriter( m_sharedDirectory );
+        m_searcherManager = new SearcherManager( m_sharedWriter, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher( final IndexReader reader, final IndexReader previousReader ) {
+                return new IndexSearcher( reader, searchExecutor );
+            }
+        } );
+        m_lastCommit = System.currentTimeMillis();
+        LOG.info( "Opened shared Lucene IndexWriter, commit interval is {} seconds", m_commitInterval / 1_000L );
+    }
+
+    /**
+     * Makes the latest changes of the shared IndexWriter visible to searches, and commits them to disk if the commit
+     * interval has elapsed. Does nothing if the shared IndexWriter is not in use.
+     */
+    void refreshSharedWriter() {
+        if( m_searcherManager == null ) {
+            return;
+        }
+        try {
+            if( m_indexChanged ) {
+                m_indexChanged = false;
+                m_searcherManager.maybeRefresh();
+            }
+            if( System.currentTimeMillis() - m_lastCommit >= m_commitInterval ) {
+                commitSharedWriter();
+            }
+        } catch( final IOException e ) {
+            LOG.error( "Unable to refresh Lucene searcher", e );
+        }
+    }
+
+    synchronized void commitSharedWriter() throws IOException {
+        if( m_sharedWriter == null ) {
+            return;
+        }
+        if( m_sharedWriter.hasUncommittedChanges() ) {
+            LOG.debug( "Committing Lucene index changes" );
+            m_sharedWriter.commit();
+        }
+        m_searcherManager.maybeRefresh();
+        m_lastCommit = System.currentTimeMillis();
+    }
+
+    /**
+     * Commits pending changes and closes the shared IndexWriter and SearcherManager, if open.
+     */
+    synchronized void closeSharedWriter() {
+        if( m_sharedWriter == null ) {
+            return;
+        }
+        try {
+            m_searcherManager.close();
+            if( m_sharedWriter.hasUncommittedChanges() ) {
+                m_sharedWriter.commit();
+            }
+            m_sharedWriter.close();
+            m_sharedDirectory.close();
+        } catch( final IOException e ) {
+            LOG.error( "Problem closing the Lucene index", e );
+        } finally {
+            m_searcherManager = null;
+            m_sharedWriter = null;
+            m_sharedDirectory = null;
+        }
+    }
+
+    /**
+     * Adds a page to the lucene update queue.  Safe to call always. If the page is already waiting to be indexed, the queued
+     * update is replaced, so a page saved several times within one index delay is only indexed once. The page text is read
+     * when the page is actually indexed.
      *
      * @param page WikiPage to add to the update queue.
      */
     @Override
     public void reindexPage( final Page page ) {
         if( page != null ) {
-            final String text;
+            m_updates.add( page );
+            LOG.debug( "Scheduling page {} for index update", page.getName() );
+        }
+    }
 
-            // TODO: Think if this was better done in the thread itself?
+    /**
+     * Indexes all the pages currently waiting in the update queue.
+     */
+    void processUpdateQueue() {
+        LuceneUpdateQueue.Entry entry;
+        while( ( entry = m_updates.poll() ) != null ) {
+            final Page page = entry.page;
+            final String text;
             if( page instanceof Attachment ) {
                 text = getAttachmentContent( ( Attachment ) page );
             } else {
                 text = m_engine.getManager( PageManager.class ).getPureText( page );
             }
-
             if( text != null ) {
-                // Add work item to m_updates queue.
-                final Object[] pair = new Object[ 2 ];
-                pair[ 0 ] = page;
-                pair[ 1 ] = text;
-                m_updates.add( pair );
-                LOG.debug( "Scheduling page {} for index update", page.getName() );
+                updateLuceneIndex( page, text );
             }
         }
     }
 
+    /**
+     * Returns the number of pages waiting to be indexed.
+     *
+     * @return the size of the update queue.
+     */
+    public int getUpdateQueueSize() {
+        return m_updates.size();
+    }
+
+    /**
+     * Returns how long the oldest page in the update queue has been waiting to be indexed.
+     *
+     * @return the current indexing lag, in milliseconds.
+     */
+    public long getIndexingLag() {
+        return m_updates.oldestAge();
+    }
+
+    /**
+     * Returns how long the most recently indexed page waited in the update queue.
+     *
+     * @return the indexing lag of the last indexed page, in milliseconds.
+     */
+    public long getLastIndexingLag() {
+        return m_updates.lastLag();
+    }
+
+    /**
+     * Returns how many page updates were folded into an update already waiting in the queue.
+     *
+     * @return number of coalesced updates since startup.
+     */
+    public long getCoalescedUpdates() {
+        return m_updates.coalesced();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Collection< SearchResult > findPages( final String query, final Context wikiContext ) throws ProviderException {
@@ -462,15 +659,47 @@ public class LuceneSearchProvider implements SearchProvider {
      * @throws ProviderException if there is a problem with the backend
      */
     public Collection< SearchResult > findPages( final String query, final int flags, final Context wikiContext ) throws ProviderException {
-        ArrayList< SearchResult > list = null;
-        Highlighter highlighter = null;
+        final SearcherManager searcherManager = m_searcherManager;
+        if( searcherManager != null ) {
+            IndexSearcher searcher = null;
+            try {
+                searcher = searcherManager.acquire();
+                return findPages( searcher, query, flags, wikiContext );
+            } catch( final IOException e ) {
+                LOG.error( "Failed during lucene search", e );
+                return null;
+            } finally {
+                releaseSearcher( searcherManager, searcher );
+            }
+        }
 
         try( final Directory luceneDir = new NIOFSDirectory( new File( m_luceneDirectory ).toPath() );
              final IndexReader reader = DirectoryReader.open( luceneDir ) ) {
+            return findPages( new IndexSearcher( reader, searchExecutor ), query, flags, wikiContext );
+        } catch( final IOException e ) {
+            LOG.error( "Failed during lucene search", e );
+            return null;
+        }
+    }
+
+    private void releaseSearcher( final SearcherManager searcherManager, final IndexSearcher searcher ) {
+        if( searcher != null ) {
+            try {
+                searcherManager.release( searcher );
+            } catch( final IOException e ) {
+                LOG.error( "Unable to release Lucene searcher", e );
+            }
+        }
+    }
+
+    private Collection< SearchResult > findPages( final IndexSearcher searcher, final String query, final int flags, final Context wikiContext ) throws ProviderException {
+        ArrayList< SearchResult > list = null;
+        Highlighter highlighter = null;
+
+        try {
             final String[] queryfields = { LUCENE_PAGE_CONTENTS, LUCENE_PAGE_NAME, LUCENE_AUTHOR, LUCENE_ATTACHMENTS, LUCENE_PAGE_KEYWORDS };
             final QueryParser qp = new MultiFieldQueryParser( queryfields, getLuceneAnalyzer() );
             final Query luceneQuery = qp.parse( query );
-            final IndexSearcher searcher = new IndexSearcher( reader, searchExecutor );
 
             if( ( flags & FLAG_CONTEXTS ) != 0 ) {
                 highlighter = new Highlighter( new SimpleHTMLFormatter( "<span class=\"searchmatch\">", "</span>" ),
@@ -507,7 +736,7 @@ public class LuceneSearchProvider implements SearchProvider {
                     }
                 } else {
                     LOG.error( "Lucene found a result page '{}' that could not be loaded, removing from Lucene cache",  pageName );
-                    pageRemoved( Wiki.contents().page( m_engine, pageName ) );
+                    deleteFromIndex( pageName );
                 }
             }
         } catch( final IOException e ) {
@@ -568,18 +797,17 @@ public class LuceneSearchProvider implements SearchProvider {
         public void backgroundTask() {
             m_watchdog.enterState( "Emptying index queue", 60 );
 
-            synchronized( m_provider.m_updates ) {
-                while(!m_provider.m_updates.isEmpty()) {
-                    final Object[] pair = m_provider.m_updates.remove( 0 );
-                    final Page page = ( Page )pair[ 0 ];
-                    final String text = ( String )pair[ 1 ];
-                    m_provider.updateLuceneIndex( page, text );
-                }
-            }
+            m_provider.processUpdateQueue();
+            m_provider.refreshSharedWriter();
 
             m_watchdog.exitState();
         }
 
+        @Override
+        public void shutdownTask() {
+            m_provider.closeSharedWriter();
+        }
+
     }
 
     // FIXME: This class is dumb; needs to have a better implementation
@@ -0,0 +1,131 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.wiki.api.core.Page;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Queue of pages waiting to be (re)indexed by the {@link LuceneSearchProvider}. The queue holds at most one entry per page
+ * name: scheduling a page which is already waiting replaces the queued reference (last write wins) but keeps its place in the
+ * queue, and removing a page cancels any pending update for it. Only page references are kept; the text is read when the
+ * page is actually indexed.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 2.12.3
+ */
+final class LuceneUpdateQueue {
+
+    private final Map< String, Entry > m_pending = new LinkedHashMap<>();
+    private long m_coalesced;
+    private long m_lastLag;
+
+    /** A queued page, along with the time it first entered the queue. */
+    static final class Entry {
+        final Page page;
+        final long queued;
+
+        Entry( final Page page, final long queued ) {
+            this.page = page;
+            this.queued = queued;
+        }
+    }
+
+    /**
+     * Schedules a page for indexing, replacing any update already pending for the same page.
+     *
+     * @param page page to index.
+     */
+    synchronized void add( final Page page ) {
+        final Entry previous = m_pending.get( page.getName() );
+        if( previous != null ) {
+            m_coalesced++;
+        }
+        m_pending.put( page.getName(), new Entry( page, previous != null ? previous.queued : System.currentTimeMillis() ) );
+    }
+
+    /**
+     * Cancels any update pending for the given page.
+     *
+     * @param pageName name of the page.
+     * @return {@code true} if there was a pending update.
+     */
+    synchronized boolean cancel( final String pageName ) {
+        return m_pending.remove( pageName ) != null;
+    }
+
+    /**
+     * Removes and returns the oldest pending update.
+     *
+     * @return the oldest pending update, or {@code null} if the queue is empty.
+     */
+    synchronized Entry poll() {
+        final Iterator< Entry > it = m_pending.values().iterator();
+        if( !it.hasNext() ) {
+            return null;
+        }
+        final Entry entry = it.next();
+        it.remove();
+        m_lastLag = System.currentTimeMillis() - entry.queued;
+        return entry;
+    }
+
+    /**
+     * Returns the number of pages waiting to be indexed.
+     *
+     * @return the number of pending updates.
+     */
+    synchronized int size() {
+        return m_pending.size();
+    }
+
+    /**
+     * Returns how long the oldest pending update has been waiting.
+     *
+     * @return age of the oldest pending update in milliseconds, or 0 if the queue is empty.
+     */
+    synchronized long oldestAge() {
+        final Iterator< Entry > it = m_pending.values().iterator();
+        return it.hasNext() ? System.currentTimeMillis() - it.next().queued : 0L;
+    }
+
+    /**
+     * Returns the time the most recently indexed page spent waiting in the queue.
+     *
+     * @return lag of the last indexed page, in milliseconds.
+     */
+    synchronized long lastLag() {
+        return m_lastLag;
+    }
+
+    /**
+     * Returns how many updates were folded into an already pending update for the same page.
+     *
+     * @return number of coalesced updates since startup.
+     */
+    synchronized long coalesced() {
+        return m_coalesced;
+    }
+
+}
@@ -28,6 +28,7 @@ import org.apache.wiki.modules.BaseModuleManager;
 import org.apache.wiki.modules.WikiModuleInfo;
 import org.apache.wiki.preferences.Preferences;
 import org.apache.wiki.preferences.Preferences.TimeFormat;
+import org.apache.wiki.util.TextUtil;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -41,6 +42,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -50,6 +52,10 @@ import java.util.TreeSet;
 
 /**
  *  This class takes care of managing JSPWiki templates.  This class also provides the ResourceRequest mechanism.
+ *  <p>
+ *  Templates don't change while the wiki is running, so the outcome of looking for a template resource, whether a template
+ *  exists, and the skins of each template are found once and remembered afterwards. When editing templates on a running wiki,
+ *  set {@value #PROP_REVALIDATE} to {@code true} to have the servlet context looked up on every request instead.
  *
  *  @since 2.1.62
  */
@@ -57,6 +63,23 @@ public class DefaultTemplateManager extends BaseModuleManager implements Templat
 
     private static final Logger LOG = LogManager.getLogger( DefaultTemplateManager.class );
 
+    /** Property which, when true, makes every template lookup go to the servlet context, so template changes are seen straight
+     *  away. Meant for template development. Value is {@value}. */
+    public static final String PROP_REVALIDATE = "jspwiki.templateManager.revalidate";
+
+    /** Remembered in place of a resource which wasn't found, as the lookup maps can't hold nulls. */
+    private static final String NOT_FOUND = "";
+
+    /** Upper bound of remembered lookups of each kind; template names may come from page SET directives, so they aren't a fixed set.
+     *  Past it, the least recently used lookups are forgotten. */
+    private static final int MAX_LOOKUPS = 4_096;
+
+    private final boolean m_revalidate;
+    private final Map< String, String > m_resources = lookups();
+    private final Map< String, Boolean > m_templates = lookups();
+    private final Map< String, Set< String > > m_skins = lookups();
+    private final List< String > m_timeFormats;
+
     /**
      *  Creates a new TemplateManager.  There is typically one manager per engine.
      *
@@ -65,12 +88,28 @@ public class DefaultTemplateManager extends BaseModuleManager implements Templat
      */
     public DefaultTemplateManager( final Engine engine, final Properties properties ) {
         super( engine );
+        final Properties props = properties != null ? properties : new Properties();
+        m_revalidate = TextUtil.getBooleanProperty( props, PROP_REVALIDATE, false );
+        m_timeFormats = timeFormats( props );
     }
 
     /** {@inheritDoc} */
     @Override
     // FIXME: Does not work yet
     public boolean templateExists( final String templateName ) {
+        if( m_revalidate ) {
+            return probeTemplate( templateName );
+        }
+        final Boolean exists = m_templates.get( templateName );
+        if( exists != null ) {
+            return exists;
+        }
+        final boolean found = probeTemplate( templateName );
+        m_templates.put( templateName, found );
+        return found;
+    }
+
+    private boolean probeTemplate( final String templateName ) {
         final ServletContext context = m_engine.getServletContext();
         try( final InputStream in = context.getResourceAsStream( getPath( templateName ) + "ViewTemplate.jsp" ) ) {
             if( in != null ) {
@@ -90,7 +129,33 @@ public class DefaultTemplateManager extends BaseModuleManager implements Templat
      *  @param name The name of the resource
      *  @return The name of the resource which was found.
      */
-    private static String findResource( final ServletContext sContext, final String name ) {
+    private String findResource( final ServletContext sContext, final String name ) {
+        if( m_revalidate ) {
+            return probeResource( sContext, name );
+        }
+        final String found = m_resources.get( name );
+        if( found != null ) {
+            return NOT_FOUND.equals( found ) ? null : found;
+        }
+        final String resourceName = probeResource( sContext, name );
+        m_resources.put( name, resourceName != null ? resourceName : NOT_FOUND );
+        return resourceName;
+    }
+
+    /** Creates a thread safe map of lookups holding at most {@link #MAX_LOOKUPS} of them, least recently used ones going first. */
+    private static < T > Map< String, T > lookups() {
+        return Collections.synchronizedMap( new LinkedHashMap< String, T >( 16, 0.75f, true ) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry< String, T > eldest ) {
+                return size() > MAX_LOOKUPS;
+            }
+        } );
+    }
+
+    private static String probeResource( final ServletContext sContext, final String name ) {
         String resourceName = name;
         try( final InputStream is = sContext.getResourceAsStream( resourceName ) ) {
             if( is == null ) {
@@ -113,7 +178,7 @@ public class DefaultTemplateManager extends BaseModuleManager implements Templat
      * @param name resource name
      * @return the Resource for the given template and name.
      */
-    private static String findResource( final ServletContext sContext, final String template, final String name ) {
+    private String findResource( final ServletContext sContext, final String template, final String name ) {
         if( name.charAt(0) == '/' ) {
             // This is already a full path
             return findResource( sContext, name );
@@ -193,8 +258,19 @@ public class DefaultTemplateManager extends BaseModuleManager implements Templat
     /** {@inheritDoc} */
     @Override
     public Set< String > listSkins( final PageContext pageContext, final String template ) {
+        if( m_revalidate ) {
+            return probeSkins( pageContext.getServletContext(), template );
+        }
+        Set< String > skins = m_skins.get( template );
+        if( skins == null ) {
+            skins = Collections.unmodifiableSet( probeSkins( pageContext.getServletContext(), template ) );
+            m_skins.put( template, skins );
+        }
+        return new TreeSet<>( skins );
+    }
+
+    private static Set< String > probeSkins( final ServletContext sContext, final String template ) {
         final String place = makeFullJSPName( template, SKIN_DIRECTORY );
-        final ServletContext sContext = pageContext.getServletContext();
         final Set< String > skinSet = sContext.getResourcePaths( place );
         final Set< String > resultSet = new TreeSet<>();
 
@@ -218,10 +294,36 @@ public class DefaultTemplateManager extends BaseModuleManager implements Templat
     @Override
     public Map< String, String > listTimeFormats( final PageContext pageContext ) {
         final Context context = Context.findContext( pageContext );
-        final Properties props = m_engine.getWikiProperties();
-        final ArrayList< String > tfArr = new ArrayList<>(40);
         final LinkedHashMap< String, String > resultMap = new LinkedHashMap<>();
 
+        final String prefTimeZone = Preferences.getPreference( context, "TimeZone" );
+        final TimeZone tz = TimeZone.getTimeZone( prefTimeZone );
+
+        final Date d = new Date(); // current date
+        try {
+            // dummy format pattern
+            final SimpleDateFormat fmt = Preferences.getDateFormat( context, TimeFormat.DATETIME );
+            fmt.setTimeZone( tz );
+
+            for( final String s : m_timeFormats ) {
+                try {
+                    fmt.applyPattern( s );
+                    resultMap.put( s, fmt.format( d ) );
+                } catch( final IllegalArgumentException e ) {
+                } // skip parameter
+            }
+        } catch( final IllegalArgumentException e ) {} // skip parameter
+
+        return resultMap;
+    }
+
+    /**
+     *  Gathers the time format patterns offered to users, which only depend on the wiki properties. The examples shown next to them
+     *  depend on the user's preferences and the current date, so they're still formatted on each call.
+     */
+    private static List< String > timeFormats( final Properties props ) {
+        final ArrayList< String > tfArr = new ArrayList<>(40);
+
         /* filter timeformat properties */
         for( final Enumeration< ? > e = props.propertyNames(); e.hasMoreElements(); ) {
             final String name = ( String )e.nextElement();
@@ -241,25 +343,7 @@ public class DefaultTemplateManager extends BaseModuleManager implements Templat
             tfArr.replaceAll(props::getProperty);
         }
 
-        final String prefTimeZone = Preferences.getPreference( context, "TimeZone" );
-        final TimeZone tz = TimeZone.getTimeZone( prefTimeZone );
-
-        final Date d = new Date(); // current date
-        try {
-            // dummy format pattern
-            final SimpleDateFormat fmt = Preferences.getDateFormat( context, TimeFormat.DATETIME );
-            fmt.setTimeZone( tz );
-
-            for( final String s : tfArr ) {
-                try {
-                    fmt.applyPattern( s );
-                    resultMap.put( s, fmt.format( d ) );
-                } catch( final IllegalArgumentException e ) {
-                } // skip parameter
-            }
-        } catch( final IllegalArgumentException e ) {} // skip parameter
-
-        return resultMap;
+        return Collections.unmodifiableList( tfArr );
     }
 
     /** {@inheritDoc} */
@@ -42,9 +42,15 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 
 /**
@@ -66,6 +72,10 @@ import java.io.UnsupportedEncodingException;
  * <pre>
  * TemplateManager.addResourceRequest( context, TemplateManager.RESOURCE_SCRIPT, "scripts/customresource.js" );
  * </pre>
+ * By default the whole response is buffered until the page has been rendered. With {@value #PROP_STREAMING} set to {@code true}
+ * the response is instead sent as it's being generated, up to the first inclusion marker; only the rest of it is held back until
+ * the resources are known. HTTP headers requested as resources can't be added once the response has started being sent, so they
+ * should be set directly on the response when streaming.
  *
  * @see TemplateManager
  * @see org.apache.wiki.tags.RequestResourceTag
@@ -73,8 +83,13 @@ import java.io.UnsupportedEncodingException;
 public class WikiJSPFilter extends WikiServletFilter {
 
     private static final Logger LOG = LogManager.getLogger( WikiJSPFilter.class );
+
+    /** Property setting whether to send responses while they're being generated. Value is {@value}. */
+    public static final String PROP_STREAMING = "jspwiki.jspFilter.streaming";
+
     private String m_wiki_encoding;
     private boolean useEncoding;
+    private boolean m_streaming;
 
     /** {@inheritDoc} */
     @Override
@@ -83,6 +98,7 @@ public class WikiJSPFilter extends WikiServletFilter {
         m_wiki_encoding = m_engine.getWikiProperties().getProperty( Engine.PROP_ENCODING );
 
         useEncoding = !Boolean.parseBoolean( m_engine.getWikiProperties().getProperty( Engine.PROP_NO_FILTER_ENCODING, "false" ).trim() );
+        m_streaming = useEncoding && TextUtil.getBooleanProperty( m_engine.getWikiProperties(), PROP_STREAMING, false );
     }
 
     @Override
@@ -91,7 +107,9 @@ public class WikiJSPFilter extends WikiServletFilter {
         try {
             ThreadContext.push( m_engine.getApplicationName() + ":" + ( ( HttpServletRequest )request ).getRequestURI() );
             w.enterState("Filtering for URL "+((HttpServletRequest)request).getRequestURI(), 90 );
-            final HttpServletResponseWrapper responseWrapper = new JSPWikiServletResponseWrapper( ( HttpServletResponse )response, m_wiki_encoding, useEncoding );
+            final HttpServletResponseWrapper responseWrapper = m_streaming
+                                                             ? new StreamingResponseWrapper( ( HttpServletResponse )response, m_wiki_encoding )
+                                                             : new JSPWikiServletResponseWrapper( ( HttpServletResponse )response, m_wiki_encoding, useEncoding );
             request.setCharacterEncoding( m_engine.getContentEncoding().displayName() );
 
             // fire PAGE_REQUESTED event
@@ -106,15 +124,17 @@ public class WikiJSPFilter extends WikiServletFilter {
             try {
                 w.enterState( "Delivering response", 30 );
                 final Context wikiContext = getWikiContext( request );
-                final String r = filter( wikiContext, responseWrapper );
-
-                if( useEncoding ) {
+                if( responseWrapper instanceof StreamingResponseWrapper ) {
+                    addResourceHeaders( wikiContext, responseWrapper );
+                    ( ( StreamingResponseWrapper )responseWrapper ).finish( wikiContext );
+                } else if( useEncoding ) {
+                    final String r = filter( wikiContext, responseWrapper );
                     final OutputStreamWriter out = new OutputStreamWriter( response.getOutputStream(), response.getCharacterEncoding() );
                     out.write( r );
                     out.flush();
                     out.close();
                 } else {
-                    response.getWriter().write(r);
+                    response.getWriter().write( filter( wikiContext, responseWrapper ) );
                 }
 
                 // Clean up the UI messages and loggers
@@ -150,24 +170,39 @@ public class WikiJSPFilter extends WikiServletFilter {
             for( final String resourceType : resourceTypes ) {
                 string = insertResources( wikiContext, string, resourceType );
             }
+            addResourceHeaders( wikiContext, response );
+        }
 
-            //  Add HTTP header Resource Requests
-            final String[] headers = TemplateManager.getResourceRequests( wikiContext, TemplateManager.RESOURCE_HTTPHEADER );
+        return string;
+    }
 
-            for( final String header : headers ) {
-                String key = header;
-                String value = "";
-                final int split = header.indexOf( ':' );
-                if( split > 0 && split < header.length() - 1 ) {
-                    key = header.substring( 0, split );
-                    value = header.substring( split + 1 );
-                }
+    /**
+     *  Adds the HTTP headers requested as resources to the response.
+     *
+     *  @param wikiContext The usual processing context
+     *  @param response The response
+     */
+    private void addResourceHeaders( final Context wikiContext, final HttpServletResponse response ) {
+        if( wikiContext == null ) {
+            return;
+        }
+        final String[] headers = TemplateManager.getResourceRequests( wikiContext, TemplateManager.RESOURCE_HTTPHEADER );
+        if( headers.length > 0 && response.isCommitted() ) {
+            LOG.warn( "Response already sent, unable to add HTTP headers {}", String.join( ", ", headers ) );
+            return;
+        }
 
-                response.addHeader( key.trim(), value.trim() );
+        for( final String header : headers ) {
+            String key = header;
+            String value = "";
+            final int split = header.indexOf( ':' );
+            if( split > 0 && split < header.length() - 1 ) {
+                key = header.substring( 0, split );
+                value = header.substring( split + 1 );
             }
-        }
 
-        return string;
+            response.addHeader( key.trim(), value.trim() );
+        }
     }
 
     /**
@@ -297,6 +332,200 @@ public class WikiJSPFilter extends WikiServletFilter {
 
     }
 
+    /**
+     *  Response wrapper which sends the response as it's being written, up to the first inclusion marker, and holds back the
+     *  rest until {@link #finish(Context)} splices the requested resources into it.
+     *  <p>
+     *  Markers are searched for in the encoded output, which works as long as the encoding is a superset of ASCII, as the ones
+     *  suitable for web pages are. Besides the {@code INCLUDERESOURCES} comments, the start of the localized strings script,
+     *  which doubles as the marker of its resource type, also stops the response from being sent.
+     */
+    static final class StreamingResponseWrapper extends HttpServletResponseWrapper {
+
+        /** Beginnings of the inclusion markers, see {@link TemplateManager#getMarker(Context, String)}. */
+        private static final String[] MARKER_STARTS = { "<!-- INCLUDERESOURCES (", "/* INCLUDERESOURCES (", "var LocalizedStrings = {" };
+
+        private final HttpServletResponse m_response;
+        private final Charset m_charset;
+        private final byte[][] m_markerStarts;
+        private final int m_longestMarkerStart;
+        private final HeldOutput m_held = new HeldOutput();
+        private final SplicingServletOutputStream m_servletOut = new SplicingServletOutputStream();
+        private final PrintWriter m_writer;
+
+        /** Whether output is still being sent as it comes, as no marker has been found yet. */
+        private boolean m_sending = true;
+
+        StreamingResponseWrapper( final HttpServletResponse r, final String wikiEncoding ) {
+            super( r );
+            m_response = r;
+            m_charset = Charset.forName( wikiEncoding );
+            m_markerStarts = new byte[ MARKER_STARTS.length ][];
+            int longest = 0;
+            for( int i = 0; i < MARKER_STARTS.length; i++ ) {
+                m_markerStarts[ i ] = MARKER_STARTS[ i ].getBytes( StandardCharsets.US_ASCII );
+                longest = Math.max( longest, m_markerStarts[ i ].length );
+            }
+            m_longestMarkerStart = longest;
+            m_writer = new PrintWriter( new OutputStreamWriter( m_servletOut, m_charset ), true );
+        }
+
+        /** Returns a writer for output; this wraps the internal stream into a PrintWriter. */
+        @Override
+        public PrintWriter getWriter() {
+            return m_writer;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return m_servletOut;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            m_writer.flush();
+            if( m_sending ) {
+                super.flushBuffer();
+            }
+        }
+
+        /**
+         *  Sends the output held back, with the requested resources in place of their markers.
+         *
+         *  @param wikiContext The usual processing context, may be {@code null}.
+         *  @throws IOException if the response can't be written.
+         */
+        void finish( final Context wikiContext ) throws IOException {
+            m_writer.flush();
+            final List< int[] > found = new ArrayList<>(); // marker position, marker length, resource type index
+            final List< byte[] > replacements = new ArrayList<>();
+            if( wikiContext != null ) {
+                for( final String type : TemplateManager.getResourceTypes( wikiContext ) ) {
+                    final byte[] marker = TemplateManager.getMarker( wikiContext, type ).getBytes( m_charset );
+                    final int idx = m_held.indexOf( marker, 0 );
+                    if( idx == -1 ) {
+                        LOG.debug( "No marker for {} resources in the output held back", type );
+                        continue;
+                    }
+                    LOG.debug( "...Inserting..." );
+                    final StringBuilder concat = new StringBuilder();
+                    for( final String resource : TemplateManager.getResourceRequests( wikiContext, type ) ) {
+                        LOG.debug( "...:::" + resource );
+                        concat.append( resource );
+                    }
+                    found.add( new int[] { idx, marker.length, replacements.size() } );
+                    replacements.add( concat.toString().getBytes( m_charset ) );
+                }
+            }
+            found.sort( Comparator.comparingInt( f -> f[ 0 ] ) );
+
+            final OutputStream out = m_response.getOutputStream();
+            int from = 0;
+            for( final int[] f : found ) {
+                if( f[ 0 ] < from ) {
+                    continue; // overlaps a marker already replaced
+                }
+                m_held.writeTo( out, from, f[ 0 ] );
+                out.write( replacements.get( f[ 2 ] ) );
+                from = f[ 0 ] + f[ 1 ];
+            }
+            m_held.writeTo( out, from, m_held.size() );
+            m_held.reset();
+            out.flush();
+        }
+
+        /** Sends whatever can't be the start of a marker, or stops sending if a marker has been found. */
+        private void send() throws IOException {
+            int first = -1;
+            for( final byte[] markerStart : m_markerStarts ) {
+                final int idx = m_held.indexOf( markerStart, 0 );
+                if( idx != -1 && ( first == -1 || idx < first ) ) {
+                    first = idx;
+                }
+            }
+            final int sendable = first != -1 ? first : Math.max( 0, m_held.size() - m_longestMarkerStart + 1 );
+            if( sendable > 0 ) {
+                m_held.writeTo( m_response.getOutputStream(), 0, sendable );
+                m_held.discard( sendable );
+            }
+            if( first != -1 ) {
+                m_sending = false;
+                m_response.flushBuffer(); // the head of the page is complete, let the client have it
+            }
+        }
+
+        class SplicingServletOutputStream extends ServletOutputStream {
+
+            /**{@inheritDoc} */
+            @Override
+            public void write( final int aInt ) throws IOException {
+                m_held.write( aInt );
+                if( m_sending ) {
+                    send();
+                }
+            }
+
+            /**{@inheritDoc} */
+            @Override
+            public void write( final byte[] b, final int off, final int len ) throws IOException {
+                m_held.write( b, off, len );
+                if( m_sending ) {
+                    send();
+                }
+            }
+
+            /**{@inheritDoc} */
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            /**{@inheritDoc} */
+            @Override
+            public void setWriteListener( final WriteListener writeListener ) {
+            }
+
+        }
+
+    }
+
+    /** Output held back by a {@link StreamingResponseWrapper}, which can be searched and sent in parts without copying it. */
+    static final class HeldOutput extends ByteArrayOutputStream {
+
+        HeldOutput() {
+            super( 0x8000 );
+        }
+
+        /** Returns the position of the first occurrence of some bytes at or after a given position, or -1 if there's none. */
+        synchronized int indexOf( final byte[] pattern, final int from ) {
+            final int last = count - pattern.length;
+            outer:
+            for( int i = Math.max( 0, from ); i <= last; i++ ) {
+                for( int j = 0; j < pattern.length; j++ ) {
+                    if( buf[ i + j ] != pattern[ j ] ) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        /** Writes the bytes between two positions. */
+        synchronized void writeTo( final OutputStream out, final int from, final int to ) throws IOException {
+            if( to > from ) {
+                out.write( buf, from, to - from );
+            }
+        }
+
+        /** Drops the first bytes held. */
+        synchronized void discard( final int length ) {
+            System.arraycopy( buf, length, buf, 0, count - length );
+            count -= length;
+        }
+
+    }
+
     // events processing .......................................................
 
     /**
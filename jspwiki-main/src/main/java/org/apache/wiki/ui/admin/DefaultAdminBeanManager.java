@@ -27,9 +27,12 @@ import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventListener;
 import org.apache.wiki.modules.ModuleManager;
 import org.apache.wiki.modules.WikiModuleInfo;
+import org.apache.wiki.ui.admin.beans.AuthorizationManagerBean;
 import org.apache.wiki.ui.admin.beans.CoreBean;
+import org.apache.wiki.ui.admin.beans.EventManagerBean;
 import org.apache.wiki.ui.admin.beans.FilterBean;
 import org.apache.wiki.ui.admin.beans.PluginBean;
+import org.apache.wiki.ui.admin.beans.ReferenceManagerBean;
 import org.apache.wiki.ui.admin.beans.SearchManagerBean;
 import org.apache.wiki.ui.admin.beans.UserBean;
 import org.apache.wiki.util.ClassUtil;
@@ -148,6 +151,7 @@ public class DefaultAdminBeanManager implements WikiEventListener, AdminBeanMana
             try {
                 if( abname != null && !abname.isEmpty() ) {
                     final AdminBean ab = ClassUtil.buildInstance( abname );
+                    ab.initialize( m_engine );
                     registerAdminBean( ab );
                 }
             } catch( final ReflectiveOperationException e ) {
@@ -165,8 +169,11 @@ public class DefaultAdminBeanManager implements WikiEventListener, AdminBeanMana
             registerAdminBean( new CoreBean( m_engine ) );
             registerAdminBean( new UserBean( m_engine ) );
             registerAdminBean( new SearchManagerBean( m_engine ) );
+            registerAdminBean( new ReferenceManagerBean( m_engine ) );
+            registerAdminBean( new AuthorizationManagerBean( m_engine ) );
             registerAdminBean( new PluginBean( m_engine ) );
             registerAdminBean( new FilterBean( m_engine ) );
+            registerAdminBean( new EventManagerBean( m_engine ) );
         } catch( final NotCompliantMBeanException e ) {
             LOG.error( e.getMessage(), e );
         }
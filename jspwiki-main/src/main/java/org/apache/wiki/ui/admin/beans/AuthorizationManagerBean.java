@@ -0,0 +1,93 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.ui.admin.beans;
+
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.auth.AuthorizationManager;
+import org.apache.wiki.ui.admin.SimpleAdminBean;
+
+import javax.management.NotCompliantMBeanException;
+
+
+/**
+ *  An AdminBean which reports on the AuthorizationManager, such as how well its permission decision cache works.
+ *
+ *  @since 2.12.3
+ */
+public class AuthorizationManagerBean extends SimpleAdminBean {
+
+    private static final String[] ATTRIBUTES = { "decisionCacheHits", "decisionCacheMisses" };
+    private static final String[] METHODS = { };
+
+    public AuthorizationManagerBean( final Engine engine ) throws NotCompliantMBeanException {
+        m_engine = engine;
+    }
+
+    /**
+     *  Returns how many permission checks were answered from the decision cache.
+     *
+     *  @return number of hits, or -1 if the decision cache is not in use.
+     */
+    public long getDecisionCacheHits() {
+        return m_engine.getManager( AuthorizationManager.class ).getDecisionCacheHits();
+    }
+
+    public String getDecisionCacheHitsDescription() {
+        return "The number of permission checks answered from the decision cache";
+    }
+
+    /**
+     *  Returns how many permission checks had to be fully evaluated.
+     *
+     *  @return number of misses, or -1 if the decision cache is not in use.
+     */
+    public long getDecisionCacheMisses() {
+        return m_engine.getManager( AuthorizationManager.class ).getDecisionCacheMisses();
+    }
+
+    public String getDecisionCacheMissesDescription() {
+        return "The number of permission checks which had to be evaluated against the security policy and page ACLs";
+    }
+
+    @Override
+    public String getTitle() {
+        return "Authorization manager";
+    }
+
+    @Override
+    public int getType() {
+        return CORE;
+    }
+
+    @Override
+    public String getId() {
+        return "authorizationmanagerbean";
+    }
+
+    @Override
+    public String[] getAttributeNames() {
+        return ATTRIBUTES;
+    }
+
+    @Override
+    public String[] getMethodNames() {
+        return METHODS;
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.ui.admin.beans;
+
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiEventStatistics;
+import org.apache.wiki.ui.admin.SimpleAdminBean;
+import org.apache.wiki.util.TextUtil;
+import org.apache.wiki.util.XHTML;
+import org.apache.wiki.util.XhtmlUtil;
+import org.jdom2.Element;
+
+import javax.management.NotCompliantMBeanException;
+import java.util.List;
+
+
+/**
+ *  An AdminBean which reports on the delivery of WikiEvents: which listeners get which events, how long they take to process
+ *  them, and which ones are slow at it.
+ *  <p>
+ *  Events are delivered by the JVM-wide {@link WikiEventManager}, so these figures, and the slow listener threshold, are shared by
+ *  all the wikis running in the same JVM.
+ *
+ *  @since 2.12.3
+ */
+public class EventManagerBean extends SimpleAdminBean {
+
+    /** Property setting how many milliseconds a listener may take to process an event before being logged as slow. The threshold is
+     *  global to the JVM: when several wikis set it, the last one to start wins. Value is {@value}. */
+    public static final String PROP_SLOW_LISTENER_THRESHOLD = "jspwiki.eventManager.slowListenerThreshold";
+
+    private static final String[] ATTRIBUTES = { "slowListenerThreshold", "staleListeners", "prunedListeners", "listenerStatistics" };
+    private static final String[] METHODS = { "reset" };
+
+    public EventManagerBean( final Engine engine ) throws NotCompliantMBeanException {
+        super();
+        initialize( engine );
+        // only when set, so that a wiki relying on the default doesn't undo the threshold chosen by another one in the same JVM
+        if( engine.getWikiProperties().getProperty( PROP_SLOW_LISTENER_THRESHOLD ) != null ) {
+            setSlowListenerThreshold( TextUtil.getIntegerProperty( engine.getWikiProperties(),
+                                                                   PROP_SLOW_LISTENER_THRESHOLD,
+                                                                   ( int )WikiEventStatistics.DEFAULT_SLOW_THRESHOLD ) );
+        }
+    }
+
+    public long getSlowListenerThreshold() {
+        return WikiEventManager.getStatistics().getSlowThreshold();
+    }
+
+    public void setSlowListenerThreshold( final long millis ) {
+        WikiEventManager.getStatistics().setSlowThreshold( millis );
+    }
+
+    public String getSlowListenerThresholdDescription() {
+        return "Milliseconds a listener may take to process an event before being logged as slow (shared by all the wikis in this JVM)";
+    }
+
+    public int getStaleListeners() {
+        return WikiEventManager.getStaleListenerCount();
+    }
+
+    public String getStaleListenersDescription() {
+        return "The number of garbage collected listeners still waiting to be removed from the listener lists";
+    }
+
+    public long getPrunedListeners() {
+        return WikiEventManager.getStatistics().getPrunedListeners();
+    }
+
+    public String getPrunedListenersDescription() {
+        return "The number of garbage collected listeners removed from the listener lists";
+    }
+
+    public String[] getListenerStatistics() {
+        return WikiEventManager.getStatistics().getEntries().stream().map( WikiEventStatistics.Entry::toString ).toArray( String[]::new );
+    }
+
+    public String getListenerStatisticsDescription() {
+        return "Events processed by each listener, and how long it took, across all the wikis in this JVM";
+    }
+
+    /**
+     *  Forgets the figures gathered so far.
+     */
+    public void reset() {
+        WikiEventManager.getStatistics().reset();
+    }
+
+    @Override
+    public String getTitle() {
+        return "Event manager";
+    }
+
+    @Override
+    public int getType() {
+        return CORE;
+    }
+
+    @Override
+    public String getId() {
+        return "eventmanagerbean";
+    }
+
+    @Override
+    public String[] getAttributeNames() {
+        return ATTRIBUTES;
+    }
+
+    @Override
+    public String[] getMethodNames() {
+        return METHODS;
+    }
+
+    /**
+     *  Lists the figures of each listener on a table.
+     */
+    @Override
+    public String doGet( final Context context ) {
+        final Element root = XhtmlUtil.element( XHTML.div );
+        root.addContent( XhtmlUtil.element( XHTML.p ).addContent( getSlowListenerThresholdDescription() + ": " + getSlowListenerThreshold() ) );
+        root.addContent( XhtmlUtil.element( XHTML.p ).addContent( getStaleListenersDescription() + ": " + getStaleListeners() ) );
+        root.addContent( XhtmlUtil.element( XHTML.p ).addContent( getPrunedListenersDescription() + ": " + getPrunedListeners() ) );
+
+        final Element tb = XhtmlUtil.element( XHTML.table ).setAttribute( "border", "1" );
+        final Element trHead = XhtmlUtil.element( XHTML.tr );
+        for( final String heading : new String[] { "Listener", "Event", "Count", "Mean (ms)", "Max (ms)", "Slow", "<1 ms", "<4 ms",
+                                                   "<16 ms", "<64 ms", "<256 ms", "<1024 ms", ">=1024 ms" } ) {
+            trHead.addContent( XhtmlUtil.element( XHTML.th ).addContent( heading ) );
+        }
+        tb.addContent( trHead );
+
+        final List< WikiEventStatistics.Entry > entries = WikiEventManager.getStatistics().getEntries();
+        for( final WikiEventStatistics.Entry entry : entries ) {
+            final Element tr = XhtmlUtil.element( XHTML.tr );
+            tr.addContent( XhtmlUtil.element( XHTML.td ).addContent( entry.getListener() ) )
+              .addContent( XhtmlUtil.element( XHTML.td ).addContent( entry.getEvent() ) )
+              .addContent( XhtmlUtil.element( XHTML.td ).addContent( String.valueOf( entry.getCount() ) ) )
+              .addContent( XhtmlUtil.element( XHTML.td ).addContent( String.format( "%.3f", entry.getMeanMillis() ) ) )
+              .addContent( XhtmlUtil.element( XHTML.td ).addContent( String.format( "%.3f", entry.getMaxMillis() ) ) )
+              .addContent( XhtmlUtil.element( XHTML.td ).addContent( String.valueOf( entry.getSlowCount() ) ) );
+            for( final long count : entry.getHistogram() ) {
+                tr.addContent( XhtmlUtil.element( XHTML.td ).addContent( String.valueOf( count ) ) );
+            }
+            tb.addContent( tr );
+        }
+        root.addContent( tb );
+
+        return XhtmlUtil.serialize( root, XhtmlUtil.EXPAND_EMPTY_NODES );
+    }
+
+}
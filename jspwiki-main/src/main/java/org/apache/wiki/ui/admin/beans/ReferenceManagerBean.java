@@ -0,0 +1,93 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.ui.admin.beans;
+
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.references.ReferenceManager;
+import org.apache.wiki.ui.admin.SimpleAdminBean;
+
+import javax.management.NotCompliantMBeanException;
+
+
+/**
+ *  An AdminBean which reports on the ReferenceManager, such as the time it took to rescan page references at startup.
+ *
+ *  @since 2.12.3
+ */
+public class ReferenceManagerBean extends SimpleAdminBean {
+
+    private static final String[] ATTRIBUTES = { "lastScanTime", "lastScanPages" };
+    private static final String[] METHODS = { };
+
+    public ReferenceManagerBean( final Engine engine ) throws NotCompliantMBeanException {
+        m_engine = engine;
+    }
+
+    /**
+     *  Returns how long the last startup rescan of page references took.
+     *
+     *  @return duration in milliseconds, or -1 if unknown.
+     */
+    public long getLastScanTime() {
+        return m_engine.getManager( ReferenceManager.class ).getLastScanTime();
+    }
+
+    public String getLastScanTimeDescription() {
+        return "Milliseconds taken by the last startup rescan of page references";
+    }
+
+    /**
+     *  Returns how many pages were rescanned at startup.
+     *
+     *  @return number of pages, or -1 if unknown.
+     */
+    public int getLastScanPages() {
+        return m_engine.getManager( ReferenceManager.class ).getLastScanPages();
+    }
+
+    public String getLastScanPagesDescription() {
+        return "The number of pages rescanned by the last startup rescan of page references";
+    }
+
+    @Override
+    public String getTitle() {
+        return "Reference manager";
+    }
+
+    @Override
+    public int getType() {
+        return CORE;
+    }
+
+    @Override
+    public String getId() {
+        return "referencemanagerbean";
+    }
+
+    @Override
+    public String[] getAttributeNames() {
+        return ATTRIBUTES;
+    }
+
+    @Override
+    public String[] getMethodNames() {
+        return METHODS;
+    }
+
+}
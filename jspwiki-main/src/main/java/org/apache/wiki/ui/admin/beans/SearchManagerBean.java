@@ -23,7 +23,9 @@ import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.search.LuceneSearchProvider;
 import org.apache.wiki.search.SearchManager;
+import org.apache.wiki.search.SearchProvider;
 import org.apache.wiki.ui.admin.SimpleAdminBean;
 import org.apache.wiki.ui.progress.ProgressItem;
 import org.apache.wiki.ui.progress.ProgressManager;
@@ -41,6 +43,7 @@ public class SearchManagerBean extends SimpleAdminBean {
 
     private static final String PROGRESS_ID = "searchmanagerbean.reindexer";
     private static final String[] METHODS = { "reload" };
+    private static final String[] ATTRIBUTES = { "updateQueueSize", "indexingLag", "lastIndexingLag", "coalescedUpdates" };
 
     // private static Logger log = LogManager.getLogger( SearchManagerBean.class );
 
@@ -54,7 +57,68 @@ public class SearchManagerBean extends SimpleAdminBean {
     @Override
     public String[] getAttributeNames()
     {
-        return new String[0];
+        return ATTRIBUTES;
+    }
+
+    private LuceneSearchProvider getLuceneSearchProvider() {
+        final SearchProvider provider = m_engine.getManager( SearchManager.class ).getSearchEngine();
+        return provider instanceof LuceneSearchProvider ? ( LuceneSearchProvider )provider : null;
+    }
+
+    /**
+     *  Returns the number of pages waiting to be indexed.
+     *
+     *  @return the size of the update queue, or 0 if Lucene is not in use.
+     */
+    public int getUpdateQueueSize() {
+        final LuceneSearchProvider provider = getLuceneSearchProvider();
+        return provider != null ? provider.getUpdateQueueSize() : 0;
+    }
+
+    public String getUpdateQueueSizeDescription() {
+        return "The number of pages waiting to be indexed";
+    }
+
+    /**
+     *  Returns how long the oldest queued page has been waiting to be indexed.
+     *
+     *  @return the indexing lag in milliseconds, or 0 if Lucene is not in use.
+     */
+    public long getIndexingLag() {
+        final LuceneSearchProvider provider = getLuceneSearchProvider();
+        return provider != null ? provider.getIndexingLag() : 0L;
+    }
+
+    public String getIndexingLagDescription() {
+        return "Milliseconds the oldest queued page has been waiting to be indexed";
+    }
+
+    /**
+     *  Returns how long the most recently indexed page waited in the queue.
+     *
+     *  @return the indexing lag of the last indexed page in milliseconds, or 0 if Lucene is not in use.
+     */
+    public long getLastIndexingLag() {
+        final LuceneSearchProvider provider = getLuceneSearchProvider();
+        return provider != null ? provider.getLastIndexingLag() : 0L;
+    }
+
+    public String getLastIndexingLagDescription() {
+        return "Milliseconds the last indexed page waited in the queue";
+    }
+
+    /**
+     *  Returns how many page updates were merged into an update already waiting in the queue.
+     *
+     *  @return number of coalesced updates, or 0 if Lucene is not in use.
+     */
+    public long getCoalescedUpdates() {
+        final LuceneSearchProvider provider = getLuceneSearchProvider();
+        return provider != null ? provider.getCoalescedUpdates() : 0L;
+    }
+
+    public String getCoalescedUpdatesDescription() {
+        return "The number of page updates merged into an already queued update";
     }
 
     @Override
@@ -130,6 +194,10 @@ public class SearchManagerBean extends SimpleAdminBean {
         if( m_updater != null ) {
             return "Update already in progress ("+ context.getEngine().getManager( ProgressManager.class ).getProgress(PROGRESS_ID)+ "%)";
         }
+        final ProgressManager progressManager = context.getEngine().getManager( ProgressManager.class );
+        if( progressManager.isInProgress( LuceneSearchProvider.PROGRESS_ID ) ) {
+            return "Initial index build in progress (" + progressManager.getProgress( LuceneSearchProvider.PROGRESS_ID ) + "%)";
+        }
 
         return "<input type='submit' id='searchmanagerbean-reload' name='searchmanagerbean-reload' value='Force index reload'/>"+
                "<div class='description'>Forces JSPWiki search engine to reindex all pages.  Use this if you think some pages are not being found even if they should.</div>";
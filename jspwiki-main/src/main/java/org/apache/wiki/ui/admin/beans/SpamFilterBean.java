@@ -0,0 +1,114 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.ui.admin.beans;
+
+import org.apache.wiki.api.filters.PageFilter;
+import org.apache.wiki.filters.FilterManager;
+import org.apache.wiki.filters.SpamFilter;
+import org.apache.wiki.ui.admin.SimpleAdminBean;
+
+import javax.management.NotCompliantMBeanException;
+import java.util.function.ToLongFunction;
+
+
+/**
+ *  An AdminBean which reports on the SpamFilter: how many hosts are banned, and how many modifications get rejected. If the
+ *  SpamFilter is not in use, all values are 0.
+ *
+ *  @since 2.12.3
+ */
+public class SpamFilterBean extends SimpleAdminBean {
+
+    private static final String[] ATTRIBUTES = { "temporaryBans", "rejectedPerMinute", "acceptedPerMinute", "rejectedTotal" };
+    private static final String[] METHODS = { };
+
+    public SpamFilterBean() throws NotCompliantMBeanException {
+    }
+
+    public long getTemporaryBans() {
+        return sum( SpamFilter::getTemporaryBanCount );
+    }
+
+    public String getTemporaryBansDescription() {
+        return "The number of IP addresses currently on the temporary ban list";
+    }
+
+    public long getRejectedPerMinute() {
+        return sum( SpamFilter::getRejectedPerMinute );
+    }
+
+    public String getRejectedPerMinuteDescription() {
+        return "The number of modifications rejected during the last minute";
+    }
+
+    public long getAcceptedPerMinute() {
+        return sum( SpamFilter::getAcceptedPerMinute );
+    }
+
+    public String getAcceptedPerMinuteDescription() {
+        return "The number of modifications accepted during the last minute";
+    }
+
+    public long getRejectedTotal() {
+        return sum( SpamFilter::getRejectedTotal );
+    }
+
+    public String getRejectedTotalDescription() {
+        return "The number of modifications rejected since the wiki was started";
+    }
+
+    private long sum( final ToLongFunction< SpamFilter > metric ) {
+        if( m_engine == null ) {
+            return 0L;
+        }
+        long sum = 0L;
+        for( final PageFilter filter : m_engine.getManager( FilterManager.class ).getFilterList() ) {
+            if( filter instanceof SpamFilter ) {
+                sum += metric.applyAsLong( ( SpamFilter )filter );
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Spam filter";
+    }
+
+    @Override
+    public int getType() {
+        return CORE;
+    }
+
+    @Override
+    public String getId() {
+        return "spamfilterbean";
+    }
+
+    @Override
+    public String[] getAttributeNames() {
+        return ATTRIBUTES;
+    }
+
+    @Override
+    public String[] getMethodNames() {
+        return METHODS;
+    }
+
+}
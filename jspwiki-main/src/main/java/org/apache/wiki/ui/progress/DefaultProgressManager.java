@@ -108,6 +108,12 @@ public class DefaultProgressManager implements ProgressManager {
         throw new IllegalArgumentException( "No such id was found" );
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isInProgress( final String id ) {
+        return m_progressingTasks.containsKey( id );
+    }
+
     /**
      *  Provides access to a progress indicator, assuming you know the ID. Progress of zero (0) means that the progress has just started,
      *  and a progress of 100 means that it is complete.
@@ -61,4 +61,21 @@ public interface ProgressManager {
      */
     int getProgress( String id ) throws IllegalArgumentException;
 
+    /**
+     *  Tells whether a progress item is being tracked, that is, it has been started and not yet stopped. By default, this asks
+     *  {@link #getProgress(String)} for the item, which throws if there is none.
+     *
+     *  @param id The progress identifier.
+     *  @return {@code true} if there's a progress item for the given identifier, {@code false} otherwise.
+     *  @since 2.12.3
+     */
+    default boolean isInProgress( final String id ) {
+        try {
+            getProgress( id );
+            return true;
+        } catch( final IllegalArgumentException e ) {
+            return false;
+        }
+    }
+
 }
@@ -36,7 +36,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Hashtable;
-import java.util.Set;
+import java.util.List;
 import java.util.Vector;
 import java.util.stream.Collectors;
 
@@ -123,7 +123,6 @@ public class RPCHandler extends AbstractRPCHandler {
     @Override
     public Vector< Hashtable< String, Object > > getRecentChanges( Date since ) {
         checkPermission( PagePermission.VIEW );
-        final Set< Page > pages = m_engine.getManager( PageManager.class ).getRecentChanges();
         final Vector< Hashtable< String, Object > > result = new Vector<>();
 
         final Calendar cal = Calendar.getInstance();
@@ -136,6 +135,7 @@ public class RPCHandler extends AbstractRPCHandler {
                  (cal.get( Calendar.ZONE_OFFSET ) +
                   (cal.getTimeZone().inDaylightTime(since) ? cal.get( Calendar.DST_OFFSET ) : 0 ) ) );
         since = cal.getTime();
+        final List< Page > pages = m_engine.getManager( PageManager.class ).getRecentChanges( since, null, 0 );
 
         for( final Page page : pages ) {
             if( page.getLastModified().after( since ) && !(page instanceof Attachment) ) {
@@ -0,0 +1,78 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki;
+
+import org.apache.wiki.api.core.Session;
+import org.apache.wiki.auth.Users;
+import org.apache.wiki.auth.WikiPrincipal;
+import org.apache.wiki.auth.authorize.Group;
+import org.apache.wiki.auth.authorize.GroupManager;
+import org.apache.wiki.event.WikiSecurityEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.security.Principal;
+
+
+class SessionEventRouterTest {
+
+    TestEngine engine = TestEngine.build();
+
+    @Test
+    void shouldHandGroupChangesToMembersOnly() throws Exception {
+        final GroupManager groupMgr = engine.getManager( GroupManager.class );
+        final Session admin = WikiSessionTest.adminSession( engine );
+        final Session alice = WikiSessionTest.authenticatedSession( engine, Users.ALICE, Users.ALICE_PASS );
+        final Session biff = WikiSessionTest.authenticatedSession( engine, Users.BIFF, Users.BIFF_PASS );
+
+        final Group group = groupMgr.parseGroup( "RouterTest", "Alice", true );
+        groupMgr.setGroup( admin, group );
+        try {
+            Assertions.assertTrue( alice.hasPrincipal( group.getPrincipal() ) );
+            Assertions.assertFalse( biff.hasPrincipal( group.getPrincipal() ) );
+        } finally {
+            groupMgr.removeGroup( "RouterTest" );
+        }
+        Assertions.assertFalse( alice.hasPrincipal( group.getPrincipal() ) );
+    }
+
+    @Test
+    void shouldFollowPrincipalsAddedToASession() throws Exception {
+        final GroupManager groupMgr = engine.getManager( GroupManager.class );
+        final Session admin = WikiSessionTest.adminSession( engine );
+        final Session alice = WikiSessionTest.authenticatedSession( engine, Users.ALICE, Users.ALICE_PASS );
+        final Session biff = WikiSessionTest.authenticatedSession( engine, Users.BIFF, Users.BIFF_PASS );
+        final Principal nickname = new WikiPrincipal( "RouterNickname" );
+
+        SessionEventRouter.getInstance( engine ).actionPerformed( new WikiSecurityEvent( this, WikiSecurityEvent.PRINCIPAL_ADD, nickname, alice ) );
+        Assertions.assertTrue( alice.hasPrincipal( nickname ) );
+        Assertions.assertFalse( biff.hasPrincipal( nickname ) );
+
+        // Alice is now found by her new principal as well
+        final Group group = groupMgr.parseGroup( "RouterNicknames", "RouterNickname", true );
+        groupMgr.setGroup( admin, group );
+        try {
+            Assertions.assertTrue( alice.hasPrincipal( group.getPrincipal() ) );
+            Assertions.assertFalse( biff.hasPrincipal( group.getPrincipal() ) );
+        } finally {
+            groupMgr.removeGroup( "RouterNicknames" );
+        }
+    }
+
+}
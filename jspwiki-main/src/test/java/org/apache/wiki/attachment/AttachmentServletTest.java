@@ -0,0 +1,129 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.attachment;
+
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import net.sourceforge.stripes.mock.MockHttpServletResponse;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Attachment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+
+class AttachmentServletTest {
+
+    static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    TestEngine engine = TestEngine.build();
+    AttachmentServlet servlet = new AttachmentServlet();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        engine.saveText( "TestPage", "content" );
+        engine.addAttachment( "TestPage", "test.bin", CONTENT.getBytes( StandardCharsets.US_ASCII ) );
+
+        final ServletContext servletContext = Mockito.mock( ServletContext.class );
+        Mockito.when( servletContext.getAttribute( "org.apache.wiki.WikiEngine" ) ).thenReturn( engine );
+        final ServletConfig config = Mockito.mock( ServletConfig.class );
+        Mockito.when( config.getServletContext() ).thenReturn( servletContext );
+        servlet.init( config );
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.deleteTestPage( "TestPage" );
+        TestEngine.deleteAttachments( "TestPage" );
+    }
+
+    MockHttpServletResponse get( final String... headers ) throws Exception {
+        final MockHttpServletRequest req = engine.newHttpRequest( "/attach/TestPage/test.bin" );
+        req.getParameterMap().put( "page", new String[] { "TestPage/test.bin" } );
+        for( int i = 0; i < headers.length; i += 2 ) {
+            req.addHeader( headers[ i ], headers[ i + 1 ] );
+        }
+        final HttpServletRequest spy = Mockito.spy( req );
+        Mockito.doReturn( -1L ).when( spy ).getDateHeader( Mockito.anyString() ); // stripes mock fails on missing date headers
+        final MockHttpServletResponse res = Mockito.spy( new MockHttpServletResponse() );
+        servlet.doGet( spy, res );
+        return res;
+    }
+
+    @Test
+    void shouldSendWholeAttachment() throws Exception {
+        final MockHttpServletResponse res = get();
+        Assertions.assertEquals( HttpServletResponse.SC_OK, res.getStatus() );
+        Assertions.assertEquals( CONTENT, res.getOutputString() );
+        Assertions.assertEquals( "bytes", res.getHeaderMap().get( "Accept-Ranges" ).get( 0 ) );
+        Assertions.assertNotNull( res.getHeaderMap().get( "ETag" ) );
+    }
+
+    @Test
+    void shouldSendSingleRange() throws Exception {
+        final MockHttpServletResponse res = get( "Range", "bytes=10-15" );
+        Assertions.assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, res.getStatus() );
+        Assertions.assertEquals( "abcdef", res.getOutputString() );
+        Assertions.assertEquals( "bytes 10-15/36", res.getHeaderMap().get( "Content-Range" ).get( 0 ) );
+
+        Assertions.assertEquals( "wxyz", get( "Range", "bytes=-4" ).getOutputString() );
+    }
+
+    @Test
+    void shouldSendMultipleRanges() throws Exception {
+        final MockHttpServletResponse res = get( "Range", "bytes=0-1,30-" );
+        Assertions.assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, res.getStatus() );
+        Assertions.assertTrue( res.getContentType().startsWith( "multipart/byteranges; boundary=" ) );
+        final String body = res.getOutputString();
+        Assertions.assertTrue( body.contains( "Content-Range: bytes 0-1/36\r\n\r\n01\r\n" ), body );
+        Assertions.assertTrue( body.contains( "Content-Range: bytes 30-35/36\r\n\r\nuvwxyz\r\n" ), body );
+        final long length = res.getOutputBytes().length;
+        Mockito.verify( res ).setContentLengthLong( length );
+    }
+
+    @Test
+    void shouldRejectUnsatisfiableRanges() throws Exception {
+        final MockHttpServletResponse res = get( "Range", "bytes=100-" );
+        Assertions.assertEquals( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, res.getStatus() );
+        Assertions.assertEquals( "bytes */36", res.getHeaderMap().get( "Content-Range" ).get( 0 ) );
+    }
+
+    @Test
+    void shouldHonourETags() throws Exception {
+        final Attachment att = engine.getManager( AttachmentManager.class ).getAttachmentInfo( "TestPage/test.bin" );
+        final String etag = AttachmentServlet.createETag( att );
+        Assertions.assertEquals( etag, get().getHeaderMap().get( "ETag" ).get( 0 ) );
+
+        Assertions.assertEquals( HttpServletResponse.SC_NOT_MODIFIED, get( "If-None-Match", etag ).getStatus() );
+        Assertions.assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, get( "Range", "bytes=0-1", "If-Range", etag ).getStatus() );
+
+        // a stale If-Range means the whole, current attachment is sent
+        final MockHttpServletResponse res = get( "Range", "bytes=0-1", "If-Range", "\"stale\"" );
+        Assertions.assertEquals( HttpServletResponse.SC_OK, res.getStatus() );
+        Assertions.assertEquals( CONTENT, res.getOutputString() );
+    }
+
+}
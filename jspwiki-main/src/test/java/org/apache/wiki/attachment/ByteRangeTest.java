@@ -0,0 +1,81 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.attachment;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+
+class ByteRangeTest {
+
+    static void assertRange( final long start, final long end, final ByteRange range ) {
+        Assertions.assertEquals( start, range.start );
+        Assertions.assertEquals( end, range.end );
+    }
+
+    @Test
+    void shouldParseSingleRanges() {
+        List< ByteRange > ranges = ByteRange.parse( "bytes=0-499", 10_000L );
+        Assertions.assertEquals( 1, ranges.size() );
+        assertRange( 0, 499, ranges.get( 0 ) );
+        Assertions.assertEquals( 500, ranges.get( 0 ).length() );
+        Assertions.assertEquals( "bytes 0-499/10000", ranges.get( 0 ).contentRange( 10_000L ) );
+
+        assertRange( 9_500, 9_999, ByteRange.parse( "bytes=9500-", 10_000L ).get( 0 ) );
+        assertRange( 9_500, 9_999, ByteRange.parse( "bytes=-500", 10_000L ).get( 0 ) );
+        assertRange( 0, 9_999, ByteRange.parse( "bytes=-50000", 10_000L ).get( 0 ) );
+        assertRange( 9_000, 9_999, ByteRange.parse( "bytes=9000-20000", 10_000L ).get( 0 ) );
+    }
+
+    @Test
+    void shouldHandleRangesBeyondTwoGigabytes() {
+        final long size = 5L * 1024 * 1024 * 1024;
+        final ByteRange range = ByteRange.parse( "bytes=4294967296-", size ).get( 0 );
+        assertRange( 4_294_967_296L, size - 1, range );
+        Assertions.assertEquals( size - 4_294_967_296L, range.length() );
+    }
+
+    @Test
+    void shouldSortAndMergeMultipleRanges() {
+        final List< ByteRange > ranges = ByteRange.parse( "bytes=500-599, 0-99,100-199, 550-700", 10_000L );
+        Assertions.assertEquals( 2, ranges.size() );
+        assertRange( 0, 199, ranges.get( 0 ) );
+        assertRange( 500, 700, ranges.get( 1 ) );
+    }
+
+    @Test
+    void shouldReportUnsatisfiableRanges() {
+        Assertions.assertTrue( ByteRange.parse( "bytes=10000-", 10_000L ).isEmpty() );
+        Assertions.assertTrue( ByteRange.parse( "bytes=-0", 10_000L ).isEmpty() );
+        Assertions.assertTrue( ByteRange.parse( "bytes=0-10", 0L ).isEmpty() );
+    }
+
+    @Test
+    void shouldIgnoreInvalidHeaders() {
+        Assertions.assertNull( ByteRange.parse( null, 10_000L ) );
+        Assertions.assertNull( ByteRange.parse( "items=0-1", 10_000L ) );
+        Assertions.assertNull( ByteRange.parse( "bytes=500-100", 10_000L ) );
+        Assertions.assertNull( ByteRange.parse( "bytes=abc-", 10_000L ) );
+        Assertions.assertNull( ByteRange.parse( "bytes=-", 10_000L ) );
+        Assertions.assertNull( ByteRange.parse( "bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,16-17,18-19,20-21,22-23,24-25,26-27,28-29,30-31,32-33", 10_000L ) );
+    }
+
+}
@@ -434,6 +434,39 @@ public class AuthorizationManagerTest
         m_groupMgr.removeGroup( "Group2" );
     }
 
+    @Test
+    public void testDecisionCache() throws Exception {
+        m_engine.saveText( "TestCache", "[{ALLOW edit Alice}] " );
+        final Page p = m_engine.getManager( PageManager.class ).getPage( "TestCache" );
+        final Permission edit = PermissionFactory.getPagePermission( p, "edit" );
+        final Session session = WikiSessionTest.authenticatedSession( m_engine, Users.ALICE, Users.ALICE_PASS );
+
+        final long hits = m_auth.getDecisionCacheHits();
+        final long misses = m_auth.getDecisionCacheMisses();
+        Assertions.assertTrue( m_auth.checkPermission( session, edit ), "Alice edit TestCache" );
+        Assertions.assertTrue( m_auth.checkPermission( session, edit ), "Alice edit TestCache, cached" );
+        Assertions.assertEquals( hits + 1, m_auth.getDecisionCacheHits() );
+        Assertions.assertEquals( misses + 1, m_auth.getDecisionCacheMisses() );
+
+        // page changes are seen right away
+        m_engine.saveText( "TestCache", "[{ALLOW edit CacheGroup}] " );
+        Assertions.assertFalse( m_auth.checkPermission( session, edit ), "Alice !edit TestCache" );
+
+        // and so are group changes
+        m_groupMgr.setGroup( m_session, m_groupMgr.parseGroup( "CacheGroup", "Alice", true ) );
+        Assertions.assertTrue( m_auth.checkPermission( session, edit ), "Alice in CacheGroup edit TestCache" );
+
+        m_groupMgr.removeGroup( "CacheGroup" );
+        Assertions.assertFalse( m_auth.checkPermission( session, edit ), "Alice !edit TestCache after group removal" );
+
+        // decisions belong to the login which took them
+        m_engine.saveText( "TestCache", "[{ALLOW edit Alice}] " );
+        Assertions.assertTrue( m_auth.checkPermission( session, edit ), "Alice edit TestCache again" );
+        session.invalidate();
+        Assertions.assertFalse( m_auth.checkPermission( session, edit ), "Guest !edit TestCache" );
+        m_engine.getManager( PageManager.class ).deletePage( "TestCache" );
+    }
+
     @Test
     public void testPrincipalAcl() throws Exception
     {
@@ -0,0 +1,70 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth;
+
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpSessionEvent;
+import java.util.Arrays;
+
+
+class SessionMonitorTest {
+
+    TestEngine engine = TestEngine.build();
+
+    @Test
+    void shouldKeepOneSessionPerHttpSession() {
+        final SessionMonitor monitor = SessionMonitor.getInstance( engine );
+        final int sessions = monitor.sessions();
+        final MockHttpServletRequest request = engine.newHttpRequest();
+
+        final Session session = monitor.find( request.getSession() );
+        Assertions.assertSame( session, monitor.find( request.getSession() ) );
+        Assertions.assertSame( session, monitor.find( request.getSession().getId() ) );
+        Assertions.assertEquals( sessions + 1, monitor.sessions() );
+
+        new SessionMonitor().sessionDestroyed( new HttpSessionEvent( request.getSession() ) );
+        Assertions.assertEquals( sessions, monitor.sessions() );
+        Assertions.assertNotSame( session, monitor.find( request.getSession() ) );
+    }
+
+    @Test
+    void shouldFollowUsersLoggingInAndOut() throws Exception {
+        final SessionMonitor monitor = SessionMonitor.getInstance( engine );
+        final MockHttpServletRequest request = engine.newHttpRequest();
+        final Session session = monitor.find( request.getSession() );
+        final int guests = monitor.distinctUserPrincipals().getOrDefault( WikiPrincipal.GUEST.getName(), 0 );
+        Assertions.assertTrue( guests > 0 );
+        Assertions.assertEquals( monitor.sessions(), monitor.userPrincipals().length );
+
+        engine.getManager( AuthenticationManager.class ).login( session, request, Users.ALICE, Users.ALICE_PASS );
+        final String alice = session.getUserPrincipal().getName();
+        Assertions.assertEquals( guests - 1, monitor.distinctUserPrincipals().getOrDefault( WikiPrincipal.GUEST.getName(), 0 ) );
+        final int alices = monitor.distinctUserPrincipals().get( alice );
+        Assertions.assertTrue( Arrays.stream( monitor.userPrincipals() ).anyMatch( p -> p.getName().equals( alice ) ) );
+
+        engine.getManager( AuthenticationManager.class ).logout( request );
+        Assertions.assertEquals( alices - 1, monitor.distinctUserPrincipals().getOrDefault( alice, 0 ) );
+    }
+
+}
@@ -45,9 +45,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  */
@@ -98,6 +104,36 @@ public class UserManagerTest {
         m_db = m_mgr.getUserDatabase();
     }
 
+    @Test
+    public void testUserDatabaseIsInitializedBeforeBeingShared() throws Exception {
+        final DefaultUserManager mgr = new DefaultUserManager();
+        mgr.initialize( m_engine, m_engine.getWikiProperties() );
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try {
+            final List< Future< UserDatabase > > lookups = new ArrayList<>();
+            for( int i = 0; i < threads; i++ ) {
+                lookups.add( executor.submit( () -> {
+                    start.await();
+                    final UserDatabase db = mgr.getUserDatabase();
+                    db.findByLoginName( Users.JANNE ); // fails if the database isn't initialized yet
+                    return db;
+                } ) );
+            }
+            start.countDown();
+
+            final UserDatabase db = lookups.get( 0 ).get( 10, TimeUnit.SECONDS );
+            Assertions.assertTrue( db instanceof XMLUserDatabase );
+            for( final Future< UserDatabase > lookup : lookups ) {
+                Assertions.assertSame( db, lookup.get( 10, TimeUnit.SECONDS ) );
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testSetRenamedUserProfile() throws Exception {
         // First, count the number of users, groups, and pages
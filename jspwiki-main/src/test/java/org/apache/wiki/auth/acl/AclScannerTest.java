@@ -0,0 +1,67 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth.acl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+
+class AclScannerTest {
+
+    @Test
+    void shouldFindRules() {
+        Assertions.assertEquals( Arrays.asList( "ALLOW edit Charlie, Herman", "DENY view Guest" ),
+                                 AclScanner.scan( "Bar. [{ALLOW edit Charlie, Herman}] and\n[{DENY view Guest}]" ) );
+        Assertions.assertEquals( Collections.singletonList( "ALLOW view Alice" ), AclScanner.scan( "[{ALLOW view Alice}]" ) );
+    }
+
+    @Test
+    void shouldSkipPagesWithoutRules() {
+        Assertions.assertTrue( AclScanner.scan( "Plain [link] and [{Plugin}]" ).isEmpty() );
+        Assertions.assertTrue( AclScanner.scan( "" ).isEmpty() );
+        Assertions.assertTrue( AclScanner.scan( null ).isEmpty() );
+    }
+
+    @Test
+    void shouldIgnoreEscapedRules() {
+        Assertions.assertTrue( AclScanner.scan( "~[{ALLOW edit Charlie}]" ).isEmpty() );
+        Assertions.assertTrue( AclScanner.scan( "[[{ALLOW edit Charlie}]" ).isEmpty() );
+        Assertions.assertTrue( AclScanner.scan( "{{{ [{ALLOW edit Charlie}] }}}" ).isEmpty() );
+        Assertions.assertTrue( AclScanner.scan( "{{{ ~}}} [{ALLOW edit Charlie}] }}}" ).isEmpty() );
+        Assertions.assertEquals( Collections.singletonList( "ALLOW edit Bob" ),
+                                 AclScanner.scan( "{{{ [{ALLOW edit Charlie}] }}} [{ALLOW edit Bob}]" ) );
+        Assertions.assertEquals( Collections.singletonList( "ALLOW edit Bob" ), AclScanner.scan( "{{mono}} ~~[{ALLOW edit Bob}]" ) );
+    }
+
+    @Test
+    void shouldFollowLinksLikeTheParser() {
+        // rules inside other links or plugin bodies are not rules
+        Assertions.assertTrue( AclScanner.scan( "[Some text {ALLOW edit Charlie}]" ).isEmpty() );
+        Assertions.assertTrue( AclScanner.scan( "[{Plugin body='[{ALLOW edit Charlie}]'}]" ).isEmpty() );
+        Assertions.assertEquals( Collections.singletonList( "ALLOW edit Bob" ),
+                                 AclScanner.scan( "[{Plugin body='[{ALLOW edit Charlie}]'}] [{ALLOW edit Bob}]" ) );
+
+        // unterminated links swallow the rest of the page
+        Assertions.assertTrue( AclScanner.scan( "[Unterminated link [{ALLOW edit Charlie}" ).isEmpty() );
+    }
+
+}
@@ -27,6 +27,7 @@ import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.auth.WikiPrincipal;
 import org.apache.wiki.auth.permissions.PermissionFactory;
+import org.apache.wiki.cache.CachingManager;
 import org.apache.wiki.pages.PageManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -34,6 +35,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 
 public class DefaultAclManagerTest
@@ -99,6 +102,34 @@ public class DefaultAclManagerTest
         Assertions.assertEquals( 0, p.length );
     }
 
+    @Test
+    public void testPermissionsFollowPageChanges() throws Exception {
+        final CachingManager cachingManager = m_engine.getManager( CachingManager.class );
+        Page page = Wiki.contents().page( m_engine, "TestAclPage" ); // fresh page, without any Acl set by earlier renderings
+        final List< String > keys = new ArrayList<>( cachingManager.keys( CachingManager.CACHE_ACLS ) );
+        Acl acl = m_engine.getManager( AclManager.class ).getPermissions( page );
+        final List< String > oldKeys = new ArrayList<>( cachingManager.keys( CachingManager.CACHE_ACLS ) );
+        oldKeys.removeAll( keys );
+        Assertions.assertEquals( 1, oldKeys.size() );
+        Assertions.assertTrue( oldKeys.get( 0 ).startsWith( "TestAclPage@" + page.getVersion() + "#" ) );
+        Assertions.assertEquals( 2, acl.findPrincipals( PermissionFactory.getPagePermission( page, "edit" ) ).length );
+
+        m_engine.saveText( "TestAclPage", "Bar. {{{ [{ALLOW edit Charlie}] }}} [{ALLOW edit Herman}] [{ALLOW view Alice}]" );
+        page = Wiki.contents().page( m_engine, "TestAclPage" );
+        acl = m_engine.getManager( AclManager.class ).getPermissions( page );
+        final List< String > newKeys = new ArrayList<>( cachingManager.keys( CachingManager.CACHE_ACLS ) );
+        newKeys.removeAll( keys );
+        newKeys.removeAll( oldKeys );
+        Assertions.assertEquals( 1, newKeys.size(), "rules read after the save go under a new generation" );
+        Assertions.assertTrue( newKeys.get( 0 ).startsWith( "TestAclPage@" + page.getVersion() + "#" ) );
+        final Principal[] editors = acl.findPrincipals( PermissionFactory.getPagePermission( page, "edit" ) );
+        Assertions.assertEquals( 1, editors.length );
+        Assertions.assertTrue( ArrayUtils.contains( editors, new UnresolvedPrincipal( "Herman" ) ) );
+        Assertions.assertEquals( 2, acl.findPrincipals( PermissionFactory.getPagePermission( page, "view" ) ).length );
+
+        m_engine.getManager( PageManager.class ).deletePage( "TestAclPage" );
+    }
+
     @Test
     public void testAclRegex()
     {
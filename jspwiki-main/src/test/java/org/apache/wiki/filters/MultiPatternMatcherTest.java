@@ -0,0 +1,104 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.Perl5Compiler;
+import org.apache.oro.text.regex.Perl5Matcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+class MultiPatternMatcherTest {
+
+    static final String[] PATTERNS = { "viagra", "buy-?cheap", "casino\\.com", "(poker|slots)", "[0-9]+pills", "ab+c", "x{0,2}yz",
+                                       "online\\s*pharmacy", "^spam$", "(?i)ROLEX", "\\x41CME", "a|b", "replica.*watches" };
+
+    static List< Pattern > compile( final String... patterns ) throws Exception {
+        final Perl5Compiler compiler = new Perl5Compiler();
+        final List< Pattern > compiled = new ArrayList<>();
+        for( final String pattern : patterns ) {
+            compiled.add( compiler.compile( pattern ) );
+        }
+        return compiled;
+    }
+
+    static List< Pattern > bruteForce( final List< Pattern > patterns, final String text ) {
+        final Perl5Matcher matcher = new Perl5Matcher();
+        final List< Pattern > matches = new ArrayList<>();
+        for( final Pattern pattern : patterns ) {
+            if( matcher.contains( text, pattern ) ) {
+                matches.add( pattern );
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    void shouldExtractRequiredLiterals() {
+        Assertions.assertEquals( "viagra", MultiPatternMatcher.requiredLiteral( "viagra" ) );
+        Assertions.assertEquals( "cheap", MultiPatternMatcher.requiredLiteral( "buy-?cheap" ) );
+        Assertions.assertEquals( "casino.com", MultiPatternMatcher.requiredLiteral( "casino\\.com" ) );
+        Assertions.assertEquals( "pills", MultiPatternMatcher.requiredLiteral( "[0-9]+pills" ) );
+        Assertions.assertEquals( "ab", MultiPatternMatcher.requiredLiteral( "ab+c" ) );
+        Assertions.assertEquals( "yz", MultiPatternMatcher.requiredLiteral( "x{0,2}yz" ) );
+        Assertions.assertEquals( "pharmacy", MultiPatternMatcher.requiredLiteral( "online\\s*pharmacy" ) );
+        Assertions.assertEquals( "cme", MultiPatternMatcher.requiredLiteral( "\\x41CME" ) );
+        Assertions.assertEquals( "replica", MultiPatternMatcher.requiredLiteral( "replica.*watches" ) ); // first of the longest
+        Assertions.assertEquals( "spam", MultiPatternMatcher.requiredLiteral( "^spam$" ) );
+
+        Assertions.assertNull( MultiPatternMatcher.requiredLiteral( "(poker|slots)" ) );
+        Assertions.assertNull( MultiPatternMatcher.requiredLiteral( "a|b" ) );
+        Assertions.assertNull( MultiPatternMatcher.requiredLiteral( "(?x) v i a g r a" ) );
+        Assertions.assertNull( MultiPatternMatcher.requiredLiteral( "\\d+" ) );
+    }
+
+    @Test
+    void shouldFindSameMatchesAsRunningEveryPattern() throws Exception {
+        final List< Pattern > patterns = compile( PATTERNS );
+        final MultiPatternMatcher matcher = MultiPatternMatcher.compile( patterns );
+        final String[] texts = { "", "nothing to see here", "Buy VIAGRA at casino.com", "buycheap 12pills", "abbbc xxyz",
+                                 "online   pharmacy", "spam", "fake rolex", "ACME replica swiss watches", "poker", "b",
+                                 "viagraviagra casino-com" };
+        for( final String text : texts ) {
+            Assertions.assertEquals( bruteForce( patterns, text ), matcher.matches( text ), text );
+        }
+    }
+
+    @Test
+    void shouldReportOverlappingLiterals() throws Exception {
+        final List< Pattern > patterns = compile( "she", "he", "hers", "his" );
+        final MultiPatternMatcher matcher = MultiPatternMatcher.compile( patterns );
+        Assertions.assertArrayEquals( new int[] { 0, 1, 2 }, matcher.candidates( "ushers" ) );
+        Assertions.assertEquals( Arrays.asList( patterns.get( 0 ), patterns.get( 1 ), patterns.get( 2 ) ), matcher.matches( "ushers" ) );
+        Assertions.assertEquals( 0, matcher.candidates( "nothing" ).length );
+    }
+
+    @Test
+    void shouldHandleEmptyPatternLists() {
+        final MultiPatternMatcher matcher = MultiPatternMatcher.compile( new ArrayList<>() );
+        Assertions.assertTrue( matcher.isEmpty() );
+        Assertions.assertTrue( matcher.matches( "anything" ).isEmpty() );
+    }
+
+}
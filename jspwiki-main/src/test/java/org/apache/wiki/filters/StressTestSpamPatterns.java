@@ -0,0 +1,86 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.Perl5Compiler;
+import org.apache.oro.text.regex.Perl5Matcher;
+import org.apache.wiki.stress.Benchmark;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Compares running every spam pattern against a change, as the SpamFilter used to, with the {@link MultiPatternMatcher}.
+ * Excluded from the default build; run it with {@code mvn test -Dtest=StressTestSpamPatterns}.
+ */
+public class StressTestSpamPatterns {
+
+    private static final int PATTERNS = 5_000;
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void testBlacklistMatching() throws Exception {
+        final Random random = new Random( 42 );
+        final Perl5Compiler compiler = new Perl5Compiler();
+        final List< Pattern > patterns = new ArrayList<>();
+        for( int i = 0; i < PATTERNS; i++ ) {
+            // shaped like MT-Blacklist entries: domain names, some with a bit of regexp
+            final String word = Long.toString( Math.abs( random.nextLong() ), 36 );
+            patterns.add( compiler.compile( i % 3 == 0 ? word + "\\.(com|net)" : "www\\.?" + word + "\\.info" ) );
+        }
+
+        final StringBuilder text = new StringBuilder();
+        for( int i = 0; i < 50; i++ ) {
+            text.append( "Some perfectly ordinary wiki text, with a link to http://jspwiki.apache.org/ every now and then. " );
+        }
+        final String change = text.toString();
+
+        final Perl5Matcher perl5Matcher = new Perl5Matcher();
+        final Benchmark sequential = new Benchmark();
+        sequential.start();
+        int found = 0;
+        for( int round = 0; round < ROUNDS; round++ ) {
+            for( final Pattern p : patterns ) {
+                if( perl5Matcher.contains( change, p ) ) {
+                    found++;
+                }
+            }
+        }
+        sequential.stop();
+
+        final MultiPatternMatcher matcher = MultiPatternMatcher.compile( patterns );
+        final Benchmark prefiltered = new Benchmark();
+        prefiltered.start();
+        int prefilteredFound = 0;
+        for( int round = 0; round < ROUNDS; round++ ) {
+            prefilteredFound += matcher.matches( change ).size();
+        }
+        prefiltered.stop();
+
+        System.out.println( "Benchmark: every pattern " + sequential.toString( ROUNDS ) + " changes/second, " +
+                            "prefiltered " + prefiltered.toString( ROUNDS ) + " changes/second" );
+        Assertions.assertEquals( found, prefilteredFound );
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+class TemporaryBansTest {
+
+    final AtomicLong clock = new AtomicLong( 1_000_000L );
+    final TemporaryBans bans = new TemporaryBans( 60_000L, clock::get );
+
+    @Test
+    void shouldLiftBansOnceTheyAreOver() {
+        bans.ban( "10.0.0.1" );
+        clock.addAndGet( 20_000L );
+        bans.ban( "10.0.0.2" );
+        Assertions.assertEquals( 40_000L, bans.remaining( "10.0.0.1" ) );
+        Assertions.assertEquals( 60_000L, bans.remaining( "10.0.0.2" ) );
+        Assertions.assertEquals( 0L, bans.remaining( "10.0.0.3" ) );
+        Assertions.assertEquals( 2, bans.size() );
+
+        clock.addAndGet( 40_000L );
+        Assertions.assertEquals( 0L, bans.remaining( "10.0.0.1" ) );
+        Assertions.assertEquals( 1, bans.size() );
+    }
+
+    @Test
+    void shouldExtendBans() {
+        bans.ban( "10.0.0.1" );
+        clock.addAndGet( 50_000L );
+        bans.ban( "10.0.0.1" );
+        clock.addAndGet( 20_000L );
+        bans.expire(); // the first ban is over, but not the second one
+        Assertions.assertEquals( 40_000L, bans.remaining( "10.0.0.1" ) );
+        Assertions.assertEquals( 1, bans.size() );
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+class WindowedCounterTest {
+
+    final AtomicLong clock = new AtomicLong( 1_000_000L );
+    final WindowedCounter counter = new WindowedCounter( 60_000L, 60, clock::get );
+
+    @Test
+    void shouldCountWithinTheWindow() {
+        counter.increment( "10.0.0.1" );
+        counter.increment( "10.0.0.1" );
+        counter.increment( "10.0.0.2" );
+        Assertions.assertEquals( 2, counter.count( "10.0.0.1" ) );
+        Assertions.assertEquals( 1, counter.count( "10.0.0.2" ) );
+        Assertions.assertEquals( 0, counter.count( "10.0.0.3" ) );
+
+        clock.addAndGet( 30_000L );
+        counter.increment( "10.0.0.1" );
+        Assertions.assertEquals( 3, counter.count( "10.0.0.1" ) );
+
+        clock.addAndGet( 30_000L ); // the first two events are a minute old now
+        Assertions.assertEquals( 1, counter.count( "10.0.0.1" ) );
+        Assertions.assertEquals( 0, counter.count( "10.0.0.2" ) );
+    }
+
+    @Test
+    void shouldReuseBucketsOnceTheyComeRound() {
+        counter.increment( "key" );
+        clock.addAndGet( 60_000L ); // same bucket, a whole window later
+        counter.increment( "key" );
+        Assertions.assertEquals( 1, counter.count( "key" ) );
+    }
+
+    @Test
+    void shouldForgetIdleKeys() {
+        counter.increment( "10.0.0.1" );
+        counter.increment( "10.0.0.2" );
+        Assertions.assertEquals( 2, counter.size() );
+
+        clock.addAndGet( 30_000L );
+        counter.increment( "10.0.0.2" );
+        clock.addAndGet( 30_000L );
+        Assertions.assertEquals( 1, counter.size() );
+
+        clock.addAndGet( 10 * 60_000L );
+        Assertions.assertEquals( 0, counter.size() );
+    }
+
+    @Test
+    void shouldCountConcurrently() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        for( int i = 0; i < 8_000; i++ ) {
+            final String key = "10.0.0." + ( i % 4 );
+            executor.execute( () -> counter.increment( key ) );
+        }
+        executor.shutdown();
+        Assertions.assertTrue( executor.awaitTermination( 30, TimeUnit.SECONDS ) );
+        for( int i = 0; i < 4; i++ ) {
+            Assertions.assertEquals( 2_000, counter.count( "10.0.0." + i ) );
+        }
+    }
+
+}
@@ -27,6 +27,7 @@ import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
 import org.apache.wiki.cache.CachingManager;
+import org.apache.wiki.event.WikiEngineEvent;
 import org.apache.wiki.providers.CachingProvider;
 import org.apache.wiki.providers.FileSystemProvider;
 import org.apache.wiki.providers.VerySimpleProvider;
@@ -36,11 +37,16 @@ import org.apache.wiki.util.TextUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 
+import static org.apache.wiki.TestEngine.with;
+
 public class DefaultPageManagerTest {
 
     static final String NAME1 = "Test1";
@@ -309,4 +315,92 @@ public class DefaultPageManagerTest {
         Assertions.assertEquals( TextUtil.normalizePostData( "" ), engine.getManager( PageManager.class ).getText( name ), "wrong content" );
     }
 
+    @Test
+    public void testRecentChangesWindow() throws Exception {
+        final PageManager pm = engine.getManager( PageManager.class );
+        engine.saveText( "RecentOne", "one" );
+        Thread.sleep( 20L );
+        engine.saveText( "RecentTwo", "two" );
+        Thread.sleep( 20L );
+        engine.saveText( "RecentThree", "three" );
+
+        final List< Page > all = pm.getRecentChanges( null, null, 0 );
+        Assertions.assertEquals( "RecentThree", all.get( 0 ).getName() );
+        Assertions.assertEquals( "RecentTwo", all.get( 1 ).getName() );
+        Assertions.assertEquals( "RecentOne", all.get( 2 ).getName() );
+
+        final List< Page > firstTwo = pm.getRecentChanges( null, null, 2 );
+        Assertions.assertEquals( 2, firstTwo.size() );
+        final List< Page > next = pm.getRecentChanges( null, firstTwo.get( 1 ).getLastModified(), 2 );
+        Assertions.assertEquals( "RecentOne", next.get( 0 ).getName() );
+
+        final Date since = pm.getPage( "RecentTwo" ).getLastModified();
+        Assertions.assertEquals( 2, pm.getRecentChanges( since, null, 0 ).size() );
+
+        // changes made after the log is built are picked up, and deleted pages are gone
+        Thread.sleep( 20L );
+        engine.saveText( "RecentOne", "one again" );
+        pm.deletePage( "RecentTwo" );
+        final List< Page > changes = pm.getRecentChanges( since, null, 0 );
+        Assertions.assertEquals( 2, changes.size() );
+        Assertions.assertEquals( "RecentOne", changes.get( 0 ).getName() );
+        Assertions.assertEquals( "RecentThree", changes.get( 1 ).getName() );
+    }
+
+    @Test
+    public void testRecentChangesBeyondLogCapacity() throws Exception {
+        engine.stop();
+        engine = TestEngine.build( with( PageManager.PROP_RECENTCHANGES_SIZE, "2" ) );
+        for( final String name : new String[] { "RecentOne", "RecentTwo", "RecentThree", "RecentFour" } ) {
+            engine.saveText( name, name );
+            Thread.sleep( 20L );
+        }
+        final PageManager pm = Mockito.spy( new DefaultPageManager( engine, engine.getWikiProperties() ) );
+
+        // the log only holds the last two changes, which is enough for the first two
+        final List< Page > latest = pm.getRecentChanges( null, null, 2 );
+        Assertions.assertEquals( 2, latest.size() );
+        Assertions.assertEquals( "RecentFour", latest.get( 0 ).getName() );
+        Assertions.assertEquals( "RecentThree", latest.get( 1 ).getName() );
+        Mockito.verify( pm, Mockito.never() ).getRecentChanges();
+
+        // but not for the first three
+        final List< Page > more = pm.getRecentChanges( null, null, 3 );
+        Assertions.assertEquals( 3, more.size() );
+        Assertions.assertEquals( "RecentTwo", more.get( 2 ).getName() );
+        Mockito.verify( pm ).getRecentChanges();
+    }
+
+    @Test
+    public void testRecentChangesIncludeAttachments() throws Exception {
+        engine.saveText( "RecentOne", "one" );
+        Thread.sleep( 20L );
+        engine.addAttachment( "RecentOne", "recent.txt", "attachment".getBytes() );
+
+        final List< Page > changes = engine.getManager( PageManager.class ).getRecentChanges( null, null, 0 );
+        Assertions.assertTrue( changes.get( 0 ) instanceof Attachment );
+        Assertions.assertEquals( "RecentOne/recent.txt", changes.get( 0 ).getName() );
+        Assertions.assertEquals( "RecentOne", changes.get( 1 ).getName() );
+        TestEngine.deleteAttachments( "RecentOne" );
+    }
+
+    @Test
+    public void testRecentChangesKeptOnShutdown() throws Exception {
+        final PageManager pm = engine.getManager( PageManager.class );
+        engine.saveText( "RecentOne", "one" );
+        Thread.sleep( 20L );
+        engine.saveText( "RecentTwo", "two" );
+        final List< Page > before = pm.getRecentChanges( null, null, 0 );
+
+        pm.actionPerformed( new WikiEngineEvent( engine, WikiEngineEvent.SHUTDOWN ) );
+        final File log = new File( engine.getWorkDir(), "recentchanges.bin" );
+        Assertions.assertTrue( log.exists() );
+
+        final PageManager restarted = new DefaultPageManager( engine, engine.getWikiProperties() );
+        final List< Page > after = restarted.getRecentChanges( null, null, 0 );
+        Assertions.assertEquals( before.size(), after.size() );
+        Assertions.assertEquals( "RecentTwo", after.get( 0 ).getName() );
+        Assertions.assertFalse( log.exists(), "log is consumed on startup" );
+    }
+
 }
@@ -0,0 +1,76 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.pages;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+
+class RecentChangesLogTest {
+
+    @Test
+    void shouldListChangesNewestFirst() {
+        final RecentChangesLog log = new RecentChangesLog( 10 );
+        log.record( "A", 100L );
+        log.record( "B", 300L );
+        log.record( "C", 200L );
+        log.record( "A", 400L );
+
+        Assertions.assertEquals( Arrays.asList( "A", "B", "C" ), log.changes( Long.MIN_VALUE, Long.MAX_VALUE ) );
+        Assertions.assertEquals( Arrays.asList( "B", "C" ), log.changes( 200L, 400L ) );
+        log.remove( "B" );
+        Assertions.assertEquals( Arrays.asList( "A", "C" ), log.changes( Long.MIN_VALUE, Long.MAX_VALUE ) );
+    }
+
+    @Test
+    void shouldForgetOldestChangesWhenFull() {
+        final RecentChangesLog log = new RecentChangesLog( 2 );
+        log.record( "A", 100L );
+        log.record( "B", 200L );
+        Assertions.assertTrue( log.covers( Long.MIN_VALUE ) );
+
+        log.record( "C", 300L );
+        Assertions.assertEquals( 2, log.size() );
+        Assertions.assertFalse( log.covers( 100L ) );
+        Assertions.assertTrue( log.covers( 101L ) );
+        Assertions.assertEquals( Arrays.asList( "C", "B" ), log.changes( 101L, Long.MAX_VALUE ) );
+
+        log.record( "A", 50L ); // older than what's been forgotten already
+        Assertions.assertEquals( 2, log.size() );
+    }
+
+    @Test
+    void shouldReadBackSavedLog( @TempDir final Path dir ) throws Exception {
+        final RecentChangesLog log = new RecentChangesLog( 2 );
+        log.record( "A", 100L );
+        log.record( "B", 200L );
+        log.record( "C", 300L );
+        log.save( dir.resolve( "log" ), 42 );
+
+        final RecentChangesLog read = new RecentChangesLog( 2 );
+        Assertions.assertEquals( 42, read.load( dir.resolve( "log" ) ) );
+        Assertions.assertEquals( Arrays.asList( "C", "B" ), read.changes( Long.MIN_VALUE, Long.MAX_VALUE ) );
+        Assertions.assertFalse( read.covers( 100L ) );
+    }
+
+}
@@ -298,4 +298,74 @@ public class BasicAttachmentProviderTest {
         Assertions.assertEquals( att2.getName(), a2.getName(), "a2 name :: " + res );
     }
 
+    @Test
+    public void testIndexSurvivesRestart() throws Exception {
+        final File in = makeAttachmentFile();
+        final Attachment att = Wiki.contents().attachment( m_engine, NAME1, "test1.txt" );
+        att.setAuthor( "Janne" );
+        m_provider.putAttachmentData( att, Files.newInputStream( in.toPath() ) );
+        m_provider.putAttachmentData( att, Files.newInputStream( in.toPath() ) );
+
+        final File sDir = new File( m_engine.getWikiProperties().getProperty( BasicAttachmentProvider.PROP_STORAGEDIR ) );
+        Assertions.assertTrue( new File( sDir, AttachmentIndex.INDEX_FILE ).exists() );
+
+        final BasicAttachmentProvider provider = new BasicAttachmentProvider();
+        provider.initialize( m_engine, m_engine.getWikiProperties() );
+        final List< Attachment > res = provider.listAllChanged( new Date( 0L ) );
+        Assertions.assertEquals( 1, res.size(), "list size" );
+        Assertions.assertEquals( 2, res.get( 0 ).getVersion() );
+        Assertions.assertEquals( "Janne", res.get( 0 ).getAuthor() );
+        Assertions.assertEquals( FILE_CONTENTS.length(), res.get( 0 ).getSize() );
+        Assertions.assertTrue( res.get( 0 ).getLastModified().after( new Date( 0L ) ) );
+    }
+
+    @Test
+    public void testListAllChangedSince() throws Exception {
+        final File in = makeAttachmentFile();
+        final Attachment att = Wiki.contents().attachment( m_engine, NAME1, "test1.txt" );
+        m_provider.putAttachmentData( att, Files.newInputStream( in.toPath() ) );
+
+        final Date lastModified = m_provider.getAttachmentInfo( Wiki.contents().page( m_engine, NAME1 ), "test1.txt", -1 ).getLastModified();
+        Assertions.assertEquals( 1, m_provider.listAllChanged( new Date( lastModified.getTime() - 1 ) ).size() );
+        Assertions.assertTrue( m_provider.listAllChanged( lastModified ).isEmpty() );
+    }
+
+    @Test
+    public void testIndexFollowsDeleteAndMove() throws Exception {
+        final File in = makeAttachmentFile();
+        final Attachment att = Wiki.contents().attachment( m_engine, NAME1, "test1.txt" );
+        m_provider.putAttachmentData( att, Files.newInputStream( in.toPath() ) );
+        final Attachment att2 = Wiki.contents().attachment( m_engine, NAME1, "test2.txt" );
+        m_provider.putAttachmentData( att2, Files.newInputStream( in.toPath() ) );
+
+        m_provider.deleteAttachment( att );
+        List< Attachment > res = m_provider.listAllChanged( new Date( 0L ) );
+        Assertions.assertEquals( 1, res.size(), "list size" );
+        Assertions.assertEquals( att2.getName(), res.get( 0 ).getName() );
+
+        m_provider.moveAttachmentsForPage( NAME1, "MovedTestPage" );
+        try {
+            res = m_provider.listAllChanged( new Date( 0L ) );
+            Assertions.assertEquals( 1, res.size(), "list size" );
+            Assertions.assertEquals( "MovedTestPage/test2.txt", res.get( 0 ).getName() );
+            Assertions.assertNull( m_provider.getAttachmentInfo( Wiki.contents().page( m_engine, NAME1 ), "test2.txt", -1 ) );
+        } finally {
+            TestEngine.deleteAttachments( "MovedTestPage" );
+        }
+    }
+
+    @Test
+    public void testIndexRebuiltWhenUnreadable() throws Exception {
+        final File in = makeAttachmentFile();
+        final Attachment att = Wiki.contents().attachment( m_engine, NAME1, "test1.txt" );
+        m_provider.putAttachmentData( att, Files.newInputStream( in.toPath() ) );
+
+        final File sDir = new File( m_engine.getWikiProperties().getProperty( BasicAttachmentProvider.PROP_STORAGEDIR ) );
+        makeExtraFile( sDir, AttachmentIndex.INDEX_FILE );
+
+        final List< Attachment > res = m_provider.listAllChanged( new Date( 0L ) );
+        Assertions.assertEquals( 1, res.size(), "list size" );
+        Assertions.assertEquals( att.getName(), res.get( 0 ).getName() );
+    }
+
 }
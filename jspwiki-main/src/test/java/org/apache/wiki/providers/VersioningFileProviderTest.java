@@ -36,8 +36,11 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.Writer;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
@@ -495,6 +498,35 @@ public class VersioningFileProviderTest {
         Assertions.assertNull( p3.getAttribute( Page.CHANGENOTE ) );
     }
 
+    @Test
+    public void testPagePropertiesCacheRevalidates() throws Exception {
+        engine.saveText( NAME1, "v1" );
+        engine.saveText( "Test2", "v1" );
+        engine.saveText( NAME1, "v2" );
+
+        PageProvider provider = engine.getManager( PageManager.class ).getProvider();
+        if( provider instanceof CachingProvider ) {
+            provider = ( ( CachingProvider )provider ).getRealProvider();
+        }
+        Assertions.assertEquals( 2, provider.getVersionHistory( NAME1 ).size() );
+        Assertions.assertEquals( 1, provider.getVersionHistory( "Test2" ).size() );
+
+        // modify the page properties behind the provider's back
+        final File propFile = new File( new File( new File( files, VersioningFileProvider.PAGEDIR ), NAME1 ), VersioningFileProvider.PROPERTYFILE );
+        final long lastModified = propFile.lastModified();
+        final Properties props = new Properties();
+        try( final InputStream in = Files.newInputStream( propFile.toPath() ) ) {
+            props.load( in );
+        }
+        props.setProperty( "1.author", "Changed" );
+        try( final OutputStream out = Files.newOutputStream( propFile.toPath() ) ) {
+            props.store( out, null );
+        }
+        propFile.setLastModified( lastModified + 5_000L );
+
+        Assertions.assertEquals( "Changed", provider.getPageInfo( NAME1, 1 ).getAuthor(), "stale page properties" );
+    }
+
     /**
      * Creates a file of the given name in the wiki page directory, containing the data provided.
      */
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wiki.references;
+
+import org.apache.wiki.TestEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Runs the {@link ReferenceManagerTest} cases against the {@link CompactReferenceManager}.
+ */
+public class CompactReferenceManagerTest extends ReferenceManagerTest {
+
+    @Override
+    String referenceManagerClass() {
+        return CompactReferenceManager.class.getName();
+    }
+
+    @Test
+    public void testResultsAreSortedSnapshots() throws Exception {
+        engine.saveText( "Zebra", "[Foobar2]" );
+        engine.saveText( "Apple", "[Foobar2]" );
+
+        final Collection< String > c = mgr.findReferrers( "Foobar2" );
+        Assertions.assertEquals( Arrays.asList( "Apple", "Foobar", "Zebra" ), Arrays.asList( c.toArray() ) );
+        Assertions.assertThrows( UnsupportedOperationException.class, () -> c.add( "TestPage" ) );
+
+        engine.saveText( "Apple", "norefs" );
+        Assertions.assertEquals( 3, c.size(), "returned sets should not change along with the graph" );
+        Assertions.assertEquals( 2, mgr.findReferrers( "Foobar2" ).size() );
+    }
+
+    @Test
+    public void testGraphIsReadBackFromDisk() throws Exception {
+        engine.saveText( "Foobar", "Reference to [Foobar3]" );
+
+        // second engine on the same page and work directories
+        final Properties props = new Properties();
+        props.putAll( engine.getWikiProperties() );
+        props.setProperty( "jspwiki.test.disable-clean-props", "true" );
+        final TestEngine other = TestEngine.build( props );
+        try {
+            final ReferenceManager reloaded = other.getManager( ReferenceManager.class );
+            Assertions.assertEquals( Set.of( "Foobar3" ), reloaded.findUncreated() );
+            Assertions.assertEquals( mgr.findCreated(), reloaded.findCreated() );
+            Assertions.assertEquals( mgr.findReferrers( "Foobar" ), reloaded.findReferrers( "Foobar" ) );
+            Assertions.assertEquals( mgr.findRefersTo( "TestPage" ), reloaded.findRefersTo( "TestPage" ) );
+            Assertions.assertNull( reloaded.findReferrers( "Foobar2" ) );
+        } finally {
+            other.stop();
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+class ReferenceGraphFileTest {
+
+    @TempDir
+    File workDir;
+
+    static Set< String > set( final String... names ) {
+        return new TreeSet<>( Arrays.asList( names ) );
+    }
+
+    File snapshotFile() {
+        return new File( workDir, "refmgr.bin" );
+    }
+
+    File journalFile() {
+        return new File( workDir, "refmgr.journal" );
+    }
+
+    void writeSnapshot() throws IOException {
+        final Map< String, Set< String > > refersTo = new HashMap<>();
+        refersTo.put( "Main", set( "Foobar", "Uncreated" ) );
+        refersTo.put( "Foobar", set( "Main", "ÅäTest" ) );
+        final Map< String, Set< String > > referredBy = new HashMap<>();
+        referredBy.put( "Main", set( "Foobar" ) );
+        referredBy.put( "Foobar", set( "Main" ) );
+        referredBy.put( "Uncreated", set( "Main" ) );
+        ReferenceGraphFile.writeSnapshot( snapshotFile(), journalFile(), 1_000L, refersTo, referredBy );
+    }
+
+    static Map< String, Set< String > > toMap( final ReferenceGraphFile.Snapshot snapshot, final int[] keys, final int[][] values ) {
+        final Map< String, Set< String > > map = new HashMap<>();
+        for( int i = 0; i < keys.length; i++ ) {
+            final Set< String > refs = new TreeSet<>();
+            for( final int id : values[ i ] ) {
+                refs.add( snapshot.names[ id ] );
+            }
+            map.put( snapshot.names[ keys[ i ] ], refs );
+        }
+        return map;
+    }
+
+    @Test
+    void shouldRoundTripSnapshot() throws IOException {
+        writeSnapshot();
+        final ReferenceGraphFile.Snapshot snapshot = ReferenceGraphFile.readSnapshot( snapshotFile() );
+
+        Assertions.assertEquals( 1_000L, snapshot.timestamp );
+        Assertions.assertEquals( 4, snapshot.names.length, "names should be stored only once" );
+        final Map< String, Set< String > > refersTo = toMap( snapshot, snapshot.refersToKeys, snapshot.refersTo );
+        Assertions.assertEquals( set( "Foobar", "Uncreated" ), refersTo.get( "Main" ) );
+        Assertions.assertEquals( set( "Main", "ÅäTest" ), refersTo.get( "Foobar" ) );
+        final Map< String, Set< String > > referredBy = toMap( snapshot, snapshot.referredByKeys, snapshot.referredBy );
+        Assertions.assertEquals( 3, referredBy.size() );
+        Assertions.assertEquals( set( "Main" ), referredBy.get( "Uncreated" ) );
+    }
+
+    @Test
+    void shouldReplayJournal() throws IOException {
+        writeSnapshot();
+        ReferenceGraphFile.appendUpdate( journalFile(), "Main", set( "Foobar" ) );
+        ReferenceGraphFile.appendRemove( journalFile(), "Foobar" );
+
+        final List< String > replayed = new ArrayList<>();
+        final long last = ReferenceGraphFile.replayJournal( journalFile(), ReferenceGraphFile.readSnapshot( snapshotFile() ), new ReferenceGraphFile.JournalVisitor() {
+
+            @Override
+            public void updated( final String page, final Collection< String > references ) {
+                replayed.add( "update " + page + " " + references );
+            }
+
+            @Override
+            public void removed( final String page ) {
+                replayed.add( "remove " + page );
+            }
+        } );
+
+        Assertions.assertEquals( Arrays.asList( "update Main [Foobar]", "remove Foobar" ), replayed );
+        Assertions.assertTrue( last > 1_000L );
+    }
+
+    @Test
+    void shouldStopReplayAtTruncatedRecord() throws IOException {
+        writeSnapshot();
+        ReferenceGraphFile.appendUpdate( journalFile(), "Main", set( "Foobar" ) );
+        ReferenceGraphFile.appendUpdate( journalFile(), "Foobar", set( "Main" ) );
+        try( final RandomAccessFile raf = new RandomAccessFile( journalFile(), "rw" ) ) {
+            raf.setLength( raf.length() - 3 );
+        }
+
+        final List< String > replayed = new ArrayList<>();
+        ReferenceGraphFile.replayJournal( journalFile(), ReferenceGraphFile.readSnapshot( snapshotFile() ), new ReferenceGraphFile.JournalVisitor() {
+
+            @Override
+            public void updated( final String page, final Collection< String > references ) {
+                replayed.add( page );
+            }
+
+            @Override
+            public void removed( final String page ) {
+                replayed.add( page );
+            }
+        } );
+
+        Assertions.assertEquals( Arrays.asList( "Main" ), replayed );
+    }
+
+    @Test
+    void shouldRejectForeignFiles() throws IOException {
+        try( final RandomAccessFile raf = new RandomAccessFile( snapshotFile(), "rw" ) ) {
+            raf.writeLong( 4L );
+            raf.writeLong( System.currentTimeMillis() );
+        }
+        Assertions.assertThrows( IOException.class, () -> ReferenceGraphFile.readSnapshot( snapshotFile() ) );
+    }
+
+}
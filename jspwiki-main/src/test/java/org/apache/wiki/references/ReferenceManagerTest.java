@@ -14,6 +14,7 @@
 package org.apache.wiki.references;
 
 import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.exceptions.WikiException;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.pages.PageManager;
@@ -22,8 +23,11 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Properties;
 import java.util.Set;
 
 import static org.apache.wiki.TestEngine.with;
@@ -33,9 +37,15 @@ import static org.apache.wiki.TestEngine.with;
  */
 public class ReferenceManagerTest  {
 
-    TestEngine engine = TestEngine.build( with( "jspwiki.translatorReader.matchEnglishPlurals", "true" ) );
+    TestEngine engine = TestEngine.build( with( "jspwiki.translatorReader.matchEnglishPlurals", "true" ),
+                                          with( Engine.PROP_REF_MANAGER_IMPL, referenceManagerClass() ) );
     ReferenceManager mgr = engine.getManager( ReferenceManager.class );
 
+    /** The ReferenceManager implementation under test. */
+    String referenceManagerClass() {
+        return DefaultReferenceManager.class.getName();
+    }
+
     @BeforeEach
     public void setUp() throws Exception {
         // create two handy wiki pages used in most test cases
@@ -311,6 +321,50 @@ public class ReferenceManagerTest  {
         Assertions.assertEquals( "This is a link", result[1], "item 1" );
     }
 
+    @Test
+    public void testParallelRescan() throws Exception {
+        for( int i = 0; i < 20; i++ ) {
+            engine.saveText( "ScanPage" + i, "[Foobar] [ScanPage" + ( i + 1 ) + "]" );
+        }
+        Assertions.assertTrue( new File( engine.getWorkDir(), "refmgr.bin" ).delete() );
+
+        // second engine on the same page and work directories, which has to rebuild all references
+        final Properties props = new Properties();
+        props.putAll( engine.getWikiProperties() );
+        props.setProperty( "jspwiki.test.disable-clean-props", "true" );
+        props.setProperty( ReferenceManager.PROP_SCAN_THREADS, "3" );
+        final TestEngine other = TestEngine.build( props );
+        try {
+            final ReferenceManager rebuilt = other.getManager( ReferenceManager.class );
+            Assertions.assertEquals( 22, rebuilt.getLastScanPages() );
+            Assertions.assertTrue( rebuilt.getLastScanTime() >= 0 );
+            Assertions.assertEquals( mgr.findCreated(), rebuilt.findCreated() );
+            Assertions.assertEquals( mgr.findReferrers( "Foobar" ), rebuilt.findReferrers( "Foobar" ) );
+            Assertions.assertEquals( Set.of( "ScanPage20", "Foobar2" ), new HashSet<>( rebuilt.findUncreated() ) );
+        } finally {
+            other.stop();
+        }
+    }
+
+    @Test
+    public void testLegacySerializationIsDeleted() throws Exception {
+        final File legacy = new File( engine.getWorkDir(), "refmgr.ser" );
+        Assertions.assertTrue( new File( engine.getWorkDir(), "refmgr.bin" ).renameTo( legacy ) );
+
+        // second engine on the same page and work directories, which doesn't read the old format and rebuilds the references
+        final Properties props = new Properties();
+        props.putAll( engine.getWikiProperties() );
+        props.setProperty( "jspwiki.test.disable-clean-props", "true" );
+        final TestEngine other = TestEngine.build( props );
+        try {
+            Assertions.assertEquals( mgr.findReferrers( "Foobar" ), other.getManager( ReferenceManager.class ).findReferrers( "Foobar" ) );
+            Assertions.assertFalse( legacy.exists() );
+            Assertions.assertTrue( new File( engine.getWorkDir(), "refmgr.bin" ).exists() );
+        } finally {
+            other.stop();
+        }
+    }
+
     /**
      * Test method: dumps the contents of  ReferenceManager link lists to stdout.
      * This method is NOT synchronized, and should be used in testing
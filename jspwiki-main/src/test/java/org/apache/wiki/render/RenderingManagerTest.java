@@ -21,6 +21,7 @@ package org.apache.wiki.render;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.ContextEnum;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.pages.PageManager;
@@ -95,6 +96,44 @@ public class RenderingManagerTest {
         Assertions.assertEquals( "<i>Foobar.</i>\n", data );
     }
 
+    @Test
+    public void testCachedDocumentsFlushedOnlyWhenLinkedPagesAppearOrGo() throws Exception {
+        m_engine.saveText( "CacheLinking", "Links to [CacheTarget]." );
+        final WikiDocument first = render( "CacheLinking" );
+        Assertions.assertSame( first, render( "CacheLinking" ) );
+
+        m_engine.saveText( "CacheUnrelated", "Nothing to see here." );
+        Assertions.assertSame( first, render( "CacheLinking" ), "unrelated page flushed the document" );
+
+        m_engine.saveText( "CacheTarget", "Now I exist." );
+        final WikiDocument second = render( "CacheLinking" );
+        Assertions.assertNotSame( first, second, "new page didn't flush the document linking to it" );
+        Assertions.assertTrue( m_manager.getHTML( viewContext( "CacheLinking" ), second ).contains( "class=\"wikipage\"" ) );
+
+        m_engine.saveText( "CacheTarget", "Still here." );
+        Assertions.assertSame( second, render( "CacheLinking" ), "edit of existing page flushed the document" );
+
+        m_engine.getManager( PageManager.class ).deletePage( "CacheTarget" );
+        final WikiDocument third = render( "CacheLinking" );
+        Assertions.assertNotSame( second, third, "deleted page didn't flush the document linking to it" );
+        Assertions.assertTrue( m_manager.getHTML( viewContext( "CacheLinking" ), third ).contains( "class=\"createpage\"" ) );
+
+        m_engine.saveText( "CacheLinking", "Links to nothing." );
+        Assertions.assertNotSame( third, render( "CacheLinking" ), "saved page kept its old document" );
+    }
+
+    private Context viewContext( final String name ) {
+        final Page page = m_engine.getManager( PageManager.class ).getPage( name );
+        final Context context = Wiki.context().create( m_engine, page );
+        context.setRequestContext( ContextEnum.PAGE_VIEW.getRequestContext() );
+        return context;
+    }
+
+    private WikiDocument render( final String name ) {
+        final Context context = viewContext( name );
+        return m_manager.getRenderedDocument( context, m_engine.getManager( PageManager.class ).getPureText( context.getPage() ) );
+    }
+
     /**
      * Tests the relative speed of the DOM cache with respect to page being parsed every single time.
      */
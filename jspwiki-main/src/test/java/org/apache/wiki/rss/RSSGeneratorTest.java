@@ -29,9 +29,11 @@ import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.plugin.WeblogEntryPlugin;
 import org.apache.wiki.plugin.WeblogPlugin;
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringWriter;
 import java.util.Date;
 import java.util.List;
 
@@ -82,4 +84,29 @@ public class RSSGeneratorTest {
         Assertions.assertTrue( blog.contains( "&lt;b&gt;Bar&lt;/b&gt;" ), "has proper Bar" );
     }
 
+    @Test
+    public void testFullRSSFollowsPageChanges() throws Exception {
+        final RSSGenerator gen = m_testEngine.getManager( RSSGenerator.class );
+        // the generator thread makes the feed once on startup, and then waits for a full interval
+        Awaitility.await( "testFullRSSFollowsPageChanges" ).until( () -> !gen.isOutdated() );
+
+        m_testEngine.saveText( "RSSFeedPageA", "Foo" );
+        m_testEngine.saveText( "RSSFeedPageB", "Bar" );
+        Assertions.assertTrue( gen.isOutdated(), "saves should outdate the feed" );
+        String rss = gen.generate();
+        Assertions.assertFalse( gen.isOutdated() );
+        Assertions.assertTrue( rss.contains( "<title>RSSFeedPageA</title>" ), "has page A" );
+        Assertions.assertTrue( rss.indexOf( "<title>RSSFeedPageB</title>" ) < rss.indexOf( "<title>RSSFeedPageA</title>" ), "newest first" );
+
+        m_testEngine.saveText( "RSSFeedPageA", "Foo, again" );
+        m_testEngine.getManager( PageManager.class ).deletePage( "RSSFeedPageB" );
+        Assertions.assertTrue( gen.isOutdated(), "changes should outdate the feed" );
+        final StringWriter out = new StringWriter();
+        gen.generate( out );
+        rss = out.toString();
+        Assertions.assertTrue( rss.startsWith( "<?xml" ) );
+        Assertions.assertTrue( rss.contains( "Foo, again" ), "has the new version of page A" );
+        Assertions.assertFalse( rss.contains( "<title>RSSFeedPageB</title>" ), "deleted page B" );
+    }
+
 }
@@ -0,0 +1,63 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.wiki.api.core.Page;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+
+class LuceneUpdateQueueTest {
+
+    static Page page( final String name ) {
+        final Page page = Mockito.mock( Page.class );
+        Mockito.doReturn( name ).when( page ).getName();
+        return page;
+    }
+
+    @Test
+    void shouldCoalesceUpdatesOfTheSamePage() {
+        final LuceneUpdateQueue queue = new LuceneUpdateQueue();
+        final Page first = page( "TestPage" );
+        final Page last = page( "TestPage" );
+        queue.add( first );
+        queue.add( page( "OtherPage" ) );
+        queue.add( last );
+
+        Assertions.assertEquals( 2, queue.size() );
+        Assertions.assertEquals( 1, queue.coalesced() );
+        Assertions.assertSame( last, queue.poll().page, "last write should win, keeping the original position" );
+        Assertions.assertEquals( "OtherPage", queue.poll().page.getName() );
+        Assertions.assertNull( queue.poll() );
+        Assertions.assertEquals( 0L, queue.oldestAge() );
+    }
+
+    @Test
+    void shouldCancelPendingUpdates() {
+        final LuceneUpdateQueue queue = new LuceneUpdateQueue();
+        queue.add( page( "TestPage" ) );
+
+        Assertions.assertTrue( queue.cancel( "TestPage" ) );
+        Assertions.assertFalse( queue.cancel( "TestPage" ) );
+        Assertions.assertEquals( 0, queue.size() );
+        Assertions.assertNull( queue.poll() );
+    }
+
+}
@@ -19,9 +19,13 @@
 package org.apache.wiki.search;
 
 import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.ContextEnum;
+import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.search.SearchResult;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.pages.PageManager;
@@ -33,6 +37,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 
@@ -203,4 +208,49 @@ public class SearchManagerTest {
         m_engine.deleteTestPage("TestPage");
     }
 
+    @Test
+    public void testParallelReindex() throws Exception {
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind." );
+        m_engine.saveText( "TestPage2", "The Babylon Project was a dream given form." );
+        m_engine.saveText( "TestPage3", "Its goal: to prevent another war." );
+        final LuceneSearchProvider provider = ( LuceneSearchProvider )m_mgr.getSearchEngine();
+        final LuceneReindexer reindexer = new LuceneReindexer( provider, 2, 2 );
+        try( final Directory dir = new ByteBuffersDirectory();
+             final IndexWriter writer = provider.getIndexWriter( dir ) ) {
+            final Collection< Page > pages = m_engine.getManager( PageManager.class ).getAllPages();
+            Assertions.assertEquals( pages.size(), reindexer.reindex( pages, Collections.emptyList(), writer ) );
+            Assertions.assertEquals( pages.size(), writer.getDocStats().numDocs );
+            Assertions.assertEquals( 100, reindexer.getProgress() );
+        }
+        m_engine.deleteTestPage( "TestPage" );
+        m_engine.deleteTestPage( "TestPage2" );
+        m_engine.deleteTestPage( "TestPage3" );
+    }
+
+    @Test
+    public void testSharedWriterSearch() throws Exception {
+        m_engine.stop();
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( SearchManager.PROP_SEARCHPROVIDER, "LuceneSearchProvider" );
+        props.setProperty( LuceneSearchProvider.PROP_LUCENE_SHARED_WRITER, "true" );
+        props.setProperty( "jspwiki.lucene.indexdelay", "0" );
+        props.setProperty( "jspwiki.lucene.initialdelay", "0" );
+        props.setProperty( "jspwiki.workDir", props.getProperty( "jspwiki.workDir" ) + System.currentTimeMillis() );
+        props.setProperty( "jspwiki.fileSystemProvider.pageDir", props.getProperty( "jspwiki.fileSystemProvider.pageDir" ) + System.currentTimeMillis() );
+        m_engine = TestEngine.build( props );
+        m_mgr = m_engine.getManager( SearchManager.class );
+
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind, ten years after the Earth-Minbari War." );
+        final Collection< SearchResult > res = new ArrayList<>();
+        Awaitility.await( "testSharedWriterSearch" ).until( findsResultsFor( res, "mankind" ) );
+        Assertions.assertEquals( 1, res.size(), "no pages" );
+
+        m_engine.saveText( "TestPage", "The Babylon Project was a dream given form." );
+        final Collection< SearchResult > res2 = new ArrayList<>();
+        Awaitility.await( "testSharedWriterSearch" ).until( findsResultsFor( res2, "Babylon" ) );
+        Assertions.assertEquals( 1, res2.size(), "no pages" );
+        Assertions.assertEquals( 0, m_mgr.findPages( "mankind", Wiki.context().create( m_engine, m_engine.newHttpRequest(), ContextEnum.PAGE_EDIT.getRequestContext() ) ).size() );
+        m_engine.deleteTestPage( "TestPage" );
+    }
+
 }
\ No newline at end of file
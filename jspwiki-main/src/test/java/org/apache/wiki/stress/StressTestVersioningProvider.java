@@ -20,12 +20,20 @@ package org.apache.wiki.stress;
 
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.providers.CachingProvider;
+import org.apache.wiki.providers.VersioningFileProvider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 public class StressTestVersioningProvider {
@@ -109,4 +117,54 @@ public class StressTestVersioningProvider {
         runMassiveFileTest( 10000 );
     }
 
+    private long runConcurrentReads( final PageProvider provider, final int threads, final int pages, final int versions, final int rounds ) throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool( threads );
+        final Benchmark mark = new Benchmark();
+        final List< Future< ? > > futures = new ArrayList<>();
+        mark.start();
+        for( int t = 0; t < threads; t++ ) {
+            final int offset = t;
+            futures.add( pool.submit( () -> {
+                for( int r = 0; r < rounds; r++ ) {
+                    for( int i = 0; i < pages; i++ ) {
+                        final String name = NAME1 + ( ( i + offset ) % pages );
+                        Assertions.assertNotNull( provider.getPageText( name, 1 + r % ( versions - 1 ) ) );
+                    }
+                }
+                return null;
+            } ) );
+        }
+        for( final Future< ? > future : futures ) {
+            future.get();
+        }
+        mark.stop();
+        pool.shutdown();
+
+        final int reads = threads * rounds * pages;
+        System.out.println( threads + " thread(s) read " + reads + " old versions in " + mark + ", " + mark.toString( reads ) + " reads/second" );
+        return mark.getTime();
+    }
+
+    public void testConcurrentReads() throws Exception {
+        final int pages = 50;
+        final int versions = 10;
+        for( int i = 0; i < pages; i++ ) {
+            for( int v = 0; v < versions; v++ ) {
+                engine.saveText( NAME1 + i, "Version " + v + " of page " + i );
+            }
+        }
+        PageProvider provider = engine.getManager( PageManager.class ).getProvider();
+        if( provider instanceof CachingProvider ) {
+            provider = ( ( CachingProvider )provider ).getRealProvider();
+        }
+        Assertions.assertTrue( provider instanceof VersioningFileProvider );
+
+        final int threads = Runtime.getRuntime().availableProcessors() * 2;
+        final int rounds = 20;
+        runConcurrentReads( provider, 1, pages, versions, rounds * threads ); // warm up
+        final long serial = runConcurrentReads( provider, 1, pages, versions, rounds * threads );
+        final long concurrent = runConcurrentReads( provider, threads, pages, versions, rounds );
+        System.out.println( "Speedup with " + threads + " threads: " + ( double )serial / Math.max( 1L, concurrent ) );
+    }
+
 }
@@ -21,6 +21,7 @@ package org.apache.wiki.ui;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -29,6 +30,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.servlet.ServletContext;
+import java.io.ByteArrayInputStream;
 import java.util.HashMap;
 import java.util.Properties;
 import java.util.Vector;
@@ -44,6 +47,9 @@ class TemplateManagerTest {
     @Mock
     Engine engine;
 
+    @Mock
+    ServletContext servletContext;
+
     @ParameterizedTest
     @MethodSource( "provideArgumentsForAddResourceRequest" )
     void shouldCheckAddResourceRequest( final String type, final String res, final String expected ) {
@@ -72,4 +78,35 @@ class TemplateManagerTest {
         );
     }
 
+    @Test
+    void shouldRememberResolvedResources() {
+        Mockito.doReturn( servletContext ).when( engine ).getServletContext();
+        Mockito.doReturn( null ).when( servletContext ).getResourceAsStream( "/templates/custom/Footer.jsp" );
+        Mockito.doAnswer( invocationOnMock -> new ByteArrayInputStream( new byte[ 0 ] ) )
+               .when( servletContext ).getResourceAsStream( "/templates/default/Footer.jsp" );
+        Mockito.doReturn( null ).when( servletContext ).getResourceAsStream( "/templates/custom/Missing.jsp" );
+        Mockito.doReturn( null ).when( servletContext ).getResourceAsStream( "/templates/default/Missing.jsp" );
+
+        final TemplateManager mgr = new DefaultTemplateManager( engine, new Properties() );
+        for( int i = 0; i < 3; i++ ) {
+            Assertions.assertEquals( "/templates/default/Footer.jsp", mgr.findResource( ctx, "custom", "Footer.jsp" ) );
+            Assertions.assertNull( mgr.findResource( ctx, "custom", "Missing.jsp" ) );
+        }
+        Mockito.verify( servletContext, Mockito.times( 1 ) ).getResourceAsStream( "/templates/custom/Footer.jsp" );
+        Mockito.verify( servletContext, Mockito.times( 1 ) ).getResourceAsStream( "/templates/default/Missing.jsp" );
+    }
+
+    @Test
+    void shouldRevalidateResourcesWhenAsked() {
+        Mockito.doReturn( servletContext ).when( engine ).getServletContext();
+        Mockito.doReturn( null, new ByteArrayInputStream( new byte[ 0 ] ) )
+               .when( servletContext ).getResourceAsStream( "/templates/custom/ViewTemplate.jsp" );
+
+        final Properties properties = new Properties();
+        properties.setProperty( DefaultTemplateManager.PROP_REVALIDATE, "true" );
+        final TemplateManager mgr = new DefaultTemplateManager( engine, properties );
+        Assertions.assertFalse( mgr.templateExists( "custom" ) );
+        Assertions.assertTrue( mgr.templateExists( "custom" ), "template added after the first lookup should be found" );
+    }
+
 }
@@ -0,0 +1,81 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.ui;
+
+import net.sourceforge.stripes.mock.MockHttpServletResponse;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.spi.Wiki;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+
+class WikiJSPFilterTest {
+
+    TestEngine engine = TestEngine.build();
+
+    @Test
+    void shouldSendOutputUpToTheFirstMarkerAndSpliceTheRest() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final WikiJSPFilter.StreamingResponseWrapper wrapper = new WikiJSPFilter.StreamingResponseWrapper( response, "UTF-8" );
+        final Context context = Wiki.context().create( engine, Wiki.contents().page( engine, "Streamed" ) );
+        final PrintWriter out = wrapper.getWriter();
+
+        final String head = "<html><head><title>Übersicht, a page with a title long enough to be sent</title>\n";
+        out.print( head );
+        out.flush();
+        final String sent = sent( response );
+        Assertions.assertFalse( sent.isEmpty(), "nothing sent before the first marker" );
+        Assertions.assertTrue( head.startsWith( sent ) );
+
+        out.println( TemplateManager.getMarker( context, TemplateManager.RESOURCE_SCRIPT ) );
+        out.print( "<script>" );
+        out.println( TemplateManager.getMarker( context, TemplateManager.RESOURCE_JSFUNCTION ) );
+        out.print( "</script></head><body>" );
+        out.flush();
+        Assertions.assertEquals( head, sent( response ), "output after the first marker sent before finishing" );
+
+        // resources requested while rendering the body, after the markers have been written
+        TemplateManager.addResourceRequest( context, TemplateManager.RESOURCE_SCRIPT, "scripts/streamed.js" );
+        TemplateManager.addResourceRequest( context, TemplateManager.RESOURCE_JSFUNCTION, "streamed();" );
+        TemplateManager.addResourceRequest( context, TemplateManager.RESOURCE_INLINECSS, "p { color: red; }" );
+        out.print( "Body.</body></html>" );
+        wrapper.finish( context );
+
+        final String script = TemplateManager.getResourceRequests( context, TemplateManager.RESOURCE_SCRIPT )[ 0 ];
+        Assertions.assertEquals( head + script + "\n<script>streamed();\n</script></head><body>Body.</body></html>", sent( response ) );
+    }
+
+    @Test
+    void shouldSendEverythingIfThereAreNoMarkers() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final WikiJSPFilter.StreamingResponseWrapper wrapper = new WikiJSPFilter.StreamingResponseWrapper( response, "UTF-8" );
+        wrapper.getOutputStream().write( "{ \"json\": true }".getBytes( StandardCharsets.UTF_8 ) );
+        wrapper.finish( null );
+        Assertions.assertEquals( "{ \"json\": true }", sent( response ) );
+    }
+
+    private static String sent( final MockHttpServletResponse response ) {
+        return new String( response.getOutputBytes(), StandardCharsets.UTF_8 );
+    }
+
+}
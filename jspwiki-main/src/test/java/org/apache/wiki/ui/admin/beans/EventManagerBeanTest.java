@@ -0,0 +1,50 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.ui.admin.beans;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.event.WikiEventStatistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+
+public class EventManagerBeanTest {
+
+    TestEngine testEngine = TestEngine.build();
+
+    @Test
+    public void testListenerStatistics() throws Exception {
+        final EventManagerBean bean = new EventManagerBean( testEngine );
+        Assertions.assertEquals( WikiEventStatistics.DEFAULT_SLOW_THRESHOLD, bean.getAttribute( "slowListenerThreshold" ) );
+
+        bean.reset();
+        testEngine.saveText( "TestPage01", "some text" );
+        final String[] statistics = bean.getListenerStatistics();
+        Assertions.assertTrue( Arrays.stream( statistics ).anyMatch( s -> s.contains( " WikiPageEvent." ) ), Arrays.toString( statistics ) );
+
+        final Context context = Wiki.context().create( testEngine, Wiki.contents().page( testEngine, "TestPage01" ) );
+        Assertions.assertTrue( bean.doGet( context ).contains( "<th>Listener</th>" ) );
+        testEngine.deleteTestPage( "TestPage01" );
+    }
+
+}
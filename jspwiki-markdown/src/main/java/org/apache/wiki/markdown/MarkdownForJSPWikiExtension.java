@@ -47,6 +47,18 @@ public class MarkdownForJSPWikiExtension implements Parser.ParserExtension, Html
 		this.inlineImagePatterns = inlineImagePatterns;
 	}
 
+	/**
+	 * Extension which takes the wiki context of each document from {@link MarkdownProcessors#currentContext()}, so it can be
+	 * shared by all the requests.
+	 *
+	 * @param isImageInlining whether images are inlined.
+	 * @param inlineImagePatterns patterns of the images to inline.
+	 * @since 2.12.3
+	 */
+	public MarkdownForJSPWikiExtension( final boolean isImageInlining, final List< Pattern > inlineImagePatterns ) {
+		this( null, isImageInlining, inlineImagePatterns );
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
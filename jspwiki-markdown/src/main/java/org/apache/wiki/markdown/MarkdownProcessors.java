@@ -0,0 +1,146 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.markdown;
+
+import com.vladsch.flexmark.html.HtmlRenderer;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.data.MutableDataSet;
+import org.apache.oro.text.regex.Pattern;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.parser.markdown.MarkdownDocument;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * The flexmark {@link Parser} and {@link HtmlRenderer} of a wiki, built once per set of options and shared by all the
+ * parsers and renderers of the wiki, as building them means setting up all the flexmark extensions again.
+ * <p>
+ * As they are shared, they don't know about the wiki context of a request: it is held by the thread parsing or rendering a
+ * document for as long as it does so, see {@link #currentContext()}, and the JSPWiki extension picks it up from there. Parsed
+ * documents may be cached and rendered by several requests at the same time, so the context is not kept on them.
+ *
+ * @since 2.12.3
+ */
+public final class MarkdownProcessors {
+
+    /** Engine attribute holding the processors of a wiki, so they go away with it. */
+    private static final String PROCESSORS = MarkdownProcessors.class.getName();
+
+    /** Wiki context of the document being parsed or rendered by the current thread. */
+    private static final ThreadLocal< Context > CURRENT_CONTEXT = new ThreadLocal<>();
+
+    private final Parser parser;
+    private final HtmlRenderer renderer;
+
+    private MarkdownProcessors( final boolean isImageInlining, final List< Pattern > inlineImagePatterns ) {
+        final MutableDataSet options = MarkdownDocument.options( isImageInlining, inlineImagePatterns );
+        parser = Parser.builder( options ).build();
+        renderer = HtmlRenderer.builder( options ).build();
+    }
+
+    /**
+     * Returns the processors of a wiki for a given set of options, building them on first use.
+     *
+     * @param engine the wiki engine.
+     * @param isImageInlining whether images are inlined.
+     * @param inlineImagePatterns patterns of the images to inline.
+     * @return the processors of the wiki for the given options.
+     */
+    public static MarkdownProcessors of( final Engine engine, final boolean isImageInlining, final List< Pattern > inlineImagePatterns ) {
+        Map< List< Object >, MarkdownProcessors > processors = engine.getAttribute( PROCESSORS );
+        if( processors == null ) {
+            synchronized( MarkdownProcessors.class ) {
+                processors = engine.getAttribute( PROCESSORS );
+                if( processors == null ) {
+                    processors = new ConcurrentHashMap<>();
+                    engine.setAttribute( PROCESSORS, processors );
+                }
+            }
+        }
+        return processors.computeIfAbsent( Arrays.asList( isImageInlining, inlineImagePatterns ),
+                                           k -> new MarkdownProcessors( isImageInlining, inlineImagePatterns ) );
+    }
+
+    /**
+     * Returns the wiki context of the document being parsed or rendered by the current thread.
+     *
+     * @return the wiki context, or {@code null} if the current thread isn't parsing or rendering a document.
+     */
+    public static Context currentContext() {
+        return CURRENT_CONTEXT.get();
+    }
+
+    /**
+     * Parses a markdown document, post processing its links for the given wiki context.
+     *
+     * @param context current wiki context.
+     * @param in markdown to parse.
+     * @return the parsed flexmark document.
+     * @throws IOException if the markdown cannot be read.
+     */
+    public Document parse( final Context context, final Reader in ) throws IOException {
+        final Context previous = enter( context );
+        try {
+            return parser.parseReader( in );
+        } finally {
+            leave( previous );
+        }
+    }
+
+    /**
+     * Renders a parsed markdown document as seen on the given wiki context.
+     *
+     * @param context current wiki context.
+     * @param node the flexmark document to render.
+     * @return the rendered html.
+     */
+    public String render( final Context context, final Node node ) {
+        final Context previous = enter( context );
+        try {
+            return renderer.render( node );
+        } finally {
+            leave( previous );
+        }
+    }
+
+    /** Sets the context of the current thread, returning the one it had, as plugins may render other pages meanwhile. */
+    private static Context enter( final Context context ) {
+        final Context previous = CURRENT_CONTEXT.get();
+        CURRENT_CONTEXT.set( context );
+        return previous;
+    }
+
+    private static void leave( final Context previous ) {
+        if( previous != null ) {
+            CURRENT_CONTEXT.set( previous );
+        } else {
+            CURRENT_CONTEXT.remove();
+        }
+    }
+
+}
@@ -24,6 +24,7 @@ import com.vladsch.flexmark.html.IndependentAttributeProviderFactory;
 import com.vladsch.flexmark.html.renderer.LinkResolverContext;
 import org.apache.oro.text.regex.Pattern;
 import org.apache.wiki.api.core.Context;
+import org.apache.wiki.markdown.MarkdownProcessors;
 
 import java.util.List;
 
@@ -45,6 +46,17 @@ public class JSPWikiLinkAttributeProviderFactory extends IndependentAttributePro
         this.inlineImagePatterns = inlineImagePatterns;
     }
 
+    /**
+     * Factory taking the wiki context of the document being rendered from {@link MarkdownProcessors#currentContext()}.
+     *
+     * @param isImageInlining whether images are inlined.
+     * @param inlineImagePatterns patterns of the images to inline.
+     * @since 2.12.3
+     */
+    public JSPWikiLinkAttributeProviderFactory( final boolean isImageInlining, final List< Pattern > inlineImagePatterns ) {
+        this( null, isImageInlining, inlineImagePatterns );
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -52,6 +64,7 @@ public class JSPWikiLinkAttributeProviderFactory extends IndependentAttributePro
      */
     @Override
     public AttributeProvider apply( final LinkResolverContext context ) {
+        final Context wikiContext = this.wikiContext != null ? this.wikiContext : MarkdownProcessors.currentContext();
         return new JSPWikiLinkAttributeProvider( wikiContext, isImageInlining, inlineImagePatterns );
     }
 
@@ -22,9 +22,12 @@ import com.vladsch.flexmark.ast.Link;
 import com.vladsch.flexmark.parser.block.NodePostProcessor;
 import com.vladsch.flexmark.parser.block.NodePostProcessorFactory;
 import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.ast.NodeTracker;
 import com.vladsch.flexmark.util.data.DataHolder;
 import org.apache.oro.text.regex.Pattern;
 import org.apache.wiki.api.core.Context;
+import org.apache.wiki.markdown.MarkdownProcessors;
 
 import java.util.List;
 
@@ -34,6 +37,13 @@ import java.util.List;
  */
 public class JSPWikiNodePostProcessorFactory extends NodePostProcessorFactory {
 
+    private static final NodePostProcessor NO_OP = new NodePostProcessor() {
+
+        @Override
+        public void process( final NodeTracker state, final Node node ) {
+        }
+    };
+
     private final Context m_context;
     private final boolean isImageInlining;
     private final List< Pattern > inlineImagePatterns;
@@ -49,12 +59,29 @@ public class JSPWikiNodePostProcessorFactory extends NodePostProcessorFactory {
         this.inlineImagePatterns = inlineImagePatterns;
     }
 
+    /**
+     * Factory taking the wiki context of the document being parsed from {@link MarkdownProcessors#currentContext()}.
+     *
+     * @param isImageInlining whether images are inlined.
+     * @param inlineImagePatterns patterns of the images to inline.
+     * @since 2.12.3
+     */
+    public JSPWikiNodePostProcessorFactory( final boolean isImageInlining, final List< Pattern > inlineImagePatterns ) {
+        this( null, null, isImageInlining, inlineImagePatterns );
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * Documents parsed without a wiki context keep their links as they are.
      */
     @Override
     public NodePostProcessor apply( final Document document ) {
-        return new JSPWikiLinkNodePostProcessor( m_context, document, isImageInlining, inlineImagePatterns );
+        final Context context = m_context != null ? m_context : MarkdownProcessors.currentContext();
+        if( context == null ) {
+            return NO_OP;
+        }
+        return new JSPWikiLinkNodePostProcessor( context, document, isImageInlining, inlineImagePatterns );
     }
 
 }
@@ -78,4 +78,17 @@ public class MarkdownDocument extends WikiDocument {
         return options;
     }
 
+    /**
+     * Configuration options for MarkdownRenderers shared by all the requests, which take the wiki context of each document from
+     * {@link org.apache.wiki.markdown.MarkdownProcessors#currentContext()}.
+     *
+     * @param isImageInlining whether images are inlined.
+     * @param inlineImagePatterns patterns of the images to inline.
+     * @return configuration options for MarkdownRenderers.
+     * @since 2.12.3
+     */
+    public static MutableDataSet options( final boolean isImageInlining, final List< Pattern > inlineImagePatterns ) {
+        return options( null, isImageInlining, inlineImagePatterns );
+    }
+
 }
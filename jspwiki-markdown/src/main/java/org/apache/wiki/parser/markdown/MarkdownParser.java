@@ -18,11 +18,11 @@
  */
 package org.apache.wiki.parser.markdown;
 
-import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Node;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.auth.AuthorizationManager;
 import org.apache.wiki.auth.UserManager;
+import org.apache.wiki.markdown.MarkdownProcessors;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
 
@@ -31,11 +31,12 @@ import java.io.Reader;
 
 
 /**
- * Class handling the markdown parsing.
+ * Class handling the markdown parsing. The flexmark parser doing the actual work is shared by all the MarkdownParsers of a
+ * wiki with the same options, see {@link MarkdownProcessors}.
  */
 public class MarkdownParser extends MarkupParser {
 
-    private final Parser parser;
+    private final MarkdownProcessors processors;
 
     public MarkdownParser( final Context context, final Reader in ) {
         super( context, in );
@@ -43,7 +44,7 @@ public class MarkdownParser extends MarkupParser {
             context.getEngine().getManager( AuthorizationManager.class ) == null ) {
             disableAccessRules();
         }
-        parser = Parser.builder( MarkdownDocument.options( context, isImageInlining(), getInlineImagePatterns() ) ).build();
+        processors = MarkdownProcessors.of( context.getEngine(), isImageInlining(), getInlineImagePatterns() );
     }
 
     /**
@@ -51,7 +52,7 @@ public class MarkdownParser extends MarkupParser {
      */
     @Override
     public WikiDocument parse() throws IOException {
-        final Node document = parser.parseReader( m_in );
+        final Node document = processors.parse( m_context, m_in );
         final MarkdownDocument md = new MarkdownDocument( m_context.getPage(), document );
         md.setContext( m_context );
 
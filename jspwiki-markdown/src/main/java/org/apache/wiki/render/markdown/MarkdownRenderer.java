@@ -18,10 +18,9 @@
  */
 package org.apache.wiki.render.markdown;
 
-import com.vladsch.flexmark.html.HtmlRenderer;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.oro.text.regex.Pattern;
 import org.apache.wiki.api.core.Context;
+import org.apache.wiki.markdown.MarkdownProcessors;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
 import org.apache.wiki.parser.markdown.MarkdownDocument;
@@ -29,24 +28,22 @@ import org.apache.wiki.render.RenderingManager;
 import org.apache.wiki.render.WikiRenderer;
 
 import java.io.IOException;
-import java.util.List;
 
 
 /**
- * Class handling the markdown rendering.
+ * Class handling the markdown rendering. The flexmark renderer doing the actual work is shared by all the MarkdownRenderers of
+ * a wiki with the same options, see {@link MarkdownProcessors}.
  */
 public class MarkdownRenderer extends WikiRenderer {
 
-	private final HtmlRenderer renderer;
+	private final MarkdownProcessors processors;
 
 	public MarkdownRenderer( final Context context, final WikiDocument doc ) {
 		super( context, doc );
 		final MarkupParser mp = context.getEngine()
 				                       .getManager( RenderingManager.class )
 				                       .getParser( context, StringUtils.defaultString( doc.getPageData() ) );
-		final boolean isImageInlining = mp.isImageInlining();
-		final List< Pattern > inlineImagePatterns = mp.getInlineImagePatterns();
-		renderer = HtmlRenderer.builder( MarkdownDocument.options( context, isImageInlining, inlineImagePatterns ) ).build();
+		processors = MarkdownProcessors.of( context.getEngine(), mp.isImageInlining(), mp.getInlineImagePatterns() );
 	}
 
 	/**
@@ -56,7 +53,7 @@ public class MarkdownRenderer extends WikiRenderer {
 	public String getString() throws IOException {
 		m_document.setContext( m_context );
 		if( m_document instanceof MarkdownDocument ) {
-			return renderer.render( ( ( MarkdownDocument )m_document ).getMarkdownNode() );
+			return processors.render( m_context, ( ( MarkdownDocument )m_document ).getMarkdownNode() );
 		} else {
 			throw new IOException( "MarkdownRenderer requires to be used with MarkdownParser" );
 		}
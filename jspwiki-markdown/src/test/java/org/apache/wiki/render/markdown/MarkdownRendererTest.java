@@ -26,7 +26,9 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.WikiException;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.markdown.MarkdownProcessors;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.parser.markdown.MarkdownDocument;
 import org.apache.wiki.parser.markdown.MarkdownParser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -309,6 +311,25 @@ public class MarkdownRendererTest {
                                  translate( src ) );
     }
 
+    @Test
+    public void testParsedDocumentsAreRenderedWithSharedProcessors() throws Exception {
+        final String src = "This should be a [link](SandBox)";
+        newPage( "SandBox" );
+
+        final Context context = Wiki.context().create( testEngine, testEngine.newHttpRequest(), Wiki.contents().page( testEngine, PAGE_NAME ) );
+        final MarkdownParser first = new MarkdownParser( context, new StringReader( src ) );
+        final MarkdownParser second = new MarkdownParser( context, new StringReader( src ) );
+        Assertions.assertSame( MarkdownProcessors.of( testEngine, first.isImageInlining(), first.getInlineImagePatterns() ),
+                               MarkdownProcessors.of( testEngine, second.isImageInlining(), second.getInlineImagePatterns() ) );
+
+        final MarkdownDocument document = ( MarkdownDocument )first.parse();
+        final Context other = Wiki.context().create( testEngine, testEngine.newHttpRequest(), Wiki.contents().page( testEngine, "SandBox" ) );
+        final String expected = "<p>This should be a <a href=\"/test/Wiki.jsp?page=SandBox\" class=\"wikipage\">link</a></p>\n";
+        Assertions.assertEquals( expected, new MarkdownRenderer( context, document ).getString() );
+        Assertions.assertEquals( expected, new MarkdownRenderer( other, document ).getString() );
+        Assertions.assertNull( MarkdownProcessors.currentContext() );
+    }
+
     @AfterEach
     public void tearDown() {
         created.clear();
@@ -0,0 +1,181 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search.tika;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wiki.api.core.Attachment;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+
+/**
+ * Text extracted from attachments, kept on disk so attachments which haven't changed don't need to be parsed again when
+ * the wiki is reindexed. There's one file per attachment version; storing a version drops the ones stored before. The text
+ * is kept along with the character limit it was extracted with, so changing the limit extracts the attachments again.
+ * Attachment versions which could not be parsed are remembered the same way, so they are not tried again on each reindex.
+ * <p>
+ * Versions are not enough for attachment providers which don't keep old versions around, so the text of an attachment
+ * modified after it was stored is not used either.
+ *
+ * @since 2.12.3
+ */
+final class ExtractedTextCache {
+
+    private static final Logger LOG = LogManager.getLogger( ExtractedTextCache.class );
+
+    private static final String SUFFIX = ".txt";
+    private static final String FAILED_SUFFIX = ".failed";
+    private static final String LIMIT = "@";
+    private static final Pattern VERSION = Pattern.compile( "-?\\d+(" + LIMIT + "-?\\d+)?("
+                                                            + Pattern.quote( SUFFIX ) + "|" + Pattern.quote( FAILED_SUFFIX ) + ")" );
+
+    private final File m_dir;
+    private final int m_maxCharacters;
+
+    /**
+     * Creates a cache of text extracted with a given character limit.
+     *
+     * @param dir directory holding the text.
+     * @param maxCharacters maximum number of characters extracted from each attachment, -1 for no limit.
+     */
+    ExtractedTextCache( final File dir, final int maxCharacters ) {
+        m_dir = dir;
+        m_maxCharacters = maxCharacters;
+    }
+
+    /**
+     * Returns the text stored for an attachment version.
+     *
+     * @param att the attachment.
+     * @return the stored text, or {@code null} if there's none, or it is older than the attachment.
+     */
+    String get( final Attachment att ) {
+        final File file = new File( m_dir, fileName( prefix( att ), att, SUFFIX ) );
+        if( !isCurrent( file, att ) ) {
+            return null;
+        }
+        try {
+            return new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 );
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to read the text extracted from {}, parsing it again: {}", att.getName(), e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Stores the text extracted from an attachment version.
+     *
+     * @param att the attachment.
+     * @param text the extracted text.
+     */
+    void put( final Attachment att, final String text ) {
+        final String prefix = prefix( att );
+        final Path file = new File( m_dir, fileName( prefix, att, SUFFIX ) ).toPath();
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile( m_dir.toPath(), "extract", ".tmp" );
+            Files.write( tmp, text.getBytes( StandardCharsets.UTF_8 ) );
+            try {
+                Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            } catch( final AtomicMoveNotSupportedException e ) {
+                Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING );
+            }
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to keep the text extracted from {}: {}", att.getName(), e.getMessage() );
+            if( tmp != null ) {
+                tmp.toFile().delete();
+            }
+            return;
+        }
+
+        deleteAll( prefix, file.getFileName().toString() );
+    }
+
+    /**
+     * Tells whether an attachment version could not be parsed before.
+     *
+     * @param att the attachment.
+     * @return {@code true} if it failed to be parsed, and hasn't been modified since.
+     */
+    boolean hasFailed( final Attachment att ) {
+        return isCurrent( new File( m_dir, fileName( prefix( att ), att, FAILED_SUFFIX ) ), att );
+    }
+
+    /**
+     * Remembers that an attachment version could not be parsed, either because the parser failed or because it took too long.
+     *
+     * @param att the attachment.
+     */
+    void putFailure( final Attachment att ) {
+        final String prefix = prefix( att );
+        final File file = new File( m_dir, fileName( prefix, att, FAILED_SUFFIX ) );
+        try {
+            if( !file.createNewFile() ) {
+                file.setLastModified( System.currentTimeMillis() );
+            }
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to remember that {} could not be parsed: {}", att.getName(), e.getMessage() );
+            return;
+        }
+
+        deleteAll( prefix, file.getName() );
+    }
+
+    /**
+     * Drops the text stored for all the versions of an attachment.
+     *
+     * @param att the attachment.
+     */
+    void remove( final Attachment att ) {
+        deleteAll( prefix( att ), null );
+    }
+
+    private void deleteAll( final String prefix, final String except ) {
+        final File[] stored = m_dir.listFiles( ( dir, name ) -> name.startsWith( prefix )
+                                                                && VERSION.matcher( name.substring( prefix.length() ) ).matches()
+                                                                && !name.equals( except ) );
+        if( stored != null ) {
+            for( final File stale : stored ) {
+                stale.delete();
+            }
+        }
+    }
+
+    private static boolean isCurrent( final File file, final Attachment att ) {
+        return file.exists() && ( att.getLastModified() == null || file.lastModified() >= att.getLastModified().getTime() );
+    }
+
+    private String fileName( final String prefix, final Attachment att, final String suffix ) {
+        return prefix + att.getVersion() + LIMIT + m_maxCharacters + suffix;
+    }
+
+    private static String prefix( final Attachment att ) {
+        return URLEncoder.encode( att.getName(), StandardCharsets.UTF_8 ) + "-"; // also encodes the '/' between page and file name
+    }
+
+}
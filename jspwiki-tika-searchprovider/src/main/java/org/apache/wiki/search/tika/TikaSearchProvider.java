@@ -21,6 +21,7 @@ package org.apache.wiki.search.tika;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.WriteLimitReachedException;
 import org.apache.tika.metadata.ClimateForcast;
 import org.apache.tika.metadata.CreativeCommons;
 import org.apache.tika.metadata.Database;
@@ -33,29 +34,83 @@ import org.apache.tika.metadata.PDF;
 import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
 import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.NoRequiredPropertyException;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.event.WikiEngineEvent;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
+import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.search.LuceneSearchProvider;
+import org.apache.wiki.util.TextUtil;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.util.HashSet;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Search provider that extends {link LuceneSearchProvider} using Apache Tika for indexing attachment content.
+ * <p>
+ * Attachments are parsed on threads of their own, at most {@link #PROP_THREADS} at a time, and only the first
+ * {@link #PROP_MAX_CHARACTERS} characters of each one are indexed, so a single huge or broken attachment can neither exhaust
+ * the memory nor hold the indexing for long. The {@link #PROP_TIMEOUT} of each attachment runs from the moment it starts being
+ * parsed. Tika parsers don't always stop when interrupted, so a parse which times out is left behind on its thread, and no
+ * longer counts against the number of threads. At most as many threads again are kept for those parses; once all of them are
+ * stuck, attachments are skipped until some parse finishes. The text extracted from each attachment version is kept under the
+ * work directory, so unchanged attachments are not parsed again, and neither are the ones which failed or timed out.
  *
  * @since 2.11.0
  * @see <a href="https://issues.apache.org/jira/browse/JSPWIKI-469">JSPWIKI-469</a>
  */
-public class TikaSearchProvider extends LuceneSearchProvider {
+public class TikaSearchProvider extends LuceneSearchProvider implements WikiEventListener {
 
     private static final Logger LOG = LogManager.getLogger( TikaSearchProvider.class );
+
+    /** Maximum number of characters of text extracted from an attachment, -1 for no limit. Default is 1.000.000. */
+    public static final String PROP_MAX_CHARACTERS = "jspwiki.tika.maxCharacters";
+
+    /** Seconds given to parse an attachment before giving up on it. Default is 60. */
+    public static final String PROP_TIMEOUT = "jspwiki.tika.timeout";
+
+    /** Number of attachments parsed at the same time. Default is 2. */
+    public static final String PROP_THREADS = "jspwiki.tika.threads";
+
+    private static final int DEFAULT_MAX_CHARACTERS = 1_000_000;
+    private static final int DEFAULT_TIMEOUT = 60;
+    private static final int DEFAULT_THREADS = 2;
+
+    /** Directory, under the work directory, where the extracted text is kept. */
+    private static final String CACHE_DIR = "tika";
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
     final AutoDetectParser parser;
     final Set< String > textualMetadataFields;
+    private int m_maxCharacters;
+    private int m_timeout;
+    private ExecutorService m_extractors;
+    private Semaphore m_parsing;
+    private ExtractedTextCache m_cache;
 
     public TikaSearchProvider() {
         parser = new AutoDetectParser();
@@ -84,6 +139,32 @@ public class TikaSearchProvider extends LuceneSearchProvider {
         textualMetadataFields.add( ClimateForcast.INSTITUTION );
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void initialize( final Engine engine, final Properties props ) throws NoRequiredPropertyException, IOException {
+        m_maxCharacters = TextUtil.getIntegerProperty( props, PROP_MAX_CHARACTERS, DEFAULT_MAX_CHARACTERS );
+        m_timeout = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_TIMEOUT, DEFAULT_TIMEOUT ) );
+        final int threads = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_THREADS, DEFAULT_THREADS ) );
+        m_parsing = new Semaphore( threads );
+        // no queue, so each parse starts right away, on a new thread if the others are busy or stuck on a timed out parse, up to
+        // twice the number of parsing threads; past that, the attachment is rejected and skipped
+        m_extractors = new ThreadPoolExecutor( 0, 2 * threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            final Thread t = new Thread( r, "JSPWiki Tika Extractor-" + THREADS.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy() );
+        WikiEventManager.addWikiEventListener( engine, this );
+
+        final File dir = new File( engine.getWorkDir(), CACHE_DIR );
+        if( dir.isDirectory() || dir.mkdirs() ) {
+            m_cache = new ExtractedTextCache( dir, m_maxCharacters );
+        } else {
+            LOG.warn( "Cannot create {}, attachments will be parsed each time they are indexed", dir.getAbsolutePath() );
+        }
+
+        super.initialize( engine, props ); // starts indexing, so goes last
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -92,18 +173,75 @@ public class TikaSearchProvider extends LuceneSearchProvider {
      */
     @Override
     protected String getAttachmentContent( final Attachment att ) {
+        final String cached = m_cache != null ? m_cache.get( att ) : null;
+        if( cached != null ) {
+            return cached;
+        }
+        if( m_cache != null && m_cache.hasFailed( att ) ) {
+            LOG.debug( "Attachment {} could not be parsed before, skipping it", att.getName() );
+            return "";
+        }
+
+        Future< String > extraction = null;
+        try {
+            m_parsing.acquire();
+            try {
+                extraction = m_extractors.submit( () -> extract( att ) );
+                final String text = extraction.get( m_timeout, TimeUnit.SECONDS );
+                if( m_cache != null ) {
+                    m_cache.put( att, text );
+                }
+                return text;
+            } finally {
+                m_parsing.release();
+            }
+        } catch( final TimeoutException e ) {
+            extraction.cancel( true );
+            LOG.error( "Attachment {} could not be parsed within {} seconds, leaving its parser behind", att.getName(), m_timeout );
+            if( m_cache != null ) {
+                m_cache.putFailure( att );
+            }
+        } catch( final RejectedExecutionException e ) {
+            if( m_extractors.isShutdown() ) {
+                LOG.warn( "Attachment {} not parsed, the wiki is shutting down", att.getName() );
+            } else {
+                LOG.warn( "Attachment {} not parsed, all the extractor threads are stuck on attachments which timed out", att.getName() );
+            }
+        } catch( final ExecutionException e ) {
+            if( e.getCause() instanceof TikaException || e.getCause() instanceof SAXException ) {
+                LOG.error( "Attachment cannot be parsed", e.getCause() );
+                if( m_cache != null ) {
+                    m_cache.putFailure( att );
+                }
+            } else {
+                LOG.error( "Attachment cannot be loaded", e.getCause() );
+            }
+        } catch( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            LOG.warn( "Interrupted while parsing attachment {}", att.getName() );
+        }
+
+        return "";
+    }
+
+    /** Extracts the text of an attachment, up to {@link #PROP_MAX_CHARACTERS}, followed by its textual metadata. */
+    String extract( final Attachment att ) throws ProviderException, IOException, TikaException, SAXException {
         final AttachmentManager mgr = getEngine().getManager( AttachmentManager.class );
-        final StringBuilder out = new StringBuilder();
+        final StringWriter out = new StringWriter();
 
         try( final InputStream attStream = mgr.getAttachmentStream( att ) ) {
             final Metadata metadata = new Metadata();
             metadata.set( TikaCoreProperties.RESOURCE_NAME_KEY, att.getFileName() );
 
-            final ContentHandler handler = new BodyContentHandler(-1 );
-            // -1 disables the character size limit; otherwise only the first 100.000 characters are indexed
-
-            parser.parse( attStream, handler, metadata );
-            out.append( handler );
+            final ContentHandler handler = new BodyContentHandler( new WriteOutContentHandler( out, m_maxCharacters ) );
+            try {
+                parser.parse( attStream, handler, metadata );
+            } catch( final SAXException e ) {
+                if( !WriteLimitReachedException.isWriteLimitReached( e ) ) {
+                    throw e;
+                }
+                LOG.info( "Only the first {} characters of attachment {} are indexed", m_maxCharacters, att.getName() );
+            }
 
             final String[] names = metadata.names();
             for( final String name : names ) {
@@ -111,13 +249,34 @@ public class TikaSearchProvider extends LuceneSearchProvider {
                     out.append( " " ).append( metadata.get( name ) );
                 }
             }
-        } catch( final TikaException | SAXException e ) {
-            LOG.error( "Attachment cannot be parsed", e );
-        } catch( final ProviderException | IOException e ) {
-            LOG.error( "Attachment cannot be loaded", e );
         }
 
         return out.toString();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The text extracted from removed attachments is dropped too.
+     */
+    @Override
+    public void pageRemoved( final Page page ) {
+        super.pageRemoved( page );
+        if( page instanceof Attachment && m_cache != null ) {
+            m_cache.remove( ( Attachment )page );
+        }
+    }
+
+    /**
+     * Stops the attachment parsers once the wiki shuts down.
+     *
+     * @param event {@inheritDoc}
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiEngineEvent && event.getType() == WikiEngineEvent.SHUTDOWN && m_extractors != null ) {
+            m_extractors.shutdownNow();
+        }
+    }
+
 }
\ No newline at end of file
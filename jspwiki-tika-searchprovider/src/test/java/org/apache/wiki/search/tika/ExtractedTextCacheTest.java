@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wiki.search.tika;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.spi.Wiki;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Date;
+
+
+public class ExtractedTextCacheTest {
+
+    TestEngine engine = TestEngine.build();
+
+    @TempDir
+    File dir;
+
+    @Test
+    void testKeepsLatestVersionOnly() {
+        final ExtractedTextCache cache = new ExtractedTextCache( dir, 1_000 );
+        final Attachment first = attachment( "a-file.pdf", 1 );
+        final Attachment second = attachment( "a-file.pdf", 2 );
+        final Attachment other = attachment( "a-file.pdf-2", 1 );
+
+        Assertions.assertNull( cache.get( first ) );
+        cache.put( first, "first version" );
+        cache.put( other, "other attachment" );
+        Assertions.assertEquals( "first version", cache.get( first ) );
+
+        cache.put( second, "second version" );
+        Assertions.assertNull( cache.get( first ) );
+        Assertions.assertEquals( "second version", cache.get( second ) );
+        Assertions.assertEquals( "other attachment", cache.get( other ) );
+        Assertions.assertEquals( 2, dir.list().length );
+    }
+
+    @Test
+    void testIgnoresTextOlderThanAttachment() {
+        final ExtractedTextCache cache = new ExtractedTextCache( dir, 1_000 );
+        final Attachment att = attachment( "a-file.pdf", 1 );
+        cache.put( att, "extracted text" );
+        Assertions.assertEquals( "extracted text", cache.get( att ) );
+
+        att.setLastModified( new Date( System.currentTimeMillis() + 60_000L ) );
+        Assertions.assertNull( cache.get( att ) );
+    }
+
+    @Test
+    void testTextIsExtractedAgainWithAnotherLimit() {
+        final Attachment att = attachment( "a-file.pdf", 1 );
+        new ExtractedTextCache( dir, 1_000 ).put( att, "extracted text" );
+
+        final ExtractedTextCache raised = new ExtractedTextCache( dir, 2_000 );
+        Assertions.assertNull( raised.get( att ) );
+        raised.put( att, "extracted text, and then some" );
+        Assertions.assertEquals( "extracted text, and then some", raised.get( att ) );
+        Assertions.assertEquals( 1, dir.list().length );
+    }
+
+    @Test
+    void testRemove() {
+        final ExtractedTextCache cache = new ExtractedTextCache( dir, 1_000 );
+        final Attachment att = attachment( "a-file.pdf", 1 );
+        final Attachment other = attachment( "a-file.pdf-2", 1 );
+        cache.put( att, "extracted text" );
+        cache.put( other, "other attachment" );
+
+        cache.remove( att );
+        Assertions.assertNull( cache.get( att ) );
+        Assertions.assertEquals( "other attachment", cache.get( other ) );
+        Assertions.assertEquals( 1, dir.list().length );
+    }
+
+    @Test
+    void testFailuresAreKeptPerVersion() {
+        final ExtractedTextCache cache = new ExtractedTextCache( dir, 1_000 );
+        final Attachment first = attachment( "a-file.pdf", 1 );
+        final Attachment second = attachment( "a-file.pdf", 2 );
+
+        Assertions.assertFalse( cache.hasFailed( first ) );
+        cache.putFailure( first );
+        Assertions.assertTrue( cache.hasFailed( first ) );
+        Assertions.assertNull( cache.get( first ) );
+        Assertions.assertFalse( cache.hasFailed( second ) );
+
+        cache.put( second, "second version" );
+        Assertions.assertFalse( cache.hasFailed( first ) );
+        Assertions.assertEquals( "second version", cache.get( second ) );
+        Assertions.assertEquals( 1, dir.list().length );
+    }
+
+    Attachment attachment( final String fileName, final int version ) {
+        final Attachment att = Wiki.contents().attachment( engine, "Test-tika", fileName );
+        att.setVersion( version );
+        att.setLastModified( new Date( 0L ) );
+        return att;
+    }
+
+}
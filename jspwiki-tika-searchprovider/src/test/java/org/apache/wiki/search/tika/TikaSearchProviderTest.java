@@ -23,6 +23,7 @@ import org.apache.wiki.search.SearchManager;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
@@ -51,4 +52,27 @@ public class TikaSearchProviderTest {
         Assertions.assertTrue( pngIndexed.contains( "favicon.png" ) );
     }
 
+    @Test
+    void testGetAttachmentContentIsCappedAndKept() throws Exception {
+        final TestEngine capped = TestEngine.build( TestEngine.with( TikaSearchProvider.PROP_MAX_CHARACTERS, "20" ) );
+        capped.saveText( "Test-tika-capped", "blablablabla" );
+        final byte[] filePdf = Files.readAllBytes( Paths.get( TikaSearchProviderTest.class.getClassLoader().getResource( "aaa-diagram.pdf" ).toURI() ) );
+        capped.addAttachment( "Test-tika-capped", "aaa-diagram.pdf", filePdf );
+
+        final TikaSearchProvider tsp = ( TikaSearchProvider )capped.getManager( SearchManager.class ).getSearchEngine();
+        final Attachment attPdf = capped.getManager( AttachmentManager.class ).getAttachmentInfo( "Test-tika-capped/aaa-diagram.pdf" );
+        final String pdfIndexed = tsp.getAttachmentContent( attPdf );
+        Assertions.assertTrue( pdfIndexed.contains( "aaa-diagram.pdf" ) );
+        Assertions.assertFalse( pdfIndexed.contains( "WebContainerAuthorizer" ) );
+
+        final File[] kept = new File( capped.getWorkDir(), "tika" ).listFiles( ( dir, name ) -> name.startsWith( "Test-tika-capped" ) );
+        Assertions.assertNotNull( kept );
+        Assertions.assertEquals( 1, kept.length );
+        Assertions.assertEquals( pdfIndexed, tsp.getAttachmentContent( attPdf ) );
+
+        capped.getManager( AttachmentManager.class ).deleteAttachment( attPdf );
+        Assertions.assertEquals( 0, new File( capped.getWorkDir(), "tika" ).listFiles( ( dir, name ) -> name.startsWith( "Test-tika-capped" ) ).length );
+        capped.stop();
+    }
+
 }
\ No newline at end of file
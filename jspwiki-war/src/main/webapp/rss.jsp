@@ -106,26 +106,26 @@
     }
     
     //
-    //  Check if nothing has changed, so we can just return a 304
+    //  Check if nothing has changed, so we can just return a 304.  Each page, mode
+    //  and type makes a different feed, which only changes with its latest entry.
     //
-    boolean hasChanged = false;
     Date    latest     = new Date(0);
 
     for( Iterator< Page > i = changed.iterator(); i.hasNext(); ) {
         Page p = i.next();
 
-        if( !HttpUtil.checkFor304( request, p.getName(), p.getLastModified() ) ) hasChanged = true;
         if( p.getLastModified().after( latest ) ) latest = p.getLastModified();
     }
 
-    if( !hasChanged && !changed.isEmpty()) {
+    String feedName = wikipage.getName()+";"+mode+";"+type;
+    if( !changed.isEmpty() && HttpUtil.checkFor304( request, feedName, latest ) ) {
         response.sendError( HttpServletResponse.SC_NOT_MODIFIED );
         w.exitState();
         return;
     }
 
     response.addDateHeader("Last-Modified",latest.getTime());
-    response.addHeader("ETag", HttpUtil.createETag( wikipage.getName(), wikipage.getLastModified() ) );
+    response.addHeader("ETag", HttpUtil.createETag( feedName, latest ) );
     
     //
     //  Try to get the RSS XML from the cache.  We build the hashkey
@@ -134,7 +134,7 @@
     //
     //  TODO: Figure out if it would be a good idea to use a disk-based cache here.
     //
-    String hashKey = wikipage.getName()+";"+mode+";"+type+";"+latest.getTime();
+    String hashKey = feedName+";"+latest.getTime();
     
     String rss = "";
 